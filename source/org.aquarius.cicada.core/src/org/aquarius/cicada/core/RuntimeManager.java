@@ -166,9 +166,7 @@ public final class RuntimeManager {
 			AbstractMovieParser movieParser = findMovieParserBySite(siteName);
 			AssertUtil.assertNotNull(movieParser);
 
-			List<Movie> movieList = this.storeService.queryMoviesBySite(movieParser.getName(), null);
-
-			site = new Site(movieParser, movieList);
+			site = new Site(movieParser, this.storeService);
 
 			this.siteCache.put(siteName, site);
 		}
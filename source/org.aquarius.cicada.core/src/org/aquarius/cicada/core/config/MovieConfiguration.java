@@ -57,6 +57,22 @@ public final class MovieConfiguration extends AbstractStoreableConfiguration {
 
 	public static final String Key_StrictCheckStrategy = MovieConfiguration.class.getName() + "Key.StrictCheckStrategy";
 
+	public static final String Key_DatabaseMaxConnections = MovieConfiguration.class.getName() + "Key.DatabaseMaxConnections";
+
+	public static final String Key_DatabaseLockTimeout = MovieConfiguration.class.getName() + "Key.DatabaseLockTimeout";
+
+	public static final String Key_CrawlMaxConcurrentPages = MovieConfiguration.class.getName() + "Key.CrawlMaxConcurrentPages";
+
+	public static final String Key_CrawlPagesPerMinute = MovieConfiguration.class.getName() + "Key.CrawlPagesPerMinute";
+
+	public static final int DefaultDatabaseMaxConnections = 8;
+
+	public static final int DefaultDatabaseLockTimeout = 10000;
+
+	public static final int DefaultCrawlMaxConcurrentPages = 4;
+
+	public static final int DefaultCrawlPagesPerMinute = 30;
+
 	private List<String> analyserSiteFilters = new ArrayList<>();
 
 	/**
@@ -102,6 +118,84 @@ public final class MovieConfiguration extends AbstractStoreableConfiguration {
 		storeService.setDefault(Key_StrictCheckStrategy, true);
 
 		storeService.setDefault(Key_UseTitleAsFileName, true);
+
+		storeService.setDefault(Key_DatabaseMaxConnections, DefaultDatabaseMaxConnections);
+		storeService.setDefault(Key_DatabaseLockTimeout, DefaultDatabaseLockTimeout);
+
+		storeService.setDefault(Key_CrawlMaxConcurrentPages, DefaultCrawlMaxConcurrentPages);
+		storeService.setDefault(Key_CrawlPagesPerMinute, DefaultCrawlPagesPerMinute);
+	}
+
+	/**
+	 * Return the max count of the list pages of a site loaded at the same
+	 * time.<BR>
+	 *
+	 * @return
+	 */
+	public int getCrawlMaxConcurrentPages() {
+		return Integer.max(1, this.getStoreService().getInt(Key_CrawlMaxConcurrentPages));
+	}
+
+	/**
+	 *
+	 * @param crawlMaxConcurrentPages
+	 */
+	public void setCrawlMaxConcurrentPages(int crawlMaxConcurrentPages) {
+		this.getStoreService().setValue(Key_CrawlMaxConcurrentPages, crawlMaxConcurrentPages);
+	}
+
+	/**
+	 * Return how many list pages of a site can be loaded in a minute.<BR>
+	 *
+	 * @return
+	 */
+	public int getCrawlPagesPerMinute() {
+		return Integer.max(1, this.getStoreService().getInt(Key_CrawlPagesPerMinute));
+	}
+
+	/**
+	 *
+	 * @param crawlPagesPerMinute
+	 */
+	public void setCrawlPagesPerMinute(int crawlPagesPerMinute) {
+		this.getStoreService().setValue(Key_CrawlPagesPerMinute, crawlPagesPerMinute);
+	}
+
+	/**
+	 * Return the max count of database connections used at the same time.<BR>
+	 * The readers and writers use their own connections,h2 keeps them isolated by
+	 * multi version concurrency.<BR>
+	 *
+	 * @return
+	 */
+	public int getDatabaseMaxConnections() {
+		return Integer.max(2, this.getStoreService().getInt(Key_DatabaseMaxConnections));
+	}
+
+	/**
+	 *
+	 * @param databaseMaxConnections
+	 */
+	public void setDatabaseMaxConnections(int databaseMaxConnections) {
+		this.getStoreService().setValue(Key_DatabaseMaxConnections, databaseMaxConnections);
+	}
+
+	/**
+	 * Return the time in milliseconds to wait for a row locked by another
+	 * transaction.<BR>
+	 *
+	 * @return
+	 */
+	public int getDatabaseLockTimeout() {
+		return Integer.max(1000, this.getStoreService().getInt(Key_DatabaseLockTimeout));
+	}
+
+	/**
+	 *
+	 * @param databaseLockTimeout
+	 */
+	public void setDatabaseLockTimeout(int databaseLockTimeout) {
+		this.getStoreService().setValue(Key_DatabaseLockTimeout, databaseLockTimeout);
 	}
 
 	/**
@@ -0,0 +1,329 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.aquarius.cicada.core.spi.AbstractMovieParser;
+import org.aquarius.cicada.core.spi.IProcessMonitor;
+import org.aquarius.log.LogUtil;
+import org.aquarius.util.ExecutorUtil;
+import org.aquarius.util.SystemUtil;
+import org.aquarius.util.exception.ExceptionUtil;
+import org.slf4j.Logger;
+
+/**
+ * Schedule the pages and channels of a site to be parsed in parallel.<BR>
+ * Every site has its own scheduler,the pages are started no faster than the
+ * rate of the site and no more than the max count of the site are loaded at
+ * the same time,even if many jobs refresh the same site.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public final class CrawlScheduler {
+
+	private static final int MaxThreadCount = 20;
+	// The swt web accessor service has 20 browsers at most.
+
+	private static final Map<String, CrawlScheduler> Schedulers = new ConcurrentHashMap<>();
+
+	private static final ThreadPoolExecutor PageExecutor = ExecutorUtil.createDaemonExecutor("site page crawler", MaxThreadCount);
+
+	private static final ThreadPoolExecutor ChannelExecutor = ExecutorUtil.createDaemonExecutor("site channel crawler", MaxThreadCount);
+
+	private final Logger logger = LogUtil.getLogger(this.getClass());
+
+	private final String siteName;
+
+	private final PagePermits inFlightPermits;
+
+	private int maxConcurrentPages;
+
+	private double tokens;
+
+	private double tokensPerMillis;
+
+	private long lastRefillTime = System.currentTimeMillis();
+
+	/**
+	 * @param siteName
+	 * @param maxConcurrentPages
+	 */
+	private CrawlScheduler(String siteName, int maxConcurrentPages) {
+		super();
+
+		this.siteName = siteName;
+		this.maxConcurrentPages = maxConcurrentPages;
+		this.inFlightPermits = new PagePermits(maxConcurrentPages);
+		this.tokens = maxConcurrentPages;
+	}
+
+	/**
+	 * Return the scheduler of the site,the limits are updated from the parser.<BR>
+	 *
+	 * @param movieParser
+	 * @return
+	 */
+	public static CrawlScheduler getInstance(AbstractMovieParser movieParser) {
+		CrawlScheduler scheduler = Schedulers.computeIfAbsent(movieParser.getName(),
+				siteName -> new CrawlScheduler(siteName, Math.max(1, movieParser.getMaxConcurrentPages())));
+
+		scheduler.updateLimits(Math.max(1, movieParser.getMaxConcurrentPages()), Math.max(1, movieParser.getPagesPerMinute()));
+
+		return scheduler;
+	}
+
+	/**
+	 * @param newMaxConcurrentPages
+	 * @param pagesPerMinute
+	 */
+	private synchronized void updateLimits(int newMaxConcurrentPages, int pagesPerMinute) {
+		int delta = newMaxConcurrentPages - this.maxConcurrentPages;
+
+		if (delta > 0) {
+			this.inFlightPermits.release(delta);
+		} else if (delta < 0) {
+			this.inFlightPermits.reducePermits(-delta);
+		}
+		// The permits taken by the running pages are returned later,so a smaller
+		// limit takes effect gradually.
+
+		this.maxConcurrentPages = newMaxConcurrentPages;
+		this.tokensPerMillis = pagesPerMinute / (double) SystemUtil.TimeMinute;
+	}
+
+	/**
+	 * Return the max count of the pages loaded at the same time.<BR>
+	 *
+	 * @return
+	 */
+	public synchronized int getMaxConcurrentPages() {
+		return this.maxConcurrentPages;
+	}
+
+	/**
+	 * Submit a page to be loaded.<BR>
+	 * The caller waits for a permit and a token before the page is submitted,so
+	 * the threads of the pool never wait for the limits of a site.The permit is
+	 * returned when the page is finished or canceled before it starts.<BR>
+	 *
+	 * @param task
+	 * @param processMonitor
+	 * @return a future of null if the process is canceled.
+	 */
+	public <T> Future<T> submitPage(Callable<T> task, IProcessMonitor processMonitor) {
+
+		try {
+			if (!this.acquire(processMonitor)) {
+				return CompletableFuture.completedFuture(null);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return CompletableFuture.completedFuture(null);
+		}
+
+		AtomicBoolean claimed = new AtomicBoolean();
+
+		FutureTask<T> futureTask = new FutureTask<T>(() -> {
+
+			if (!claimed.compareAndSet(false, true)) {
+				return null;
+			}
+
+			try {
+				return processMonitor.isCanceled() ? null : task.call();
+			} finally {
+				this.inFlightPermits.release();
+			}
+		}) {
+
+			@Override
+			protected void done() {
+				if (claimed.compareAndSet(false, true)) {
+					CrawlScheduler.this.inFlightPermits.release();
+				}
+			}
+		};
+		// Either the task or the cancellation returns the permit,never both.
+
+		PageExecutor.execute(futureTask);
+
+		return futureTask;
+	}
+
+	/**
+	 * Wait for the result of a page.<BR>
+	 * Null is returned if the process is canceled,the exception of a failed page
+	 * is thrown,so the channel is not regarded as finished.<BR>
+	 *
+	 * @param future
+	 * @param processMonitor
+	 * @return
+	 */
+	public <T> T waitFor(Future<T> future, IProcessMonitor processMonitor) {
+
+		while (true) {
+
+			if (processMonitor.isCanceled()) {
+				future.cancel(false);
+				return null;
+			}
+
+			try {
+				return future.get(SystemUtil.NumberHundred * 5, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// Nothing to do
+			} catch (InterruptedException e) {
+				future.cancel(false);
+				Thread.currentThread().interrupt();
+				return null;
+			} catch (ExecutionException e) {
+				this.logger.error("parse page of " + this.siteName, e.getCause());
+				ExceptionUtil.throwRuntimeException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Run the tasks in parallel and wait for all of them.<BR>
+	 * The first exception is thrown after all the tasks are finished.<BR>
+	 *
+	 * @param taskList
+	 * @param parallelCount
+	 */
+	public void runChannels(List<Runnable> taskList, int parallelCount) {
+
+		if (taskList.size() <= 1 || parallelCount <= 1) {
+			taskList.forEach(Runnable::run);
+			return;
+		}
+
+		Semaphore channelPermits = new Semaphore(parallelCount);
+		List<Future<?>> futureList = new ArrayList<>(taskList.size());
+
+		for (Runnable task : taskList) {
+			channelPermits.acquireUninterruptibly();
+
+			futureList.add(ChannelExecutor.submit(() -> {
+				try {
+					task.run();
+				} finally {
+					channelPermits.release();
+				}
+			}));
+		}
+
+		RuntimeException exception = null;
+
+		for (Future<?> future : futureList) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				this.logger.error("parse channel of " + this.siteName, e.getCause());
+
+				if (null == exception) {
+					exception = (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+				}
+			}
+		}
+
+		if (null != exception) {
+			throw exception;
+		}
+	}
+
+	/**
+	 * Take a permit of the pages in flight and a token of the rate.<BR>
+	 *
+	 * @param processMonitor
+	 * @return false if the process is canceled.
+	 */
+	private boolean acquire(IProcessMonitor processMonitor) throws InterruptedException {
+
+		while (!this.inFlightPermits.tryAcquire(SystemUtil.NumberHundred, TimeUnit.MILLISECONDS)) {
+			if (processMonitor.isCanceled()) {
+				return false;
+			}
+		}
+
+		while (true) {
+
+			if (processMonitor.isCanceled()) {
+				this.inFlightPermits.release();
+				return false;
+			}
+
+			long waitTime = this.takeToken();
+
+			if (waitTime <= 0) {
+				return true;
+			}
+
+			SystemUtil.sleepQuietly(Math.min(waitTime, SystemUtil.NumberHundred));
+		}
+	}
+
+	/**
+	 * Refill the bucket and take a token.<BR>
+	 *
+	 * @return 0 if a token is taken,otherwise the time to wait.
+	 */
+	private synchronized long takeToken() {
+		long currentTime = System.currentTimeMillis();
+
+		this.tokens = Math.min(this.maxConcurrentPages, this.tokens + (currentTime - this.lastRefillTime) * this.tokensPerMillis);
+		this.lastRefillTime = currentTime;
+		// The bucket holds a burst as large as the pages in flight.
+
+		if (this.tokens >= 1) {
+			this.tokens = this.tokens - 1;
+			return 0;
+		}
+
+		return (long) Math.ceil((1 - this.tokens) / this.tokensPerMillis);
+	}
+
+	/**
+	 * The permits of the pages in flight which can be reduced without
+	 * waiting.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	private static final class PagePermits extends Semaphore {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @param permits
+		 */
+		private PagePermits(int permits) {
+			super(permits, true);
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		protected void reducePermits(int reduction) {
+			super.reducePermits(reduction);
+		}
+	}
+}
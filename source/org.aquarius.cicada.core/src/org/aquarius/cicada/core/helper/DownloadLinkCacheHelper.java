@@ -0,0 +1,274 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.helper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang.BooleanUtils;
+import org.aquarius.cicada.core.RuntimeManager;
+import org.aquarius.cicada.core.impl.monitor.DefaultProcessMonitor;
+import org.aquarius.cicada.core.model.DownloadInfo;
+import org.aquarius.cicada.core.model.DownloadLinkCache;
+import org.aquarius.cicada.core.model.Link;
+import org.aquarius.cicada.core.model.Movie;
+import org.aquarius.cicada.core.service.IMovieStoreService;
+import org.aquarius.cicada.core.spi.IProcessMonitor;
+import org.aquarius.cicada.core.util.MovieUtil;
+import org.aquarius.log.LogUtil;
+import org.aquarius.util.NumberUtil;
+import org.aquarius.util.SystemUtil;
+import org.slf4j.Logger;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * Prepare the download links of movies with the links stored in the
+ * database.<BR>
+ * The links of a movie are stored after they are parsed and analysed,they are
+ * used again until they are expired,so the detail pages are not opened and the
+ * analysers are not run again.The links which are not validated for a while
+ * are validated at the same time before they are used,the movie is parsed
+ * again if any of its download infos has no valid link.<BR>
+ * The stored links are only used if the download info cache is enabled.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public final class DownloadLinkCacheHelper {
+
+	private static final long ValidateInterval = 10 * SystemUtil.TimeMinute;
+
+	private static Logger logger = LogUtil.getLogger(DownloadLinkCacheHelper.class);
+
+	/**
+	 *
+	 */
+	private DownloadLinkCacheHelper() {
+		// No instances needed
+	}
+
+	/**
+	 * Parse and analyse the download links of the movies,the valid stored links
+	 * are used instead.<BR>
+	 *
+	 * @param movieList
+	 * @param forExternal
+	 * @param processMonitor
+	 * @return the error message of parsing the movies.
+	 */
+	public static String prepareDownloadLinks(List<Movie> movieList, boolean forExternal, IProcessMonitor processMonitor) {
+
+		processMonitor = DefaultProcessMonitor.wrapProgressMonitor(processMonitor);
+
+		if (!RuntimeManager.getInstance().getConfiguration().isUseDownloadInfoCache()) {
+			String errorMessage = MovieParserHelper.parseMovieDetailInfo(true, movieList, processMonitor);
+			MovieDownloadAnalyserHelper.analyseMovieDownloadUrls(movieList, forExternal, processMonitor);
+
+			return errorMessage;
+		}
+
+		Set<Movie> restoredMovies = Collections.newSetFromMap(new IdentityHashMap<>());
+		restoredMovies.addAll(restore(movieList, forExternal));
+
+		List<Movie> staleMovieList = new ArrayList<>();
+		List<Movie> parsedMovieList = new ArrayList<>();
+
+		for (Movie movie : movieList) {
+			if (!restoredMovies.contains(movie)) {
+				parsedMovieList.add(movie);
+			} else if (!movie.isAnalysed()) {
+				staleMovieList.add(movie);
+			}
+		}
+
+		parsedMovieList.addAll(validate(staleMovieList));
+		// The movies without valid links are parsed again.
+
+		String errorMessage = null;
+
+		if (!parsedMovieList.isEmpty()) {
+			errorMessage = MovieParserHelper.parseMovieDetailInfo(true, parsedMovieList, processMonitor);
+			MovieDownloadAnalyserHelper.analyseMovieDownloadUrls(parsedMovieList, forExternal, processMonitor);
+		}
+
+		if (!processMonitor.isCanceled()) {
+			Set<Movie> storedMovies = Collections.newSetFromMap(new IdentityHashMap<>());
+			storedMovies.addAll(staleMovieList);
+			storedMovies.addAll(parsedMovieList);
+
+			store(storedMovies, forExternal);
+		}
+		// The links of the canceled process may be incomplete.
+
+		return errorMessage;
+	}
+
+	/**
+	 * Restore the links which are not expired to the movies.<BR>
+	 *
+	 * @param movieList
+	 * @param forExternal
+	 * @return the restored movies.
+	 */
+	private static List<Movie> restore(List<Movie> movieList, boolean forExternal) {
+
+		Map<Integer, Movie> movieMap = new HashMap<>();
+
+		for (Movie movie : movieList) {
+			if (NumberUtil.getIntValue(movie.getId()) != 0) {
+				movieMap.put(movie.getId(), movie);
+			}
+		}
+
+		List<Movie> restoredMovieList = new ArrayList<>();
+
+		if (movieMap.isEmpty()) {
+			return restoredMovieList;
+		}
+
+		List<DownloadLinkCache> cacheList;
+
+		try {
+			cacheList = getStoreService().queryDownloadLinkCaches(movieMap.keySet());
+		} catch (Exception e) {
+			logger.error("query download link caches", e);
+			return restoredMovieList;
+		}
+
+		for (DownloadLinkCache downloadLinkCache : cacheList) {
+			Movie movie = movieMap.get(downloadLinkCache.getMovieId());
+
+			if ((null == movie) || downloadLinkCache.isExpired() || (forExternal != BooleanUtils.isTrue(downloadLinkCache.getForExternal()))) {
+				continue;
+			}
+			// The analysers may return different urls for the external downloaders.
+
+			try {
+				List<DownloadInfo> downloadInfoList = JSON.parseArray(downloadLinkCache.getContent(), DownloadInfo.class);
+
+				if (CollectionUtils.isEmpty(downloadInfoList)) {
+					continue;
+				}
+
+				movie.setDownloadInfoList(downloadInfoList, true);
+				movie.setLastValidTime(downloadLinkCache.getExpireTime());
+				movie.setAnalysed(!isValidateNeeded(downloadLinkCache));
+				// A movie whose links are not validated for a while is not marked as
+				// analysed until the links are validated.
+
+				restoredMovieList.add(movie);
+			} catch (Exception e) {
+				logger.error("restore download links of " + movie.getPageUrl(), e);
+			}
+		}
+
+		return restoredMovieList;
+	}
+
+	/**
+	 * Validate the links of the stale movies at the same time.<BR>
+	 *
+	 * @param staleMovieList
+	 * @return the movies which have no valid link.
+	 */
+	private static List<Movie> validate(List<Movie> staleMovieList) {
+
+		List<DownloadInfo> downloadInfoList = new ArrayList<>();
+
+		for (Movie movie : staleMovieList) {
+			downloadInfoList.addAll(movie.getDownloadInfoList());
+		}
+
+		List<Movie> invalidMovieList = new ArrayList<>();
+
+		if (downloadInfoList.isEmpty()) {
+			return invalidMovieList;
+		}
+
+		List<Link> linkList = MovieUtil.find(downloadInfoList, true);
+		int index = 0;
+
+		for (Movie movie : staleMovieList) {
+			boolean valid = true;
+
+			for (int i = 0; i < movie.getDownloadInfoList().size(); i++) {
+				valid = valid && (null != linkList.get(index + i));
+			}
+
+			index = index + movie.getDownloadInfoList().size();
+
+			if (valid) {
+				movie.setAnalysed(true);
+			} else {
+				movie.setLastValidTime(null);
+				invalidMovieList.add(movie);
+			}
+			// The invalid links are not stored again if the movie fails to be parsed.
+		}
+
+		return invalidMovieList;
+	}
+
+	/**
+	 * Store the links of the movies which are parsed or validated.<BR>
+	 *
+	 * @param movieList
+	 * @param forExternal
+	 */
+	private static void store(Collection<Movie> movieList, boolean forExternal) {
+
+		List<DownloadLinkCache> cacheList = new ArrayList<>();
+		Date currentTime = new Date();
+
+		for (Movie movie : movieList) {
+
+			if ((NumberUtil.getIntValue(movie.getId()) == 0) || !movie.isIncludeDownloadInfo() || movie.isOutOfValidTime()
+					|| CollectionUtils.isEmpty(movie.getDownloadInfoList())) {
+				continue;
+			}
+
+			DownloadLinkCache downloadLinkCache = new DownloadLinkCache();
+			downloadLinkCache.setMovieId(movie.getId());
+			downloadLinkCache.setForExternal(forExternal);
+			downloadLinkCache.setContent(JSON.toJSONString(movie.getDownloadInfoList()));
+			downloadLinkCache.setExpireTime(movie.getLastValidTime());
+			downloadLinkCache.setLastValidateTime(currentTime);
+
+			cacheList.add(downloadLinkCache);
+		}
+
+		try {
+			getStoreService().deleteExpiredDownloadLinkCaches();
+			getStoreService().insertOrUpdateDownloadLinkCaches(cacheList);
+		} catch (Exception e) {
+			logger.error("store download link caches", e);
+		}
+	}
+
+	/**
+	 * @param downloadLinkCache
+	 * @return
+	 */
+	private static boolean isValidateNeeded(DownloadLinkCache downloadLinkCache) {
+		Date lastValidateTime = downloadLinkCache.getLastValidateTime();
+
+		return (null == lastValidateTime) || ((lastValidateTime.getTime() + ValidateInterval) < System.currentTimeMillis());
+	}
+
+	/**
+	 * @return
+	 */
+	private static IMovieStoreService getStoreService() {
+		return RuntimeManager.getInstance().getStoreService();
+	}
+}
@@ -4,11 +4,15 @@
 package org.aquarius.cicada.core.helper;
 
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.Future;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
@@ -31,6 +35,7 @@ import org.aquarius.cicada.core.spi.AbstractMovieParser;
 import org.aquarius.cicada.core.spi.IProcessMonitor;
 import org.aquarius.cicada.core.util.MovieUtil;
 import org.aquarius.util.NumberUtil;
+import org.aquarius.util.collection.CollectionUtil;
 import org.aquarius.util.net.UrlUtil;
 
 /**
@@ -46,6 +51,8 @@ public class MovieParserHelper {
 
 	public static final int ExhausePageJumpStep = 200;
 
+	private static final int MaxCheckDuplicationCount = 5;
+
 	/**
 	 *
 	 */
@@ -176,31 +183,42 @@ public class MovieParserHelper {
 			movieChannelFilter = NullMovieChannelFilter.getInstance();
 		}
 
+		IProcessMonitor realProcessMonitor = processMonitor;
+		List<Runnable> taskList = new ArrayList<>();
+
 		for (MovieChannel movieChannel : channelList) {
 
 			if (movieChannelFilter.isFilter(movieChannel)) {
 				continue;
 			}
 
-			VisitHistory visitHistory = parseChannel(site, movieChannel, processMonitor);
-			// Save history to avoid parse unnecessary update.
+			taskList.add(() -> {
 
-			if (processMonitor.isCanceled()) {
-				break;
-			}
+				if (realProcessMonitor.isCanceled()) {
+					return;
+				}
 
-			if (null != visitHistory) {
-				visitHistory.setLastUpdate(new Date());
+				VisitHistory visitHistory = parseChannel(site, movieChannel, realProcessMonitor);
+				// Save history to avoid parse unnecessary update.
 
-				if (visitHistory.getLastVisitPageNumber() != null) {
-					RuntimeManager.getInstance().getStoreService().insertOrUpdateVisitHistory(visitHistory);
+				if (realProcessMonitor.isCanceled()) {
+					return;
 				}
-			}
 
-			if (processMonitor.isCanceled()) {
-				break;
-			}
+				if (null != visitHistory) {
+					visitHistory.setLastUpdate(new Date());
+
+					if (visitHistory.getLastVisitPageNumber() != null) {
+						RuntimeManager.getInstance().getStoreService().insertOrUpdateVisitHistory(visitHistory);
+					}
+				}
+			});
 		}
+
+		CrawlScheduler scheduler = CrawlScheduler.getInstance(movieParser);
+		scheduler.runChannels(taskList, scheduler.getMaxConcurrentPages());
+		// The channels share the limits of the site,so a channel waits when the others
+		// take all the pages in flight.
 	}
 
 	/**
@@ -279,44 +297,68 @@ public class MovieParserHelper {
 		List<Movie> movieList = new ArrayList<>();
 		String urlPattern = channel.getUrlPattern();
 
-		for (int currentPage = range.getStart(); currentPage <= range.getEnd(); currentPage++) {
+		Movie lastVisitedMovie = findLastVisitedMovie(site, channel);
+		// The movies of the channel are only changed after the range is saved.
 
-			if (processMonitor.isCanceled()) {
-				return null;
-			}
+		CrawlScheduler scheduler = CrawlScheduler.getInstance(movieParser);
+		Deque<Future<MovieListResult>> futureQueue = new ArrayDeque<>();
 
-			String currentPageString = currentPage + "";
-			String currentPageUrl = MessageFormat.format(urlPattern, currentPageString);
+		int windowSize = 1;
+		int nextPage = range.getStart();
 
-			String taskName = MessageFormat.format(message, site.getSiteName(), channel.getDisplayName(), currentPage);
-			processMonitor.setName(taskName);
+		try {
+			for (int currentPage = range.getStart(); currentPage <= range.getEnd(); currentPage++) {
 
-			Movie lastVisitedMovie = findLastVisitedMovie(site, channel);
+				while ((futureQueue.size() < windowSize) && (nextPage <= range.getEnd())) {
+					String currentPageUrl = MessageFormat.format(urlPattern, nextPage + "");
+					futureQueue.add(scheduler.submitPage(() -> movieParser.parseMovieListPage(currentPageUrl, lastVisitedMovie, processMonitor), processMonitor));
 
-			MovieListResult movieListWebPage = movieParser.parseMovieListPage(currentPageUrl, lastVisitedMovie, processMonitor);
+					nextPage++;
+				}
+				// The following pages are loaded while the current one is checked.
 
-			if (null == movieListWebPage || CollectionUtils.isEmpty(movieListWebPage.getMovieList())) {
-				return null;
-			}
+				String taskName = MessageFormat.format(message, site.getSiteName(), channel.getDisplayName(), currentPage);
+				processMonitor.setName(taskName);
 
-			MovieUtil.updateInfo(movieListWebPage.getMovieList(), channel.getName(), site.getSiteName());
+				MovieListResult movieListWebPage = scheduler.waitFor(futureQueue.poll(), processMonitor);
 
-			if (!conditionChecker.checkShouldContinue(movieListWebPage)) {
-				movieList.addAll(movieListWebPage.getMovieList());
-				return movieList;
-			}
-			// If the urls monitor found duplicated movie, them will be removed.
-			// The process will be interrupted;
+				if (processMonitor.isCanceled()) {
+					return null;
+				}
 
-			movieList.addAll(movieListWebPage.getMovieList());
+				if (null == movieListWebPage || CollectionUtils.isEmpty(movieListWebPage.getMovieList())) {
+					return null;
+				}
 
-			boolean isLastPage = movieListWebPage.isLastPage();
+				MovieUtil.updateInfo(movieListWebPage.getMovieList(), channel.getName(), site.getSiteName());
 
-			if (!isLastPage) {
-				if (!shouldContinue(movieListWebPage)) {
-					return null;
+				if (!conditionChecker.checkShouldContinue(movieListWebPage)) {
+					movieList.addAll(movieListWebPage.getMovieList());
+					return movieList;
+				}
+				// If the urls monitor found duplicated movie, them will be removed.
+				// The process will be interrupted;
+				// The pages are checked in order,so the movies keep the order of the site.
+
+				movieList.addAll(movieListWebPage.getMovieList());
+
+				boolean isLastPage = movieListWebPage.isLastPage();
+
+				if (!isLastPage) {
+					if (!shouldContinue(movieListWebPage)) {
+						return null;
+					}
 				}
+
+				windowSize = Math.min(windowSize * 2, scheduler.getMaxConcurrentPages());
+				// A refresh often stops at the first page,so the pages loaded ahead grow only
+				// when the known movies are not met.
+			}
+		} finally {
+			for (Future<MovieListResult> future : futureQueue) {
+				future.cancel(false);
 			}
+			// The pages after the stopped one are not needed.
 		}
 
 		return movieList;
@@ -440,8 +482,8 @@ public class MovieParserHelper {
 		boolean strictCheckStrategy = RuntimeManager.getInstance().getConfiguration().isStrictCheckStrategy();
 
 		if (strictCheckStrategy) {
-			List<Movie> preloadMovieList = site.getMovieList().stream().filter(movie -> StringUtils.equals(movie.getChannel(), channel.getName()))
-					.collect(Collectors.toList());
+			List<Movie> preloadMovieList = site.getChannelMovies(channel.getName(), MaxCheckDuplicationCount);
+			// Only the latest movies are used to check the duplication.
 
 			DuplicatedUrlsCondition urlsMonitor = DuplicatedUrlsCondition.create(preloadMovieList, movieParser.getCheckDuplicationCount());
 			return urlsMonitor;
@@ -452,17 +494,7 @@ public class MovieParserHelper {
 	}
 
 	private static Movie findLastVisitedMovie(Site site, MovieChannel channel) {
-
-		for (Movie movie : site.getMovieList()) {
-
-			if (StringUtils.equals(movie.getChannel(), channel.getName())) {
-				return movie;
-			}
-
-		}
-
-		return null;
-
+		return CollectionUtil.findFirstElement(site.getChannelMovies(channel.getName(), 1));
 	}
 
 	/**
@@ -507,11 +539,23 @@ public class MovieParserHelper {
 			List<Movie> sourceMovieList = new ArrayList<>(movieList);
 
 			Collections.reverse(movieList);
-			RuntimeManager.getInstance().getStoreService().insertOrUpdateMovies(movieList);
 
-			site.addMoviesToHeader(sourceMovieList);
+			Set<Integer> savedIds = new HashSet<>();
+
+			for (Movie movie : RuntimeManager.getInstance().getStoreService().insertOrUpdateMovies(movieList)) {
+				savedIds.add(movie.getId());
+			}
+
+			sourceMovieList.removeIf(movie -> (null == movie.getId()) || !savedIds.remove(movie.getId()));
+			// The duplicated movies are not saved,so they are not added to the site.
+			// A movie is added once even if it is in the list twice.
+
+			synchronized (site) {
+				site.addMoviesToHeader(sourceMovieList);
+			}
 			// The site order the movies by desc.
 			// So the new movies should be added to the header.
+			// The channels are saved by many threads.
 		}
 
 		visitHistory.setLastUpdate(new Date());
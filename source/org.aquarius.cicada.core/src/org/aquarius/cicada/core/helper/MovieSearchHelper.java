@@ -0,0 +1,246 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import org.aquarius.cicada.core.RuntimeManager;
+import org.aquarius.cicada.core.config.MovieConfiguration;
+import org.aquarius.cicada.core.impl.monitor.DefaultProcessMonitor;
+import org.aquarius.cicada.core.model.Movie;
+import org.aquarius.cicada.core.model.MovieSearchCondition;
+import org.aquarius.cicada.core.service.IMovieStoreService;
+import org.aquarius.cicada.core.spi.IProcessMonitor;
+import org.aquarius.log.LogUtil;
+import org.aquarius.util.ExecutorUtil;
+import org.aquarius.util.SystemUtil;
+import org.slf4j.Logger;
+
+/**
+ * Search the movies of many sites in the database.<BR>
+ * The sites are not loaded into memory,every site is searched by the database
+ * page by page in parallel,the found movies are passed to the caller as soon
+ * as a page is searched.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public final class MovieSearchHelper {
+
+	private static final int PageSize = 1000;
+
+	private static final int MaxThreadCount = Math.max(1, MovieConfiguration.DefaultDatabaseMaxConnections / 2);
+	// Half of the connections are left for the other operations.
+
+	private static final ThreadPoolExecutor SearchExecutor = ExecutorUtil.createDaemonExecutor("movie searcher", MaxThreadCount);
+
+	private static Logger logger = LogUtil.getLogger(MovieSearchHelper.class);
+
+	/**
+	 *
+	 */
+	private MovieSearchHelper() {
+		// No instances needed
+	}
+
+	/**
+	 * Search the movies of the sites.<BR>
+	 * The consumer is called with the site name and the movies found in a page,it
+	 * is called by one thread at a time,and never after this method
+	 * returns.<BR>
+	 *
+	 * @param siteNames
+	 * @param condition
+	 * @param maxResultCount the search stops when so many movies are found.
+	 * @param consumer
+	 * @param processMonitor
+	 * @return the result to tell the count of the found movies and whether some
+	 *         are dropped by the max count.
+	 */
+	public static SearchResult search(List<String> siteNames, MovieSearchCondition condition, int maxResultCount, BiConsumer<String, List<Movie>> consumer,
+			IProcessMonitor processMonitor) {
+
+		IProcessMonitor realProcessMonitor = DefaultProcessMonitor.wrapProgressMonitor(processMonitor);
+		SearchResult searchResult = new SearchResult(maxResultCount, consumer);
+
+		List<Future<?>> futureList = new ArrayList<>(siteNames.size());
+
+		for (String siteName : siteNames) {
+			futureList.add(SearchExecutor.submit(() -> searchSite(siteName, condition, searchResult, realProcessMonitor)));
+		}
+
+		for (Future<?> future : futureList) {
+			waitFor(future, realProcessMonitor);
+		}
+
+		searchResult.close();
+		// The tasks still running after canceling don't pass their movies to the
+		// consumer any more.
+
+		return searchResult;
+	}
+
+	/**
+	 * @param siteName
+	 * @param condition
+	 * @param searchResult
+	 * @param processMonitor
+	 */
+	private static void searchSite(String siteName, MovieSearchCondition condition, SearchResult searchResult, IProcessMonitor processMonitor) {
+
+		IMovieStoreService storeService = RuntimeManager.getInstance().getStoreService();
+		Integer maxId = null;
+
+		while (!processMonitor.isCanceled() && !searchResult.isFull()) {
+
+			List<Movie> movieList = storeService.queryMoviesByCondition(siteName, condition, maxId, PageSize);
+			List<Movie> foundList = new ArrayList<>();
+
+			for (Movie movie : movieList) {
+				if (condition.matches(movie)) {
+					foundList.add(movie);
+				}
+			}
+
+			searchResult.add(siteName, foundList);
+
+			if (movieList.size() < PageSize) {
+				return;
+			}
+
+			maxId = movieList.get(movieList.size() - 1).getId();
+		}
+	}
+
+	/**
+	 * @param future
+	 * @param processMonitor
+	 */
+	private static void waitFor(Future<?> future, IProcessMonitor processMonitor) {
+
+		while (true) {
+
+			if (processMonitor.isCanceled()) {
+				future.cancel(false);
+				return;
+			}
+
+			try {
+				future.get(SystemUtil.NumberHundred * 5, TimeUnit.MILLISECONDS);
+				return;
+			} catch (TimeoutException e) {
+				// Nothing to do
+			} catch (InterruptedException e) {
+				future.cancel(false);
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				logger.error("search movies", e.getCause());
+				return;
+			}
+		}
+	}
+
+	/**
+	 * The movies found in all the sites.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	public static final class SearchResult {
+
+		private final int maxCount;
+
+		private final BiConsumer<String, List<Movie>> consumer;
+
+		private int count;
+
+		private boolean truncated;
+
+		private boolean closed;
+
+		/**
+		 * @param maxCount
+		 * @param consumer
+		 */
+		private SearchResult(int maxCount, BiConsumer<String, List<Movie>> consumer) {
+			super();
+			this.maxCount = maxCount;
+			this.consumer = consumer;
+		}
+
+		/**
+		 * @param siteName
+		 * @param movieList
+		 */
+		private synchronized void add(String siteName, List<Movie> movieList) {
+			int remainCount = this.maxCount - this.count;
+
+			if (this.closed || movieList.isEmpty()) {
+				return;
+			}
+
+			if (movieList.size() > remainCount) {
+				this.truncated = true;
+			}
+
+			if (remainCount <= 0) {
+				return;
+			}
+
+			List<Movie> acceptedList = (movieList.size() > remainCount) ? movieList.subList(0, remainCount) : movieList;
+
+			this.count = this.count + acceptedList.size();
+			this.consumer.accept(siteName, acceptedList);
+		}
+
+		/**
+		 * Drop the movies added later.<BR>
+		 */
+		private synchronized void close() {
+			this.closed = true;
+		}
+
+		/**
+		 * Return whether the search of a site should stop before its next
+		 * page.<BR>
+		 *
+		 * @return
+		 */
+		private synchronized boolean isFull() {
+			if (this.count >= this.maxCount) {
+				this.truncated = true;
+				return true;
+			}
+			// The pages not searched may have more movies.
+
+			return false;
+		}
+
+		/**
+		 * Return the count of the found movies.<BR>
+		 *
+		 * @return
+		 */
+		public synchronized int getCount() {
+			return this.count;
+		}
+
+		/**
+		 * Return whether some found movies are dropped because of the max count.<BR>
+		 *
+		 * @return
+		 */
+		public synchronized boolean isTruncated() {
+			return this.truncated;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.helper;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.StringUtils;
+import org.aquarius.cicada.core.spi.IProcessMonitor;
+import org.aquarius.cicada.core.spi.web.IWebAccessor;
+import org.aquarius.util.SystemUtil;
+
+/**
+ * Wait for a loaded page to be ready instead of sleeping a fixed time.<BR>
+ * The page is ready when the browser completes loading and a cheap script
+ * returns true,the script checks a selector of the site or waits for the
+ * network being quiet.<BR>
+ * Every site has its own detector,it learns the load time of the site like
+ * the retransmission timeout of tcp,so the wait is not longer than the usual
+ * load time even if the page never reports ready.The fixed wait time of the
+ * site is only a cap.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class PageReadyDetector {
+
+	private static final int PollInterval = SystemUtil.NumberHundred;
+
+	private static final int CheckInterval = 250;
+
+	private static final int MinWaitTime = 500;
+
+	private static final String NetworkQuietScript = "return (function(){" //
+			+ "if (document.readyState != 'complete') return false;" //
+			+ "var count = (window.performance && performance.getEntriesByType) ? performance.getEntriesByType('resource').length : 0;" //
+			+ "var quiet = (window['_cicada_resource_count_'] === count);" //
+			+ "window['_cicada_resource_count_'] = count;" //
+			+ "return quiet;})();";
+	// The network is quiet when no more resources are loaded between two checks.
+
+	private static final String SelectorScriptTemplate = "return (document.readyState != 'loading') && (null != document.querySelector('%s'));";
+
+	private double averageLoadTime = -1;
+
+	private double loadTimeDeviation;
+
+	/**
+	 *
+	 */
+	public PageReadyDetector() {
+		super();
+	}
+
+	/**
+	 * Return the script to check whether the page is ready.<BR>
+	 *
+	 * @param readySelector the css selector of an element shown when the page is
+	 *                      ready,the network is checked if it is empty.
+	 * @return
+	 */
+	public static String createReadyScript(String readySelector) {
+
+		if (StringUtils.isBlank(readySelector)) {
+			return NetworkQuietScript;
+		} else {
+			return String.format(SelectorScriptTemplate, StringEscapeUtils.escapeJavaScript(readySelector));
+		}
+	}
+
+	/**
+	 * Wait until the page is ready,or the learned budget or the max wait time is
+	 * used up.<BR>
+	 *
+	 * @param webAccessor
+	 * @param readyScript
+	 * @param maxWaitTime    the fixed wait time of the site.
+	 * @param processMonitor
+	 * @return whether the page is ready.
+	 */
+	public boolean waitForReady(IWebAccessor webAccessor, String readyScript, long maxWaitTime, IProcessMonitor processMonitor) {
+
+		long budget = Math.min(maxWaitTime, this.getWaitBudget());
+		long startTime = System.currentTimeMillis();
+		long lastCheckTime = 0;
+
+		while (true) {
+
+			if (processMonitor.isCanceled()) {
+				return false;
+			}
+
+			long currentTime = System.currentTimeMillis();
+			long elapsedTime = currentTime - startTime;
+
+			if (webAccessor.isLoaded() && ((currentTime - lastCheckTime) >= CheckInterval)) {
+				lastCheckTime = currentTime;
+
+				if (this.isReady(webAccessor, readyScript)) {
+					this.record(elapsedTime);
+					return true;
+				}
+			}
+
+			if (elapsedTime >= budget) {
+				this.record(Math.max(elapsedTime, Math.min(maxWaitTime, budget * 2)));
+				return false;
+			}
+			// The page is slower than usual,the budget grows for the next page.
+
+			SystemUtil.sleepQuietly(PollInterval);
+		}
+	}
+
+	/**
+	 * Return the time to wait for a page of the site.<BR>
+	 *
+	 * @return
+	 */
+	public synchronized long getWaitBudget() {
+
+		if (this.averageLoadTime < 0) {
+			return Long.MAX_VALUE;
+		}
+		// Nothing is learned,the max wait time is used.
+
+		return Math.max(MinWaitTime, (long) (this.averageLoadTime + 4 * this.loadTimeDeviation));
+	}
+
+	/**
+	 * @param webAccessor
+	 * @param readyScript
+	 * @return
+	 */
+	private boolean isReady(IWebAccessor webAccessor, String readyScript) {
+		try {
+			return Boolean.parseBoolean(StringUtils.trim(ObjectUtils.toString(webAccessor.syncExecuteScript(readyScript))));
+		} catch (UnsupportedOperationException e) {
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+		// The accessor which can't execute scripts is ready after loading.
+		// The script fails while the page is navigating,it is checked again.
+	}
+
+	/**
+	 * Learn the load time like the smoothed round trip time of tcp.<BR>
+	 *
+	 * @param loadTime
+	 */
+	private synchronized void record(long loadTime) {
+
+		if (this.averageLoadTime < 0) {
+			this.averageLoadTime = loadTime;
+			this.loadTimeDeviation = loadTime / 2.0;
+		} else {
+			this.loadTimeDeviation = 0.75 * this.loadTimeDeviation + 0.25 * Math.abs(this.averageLoadTime - loadTime);
+			this.averageLoadTime = 0.875 * this.averageLoadTime + 0.125 * loadTime;
+		}
+	}
+}
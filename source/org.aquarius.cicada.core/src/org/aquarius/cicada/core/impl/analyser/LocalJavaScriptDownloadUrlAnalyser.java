@@ -6,8 +6,6 @@ package org.aquarius.cicada.core.impl.analyser;
 import java.io.File;
 import java.io.IOException;
 
-import javax.script.Invocable;
-
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
@@ -93,8 +91,7 @@ public class LocalJavaScriptDownloadUrlAnalyser extends AbstractDownloadUrlAnaly
 		for (int i = 0; i < RetryCount; i++) {
 			try {
 
-				Invocable invocable = (Invocable) this.localJavaScriptEngineObject.getScriptEngine();
-				Object result = invocable.invokeFunction("doAnalyseDownloadUrl", dynamicUrl, referUrl, forExternal);
+				Object result = this.localJavaScriptEngineObject.invokeFunction("doAnalyseDownloadUrl", dynamicUrl, referUrl, forExternal);
 
 				String resultString = ObjectUtils.toString(result);
 
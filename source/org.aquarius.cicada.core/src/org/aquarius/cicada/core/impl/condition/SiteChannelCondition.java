@@ -8,7 +8,6 @@ import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
-import org.apache.commons.lang.StringUtils;
 import org.aquarius.cicada.core.model.Movie;
 import org.aquarius.cicada.core.model.MovieChannel;
 import org.aquarius.cicada.core.model.Site;
@@ -27,14 +26,11 @@ public class SiteChannelCondition implements ICondition {
 	 * 
 	 */
 	public SiteChannelCondition(Site site, MovieChannel movieChannel) {
-		List<Movie> movieList = site.getMovieList();
+		List<Movie> movieList = site.getChannelMovies(movieChannel.getName(), 0);
 
 		for (Movie movie : movieList) {
-
-			if (StringUtils.equalsIgnoreCase(movie.getChannel(), movieChannel.getName())) {
-				String movieId = MovieUtil.parseMovieId(movie);
-				this.videoIdSet.add(movieId);
-			}
+			String movieId = MovieUtil.parseMovieId(movie);
+			this.videoIdSet.add(movieId);
 		}
 	}
 
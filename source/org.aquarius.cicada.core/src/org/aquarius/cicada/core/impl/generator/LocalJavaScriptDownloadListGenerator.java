@@ -6,13 +6,12 @@ package org.aquarius.cicada.core.impl.generator;
 import java.io.File;
 import java.util.List;
 
-import javax.script.Invocable;
-
 import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.aquarius.cicada.core.model.Movie;
 import org.aquarius.cicada.core.script.LocalJavaScriptEngineObject;
 import org.aquarius.cicada.core.spi.AbstractDownloadListGenerator;
+import org.aquarius.service.IReloadable;
 
 /**
  * Use java script to generate download list.<BR>
@@ -20,7 +19,7 @@ import org.aquarius.cicada.core.spi.AbstractDownloadListGenerator;
  * @author aquarius.github@gmail.com
  *
  */
-public class LocalJavaScriptDownloadListGenerator extends AbstractDownloadListGenerator {
+public class LocalJavaScriptDownloadListGenerator extends AbstractDownloadListGenerator implements IReloadable {
 
 	private LocalJavaScriptEngineObject localJavaScriptEngineObject;
 
@@ -42,6 +41,14 @@ public class LocalJavaScriptDownloadListGenerator extends AbstractDownloadListGe
 		return this.localJavaScriptEngineObject.getName();
 	}
 
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public boolean reload() {
+		return this.localJavaScriptEngineObject.reload();
+	}
+
 	/**
 	 * {@inheritDoc}}
 	 */
@@ -50,8 +57,7 @@ public class LocalJavaScriptDownloadListGenerator extends AbstractDownloadListGe
 
 		try {
 
-			Invocable invocable = (Invocable) this.localJavaScriptEngineObject.getScriptEngine();
-			Object result = invocable.invokeFunction("doGenerateDownloadList", movieList, downloadFolder);
+			Object result = this.localJavaScriptEngineObject.invokeFunction("doGenerateDownloadList", movieList, downloadFolder);
 
 			return ObjectUtils.toString(result);
 
@@ -67,9 +73,7 @@ public class LocalJavaScriptDownloadListGenerator extends AbstractDownloadListGe
 	public boolean isUsePrimitiveUrl() {
 
 		try {
-			Invocable invocable = (Invocable) this.localJavaScriptEngineObject.getScriptEngine();
-
-			Object result = invocable.invokeFunction("isUsePrimitiveUrl");
+			Object result = this.localJavaScriptEngineObject.invokeFunction("isUsePrimitiveUrl");
 			String resultString = ObjectUtils.toString(result, "true");
 			return BooleanUtils.toBoolean(resultString);
 		} catch (Exception e) {
@@ -6,8 +6,6 @@ package org.aquarius.cicada.core.impl.http;
 import java.io.File;
 import java.net.HttpURLConnection;
 
-import javax.script.Invocable;
-
 import org.apache.commons.lang.StringUtils;
 import org.aquarius.cicada.core.script.LocalJavaScriptEngineObject;
 import org.aquarius.cicada.core.spi.AbstractHttpHeaderProcessor;
@@ -73,8 +71,7 @@ public class LocalJavaScriptHttpHeaderProcessor extends AbstractHttpHeaderProces
 	@Override
 	public void process(HttpURLConnection httpConnection) {
 		try {
-			Invocable invocable = (Invocable) this.localJavaScriptEngineObject.getScriptEngine();
-			invocable.invokeFunction("doProcess", httpConnection);
+			this.localJavaScriptEngineObject.invokeFunction("doProcess", httpConnection);
 
 		} catch (Exception e) {
 			this.log.error(this.localJavaScriptEngineObject.getName() + " process error ", e);
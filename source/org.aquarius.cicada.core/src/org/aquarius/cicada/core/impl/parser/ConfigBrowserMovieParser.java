@@ -301,6 +301,14 @@ public class ConfigBrowserMovieParser extends AbstractBrowserMovieParser impleme
 		return this.siteConfig.getWaitTime() * SystemUtil.TimeSecond;
 	}
 
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	protected String getReadySelector() {
+		return this.siteConfig.getReadySelector();
+	}
+
 	/**
 	 * {@inheritDoc}}
 	 */
@@ -5,8 +5,6 @@ package org.aquarius.cicada.core.impl.processor;
 
 import java.io.File;
 
-import javax.script.Invocable;
-
 import org.apache.commons.lang.StringUtils;
 import org.aquarius.cicada.core.model.Movie;
 import org.aquarius.cicada.core.script.LocalJavaScriptEngineObject;
@@ -65,8 +63,7 @@ public class LocalJavaScriptMovieInfoProcssor extends AbstractMovieInfoProcssor
 	@Override
 	public void process(Movie movie) {
 		try {
-			Invocable invocable = (Invocable) this.localJavaScriptEngineObject.getScriptEngine();
-			invocable.invokeFunction("doProcess", movie);
+			this.localJavaScriptEngineObject.invokeFunction("doProcess", movie);
 
 		} catch (Exception e) {
 			this.log.error(this.localJavaScriptEngineObject.getName() + " process error ", e);
@@ -0,0 +1,120 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.model;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The download infos of a movie stored in the database.<BR>
+ * The links are stored after they are analysed,so they can be used again
+ * before they are expired even if the application is restarted.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class DownloadLinkCache implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private Integer movieId;
+
+	private Boolean forExternal;
+
+	private String content;
+	// The download infos and links in json.
+
+	private Date expireTime;
+
+	private Date lastValidateTime;
+
+	/**
+	 * @return the movieId
+	 */
+	public Integer getMovieId() {
+		return this.movieId;
+	}
+
+	/**
+	 * @param movieId the movieId to set
+	 */
+	public void setMovieId(Integer movieId) {
+		this.movieId = movieId;
+	}
+
+	/**
+	 * @return the forExternal
+	 */
+	public Boolean getForExternal() {
+		return this.forExternal;
+	}
+
+	/**
+	 * @param forExternal the forExternal to set
+	 */
+	public void setForExternal(Boolean forExternal) {
+		this.forExternal = forExternal;
+	}
+
+	/**
+	 * @return the content
+	 */
+	public String getContent() {
+		return this.content;
+	}
+
+	/**
+	 * @param content the content to set
+	 */
+	public void setContent(String content) {
+		this.content = content;
+	}
+
+	/**
+	 * @return the expireTime
+	 */
+	public Date getExpireTime() {
+		return this.expireTime;
+	}
+
+	/**
+	 * @param expireTime the expireTime to set
+	 */
+	public void setExpireTime(Date expireTime) {
+		this.expireTime = expireTime;
+	}
+
+	/**
+	 * @return the lastValidateTime
+	 */
+	public Date getLastValidateTime() {
+		return this.lastValidateTime;
+	}
+
+	/**
+	 * @param lastValidateTime the lastValidateTime to set
+	 */
+	public void setLastValidateTime(Date lastValidateTime) {
+		this.lastValidateTime = lastValidateTime;
+	}
+
+	/**
+	 * Whether the links are expired.<BR>
+	 *
+	 * @return
+	 */
+	public boolean isExpired() {
+		return (null == this.expireTime) || (this.expireTime.getTime() < System.currentTimeMillis());
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public String toString() {
+		return "DownloadLinkCache [movieId=" + this.movieId + ", forExternal=" + this.forExternal + ", expireTime=" + this.expireTime + ", lastValidateTime="
+				+ this.lastValidateTime + "]";
+	}
+
+}
@@ -0,0 +1,65 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.model;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * The mapper of the table DOWNLOAD_LINK_CACHE.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public interface DownloadLinkCacheMapper {
+
+	/**
+	 * Return the caches of the movies.<BR>
+	 *
+	 * @param movieIds
+	 * @return
+	 */
+	List<DownloadLinkCache> selectByMovieIds(@Param("movieIds") Collection<Integer> movieIds);
+
+	/**
+	 * Insert the cache or replace the existing one of the movie.<BR>
+	 *
+	 * @param record
+	 * @return
+	 */
+	int merge(DownloadLinkCache record);
+
+	/**
+	 * @param movieId
+	 * @return
+	 */
+	int deleteByMovieId(Integer movieId);
+
+	/**
+	 * Delete the caches of the movies by one statement.<BR>
+	 *
+	 * @param movieIds
+	 * @return
+	 */
+	int deleteByMovieIds(@Param("movieIds") Collection<Integer> movieIds);
+
+	/**
+	 * Delete the caches of the movies of the site.<BR>
+	 *
+	 * @param site
+	 * @return
+	 */
+	int deleteBySite(@Param("site") String site);
+
+	/**
+	 * Delete the caches expired before the time.<BR>
+	 *
+	 * @param time
+	 * @return
+	 */
+	int deleteExpired(@Param("time") Date time);
+}
@@ -211,6 +211,20 @@ public class Movie implements Serializable {
 		return this.lastValidTime.getTime() < System.currentTimeMillis();
 	}
 
+	/**
+	 * @return the lastValidTime
+	 */
+	public Date getLastValidTime() {
+		return this.lastValidTime;
+	}
+
+	/**
+	 * @param lastValidTime the lastValidTime to set
+	 */
+	public void setLastValidTime(Date lastValidTime) {
+		this.lastValidTime = lastValidTime;
+	}
+
 	/**
 	 * @return the analysed
 	 */
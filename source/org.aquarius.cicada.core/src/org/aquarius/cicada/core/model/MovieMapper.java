@@ -1,6 +1,8 @@
 package org.aquarius.cicada.core.model;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.annotations.Param;
 
@@ -93,4 +95,64 @@ public interface MovieMapper {
 	 * @mbg.generated Fri Sep 24 16:39:24 JST 2021
 	 */
 	int updateByPrimaryKey(Movie record);
-}
\ No newline at end of file
+
+	/**
+	 * Return the ids of the movies of a site ordered by id desc.<BR>
+	 *
+	 * @param site
+	 * @return
+	 */
+	List<Integer> selectIdsBySite(String site);
+
+	/**
+	 * Return the ids of the movies of a site whose page urls are saved more than
+	 * once,the movie with the min id of a page url is not returned.<BR>
+	 *
+	 * @param site
+	 * @return
+	 */
+	List<Integer> selectDuplicatedIds(String site);
+
+	/**
+	 * Return the count of every distinct value of the column in a site.<BR>
+	 * The column is put into the sql directly,so it should be checked by the
+	 * caller.<BR>
+	 *
+	 * @param site
+	 * @param column
+	 * @return the rows contain "CONTENT" and "AMOUNT".
+	 */
+	List<Map<String, Object>> selectColumnCounts(@Param("site") String site, @Param("column") String column);
+
+	/**
+	 * Return the movies of a site which may match the condition ordered by id
+	 * desc.<BR>
+	 *
+	 * @param site
+	 * @param condition
+	 * @param maxId     only the movies whose id is less than it are returned,null
+	 *                  means no limit.
+	 * @param count
+	 * @return
+	 */
+	List<Movie> selectByCondition(@Param("site") String site, @Param("condition") MovieSearchCondition condition, @Param("maxId") Integer maxId,
+			@Param("count") int count);
+
+	/**
+	 * Return the ids and page urls of the movies of a site whose page urls are
+	 * in the list.<BR>
+	 *
+	 * @param site
+	 * @param pageUrls
+	 * @return
+	 */
+	List<Movie> selectByPageUrls(@Param("site") String site, @Param("pageUrls") Collection<String> pageUrls);
+
+	/**
+	 * Delete the movies by one statement.<BR>
+	 *
+	 * @param ids
+	 * @return
+	 */
+	int deleteByIds(@Param("ids") Collection<Integer> ids);
+}
@@ -0,0 +1,200 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+import org.aquarius.cicada.core.util.MovieUtil;
+import org.aquarius.util.StringUtil;
+
+/**
+ * The condition to search movies by keywords or a regex.<BR>
+ * The database only returns the movies which may match the condition,every
+ * movie is checked by {@link #matches(Movie)} again,so the result is the same
+ * as searching the movies in memory.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public final class MovieSearchCondition {
+
+	private static final List<String> TitleColumns = Arrays.asList("TITLE");
+
+	private static final List<String> AllColumns = Arrays.asList("TITLE", "ACTOR", "TAG", "CATEGORY", "UNI_ID", "PRODUCER");
+
+	private final String keyword;
+
+	private final boolean justSearchInTitle;
+
+	private final String[] keywords;
+
+	private final Pattern pattern;
+
+	private final List<String> likePatterns;
+
+	/**
+	 * @param keyword
+	 * @param justSearchInTitle
+	 * @param useRegex
+	 */
+	public MovieSearchCondition(String keyword, boolean justSearchInTitle, boolean useRegex) {
+		super();
+
+		this.keyword = keyword;
+		this.justSearchInTitle = justSearchInTitle;
+
+		if (useRegex) {
+			this.pattern = Pattern.compile(keyword, Pattern.CASE_INSENSITIVE);
+			this.keywords = new String[0];
+			this.likePatterns = new ArrayList<>();
+		} else {
+			this.pattern = null;
+			this.keywords = MovieUtil.split(keyword);
+			this.likePatterns = createLikePatterns(this.keywords);
+		}
+	}
+
+	/**
+	 * Return the patterns of like,every keyword is turned to its longest part
+	 * without wildcards.<BR>
+	 *
+	 * @param keywords
+	 * @return an empty list if any keyword matches everything.
+	 */
+	private static List<String> createLikePatterns(String[] keywords) {
+		List<String> likePatterns = new ArrayList<>();
+
+		for (String keyword : keywords) {
+			String longestPart = "";
+
+			for (String part : StringUtils.split(keyword, "*?")) {
+				if (part.length() > longestPart.length()) {
+					longestPart = part;
+				}
+			}
+
+			if (StringUtils.isEmpty(longestPart)) {
+				return new ArrayList<>();
+			}
+
+			likePatterns.add("%" + escapeLike(longestPart) + "%");
+		}
+
+		return likePatterns;
+	}
+
+	/**
+	 * @param value
+	 * @return
+	 */
+	private static String escapeLike(String value) {
+		StringBuilder stringBuilder = new StringBuilder(value.length() + 8);
+
+		for (char c : value.toCharArray()) {
+			if ((c == '%') || (c == '_') || (c == '\\')) {
+				stringBuilder.append('\\');
+			}
+
+			stringBuilder.append(c);
+		}
+
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * @return the keyword
+	 */
+	public String getKeyword() {
+		return this.keyword;
+	}
+
+	/**
+	 * Return the columns to be searched.<BR>
+	 *
+	 * @return
+	 */
+	public List<String> getColumns() {
+		return this.justSearchInTitle ? TitleColumns : AllColumns;
+	}
+
+	/**
+	 * Return the case insensitive patterns of like,a movie may match if any
+	 * column is like any pattern.<BR>
+	 *
+	 * @return an empty list if the movies can't be filtered by like.
+	 */
+	public List<String> getLikePatterns() {
+		return this.likePatterns;
+	}
+
+	/**
+	 * Return the regex which matches a whole column.<BR>
+	 *
+	 * @return null if keywords are used.
+	 */
+	public String getRegex() {
+		return (null == this.pattern) ? null : "^(?:" + this.pattern.pattern() + ")$";
+	}
+
+	/**
+	 * Whether the movie matches the condition.<BR>
+	 *
+	 * @param movie
+	 * @return
+	 */
+	public boolean matches(Movie movie) {
+
+		if (null != this.pattern) {
+			return this.matchesRegex(movie);
+		}
+
+		for (String currentKeyword : this.keywords) {
+			if (this.justSearchInTitle) {
+				if (StringUtil.findKeywordInRangeIgnoreCase(currentKeyword, movie.getTitle())) {
+					return true;
+				}
+			} else {
+				if (MovieUtil.findKeyword(movie, currentKeyword)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * @param movie
+	 * @return
+	 */
+	private boolean matchesRegex(Movie movie) {
+
+		if (this.justSearchInTitle) {
+			return StringUtils.isNotEmpty(movie.getTitle()) && this.pattern.matcher(movie.getTitle()).matches();
+		}
+
+		String[] stringArray = new String[] { movie.getTitle(), movie.getActor(), movie.getCategory(), movie.getTag(), movie.getUniId(), movie.getProducer() };
+
+		for (String string : stringArray) {
+			if (StringUtils.isNotEmpty(string) && this.pattern.matcher(string).matches()) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public String toString() {
+		return "MovieSearchCondition [keyword=" + this.keyword + ", justSearchInTitle=" + this.justSearchInTitle + ", regex=" + (null != this.pattern) + "]";
+	}
+
+}
@@ -0,0 +1,539 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.aquarius.cicada.core.service.IMovieStoreService;
+import org.aquarius.util.AssertUtil;
+
+/**
+ * A movie list of a site which loads the movies from the database on
+ * demand.<BR>
+ * Only the ids of the movies are kept in memory,the movies are loaded by pages
+ * when they are visited and the recently used ones are cached.So a big site
+ * doesn't hold all its rows in the heap.<BR>
+ * The movies which are not saved yet have no id,they are kept in memory until
+ * they are removed.<BR>
+ * A movie dropped from the cache is kept by a strong reference if it has
+ * transient states which can't be loaded again,otherwise by a weak reference,so
+ * the same object is returned as long as it is used by others.<BR>
+ * The database is queried without the lock of the list.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class PagedMovieList extends AbstractList<Movie> implements RandomAccess {
+
+	public static final int DefaultPageSize = 200;
+
+	public static final int DefaultMaxCachedCount = 10000;
+
+	private final IMovieStoreService storeService;
+
+	private final String siteName;
+
+	private final int pageSize;
+
+	private final int maxCachedCount;
+
+	private final List<Integer> keyList = new ArrayList<>();
+
+	private final Map<Integer, Movie> cachedMovies;
+
+	private final Map<Integer, Movie> pinnedMovies = new HashMap<>();
+
+	private final Map<Integer, Movie> retainedMovies = new HashMap<>();
+
+	private final Map<Integer, MovieReference> releasedMovies = new HashMap<>();
+
+	private final ReferenceQueue<Movie> referenceQueue = new ReferenceQueue<>();
+
+	private int pinnedKey = 0;
+
+	/**
+	 * @param storeService
+	 * @param siteName
+	 */
+	public PagedMovieList(IMovieStoreService storeService, String siteName) {
+		this(storeService, siteName, DefaultPageSize, DefaultMaxCachedCount);
+	}
+
+	/**
+	 * @param storeService
+	 * @param siteName
+	 * @param pageSize       how many movies are loaded by one query.
+	 * @param maxCachedCount how many loaded movies are cached.
+	 */
+	public PagedMovieList(IMovieStoreService storeService, String siteName, int pageSize, int maxCachedCount) {
+		super();
+
+		AssertUtil.assertNotNull(storeService);
+		AssertUtil.assertNotNull(siteName);
+
+		this.storeService = storeService;
+		this.siteName = siteName;
+		this.pageSize = Math.max(1, pageSize);
+		this.maxCachedCount = Math.max(this.pageSize, maxCachedCount);
+
+		this.cachedMovies = new LinkedHashMap<Integer, Movie>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Movie> eldest) {
+				if (size() > PagedMovieList.this.maxCachedCount) {
+					PagedMovieList.this.release(eldest.getKey(), eldest.getValue());
+					return true;
+				}
+
+				return false;
+			}
+		};
+
+		this.reload();
+	}
+
+	/**
+	 * Load the ids from the database again and clear the cache.<BR>
+	 * The movies which are not saved are kept.<BR>
+	 */
+	public void reload() {
+		List<Integer> idList = this.storeService.queryMovieIdsBySite(this.siteName);
+
+		synchronized (this) {
+			this.keyList.clear();
+
+			for (Map.Entry<Integer, Movie> entry : new ArrayList<>(this.cachedMovies.entrySet())) {
+				this.release(entry.getKey(), entry.getValue());
+			}
+
+			this.cachedMovies.clear();
+
+			Iterator<Movie> iterator = this.pinnedMovies.values().iterator();
+
+			while (iterator.hasNext()) {
+				Movie movie = iterator.next();
+
+				if (null != movie.getId()) {
+					iterator.remove();
+					this.release(movie.getId(), movie);
+				}
+			}
+			// The movies saved after they were added are loaded by their ids now.
+
+			Set<Integer> idSet = new HashSet<>(idList);
+
+			this.retainedMovies.keySet().retainAll(idSet);
+			this.releasedMovies.keySet().retainAll(idSet);
+
+			this.keyList.addAll(this.pinnedMovies.keySet());
+			this.keyList.addAll(idList);
+
+			this.modCount++;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public Movie get(int index) {
+		Integer key;
+		List<Integer> idList;
+
+		synchronized (this) {
+			key = this.keyList.get(index);
+
+			Movie movie = this.findLoaded(key, true);
+
+			if ((null != movie) || (key < 0)) {
+				return movie;
+			}
+
+			idList = this.collectPageIds(index);
+		}
+
+		List<Movie> movieList = this.storeService.queryMoviesByIds(idList);
+		// Other threads are not blocked by the database.
+
+		synchronized (this) {
+			for (Movie movie : movieList) {
+				if (null == this.findLoaded(movie.getId(), false)) {
+					this.cachedMovies.put(movie.getId(), movie);
+				}
+			}
+			// A movie loaded by another thread meanwhile is kept.
+
+			Movie movie = this.findLoaded(key, true);
+
+			if (null == movie) {
+				movie = new Movie();
+				movie.setId(key);
+				movie.setSite(this.siteName);
+			}
+			// The row is deleted by others,an empty movie is returned to keep the index
+			// stable.
+
+			return movie;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public synchronized int size() {
+		return this.keyList.size();
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public synchronized void add(int index, Movie movie) {
+		AssertUtil.assertNotNull(movie);
+
+		this.keyList.add(index, this.register(movie));
+		this.modCount++;
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public synchronized boolean addAll(int index, Collection<? extends Movie> movies) {
+		List<Integer> newKeyList = new ArrayList<>(movies.size());
+
+		for (Movie movie : movies) {
+			AssertUtil.assertNotNull(movie);
+			newKeyList.add(this.register(movie));
+		}
+
+		this.modCount++;
+		return this.keyList.addAll(index, newKeyList);
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public synchronized Movie set(int index, Movie movie) {
+		AssertUtil.assertNotNull(movie);
+
+		Movie oldMovie = this.get(index);
+		this.unregister(this.keyList.get(index));
+		this.keyList.set(index, this.register(movie));
+
+		return oldMovie;
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public synchronized Movie remove(int index) {
+		Movie movie = this.get(index);
+
+		this.unregister(this.keyList.remove(index));
+		this.modCount++;
+
+		return movie;
+	}
+
+	/**
+	 * Remove the movies by their ids,the movies without id are removed if they are
+	 * the same objects.<BR>
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public synchronized boolean removeAll(Collection<?> movies) {
+		Set<Integer> keySet = new HashSet<>();
+		Map<Movie, Integer> pinnedKeys = new IdentityHashMap<>();
+		Map<Integer, Integer> pinnedIds = new HashMap<>();
+
+		this.pinnedMovies.forEach((key, movie) -> {
+			pinnedKeys.put(movie, key);
+
+			if (null != movie.getId()) {
+				pinnedIds.put(movie.getId(), key);
+			}
+		});
+		// A movie added without id may be saved later.
+
+		for (Object object : movies) {
+			if (object instanceof Movie) {
+				Movie movie = (Movie) object;
+				Integer key = (null == movie.getId()) ? pinnedKeys.get(movie) : pinnedIds.getOrDefault(movie.getId(), movie.getId());
+
+				if (null != key) {
+					keySet.add(key);
+				}
+			}
+		}
+
+		if (keySet.isEmpty()) {
+			return false;
+		}
+
+		for (Integer key : keySet) {
+			this.unregister(key);
+		}
+
+		this.modCount++;
+		return this.keyList.removeIf(keySet::contains);
+	}
+
+	/**
+	 * Return the movies whose ids are in the set,the order of the list is
+	 * kept.<BR>
+	 * Only the selected movies are loaded.<BR>
+	 *
+	 * @param ids
+	 * @param unsavedFilter to select the movies without id.
+	 * @return
+	 */
+	public List<Movie> select(BitSet ids, Predicate<Movie> unsavedFilter) {
+		List<Integer> selectedKeyList = new ArrayList<>();
+		List<Integer> missingIdList = new ArrayList<>();
+
+		Map<Integer, Movie> selectedMovies = new HashMap<>();
+
+		synchronized (this) {
+			for (Integer key : this.keyList) {
+				if (key < 0) {
+					Movie movie = this.pinnedMovies.get(key);
+
+					if (unsavedFilter.test(movie)) {
+						selectedKeyList.add(key);
+						selectedMovies.put(key, movie);
+					}
+				} else if (ids.get(key)) {
+					selectedKeyList.add(key);
+
+					Movie movie = this.findLoaded(key, false);
+
+					if (null == movie) {
+						missingIdList.add(key);
+					} else {
+						selectedMovies.put(key, movie);
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < missingIdList.size(); i += this.pageSize) {
+			List<Integer> idList = missingIdList.subList(i, Math.min(i + this.pageSize, missingIdList.size()));
+			List<Movie> movieList = this.storeService.queryMoviesByIds(idList);
+
+			synchronized (this) {
+				for (Movie movie : movieList) {
+					Movie loadedMovie = this.findLoaded(movie.getId(), false);
+
+					if (null == loadedMovie) {
+						this.release(movie.getId(), movie);
+						loadedMovie = movie;
+					}
+
+					selectedMovies.put(movie.getId(), loadedMovie);
+				}
+			}
+		}
+		// The selected movies may be more than the cache,so they are kept in a local
+		// map and only referenced weakly by the list.
+
+		List<Movie> resultList = new ArrayList<>(selectedKeyList.size());
+
+		for (Integer key : selectedKeyList) {
+			Movie movie = selectedMovies.get(key);
+
+			if (null != movie) {
+				resultList.add(movie);
+			}
+		}
+
+		return resultList;
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public synchronized void clear() {
+		this.keyList.clear();
+		this.cachedMovies.clear();
+		this.pinnedMovies.clear();
+		this.retainedMovies.clear();
+		this.releasedMovies.clear();
+
+		this.modCount++;
+	}
+
+	/**
+	 * Return the ids of the page which contains the index and are not loaded.<BR>
+	 *
+	 * @param index
+	 * @return
+	 */
+	private List<Integer> collectPageIds(int index) {
+		int start = (index / this.pageSize) * this.pageSize;
+		int end = Math.min(start + this.pageSize, this.keyList.size());
+
+		List<Integer> idList = new ArrayList<>(end - start);
+
+		for (int i = start; i < end; i++) {
+			Integer key = this.keyList.get(i);
+
+			if ((key >= 0) && (null == this.findLoaded(key, false))) {
+				idList.add(key);
+			}
+		}
+
+		return idList;
+	}
+
+	/**
+	 * Return the movie which is in memory.<BR>
+	 *
+	 * @param key
+	 * @param promote whether the movie dropped from the cache is put back.
+	 * @return null if the movie should be loaded.
+	 */
+	private Movie findLoaded(Integer key, boolean promote) {
+		if (key < 0) {
+			return this.pinnedMovies.get(key);
+		}
+
+		Movie movie = this.cachedMovies.get(key);
+
+		if (null != movie) {
+			return movie;
+		}
+
+		this.purgeReleased();
+
+		movie = this.retainedMovies.get(key);
+
+		if (null == movie) {
+			MovieReference reference = this.releasedMovies.get(key);
+			movie = (null == reference) ? null : reference.get();
+		}
+
+		if ((null != movie) && promote) {
+			this.retainedMovies.remove(key);
+			this.releasedMovies.remove(key);
+			this.cachedMovies.put(key, movie);
+		}
+
+		return movie;
+	}
+
+	/**
+	 * Keep the movie dropped from the cache.<BR>
+	 * The transient states of a movie can't be loaded from the database,so the
+	 * movie is kept by a strong reference,others are kept by weak references.<BR>
+	 *
+	 * @param key
+	 * @param movie
+	 */
+	private void release(Integer key, Movie movie) {
+		this.purgeReleased();
+
+		if (isDirty(movie)) {
+			this.retainedMovies.put(key, movie);
+		} else {
+			this.releasedMovies.put(key, new MovieReference(key, movie, this.referenceQueue));
+		}
+	}
+
+	/**
+	 * Remove the references whose movies are collected.<BR>
+	 */
+	private void purgeReleased() {
+		MovieReference reference;
+
+		while (null != (reference = (MovieReference) this.referenceQueue.poll())) {
+			this.releasedMovies.remove(reference.key, reference);
+		}
+	}
+
+	/**
+	 * Return whether the movie has states which are not stored.<BR>
+	 *
+	 * @param movie
+	 * @return
+	 */
+	private static boolean isDirty(Movie movie) {
+		return movie.isAnalysed() || (null != movie.getLastValidTime()) || !movie.getDownloadInfoList().isEmpty();
+	}
+
+	/**
+	 * Cache the movie and return its key.<BR>
+	 *
+	 * @param movie
+	 * @return
+	 */
+	private Integer register(Movie movie) {
+		if (null != movie.getId()) {
+			this.retainedMovies.remove(movie.getId());
+			this.releasedMovies.remove(movie.getId());
+			this.cachedMovies.put(movie.getId(), movie);
+			return movie.getId();
+		}
+
+		this.pinnedKey--;
+		this.pinnedMovies.put(this.pinnedKey, movie);
+
+		return this.pinnedKey;
+	}
+
+	/**
+	 * @param key
+	 */
+	private void unregister(Integer key) {
+		if (key < 0) {
+			this.pinnedMovies.remove(key);
+		} else {
+			this.cachedMovies.remove(key);
+			this.retainedMovies.remove(key);
+			this.releasedMovies.remove(key);
+		}
+	}
+
+	/**
+	 * A weak reference which knows the key of its movie.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	private static final class MovieReference extends WeakReference<Movie> {
+
+		private final Integer key;
+
+		/**
+		 * @param key
+		 * @param movie
+		 * @param referenceQueue
+		 */
+		private MovieReference(Integer key, Movie movie, ReferenceQueue<Movie> referenceQueue) {
+			super(movie, referenceQueue);
+			this.key = key;
+		}
+	}
+}
@@ -4,12 +4,20 @@
 package org.aquarius.cicada.core.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MultiSet;
@@ -19,6 +27,11 @@ import org.apache.commons.collections4.set.ListOrderedSet;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.aquarius.cicada.core.RuntimeManager;
+import org.aquarius.cicada.core.service.Filter;
+import org.aquarius.cicada.core.service.IMovieChangeListener;
+import org.aquarius.cicada.core.service.IMovieStoreService;
+import org.aquarius.cicada.core.service.KeywordIndex;
+import org.aquarius.cicada.core.service.MovieIndex;
 import org.aquarius.cicada.core.spi.AbstractMovieParser;
 import org.aquarius.cicada.core.util.MovieUtil;
 import org.aquarius.util.AssertUtil;
@@ -58,6 +71,35 @@ public class Site extends LockObject {
 
 	private boolean refreshing;
 
+	private IMovieStoreService storeService;
+
+	private MovieIndex movieIndex;
+
+	private IMovieChangeListener movieChangeListener;
+
+	private KeywordIndex keywordIndex = new KeywordIndex();
+
+	/**
+	 * Create a site whose movies are loaded from the store on demand.<BR>
+	 * The keywords are counted by the database instead of visiting every
+	 * movie.<BR>
+	 *
+	 * @param movieParser
+	 * @param storeService
+	 */
+	public Site(AbstractMovieParser movieParser, IMovieStoreService storeService) {
+		super();
+
+		AssertUtil.assertNotNull(movieParser);
+		AssertUtil.assertNotNull(storeService);
+
+		this.movieParser = movieParser;
+		this.storeService = storeService;
+		this.sourceMovieList = new PagedMovieList(storeService, movieParser.getName());
+
+		build();
+	}
+
 	/**
 	 * 
 	 * @param movieParser
@@ -81,6 +123,13 @@ public class Site extends LockObject {
 
 	public void clearAllData() {
 		this.sourceMovieList.clear();
+
+		if (null != this.movieIndex) {
+			this.movieIndex.clear();
+		}
+
+		this.keywordIndex.reset(Collections.emptyMap());
+
 		this.actorList.clear();
 		this.tagList.clear();
 		this.categoryList.clear();
@@ -132,6 +181,15 @@ public class Site extends LockObject {
 	 * @param content
 	 */
 	private void addElements(MultiSet<String> contentSet, String content) {
+		this.addElements(contentSet, content, 1);
+	}
+
+	/**
+	 * @param contentSet
+	 * @param content
+	 * @param count      how many movies have the content.
+	 */
+	private void addElements(MultiSet<String> contentSet, String content, int count) {
 		String[] names = MovieUtil.split(content);
 		if (ArrayUtils.isNotEmpty(names)) {
 
@@ -156,7 +214,7 @@ public class Site extends LockObject {
 					name = StringUtils.substringBefore(name, "【");
 				}
 
-				contentSet.add(name);
+				contentSet.add(name, count);
 			}
 		}
 	}
@@ -174,7 +232,72 @@ public class Site extends LockObject {
 
 		Set<String> channelSet = new HashSet<>();
 
-		for (Movie movie : this.sourceMovieList) {
+		if (null != this.storeService) {
+			this.countElements(actorSet, categorySet, tagSet, producerSet, titleSet, channelSet);
+		} else {
+			this.visitElements(this.sourceMovieList, actorSet, categorySet, tagSet, producerSet, titleSet, channelSet);
+		}
+
+		Set<String> markList = new ListOrderedSet<String>();
+		markList.addAll(actorSet.uniqueSet());
+		markList.addAll(categorySet.uniqueSet());
+		markList.addAll(tagSet.uniqueSet());
+		markList.addAll(producerSet.uniqueSet());
+		markList.addAll(titleSet.uniqueSet());
+		this.allMarkList = markList;
+
+		Map<String, Integer> frequencyMap = new HashMap<>();
+		for (MultiSet<String> contentSet : Arrays.asList(actorSet, categorySet, tagSet, producerSet, titleSet)) {
+			for (Entry<String> entry : contentSet.entrySet()) {
+				frequencyMap.merge(entry.getElement(), entry.getCount(), Integer::sum);
+			}
+		}
+		this.keywordIndex.reset(frequencyMap);
+
+		if (RuntimeManager.getInstance().getConfiguration().isKeywordFrequencySort()) {
+			this.actorList = this.sort(actorSet);
+			this.categoryList = this.sort(categorySet);
+			this.tagList = this.sort(tagSet);
+			this.producerList = this.sort(producerSet);
+		} else {
+			this.actorList = new ArrayList<>(actorSet.uniqueSet());
+			Collections.sort(this.actorList);
+
+			this.categoryList = new ArrayList<>(categorySet.uniqueSet());
+			Collections.sort(this.categoryList);
+
+			this.tagList = new ArrayList<>(tagSet.uniqueSet());
+			Collections.sort(this.tagList);
+
+			this.producerList = new ArrayList<>(producerSet.uniqueSet());
+			Collections.sort(this.producerList);
+		}
+		// New lists are created,so a rebuilding doesn't add the keywords twice.
+
+		if (null != this.movieParser) {
+			List<String> channelNameList = MovieUtil.getChannelNames(this.movieParser.getChannels());
+			channelSet.addAll(channelNameList);
+		}
+
+		this.channelNameList = new ArrayList<>(channelSet);
+
+	}
+
+	/**
+	 * Collect the keywords by visiting every movie.<BR>
+	 *
+	 * @param movies
+	 * @param actorSet
+	 * @param categorySet
+	 * @param tagSet
+	 * @param producerSet
+	 * @param titleSet
+	 * @param channelSet
+	 */
+	private void visitElements(Collection<Movie> movies, MultiSet<String> actorSet, MultiSet<String> categorySet, MultiSet<String> tagSet, MultiSet<String> producerSet,
+			MultiSet<String> titleSet, Set<String> channelSet) {
+
+		for (Movie movie : movies) {
 
 			channelSet.add(movie.getChannel());
 
@@ -207,39 +330,48 @@ public class Site extends LockObject {
 				titleSet.add(movie.getName());
 			}
 		}
+	}
 
-		this.allMarkList.addAll(actorSet);
-		this.allMarkList.addAll(categorySet);
-		this.allMarkList.addAll(tagSet);
-		this.allMarkList.addAll(producerSet);
-		this.allMarkList.addAll(titleSet);
-
-		if (RuntimeManager.getInstance().getConfiguration().isKeywordFrequencySort()) {
-			this.actorList = this.sort(actorSet);
-			this.categoryList = this.sort(categorySet);
-			this.tagList = this.sort(tagSet);
-			this.producerList = this.sort(producerSet);
-		} else {
-			this.actorList.addAll(actorSet.uniqueSet());
-			Collections.sort(this.actorList);
+	/**
+	 * Collect the keywords by the counts of the distinct values in the
+	 * database.<BR>
+	 * Many movies share the same actor or tag,so the rows are far fewer than the
+	 * movies.<BR>
+	 *
+	 * @param actorSet
+	 * @param categorySet
+	 * @param tagSet
+	 * @param producerSet
+	 * @param titleSet
+	 * @param channelSet
+	 */
+	private void countElements(MultiSet<String> actorSet, MultiSet<String> categorySet, MultiSet<String> tagSet, MultiSet<String> producerSet,
+			MultiSet<String> titleSet, Set<String> channelSet) {
 
-			this.categoryList.addAll(categorySet.uniqueSet());
-			Collections.sort(this.categoryList);
+		String currentSiteName = this.getSiteName();
 
-			this.tagList.addAll(tagSet.uniqueSet());
-			Collections.sort(this.tagList);
+		channelSet.addAll(this.storeService.queryColumnCounts(currentSiteName, IMovieStoreService.ColumnChannel).keySet());
 
-			this.producerList.addAll(producerSet.uniqueSet());
-			Collections.sort(this.producerList);
-		}
+		this.storeService.queryColumnCounts(currentSiteName, IMovieStoreService.ColumnCategory).forEach((content, count) -> addElements(categorySet, content, count));
+		this.storeService.queryColumnCounts(currentSiteName, IMovieStoreService.ColumnTag).forEach((content, count) -> addElements(tagSet, content, count));
+		this.storeService.queryColumnCounts(currentSiteName, IMovieStoreService.ColumnActor).forEach((content, count) -> addElements(actorSet, content, count));
 
-		if (null != this.movieParser) {
-			List<String> channelNameList = MovieUtil.getChannelNames(this.movieParser.getChannels());
-			channelSet.addAll(channelNameList);
-		}
+		this.storeService.queryColumnCounts(currentSiteName, IMovieStoreService.ColumnProducer).forEach((content, count) -> {
+			String[] producers = MovieUtil.split(content);
+			if (ArrayUtils.isNotEmpty(producers)) {
+				for (String producer : producers) {
+					producerSet.add(producer, count);
+				}
+			}
+		});
 
-		this.channelNameList.addAll(channelSet);
+		this.storeService.queryColumnCounts(currentSiteName, IMovieStoreService.ColumnTitle).forEach(titleSet::add);
 
+		this.storeService.queryColumnCounts(currentSiteName, IMovieStoreService.ColumnName).forEach((content, count) -> {
+			if (StringUtils.isNotBlank(content)) {
+				titleSet.add(content, count);
+			}
+		});
 	}
 
 	/**
@@ -306,6 +438,31 @@ public class Site extends LockObject {
 		return this.categoryList;
 	}
 
+	/**
+	 * Return the latest movies of a channel.<BR>
+	 * If the movies are loaded on demand,they are queried from the store instead
+	 * of visiting the whole site.<BR>
+	 *
+	 * @param channelName
+	 * @param maxCount    0 means all the movies of the channel.
+	 * @return
+	 */
+	public List<Movie> getChannelMovies(String channelName, int maxCount) {
+
+		if (null != this.storeService) {
+			Pagination pagination = (maxCount > 0) ? new Pagination(0, maxCount) : null;
+			return this.storeService.queryMoviesBySiteAndChannel(this.getSiteName(), channelName, pagination);
+		}
+
+		Stream<Movie> stream = this.sourceMovieList.stream().filter(movie -> StringUtils.equals(movie.getChannel(), channelName));
+
+		if (maxCount > 0) {
+			stream = stream.limit(maxCount);
+		}
+
+		return stream.collect(Collectors.toList());
+	}
+
 	/**
 	 * Insert movies to the header location.<BR>
 	 *
@@ -313,15 +470,146 @@ public class Site extends LockObject {
 	 */
 	public void addMoviesToHeader(List<Movie> movieList) {
 		this.sourceMovieList.addAll(0, movieList);
+
+		if (null != this.movieIndex) {
+			this.movieIndex.addMovies(movieList);
+		}
+
+		this.collectMarks(movieList).forEach(entry -> this.keywordIndex.add(entry.getElement(), entry.getCount()));
 	}
 
 	/**
 	 * Remove specified movies.<BR>
+	 * The movies are matched by id,only the movies without id are matched by
+	 * identity.The list is compacted in one pass.<BR>
 	 *
 	 * @param movieList
 	 */
 	public void removeMovies(List<Movie> movieList) {
-		this.sourceMovieList.removeAll(movieList);
+
+		if (this.sourceMovieList instanceof PagedMovieList) {
+			this.sourceMovieList.removeAll(movieList);
+		} else {
+			Set<Movie> removedMovies = Collections.newSetFromMap(new IdentityHashMap<>());
+			removedMovies.addAll(movieList);
+
+			Set<Integer> removedIds = movieList.stream().map(Movie::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+
+			this.sourceMovieList.removeIf(movie -> (null == movie.getId()) ? removedMovies.contains(movie) : removedIds.contains(movie.getId()));
+		}
+		// The paged list removes the movies by their keys,removeIf would load all
+		// the pages.
+
+		if (null != this.movieIndex) {
+			this.movieIndex.removeMovies(movieList);
+		}
+
+		this.collectMarks(movieList).forEach(entry -> this.keywordIndex.remove(entry.getElement(), entry.getCount()));
+	}
+
+	/**
+	 * Return the keywords of the movies and their frequencies.<BR>
+	 *
+	 * @param movieList
+	 * @return
+	 */
+	private Set<Entry<String>> collectMarks(List<Movie> movieList) {
+		MultiSet<String> markSet = new HashMultiSet<>();
+		this.visitElements(movieList, markSet, markSet, markSet, markSet, markSet, new HashSet<>());
+
+		return markSet.entrySet();
+	}
+
+	/**
+	 * Return the keywords which contain the word ignoring case,the keywords start
+	 * with the word are returned first.<BR>
+	 *
+	 * @param keyword
+	 * @param maxCount 0 or a negative value means no limit.
+	 * @return
+	 */
+	public List<String> findKeywords(String keyword, int maxCount) {
+		return this.keywordIndex.find(keyword, maxCount);
+	}
+
+	/**
+	 * Return the movies which are not filtered,the order of the site is
+	 * kept.<BR>
+	 * The index is built at the first time,then it is updated with the site and
+	 * the saved movies.<BR>
+	 *
+	 * @param filter
+	 * @return
+	 */
+	public List<Movie> findMovies(Filter filter) {
+
+		BitSet ids = this.getMovieIndex().search(filter);
+
+		if (this.sourceMovieList instanceof PagedMovieList) {
+			return ((PagedMovieList) this.sourceMovieList).select(ids, movie -> !filter.isFiltered(movie));
+		}
+
+		List<Movie> resultList = new ArrayList<>();
+
+		for (Movie movie : this.sourceMovieList) {
+			Integer id = movie.getId();
+
+			if ((null == id) ? !filter.isFiltered(movie) : ids.get(id)) {
+				resultList.add(movie);
+			}
+		}
+		// The movies without id are not indexed,they are checked directly.
+
+		return resultList;
+	}
+
+	/**
+	 * Build the index for the first time.<BR>
+	 *
+	 * @return
+	 */
+	private synchronized MovieIndex getMovieIndex() {
+
+		if (null == this.movieIndex) {
+			MovieIndex index = new MovieIndex();
+			index.addMovies(this.sourceMovieList);
+
+			IMovieStoreService currentStoreService = (null == this.storeService) ? RuntimeManager.getInstance().getStoreService() : this.storeService;
+
+			if (null != currentStoreService) {
+				this.movieChangeListener = new IMovieChangeListener() {
+
+					@Override
+					public void onMoviesUpdated(Collection<Movie> movies) {
+						index.addMovies(filterSiteMovies(movies));
+					}
+
+					@Override
+					public void onMoviesDeleted(Collection<Movie> movies) {
+						index.removeMovies(filterSiteMovies(movies));
+					}
+				};
+
+				currentStoreService.addMovieChangeListener(this.movieChangeListener);
+			}
+			// The state and info of the movies are changed by many jobs,the saved
+			// movies are indexed again.
+
+			this.movieIndex = index;
+		}
+
+		return this.movieIndex;
+	}
+
+	/**
+	 * Return the movies belong to this site.<BR>
+	 *
+	 * @param movies
+	 * @return
+	 */
+	private List<Movie> filterSiteMovies(Collection<Movie> movies) {
+		String currentSiteName = this.getSiteName();
+		return movies.stream().filter(movie -> StringUtils.equals(currentSiteName, movie.getSite())).collect(Collectors.toList());
 	}
 
 	/**
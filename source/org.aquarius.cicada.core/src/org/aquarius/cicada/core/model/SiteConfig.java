@@ -41,6 +41,11 @@ public final class SiteConfig {
 
 	private String mainPage;
 
+	/**
+	 * the css selector of an element shown when a page is ready.
+	 */
+	private String readySelector;
+
 	private transient ScriptDefinition parseListScriptDefinition = new ScriptDefinition();
 
 	private transient ScriptDefinition parseDetailScriptDefinition = new ScriptDefinition();
@@ -162,6 +167,20 @@ public final class SiteConfig {
 		this.waitTime = waitTime;
 	}
 
+	/**
+	 * @return the readySelector
+	 */
+	public String getReadySelector() {
+		return this.readySelector;
+	}
+
+	/**
+	 * @param readySelector the readySelector to set
+	 */
+	public void setReadySelector(String readySelector) {
+		this.readySelector = readySelector;
+	}
+
 	/**
 	 * @return the supportJumpToLast
 	 */
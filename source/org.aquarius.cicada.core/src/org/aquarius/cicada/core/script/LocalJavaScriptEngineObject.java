@@ -1,37 +1,70 @@
 /**
- * 
+ *
  */
 package org.aquarius.cicada.core.script;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+import org.aquarius.log.LogUtil;
 import org.aquarius.service.IReloadable;
 import org.aquarius.util.StringUtil;
 import org.aquarius.util.io.FileUtil;
 import org.aquarius.util.js.JavaScriptEngineManageer;
+import org.slf4j.Logger;
 
 /**
+ * A local script which can be invoked by many threads.<BR>
+ * The script is compiled once,then it is evaluated in a bounded pool of
+ * contexts.Every context has its own global objects,a thread takes a context
+ * to invoke a function and returns it after the invocation,so the global
+ * variables of the script are never shared by two threads.<BR>
+ * The pool is dropped when the script is reloaded,the contexts in use are
+ * discarded after they are returned.<BR>
+ *
  * @author aquarius.github@hotmail.com
  *
  */
 public final class LocalJavaScriptEngineObject implements IReloadable {
 
+	private static final int MaxContextCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	private static final long SlowInvocationTime = 1000;
+
+	private static final String ArgumentPrefix = "_cicada_argument_";
+
+	private Logger logger = LogUtil.getLogger(this.getClass());
+
 	private File file;
 
 	private String name;
 
-	private String script;
+	private volatile ScriptPool scriptPool;
 
-	private ScriptEngine scriptEngine;
+	private static final Map<String, InvocationStatistics> StatisticsMap = new ConcurrentHashMap<>();
 
 	/**
-	 * 
+	 *
 	 */
 	public LocalJavaScriptEngineObject(File file) {
 		this.file = file;
@@ -42,7 +75,7 @@ public final class LocalJavaScriptEngineObject implements IReloadable {
 	}
 
 	/**
-	 * 
+	 *
 	 */
 	public LocalJavaScriptEngineObject(String name, File file) {
 		this.file = file;
@@ -61,7 +94,7 @@ public final class LocalJavaScriptEngineObject implements IReloadable {
 
 		this.name = name;
 
-		this.script = script;
+		this.scriptPool = new ScriptPool(script);
 
 	}
 
@@ -79,7 +112,15 @@ public final class LocalJavaScriptEngineObject implements IReloadable {
 	public boolean reload() {
 		if (FileUtil.isValid(this.file)) {
 			try {
-				this.script = FileUtils.readFileToString(this.file, StringUtil.CODEING_UTF8);
+				String script = FileUtils.readFileToString(this.file, StringUtil.CODEING_UTF8);
+
+				ScriptPool currentScriptPool = this.scriptPool;
+
+				if ((null == currentScriptPool) || !StringUtils.equals(currentScriptPool.script, script)) {
+					this.scriptPool = new ScriptPool(script);
+				}
+				// The contexts evaluated by the old script are dropped.
+
 				return true;
 			} catch (IOException e) {
 				throw new RuntimeException(e);
@@ -90,18 +131,348 @@ public final class LocalJavaScriptEngineObject implements IReloadable {
 	}
 
 	/**
-	 * Get the java script engien.<BR>
-	 * If the engine is null,a new engine will be created.<BR>
-	 * 
+	 * Invoke a function of the script.<BR>
+	 * The caller waits if all the contexts are in use.<BR>
+	 *
+	 * @param functionName
+	 * @param arguments
+	 * @return
 	 * @throws ScriptException
+	 * @throws NoSuchMethodException
 	 */
-	public synchronized ScriptEngine getScriptEngine() throws ScriptException {
+	public Object invokeFunction(String functionName, Object... arguments) throws ScriptException, NoSuchMethodException {
+
+		ScriptPool currentScriptPool = this.scriptPool;
+
+		if (null == currentScriptPool) {
+			throw new ScriptException("The script of " + this.name + " is not loaded.");
+		}
+
+		long startTime = System.currentTimeMillis();
+		boolean success = false;
+
+		try {
+			Object result = currentScriptPool.invokeFunction(functionName, arguments);
+			success = true;
 
-		if (null == this.scriptEngine) {
-			this.scriptEngine = JavaScriptEngineManageer.getInstance().createEngine();
-			this.scriptEngine.eval(this.script);
+			return result;
+		} finally {
+			long costTime = System.currentTimeMillis() - startTime;
+
+			StatisticsMap.computeIfAbsent(this.name + "." + functionName, key -> new InvocationStatistics(this.name, functionName)).record(costTime,
+					success);
+			// The statistics are kept by the names,so they are not lost when a processor
+			// creates its script again.
+
+			if (costTime >= SlowInvocationTime) {
+				this.logger.warn("The function " + functionName + " of " + this.name + " costs " + costTime + " ms.");
+			}
 		}
+	}
+
+	/**
+	 * Return the latency of the functions invoked in all the scripts.<BR>
+	 *
+	 * @return
+	 */
+	public static Collection<InvocationStatistics> getInvocationStatistics() {
+		return new ArrayList<>(StatisticsMap.values());
+	}
+
+	/**
+	 * The compiled script and the pool of contexts evaluated by it.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	private static final class ScriptPool {
+
+		private final String script;
+
+		private final Semaphore permits = new Semaphore(MaxContextCount, true);
+
+		private final Queue<ScriptContext> idleContexts = new ConcurrentLinkedQueue<>();
 
-		return this.scriptEngine;
+		private final Map<String, CompiledScript> callScripts = new ConcurrentHashMap<>();
+
+		private ScriptEngine scriptEngine;
+
+		private CompiledScript compiledScript;
+
+		/**
+		 * @param script
+		 */
+		private ScriptPool(String script) {
+			super();
+			this.script = script;
+		}
+
+		/**
+		 * @param functionName
+		 * @param arguments
+		 * @return
+		 * @throws ScriptException
+		 * @throws NoSuchMethodException
+		 */
+		private Object invokeFunction(String functionName, Object[] arguments) throws ScriptException, NoSuchMethodException {
+
+			this.permits.acquireUninterruptibly();
+
+			try {
+				ScriptContext scriptContext = this.idleContexts.poll();
+
+				if (null == scriptContext) {
+					scriptContext = this.createContext();
+				}
+
+				try {
+					return this.call(scriptContext, functionName, (null == arguments) ? new Object[0] : arguments);
+				} finally {
+					this.idleContexts.offer(scriptContext);
+				}
+			} finally {
+				this.permits.release();
+			}
+		}
+
+		/**
+		 * Create a context with its own global objects,the compiled script is
+		 * evaluated in it.<BR>
+		 *
+		 * @return
+		 * @throws ScriptException
+		 */
+		private ScriptContext createContext() throws ScriptException {
+			ScriptEngine engine = this.getScriptEngine();
+
+			ScriptContext scriptContext = new SimpleScriptContext();
+			scriptContext.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+			scriptContext.setBindings(engine.getBindings(ScriptContext.GLOBAL_SCOPE), ScriptContext.GLOBAL_SCOPE);
+
+			if (null == this.compiledScript) {
+				engine.eval(this.script, scriptContext);
+			} else {
+				this.compiledScript.eval(scriptContext);
+			}
+
+			return scriptContext;
+		}
+
+		/**
+		 * Call the function with the arguments in the bindings of the context.<BR>
+		 *
+		 * @param scriptContext
+		 * @param functionName
+		 * @param arguments
+		 * @return
+		 * @throws ScriptException
+		 * @throws NoSuchMethodException
+		 */
+		private Object call(ScriptContext scriptContext, String functionName, Object[] arguments) throws ScriptException, NoSuchMethodException {
+			Bindings bindings = scriptContext.getBindings(ScriptContext.ENGINE_SCOPE);
+
+			if (null == bindings.get(functionName)) {
+				throw new NoSuchMethodException(functionName);
+			}
+
+			CompiledScript callScript = this.getCallScript(functionName, arguments.length);
+
+			try {
+				for (int i = 0; i < arguments.length; i++) {
+					bindings.put(ArgumentPrefix + i, arguments[i]);
+				}
+
+				if (null == callScript) {
+					return this.getScriptEngine().eval(createCallScript(functionName, arguments.length), scriptContext);
+				} else {
+					return callScript.eval(scriptContext);
+				}
+			} finally {
+				for (int i = 0; i < arguments.length; i++) {
+					bindings.remove(ArgumentPrefix + i);
+				}
+			}
+		}
+
+		/**
+		 * Return the compiled script which calls the function,null is returned if
+		 * the engine can't compile.<BR>
+		 *
+		 * @param functionName
+		 * @param argumentCount
+		 * @return
+		 * @throws ScriptException
+		 */
+		private CompiledScript getCallScript(String functionName, int argumentCount) throws ScriptException {
+			ScriptEngine engine = this.getScriptEngine();
+
+			if (!(engine instanceof Compilable)) {
+				return null;
+			}
+
+			String key = functionName + "/" + argumentCount;
+			CompiledScript callScript = this.callScripts.get(key);
+
+			if (null == callScript) {
+				callScript = ((Compilable) engine).compile(createCallScript(functionName, argumentCount));
+				this.callScripts.put(key, callScript);
+			}
+
+			return callScript;
+		}
+
+		/**
+		 * Create the engine and compile the script at the first time.<BR>
+		 *
+		 * @return
+		 * @throws ScriptException
+		 */
+		private synchronized ScriptEngine getScriptEngine() throws ScriptException {
+
+			if (null == this.scriptEngine) {
+				ScriptEngine engine = JavaScriptEngineManageer.getInstance().createEngine();
+
+				if (null == engine) {
+					throw new ScriptException("No javascript engine is found.");
+				}
+
+				if (engine instanceof Compilable) {
+					this.compiledScript = ((Compilable) engine).compile(this.script);
+				}
+
+				this.scriptEngine = engine;
+			}
+
+			return this.scriptEngine;
+		}
+
+		/**
+		 * @param functionName
+		 * @param argumentCount
+		 * @return
+		 */
+		private static String createCallScript(String functionName, int argumentCount) {
+			StringBuilder stringBuilder = new StringBuilder(functionName).append('(');
+
+			for (int i = 0; i < argumentCount; i++) {
+				if (i > 0) {
+					stringBuilder.append(',');
+				}
+
+				stringBuilder.append(ArgumentPrefix).append(i);
+			}
+
+			return stringBuilder.append(");").toString();
+		}
+	}
+
+	/**
+	 * The latency of a function.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	public static final class InvocationStatistics {
+
+		private final String scriptName;
+
+		private final String functionName;
+
+		private final LongAdder invokedCount = new LongAdder();
+
+		private final LongAdder failedCount = new LongAdder();
+
+		private final LongAdder totalTime = new LongAdder();
+
+		private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+
+		/**
+		 * @param scriptName
+		 * @param functionName
+		 */
+		private InvocationStatistics(String scriptName, String functionName) {
+			super();
+			this.scriptName = scriptName;
+			this.functionName = functionName;
+		}
+
+		/**
+		 * @param costTime
+		 * @param success
+		 */
+		private void record(long costTime, boolean success) {
+			this.invokedCount.increment();
+			this.totalTime.add(costTime);
+			this.maxTime.accumulate(costTime);
+
+			if (!success) {
+				this.failedCount.increment();
+			}
+		}
+
+		/**
+		 * @return the scriptName
+		 */
+		public String getScriptName() {
+			return this.scriptName;
+		}
+
+		/**
+		 * @return the functionName
+		 */
+		public String getFunctionName() {
+			return this.functionName;
+		}
+
+		/**
+		 * @return the invokedCount
+		 */
+		public long getInvokedCount() {
+			return this.invokedCount.sum();
+		}
+
+		/**
+		 * @return the failedCount
+		 */
+		public long getFailedCount() {
+			return this.failedCount.sum();
+		}
+
+		/**
+		 * Return the total time in milliseconds.<BR>
+		 *
+		 * @return
+		 */
+		public long getTotalTime() {
+			return this.totalTime.sum();
+		}
+
+		/**
+		 * Return the average time in milliseconds.<BR>
+		 *
+		 * @return
+		 */
+		public long getAverageTime() {
+			long count = this.getInvokedCount();
+			return (count == 0) ? 0 : (this.getTotalTime() / count);
+		}
+
+		/**
+		 * Return the max time in milliseconds.<BR>
+		 *
+		 * @return
+		 */
+		public long getMaxTime() {
+			return this.maxTime.get();
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public String toString() {
+			return "InvocationStatistics [scriptName=" + this.scriptName + ", functionName=" + this.functionName + ", invokedCount=" + this.getInvokedCount() + ", failedCount="
+					+ this.getFailedCount() + ", averageTime=" + this.getAverageTime() + ", maxTime=" + this.getMaxTime() + "]";
+		}
 	}
 }
@@ -0,0 +1,33 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.service;
+
+import java.util.Collection;
+
+import org.aquarius.cicada.core.model.Movie;
+
+/**
+ * Receive the changes of the movies saved by {@link IMovieStoreService}.<BR>
+ * The events are sent after the transaction is committed,in the thread which
+ * saves the movies.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public interface IMovieChangeListener {
+
+	/**
+	 * The movies are inserted or updated.<BR>
+	 *
+	 * @param movies
+	 */
+	public void onMoviesUpdated(Collection<Movie> movies);
+
+	/**
+	 * The movies are deleted.<BR>
+	 *
+	 * @param movies
+	 */
+	public void onMoviesDeleted(Collection<Movie> movies);
+}
@@ -6,9 +6,12 @@ package org.aquarius.cicada.core.service;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
+import org.aquarius.cicada.core.model.DownloadLinkCache;
 import org.aquarius.cicada.core.model.Movie;
 import org.aquarius.cicada.core.model.MovieExample;
+import org.aquarius.cicada.core.model.MovieSearchCondition;
 import org.aquarius.cicada.core.model.Pagination;
 import org.aquarius.cicada.core.model.VisitHistory;
 
@@ -20,6 +23,20 @@ import org.aquarius.cicada.core.model.VisitHistory;
  */
 public interface IMovieStoreService {
 
+	public static final String ColumnActor = "ACTOR";
+
+	public static final String ColumnTag = "TAG";
+
+	public static final String ColumnCategory = "CATEGORY";
+
+	public static final String ColumnProducer = "PRODUCER";
+
+	public static final String ColumnChannel = "CHANNEL";
+
+	public static final String ColumnTitle = "TITLE";
+
+	public static final String ColumnName = "NAME";
+
 	/**
 	 * close the database.<BR>
 	 *
@@ -87,8 +104,53 @@ public interface IMovieStoreService {
 	 */
 	public List<Movie> queryMovies(MovieExample movieExample, Pagination pagination);
 
+	/**
+	 * Return the movies of a channel in the site ordered by id desc.<BR>
+	 *
+	 * @param site
+	 * @param channel
+	 * @param pagination null means all the movies.
+	 * @return
+	 */
+	public List<Movie> queryMoviesBySiteAndChannel(String site, String channel, Pagination pagination);
+
+	/**
+	 * Return the ids of the movies in the site ordered by id desc.<BR>
+	 *
+	 * @param site
+	 * @return
+	 */
+	public List<Integer> queryMovieIdsBySite(String site);
+
+	/**
+	 * Return the ids of the duplicated movies in the site.<BR>
+	 * The oldest movie of a page url is kept,so its id is not returned.<BR>
+	 *
+	 * @param site
+	 * @return
+	 */
+	public List<Integer> queryDuplicatedMovieIds(String site);
+
+	/**
+	 * Return the movies of the ids,the order is not kept.<BR>
+	 *
+	 * @param ids
+	 * @return
+	 */
+	public List<Movie> queryMoviesByIds(List<Integer> ids);
+
+	/**
+	 * Return the count of every distinct value of a column in the site.<BR>
+	 *
+	 * @param site
+	 * @param column one of the column constants of this interface.
+	 * @return
+	 */
+	public Map<String, Integer> queryColumnCounts(String site, String column);
+
 	/**
 	 * Delete specified movies .<BR>
+	 * The movies are deleted by their ids in a few statements.<BR>
 	 *
 	 * @param movies
 	 */
@@ -97,6 +159,8 @@ public interface IMovieStoreService {
 	/**
 	 * Insert a movie if the movie is new.<BR>
 	 * Or update a movie.<BR>
+	 * A new movie is not inserted if the site has a movie with the same page
+	 * url.<BR>
 	 *
 	 * @param movie
 	 */
@@ -105,10 +169,13 @@ public interface IMovieStoreService {
 	/**
 	 * Insert a movie if a movie is new.<BR>
 	 * Or update a movie.<BR>
+	 * The new movies whose page urls are saved in the same site already,or
+	 * appear more than once in the movies,are not inserted.<BR>
 	 *
 	 * @param movies
+	 * @return the inserted or updated movies.
 	 */
-	public void insertOrUpdateMovies(Collection<Movie> movies);
+	public List<Movie> insertOrUpdateMovies(Collection<Movie> movies);
 
 	/**
 	 * Query a visit history for the specified site and channel.<BR>
@@ -163,6 +230,20 @@ public interface IMovieStoreService {
 	 */
 	public List<String> queryAllActors();
 
+	/**
+	 * Add a listener to receive the changes of movies.<BR>
+	 *
+	 * @param listener
+	 */
+	public void addMovieChangeListener(IMovieChangeListener listener);
+
+	/**
+	 * Remove the listener.<BR>
+	 *
+	 * @param listener
+	 */
+	public void removeMovieChangeListener(IMovieChangeListener listener);
+
 	/**
 	 * Remove all relevant movies and visit histories.<BR>
 	 * 
@@ -170,4 +251,48 @@ public interface IMovieStoreService {
 	 */
 	public void clearSite(String siteName);
 
+	/**
+	 * Return the movies of a site which may match the condition,the movies are
+	 * ordered by id desc.<BR>
+	 * The caller checks the movies by the condition again,the last movie is used
+	 * to query the next page.<BR>
+	 *
+	 * @param site
+	 * @param condition
+	 * @param maxId     only the movies whose id is less than it are returned,null
+	 *                  means the first page.
+	 * @param count
+	 * @return
+	 */
+	public List<Movie> queryMoviesByCondition(String site, MovieSearchCondition condition, Integer maxId, int count);
+
+	/**
+	 * Return the stored download links of the movies.<BR>
+	 *
+	 * @param movieIds
+	 * @return
+	 */
+	public List<DownloadLinkCache> queryDownloadLinkCaches(Collection<Integer> movieIds);
+
+	/**
+	 * Store the download links of the movies,the old links are replaced.<BR>
+	 *
+	 * @param downloadLinkCaches
+	 */
+	public void insertOrUpdateDownloadLinkCaches(Collection<DownloadLinkCache> downloadLinkCaches);
+
+	/**
+	 * Delete the stored download links of the movies.<BR>
+	 *
+	 * @param movieIds
+	 */
+	public void deleteDownloadLinkCaches(Collection<Integer> movieIds);
+
+	/**
+	 * Delete the expired download links.<BR>
+	 *
+	 * @return the count of the deleted links.
+	 */
+	public int deleteExpiredDownloadLinkCaches();
+
 }
@@ -0,0 +1,574 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang.StringUtils;
+import org.aquarius.util.StringUtil;
+
+/**
+ * A suggestion index for the keyword assist.<BR>
+ * The keywords are sorted by their case folded forms,so the keywords with a
+ * prefix are in one range.A max tree of the frequencies finds the top ones of
+ * the range without visiting all of them.The keywords which contain a word in
+ * the middle are found by the postings of the character pairs.<BR>
+ * The new keywords are kept in a small pending map and merged into the sorted
+ * arrays in bulk,the frequencies of the merged keywords are updated in
+ * place.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class KeywordIndex {
+
+	private static final int MaxPendingCount = 1024;
+
+	private static final int[] EmptyPositions = new int[0];
+
+	private String[] keywords = new String[0];
+
+	private String[] foldedKeywords = new String[0];
+
+	private int[] frequencies = new int[0];
+
+	private int[] maxTree = new int[2];
+
+	private int leafOffset = 1;
+
+	private Map<String, Integer> positions = new HashMap<>();
+
+	private Map<Integer, int[]> gramPositions = new HashMap<>();
+
+	private final Map<String, Integer> pendingFrequencies = new HashMap<>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 *
+	 */
+	public KeywordIndex() {
+		super();
+	}
+
+	/**
+	 * Replace all the keywords.<BR>
+	 *
+	 * @param frequencyMap the keywords and their frequencies.
+	 */
+	public void reset(Map<String, Integer> frequencyMap) {
+		this.lock.writeLock().lock();
+
+		try {
+			this.pendingFrequencies.clear();
+			this.rebuild(frequencyMap);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Increase the frequency of a keyword.<BR>
+	 *
+	 * @param keyword
+	 * @param count
+	 */
+	public void add(String keyword, int count) {
+		this.update(keyword, count);
+	}
+
+	/**
+	 * Decrease the frequency of a keyword,it is not suggested when the frequency
+	 * becomes 0.<BR>
+	 *
+	 * @param keyword
+	 * @param count
+	 */
+	public void remove(String keyword, int count) {
+		this.update(keyword, -count);
+	}
+
+	/**
+	 * Return the keywords which contain the word ignoring case.<BR>
+	 * The keywords start with the word are returned first,every group is ordered
+	 * by the frequency.<BR>
+	 *
+	 * @param word
+	 * @param maxCount 0 or a negative value means no limit.
+	 * @return
+	 */
+	public List<String> find(String word, int maxCount) {
+
+		if (StringUtils.isEmpty(word)) {
+			return new ArrayList<>();
+		}
+
+		int limit = (maxCount > 0) ? maxCount : Integer.MAX_VALUE;
+		String foldedWord = StringUtil.foldCase(word);
+
+		this.lock.readLock().lock();
+
+		try {
+			List<String> resultList = new ArrayList<>();
+
+			List<Candidate> prefixList = this.findPrefix(foldedWord, limit);
+			this.addPending(prefixList, foldedWord, true);
+			this.addResults(resultList, prefixList, limit);
+
+			if (resultList.size() < limit) {
+				List<Candidate> infixList = this.findInfix(foldedWord, limit - resultList.size());
+				this.addPending(infixList, foldedWord, false);
+				this.addResults(resultList, infixList, limit);
+			}
+
+			return resultList;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param keyword
+	 * @param delta
+	 */
+	private void update(String keyword, int delta) {
+		if (StringUtils.isEmpty(keyword) || (delta == 0)) {
+			return;
+		}
+
+		this.lock.writeLock().lock();
+
+		try {
+			Integer position = this.positions.get(keyword);
+
+			if (null != position) {
+				this.setFrequency(position, Math.max(0, this.frequencies[position] + delta));
+				return;
+			}
+
+			int frequency = Math.max(0, this.pendingFrequencies.getOrDefault(keyword, 0) + delta);
+
+			if (frequency == 0) {
+				this.pendingFrequencies.remove(keyword);
+			} else {
+				this.pendingFrequencies.put(keyword, frequency);
+			}
+
+			if (this.pendingFrequencies.size() > MaxPendingCount) {
+				Map<String, Integer> frequencyMap = new HashMap<>(this.pendingFrequencies);
+
+				for (int i = 0; i < this.keywords.length; i++) {
+					if (this.frequencies[i] > 0) {
+						frequencyMap.put(this.keywords[i], this.frequencies[i]);
+					}
+				}
+
+				this.pendingFrequencies.clear();
+				this.rebuild(frequencyMap);
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Build the sorted arrays,the max tree and the postings.<BR>
+	 *
+	 * @param frequencyMap
+	 */
+	private void rebuild(Map<String, Integer> frequencyMap) {
+		List<String> keywordList = new ArrayList<>();
+
+		for (Map.Entry<String, Integer> entry : frequencyMap.entrySet()) {
+			if (StringUtils.isNotEmpty(entry.getKey()) && (null != entry.getValue()) && (entry.getValue() > 0)) {
+				keywordList.add(entry.getKey());
+			}
+		}
+
+		int size = keywordList.size();
+
+		String[] newFoldedKeywords = new String[size];
+		Integer[] order = new Integer[size];
+
+		for (int i = 0; i < size; i++) {
+			newFoldedKeywords[i] = StringUtil.foldCase(keywordList.get(i));
+			order[i] = i;
+		}
+
+		Arrays.sort(order, Comparator.comparing(index -> newFoldedKeywords[index]));
+
+		this.keywords = new String[size];
+		this.foldedKeywords = new String[size];
+		this.frequencies = new int[size];
+		this.positions = new HashMap<>(size * 2);
+
+		for (int i = 0; i < size; i++) {
+			String keyword = keywordList.get(order[i]);
+
+			this.keywords[i] = keyword;
+			this.foldedKeywords[i] = newFoldedKeywords[order[i]];
+			this.frequencies[i] = frequencyMap.get(keyword);
+			this.positions.put(keyword, i);
+		}
+
+		this.leafOffset = 1;
+		while (this.leafOffset < size) {
+			this.leafOffset = this.leafOffset << 1;
+		}
+
+		this.maxTree = new int[this.leafOffset * 2];
+		System.arraycopy(this.frequencies, 0, this.maxTree, this.leafOffset, size);
+
+		for (int node = this.leafOffset - 1; node > 0; node--) {
+			this.maxTree[node] = Math.max(this.maxTree[node << 1], this.maxTree[(node << 1) + 1]);
+		}
+
+		this.buildGrams();
+	}
+
+	/**
+	 * Build the postings of the character pairs in two passes,the positions of a
+	 * pair are stored in one array.<BR>
+	 */
+	private void buildGrams() {
+		Map<Integer, int[]> counts = new HashMap<>();
+
+		for (String foldedKeyword : this.foldedKeywords) {
+			for (int i = 0; i < foldedKeyword.length() - 1; i++) {
+				counts.computeIfAbsent(toGram(foldedKeyword, i), key -> new int[1])[0]++;
+			}
+		}
+
+		Map<Integer, int[]> newGramPositions = new HashMap<>(counts.size() * 2);
+		Map<Integer, int[]> filledCounts = new HashMap<>(counts.size() * 2);
+
+		for (Map.Entry<Integer, int[]> entry : counts.entrySet()) {
+			newGramPositions.put(entry.getKey(), new int[entry.getValue()[0]]);
+			filledCounts.put(entry.getKey(), new int[1]);
+		}
+
+		for (int position = 0; position < this.foldedKeywords.length; position++) {
+			String foldedKeyword = this.foldedKeywords[position];
+
+			for (int i = 0; i < foldedKeyword.length() - 1; i++) {
+				Integer gram = toGram(foldedKeyword, i);
+
+				int[] gramArray = newGramPositions.get(gram);
+				int[] filled = filledCounts.get(gram);
+
+				if ((filled[0] == 0) || (gramArray[filled[0] - 1] != position)) {
+					gramArray[filled[0]++] = position;
+				}
+				// A pair appears many times in one keyword is recorded once.
+			}
+		}
+
+		for (Map.Entry<Integer, int[]> entry : newGramPositions.entrySet()) {
+			int filled = filledCounts.get(entry.getKey())[0];
+
+			if (filled < entry.getValue().length) {
+				entry.setValue(Arrays.copyOf(entry.getValue(), filled));
+			}
+		}
+
+		this.gramPositions = newGramPositions;
+	}
+
+	/**
+	 * @param position
+	 * @param frequency
+	 */
+	private void setFrequency(int position, int frequency) {
+		this.frequencies[position] = frequency;
+
+		int node = this.leafOffset + position;
+		this.maxTree[node] = frequency;
+
+		for (node = node >> 1; node > 0; node = node >> 1) {
+			this.maxTree[node] = Math.max(this.maxTree[node << 1], this.maxTree[(node << 1) + 1]);
+		}
+	}
+
+	/**
+	 * Find the top keywords in the range of the prefix.<BR>
+	 *
+	 * @param foldedWord
+	 * @param limit
+	 * @return
+	 */
+	private List<Candidate> findPrefix(String foldedWord, int limit) {
+		List<Candidate> resultList = new ArrayList<>();
+
+		int low = this.lowerBound(foldedWord);
+		int high = this.prefixEnd(foldedWord, low);
+
+		if (low >= high) {
+			return resultList;
+		}
+
+		PriorityQueue<Integer> queue = new PriorityQueue<>((node1, node2) -> Integer.compare(this.maxTree[node2], this.maxTree[node1]));
+
+		for (int left = low + this.leafOffset, right = high + this.leafOffset; left < right; left = left >> 1, right = right >> 1) {
+			if ((left & 1) == 1) {
+				queue.add(left++);
+			}
+
+			if ((right & 1) == 1) {
+				queue.add(--right);
+			}
+		}
+		// The range is split into the nodes of the tree.
+
+		while (!queue.isEmpty() && (resultList.size() < limit)) {
+			int node = queue.poll();
+
+			if (this.maxTree[node] == 0) {
+				break;
+			}
+
+			if (node >= this.leafOffset) {
+				int position = node - this.leafOffset;
+				resultList.add(new Candidate(this.keywords[position], this.frequencies[position]));
+			} else {
+				queue.add(node << 1);
+				queue.add((node << 1) + 1);
+			}
+		}
+
+		return resultList;
+	}
+
+	/**
+	 * Find the top keywords which contain the word but don't start with it.<BR>
+	 *
+	 * @param foldedWord
+	 * @param limit
+	 * @return
+	 */
+	private List<Candidate> findInfix(String foldedWord, int limit) {
+		PriorityQueue<Integer> queue = new PriorityQueue<>(Comparator.comparingInt(position -> this.frequencies[position]));
+
+		if (foldedWord.length() < 2) {
+			for (int position = 0; position < this.foldedKeywords.length; position++) {
+				this.offerInfix(queue, position, foldedWord, limit);
+			}
+		} else {
+			for (int position : this.findGrams(foldedWord)) {
+				this.offerInfix(queue, position, foldedWord, limit);
+			}
+		}
+
+		List<Candidate> resultList = new ArrayList<>(queue.size());
+
+		while (!queue.isEmpty()) {
+			int position = queue.poll();
+			resultList.add(0, new Candidate(this.keywords[position], this.frequencies[position]));
+		}
+
+		return resultList;
+	}
+
+	/**
+	 * Keep the top keywords in the queue.<BR>
+	 *
+	 * @param queue
+	 * @param position
+	 * @param foldedWord
+	 * @param limit
+	 */
+	private void offerInfix(PriorityQueue<Integer> queue, int position, String foldedWord, int limit) {
+		int frequency = this.frequencies[position];
+
+		if ((frequency == 0) || ((queue.size() >= limit) && (frequency <= this.frequencies[queue.peek()]))) {
+			return;
+		}
+
+		String foldedKeyword = this.foldedKeywords[position];
+
+		if (foldedKeyword.startsWith(foldedWord) || !foldedKeyword.contains(foldedWord)) {
+			return;
+		}
+
+		queue.add(position);
+
+		if (queue.size() > limit) {
+			queue.poll();
+		}
+	}
+
+	/**
+	 * Return the positions which contain all the pairs of the word.<BR>
+	 *
+	 * @param foldedWord
+	 * @return
+	 */
+	private int[] findGrams(String foldedWord) {
+		List<int[]> positionsList = new ArrayList<>();
+
+		for (int i = 0; i < foldedWord.length() - 1; i++) {
+			int[] gramArray = this.gramPositions.get(toGram(foldedWord, i));
+
+			if (null == gramArray) {
+				return EmptyPositions;
+			}
+
+			positionsList.add(gramArray);
+		}
+
+		positionsList.sort(Comparator.comparingInt(array -> array.length));
+
+		int[] result = positionsList.get(0);
+
+		for (int k = 1; (k < positionsList.size()) && (result.length > 0); k++) {
+			int[] another = positionsList.get(k);
+			int[] merged = new int[Math.min(result.length, another.length)];
+			int count = 0;
+
+			for (int i = 0, j = 0; (i < result.length) && (j < another.length);) {
+				if (result[i] < another[j]) {
+					i++;
+				} else if (result[i] > another[j]) {
+					j++;
+				} else {
+					merged[count++] = result[i];
+					i++;
+					j++;
+				}
+			}
+
+			result = Arrays.copyOf(merged, count);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Add the matched pending keywords and sort the candidates by frequency.<BR>
+	 *
+	 * @param candidateList
+	 * @param foldedWord
+	 * @param prefix
+	 */
+	private void addPending(List<Candidate> candidateList, String foldedWord, boolean prefix) {
+		boolean added = false;
+
+		for (Map.Entry<String, Integer> entry : this.pendingFrequencies.entrySet()) {
+			String foldedKeyword = StringUtil.foldCase(entry.getKey());
+
+			boolean matched = prefix ? foldedKeyword.startsWith(foldedWord) : (!foldedKeyword.startsWith(foldedWord) && foldedKeyword.contains(foldedWord));
+
+			if (matched) {
+				candidateList.add(new Candidate(entry.getKey(), entry.getValue()));
+				added = true;
+			}
+		}
+
+		if (added) {
+			candidateList.sort((candidate1, candidate2) -> Integer.compare(candidate2.frequency, candidate1.frequency));
+		}
+	}
+
+	/**
+	 * @param resultList
+	 * @param candidateList
+	 * @param limit
+	 */
+	private void addResults(List<String> resultList, List<Candidate> candidateList, int limit) {
+		for (Candidate candidate : candidateList) {
+			if (resultList.size() >= limit) {
+				return;
+			}
+
+			resultList.add(candidate.keyword);
+		}
+	}
+
+	/**
+	 * Return the first position whose folded keyword is not less than the
+	 * word.<BR>
+	 *
+	 * @param foldedWord
+	 * @return
+	 */
+	private int lowerBound(String foldedWord) {
+		int low = 0;
+		int high = this.foldedKeywords.length;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (this.foldedKeywords[middle].compareTo(foldedWord) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Return the first position after the keywords starting with the word.<BR>
+	 *
+	 * @param foldedWord
+	 * @param start
+	 * @return
+	 */
+	private int prefixEnd(String foldedWord, int start) {
+		int low = start;
+		int high = this.foldedKeywords.length;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (this.foldedKeywords[middle].startsWith(foldedWord)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * @param foldedContent
+	 * @param index
+	 * @return
+	 */
+	private static Integer toGram(String foldedContent, int index) {
+		return (foldedContent.charAt(index) << 16) | foldedContent.charAt(index + 1);
+	}
+
+	/**
+	 * A matched keyword and its frequency.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	private static final class Candidate {
+
+		private final String keyword;
+
+		private final int frequency;
+
+		/**
+		 * @param keyword
+		 * @param frequency
+		 */
+		private Candidate(String keyword, int frequency) {
+			super();
+			this.keyword = keyword;
+			this.frequency = frequency;
+		}
+	}
+}
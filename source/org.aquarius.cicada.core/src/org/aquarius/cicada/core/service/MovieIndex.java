@@ -0,0 +1,521 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.aquarius.cicada.core.model.Movie;
+import org.aquarius.util.StringUtil;
+
+/**
+ * An inverted index of the movies to evaluate a {@link Filter} without visiting
+ * every movie.<BR>
+ * The title and the uni id are split into case folded character pairs,so a
+ * keyword in any language is found by intersecting the postings of its
+ * pairs.The channel,state,actor,tag,category and producer have few distinct
+ * values,they are indexed by the values directly.<BR>
+ * The postings only narrow the candidates,every candidate is checked by
+ * {@link Filter#isFiltered(Movie)} against a compact copy of the movie,so the
+ * result is the same as the linear filter.<BR>
+ * The movies are indexed by their ids,a movie without id is not indexed.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class MovieIndex {
+
+	private static final int[] EmptyIds = new int[0];
+
+	private final Map<Integer, Movie> documents = new HashMap<>();
+
+	private final Map<Integer, Postings> gramPostings = new HashMap<>();
+
+	private final Map<String, Postings> channelPostings = new HashMap<>();
+
+	private final Map<Integer, Postings> statePostings = new HashMap<>();
+
+	private final Map<String, Postings> actorPostings = new HashMap<>();
+
+	private final Map<String, Postings> tagPostings = new HashMap<>();
+
+	private final Map<String, Postings> categoryPostings = new HashMap<>();
+
+	private final Map<String, Postings> producerPostings = new HashMap<>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 *
+	 */
+	public MovieIndex() {
+		super();
+	}
+
+	/**
+	 * Add or update the movies.<BR>
+	 *
+	 * @param movies
+	 */
+	public void addMovies(Collection<Movie> movies) {
+		this.lock.writeLock().lock();
+
+		try {
+			for (Movie movie : movies) {
+				if ((null != movie) && (null != movie.getId())) {
+					this.doAddMovie(movie);
+				}
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove the movies.<BR>
+	 * Only the document is removed,the left ids in the postings are dropped by the
+	 * check.<BR>
+	 *
+	 * @param movies
+	 */
+	public void removeMovies(Collection<Movie> movies) {
+		this.lock.writeLock().lock();
+
+		try {
+			for (Movie movie : movies) {
+				if ((null != movie) && (null != movie.getId())) {
+					this.documents.remove(movie.getId());
+				}
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove all the movies.<BR>
+	 */
+	public void clear() {
+		this.lock.writeLock().lock();
+
+		try {
+			this.documents.clear();
+			this.gramPostings.clear();
+			this.channelPostings.clear();
+			this.statePostings.clear();
+			this.actorPostings.clear();
+			this.tagPostings.clear();
+			this.categoryPostings.clear();
+			this.producerPostings.clear();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the count of indexed movies.<BR>
+	 *
+	 * @return
+	 */
+	public int size() {
+		this.lock.readLock().lock();
+
+		try {
+			return this.documents.size();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the ids of the indexed movies which are not filtered.<BR>
+	 *
+	 * @param filter
+	 * @return
+	 */
+	public BitSet search(Filter filter) {
+		this.lock.readLock().lock();
+
+		try {
+			int[] candidates = this.findCandidates(filter);
+
+			BitSet resultIds = new BitSet();
+
+			if (null == candidates) {
+				for (Movie document : this.documents.values()) {
+					if (!filter.isFiltered(document)) {
+						resultIds.set(document.getId());
+					}
+				}
+			} else {
+				for (int id : candidates) {
+					Movie document = this.documents.get(id);
+
+					if ((null != document) && !filter.isFiltered(document)) {
+						resultIds.set(id);
+					}
+				}
+			}
+
+			return resultIds;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the sorted ids which may be matched by the filter.<BR>
+	 *
+	 * @param filter
+	 * @return null means every movie is a candidate.
+	 */
+	private int[] findCandidates(Filter filter) {
+		int[] candidates = null;
+
+		if (CollectionUtils.isNotEmpty(filter.getStateSet())) {
+			List<int[]> idsList = new ArrayList<>();
+
+			for (Integer state : filter.getStateSet()) {
+				addIds(idsList, this.statePostings.get(state));
+			}
+
+			candidates = intersect(candidates, union(idsList));
+		}
+
+		if (CollectionUtils.isNotEmpty(filter.getChannelNameList())) {
+			List<int[]> idsList = new ArrayList<>();
+
+			for (String channelName : filter.getChannelNameList()) {
+				addIds(idsList, this.channelPostings.get(channelName));
+			}
+
+			candidates = intersect(candidates, union(idsList));
+		}
+
+		if (CollectionUtils.isNotEmpty(filter.getActorList())) {
+			candidates = intersect(candidates, this.findValues(this.actorPostings, value -> containsAny(value, filter.getActorList())));
+		}
+
+		if (CollectionUtils.isNotEmpty(filter.getTagList())) {
+			candidates = intersect(candidates, this.findValues(this.tagPostings, value -> containsAny(value, filter.getTagList())));
+		}
+
+		if (CollectionUtils.isNotEmpty(filter.getCategoryList())) {
+			candidates = intersect(candidates, this.findValues(this.categoryPostings, value -> containsAny(value, filter.getCategoryList())));
+		}
+
+		String keyword = StringUtils.trimToEmpty(filter.getKeyword());
+		// A blank keyword matches every movie in the filter,and the movies found by
+		// the trimmed keyword contain the ones found by the original keyword.
+
+		if ((keyword.length() >= 2) && !StringUtil.hasWildcardSymbol(keyword)) {
+			Predicate<String> predicate = value -> StringUtils.containsIgnoreCase(value, keyword);
+
+			List<int[]> idsList = new ArrayList<>();
+			idsList.add(this.findGrams(keyword));
+			idsList.add(this.findValues(this.actorPostings, predicate));
+			idsList.add(this.findValues(this.tagPostings, predicate));
+			idsList.add(this.findValues(this.categoryPostings, predicate));
+			idsList.add(this.findValues(this.producerPostings, predicate));
+
+			candidates = intersect(candidates, union(idsList));
+		}
+		// A blank or short keyword or a wildcard is checked on every candidate.
+
+		return candidates;
+	}
+
+	/**
+	 * Return the ids which contain all the character pairs of the keyword in the
+	 * title or the uni id.<BR>
+	 *
+	 * @param keyword
+	 * @return
+	 */
+	private int[] findGrams(String keyword) {
+		List<Postings> postingsList = new ArrayList<>();
+
+		for (int i = 0; i < keyword.length() - 1; i++) {
+			Postings postings = this.gramPostings.get(toGram(keyword, i));
+
+			if (null == postings) {
+				return EmptyIds;
+			}
+
+			postingsList.add(postings);
+		}
+
+		postingsList.sort(Comparator.comparingInt(Postings::size));
+		// Start from the shortest postings to keep the intersection small.
+
+		int[] ids = null;
+
+		for (Postings postings : postingsList) {
+			ids = intersect(ids, postings.toArray());
+
+			if (ids.length == 0) {
+				break;
+			}
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Return the ids of the values accepted by the predicate.<BR>
+	 *
+	 * @param postingsMap
+	 * @param predicate
+	 * @return
+	 */
+	private int[] findValues(Map<String, Postings> postingsMap, Predicate<String> predicate) {
+		List<int[]> idsList = new ArrayList<>();
+
+		for (Map.Entry<String, Postings> entry : postingsMap.entrySet()) {
+			if (predicate.test(entry.getKey())) {
+				idsList.add(entry.getValue().toArray());
+			}
+		}
+
+		return union(idsList);
+	}
+
+	/**
+	 * @param movie
+	 */
+	private void doAddMovie(Movie movie) {
+		int id = movie.getId();
+
+		Movie document = new Movie();
+		document.setId(movie.getId());
+		document.setTitle(movie.getTitle());
+		document.setUniId(movie.getUniId());
+		document.setActor(movie.getActor());
+		document.setTag(movie.getTag());
+		document.setCategory(movie.getCategory());
+		document.setProducer(movie.getProducer());
+		document.setChannel(movie.getChannel());
+		document.setState(movie.getState());
+		// Only the fields used by the filter are kept.
+
+		this.documents.put(id, document);
+
+		this.addGrams(id, document.getTitle());
+		this.addGrams(id, document.getUniId());
+
+		addValue(this.channelPostings, document.getChannel(), id);
+		addValue(this.statePostings, document.getState(), id);
+		addValue(this.actorPostings, document.getActor(), id);
+		addValue(this.tagPostings, document.getTag(), id);
+		addValue(this.categoryPostings, document.getCategory(), id);
+		addValue(this.producerPostings, document.getProducer(), id);
+	}
+
+	/**
+	 * @param id
+	 * @param value
+	 */
+	private void addGrams(int id, String value) {
+		if (StringUtils.length(value) < 2) {
+			return;
+		}
+
+		for (int i = 0; i < value.length() - 1; i++) {
+			this.gramPostings.computeIfAbsent(toGram(value, i), key -> new Postings()).add(id);
+		}
+	}
+
+	/**
+	 * Pack two case folded characters into a key.<BR>
+	 *
+	 * @param content
+	 * @param index
+	 * @return
+	 */
+	private static Integer toGram(String content, int index) {
+		return (StringUtil.foldCase(content.charAt(index)) << 16) | StringUtil.foldCase(content.charAt(index + 1));
+	}
+
+	/**
+	 * @param postingsMap
+	 * @param value
+	 * @param id
+	 */
+	private static <K> void addValue(Map<K, Postings> postingsMap, K value, int id) {
+		if (null != value) {
+			postingsMap.computeIfAbsent(value, key -> new Postings()).add(id);
+		}
+	}
+
+	/**
+	 * @param idsList
+	 * @param postings
+	 */
+	private static void addIds(List<int[]> idsList, Postings postings) {
+		if (null != postings) {
+			idsList.add(postings.toArray());
+		}
+	}
+
+	/**
+	 * The same check as the filter.<BR>
+	 *
+	 * @param value
+	 * @param contentList
+	 * @return
+	 */
+	private static boolean containsAny(String value, List<String> contentList) {
+		for (String content : contentList) {
+			if (StringUtils.contains(value, content)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Intersect two sorted id arrays.<BR>
+	 *
+	 * @param ids        null means all the ids.
+	 * @param anotherIds
+	 * @return
+	 */
+	private static int[] intersect(int[] ids, int[] anotherIds) {
+		if (null == ids) {
+			return anotherIds;
+		}
+
+		int[] result = new int[Math.min(ids.length, anotherIds.length)];
+		int count = 0;
+
+		int i = 0;
+		int j = 0;
+
+		while ((i < ids.length) && (j < anotherIds.length)) {
+			if (ids[i] < anotherIds[j]) {
+				i++;
+			} else if (ids[i] > anotherIds[j]) {
+				j++;
+			} else {
+				result[count++] = ids[i];
+				i++;
+				j++;
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Merge the sorted id arrays.<BR>
+	 *
+	 * @param idsList
+	 * @return
+	 */
+	private static int[] union(List<int[]> idsList) {
+		if (idsList.isEmpty()) {
+			return EmptyIds;
+		}
+
+		if (idsList.size() == 1) {
+			return idsList.get(0);
+		}
+
+		int length = 0;
+		for (int[] ids : idsList) {
+			length = length + ids.length;
+		}
+
+		int[] result = new int[length];
+		int position = 0;
+
+		for (int[] ids : idsList) {
+			System.arraycopy(ids, 0, result, position, ids.length);
+			position = position + ids.length;
+		}
+
+		Arrays.sort(result);
+
+		int count = 0;
+		for (int i = 0; i < result.length; i++) {
+			if ((count == 0) || (result[count - 1] != result[i])) {
+				result[count++] = result[i];
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * A sorted list of ids without duplication.<BR>
+	 * The ids of new movies are bigger than the old ones,so they are appended at
+	 * the tail in most cases.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	private static final class Postings {
+
+		private int[] ids = new int[4];
+
+		private int size = 0;
+
+		/**
+		 * @param id
+		 */
+		private void add(int id) {
+			if ((this.size > 0) && (this.ids[this.size - 1] >= id)) {
+				int index = Arrays.binarySearch(this.ids, 0, this.size, id);
+
+				if (index >= 0) {
+					return;
+				}
+
+				this.insert(-(index + 1), id);
+			} else {
+				this.insert(this.size, id);
+			}
+		}
+
+		/**
+		 * @param index
+		 * @param id
+		 */
+		private void insert(int index, int id) {
+			if (this.size == this.ids.length) {
+				this.ids = Arrays.copyOf(this.ids, this.size + (this.size >> 1) + 1);
+			}
+
+			System.arraycopy(this.ids, index, this.ids, index + 1, this.size - index);
+			this.ids[index] = id;
+			this.size++;
+		}
+
+		/**
+		 * @return
+		 */
+		private int size() {
+			return this.size;
+		}
+
+		/**
+		 * @return
+		 */
+		private int[] toArray() {
+			return Arrays.copyOf(this.ids, this.size);
+		}
+	}
+}
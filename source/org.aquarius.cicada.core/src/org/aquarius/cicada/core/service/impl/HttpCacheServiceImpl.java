@@ -3,30 +3,48 @@
  */
 package org.aquarius.cicada.core.service.impl;
 
-import java.io.IOException;
 import java.io.Serializable;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.LinkedList;
 import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang.StringUtils;
 import org.aquarius.log.LogUtil;
 import org.aquarius.service.IHttpCacheService;
+import org.aquarius.util.ObjectHolder;
+import org.aquarius.util.SystemUtil;
 import org.aquarius.util.net.HttpUtil;
-import org.h2.util.DoneFuture;
 import org.slf4j.Logger;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.config.Configuration;
 import net.sf.ehcache.config.DiskStoreConfiguration;
+import net.sf.ehcache.event.CacheEventListener;
 
 /**
  * http Cache Service implements with ehcache.<BR>
+ * The requests of the same url and headers share one download in flight,the
+ * downloads of a host are limited,and the missing resources are not requested
+ * again for a while.<BR>
  *
  * @author aquarius.github@gmail.com
  *
@@ -40,15 +58,44 @@ public final class HttpCacheServiceImpl implements IHttpCacheService {
 
 	private static final int DefaultMaxThreadCount = 40;
 
+	private static final int DefaultMaxHostConnections = 6;
+
+	private static final int MaxNegativeResultCount = 1000;
+
+	private static final long NegativeTimeToLive = 5 * SystemUtil.TimeMinute;
+
+	private static final long TransientNegativeTimeToLive = 30 * SystemUtil.TimeSecond;
+
+	private static final int DefaultTimeout = 15000;
+
+	private static final int TooManyRequests = 429;
+
 	private CacheManager cacheManager;
 
 	private Cache cache;
 
-	private ThreadPoolExecutor executorService = new ThreadPoolExecutor(0, DefaultMaxThreadCount, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+	private ThreadPoolExecutor executorService = new ThreadPoolExecutor(DefaultMaxThreadCount, DefaultMaxThreadCount, 60L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>());
 
 	private Logger logger = LogUtil.getLogger(getClass());
 
-	private int totalCount = 0;
+	private AtomicInteger totalCount = new AtomicInteger();
+
+	private final Map<String, CompletableFuture<Serializable>> pendingFutures = new ConcurrentHashMap<>();
+
+	private final Map<String, HostQueue> hostQueues = new ConcurrentHashMap<>();
+
+	private final Map<String, NegativeResult> negativeResults = new ConcurrentHashMap<>();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder coalescedCount = new LongAdder();
+
+	private final LongAdder evictedCount = new LongAdder();
+
+	private final LongAdder negativeHitCount = new LongAdder();
 
 	/**
 	 *
@@ -87,6 +134,9 @@ public final class HttpCacheServiceImpl implements IHttpCacheService {
 		}
 
 		this.cache = this.cacheManager.getCache("main");
+		this.cache.getCacheEventNotificationService().registerListener(new EvictionListener());
+
+		this.executorService.allowCoreThreadTimeOut(true);
 	}
 
 	/**
@@ -94,13 +144,7 @@ public final class HttpCacheServiceImpl implements IHttpCacheService {
 	 */
 	@Override
 	public Future<Serializable> getElement(String urlString, Map<String, String> headers) {
-		Element element = this.cache.get(urlString);
-		if (null != element) {
-			return new DoneFuture<Serializable>(element.getValue());
-		}
-
-		return this.executorService.submit(() -> doFetchInfo(urlString, headers, null));
-
+		return this.fetch(urlString, headers);
 	}
 
 	/**
@@ -109,14 +153,9 @@ public final class HttpCacheServiceImpl implements IHttpCacheService {
 	@Override
 	public Serializable getElement(String urlString, Map<String, String> headers, boolean background) {
 
-		Element element = this.cache.get(urlString);
-		if (null != element) {
-			return element.getValue();
-		}
-
-		Future<Serializable> future = this.executorService.submit(() -> doFetchInfo(urlString, headers, null));
+		CompletableFuture<Serializable> future = this.fetch(urlString, headers);
 
-		if (!background) {
+		if (future.isDone() || !background) {
 			try {
 				return future.get();
 			} catch (Exception e) {
@@ -132,43 +171,232 @@ public final class HttpCacheServiceImpl implements IHttpCacheService {
 	 */
 	@Override
 	public Serializable getElement(String urlString, Map<String, String> headers, LoadFinishListener<Serializable> listener) {
-		Element element = this.cache.get(urlString);
-		if (null != element) {
-			listener.loadFinished(urlString, element.getValue());
-			return element.getValue();
+		CompletableFuture<Serializable> future = this.fetch(urlString, headers);
+
+		if (future.isDone() && !future.isCompletedExceptionally()) {
+			Serializable value = future.join();
+
+			if (null != value) {
+				listener.loadFinished(urlString, value);
+			}
+
+			return value;
 		}
 
-		this.executorService.submit(() -> doFetchInfo(urlString, headers, listener));
+		future.whenComplete((value, exception) -> {
+			if ((null == exception) && (null != value)) {
+				listener.loadFinished(urlString, value);
+			}
+		});
+		// A missing resource is not passed to the listener,like a failed one.
+
 		return null;
 	}
 
 	/**
-	 * 
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public CacheStatistics getStatistics() {
+		return new CacheStatistics(this.hitCount.sum(), this.missCount.sum(), this.coalescedCount.sum(), this.evictedCount.sum(),
+				this.negativeHitCount.sum());
+	}
+
+	/**
+	 * Return the cached value,or the download in flight of the same url and
+	 * headers,or start a new download.<BR>
+	 *
 	 * @param urlString
 	 * @param headers
-	 * @param listener
 	 * @return
-	 * @throws IOException
 	 */
-	private Serializable doFetchInfo(String urlString, Map<String, String> headers, LoadFinishListener<Serializable> listener) throws IOException {
-		byte[] bytes = HttpUtil.doGetByteArray(urlString, headers);
-		this.cache.put(new Element(urlString, bytes));
+	private CompletableFuture<Serializable> fetch(String urlString, Map<String, String> headers) {
+		Element element = this.cache.get(urlString);
+		if (null != element) {
+			this.hitCount.increment();
+			return CompletableFuture.completedFuture(element.getValue());
+		}
+
+		String key = createKey(urlString, headers);
+
+		NegativeResult negativeResult = this.negativeResults.get(key);
+		if (null != negativeResult) {
+			if (negativeResult.isValid()) {
+				this.negativeHitCount.increment();
+				return negativeResult.toFuture();
+			}
+
+			this.negativeResults.remove(key, negativeResult);
+		}
+		// A missing image or a dead host is not requested again for a while,the
+		// headers are a part of the key because the referer may decide the response.
+
+		CompletableFuture<Serializable> future = new CompletableFuture<>();
+		CompletableFuture<Serializable> pendingFuture = this.pendingFutures.putIfAbsent(key, future);
+
+		if (null != pendingFuture) {
+			this.coalescedCount.increment();
+			return pendingFuture;
+		}
+
+		this.missCount.increment();
+		this.submit(getHost(urlString), () -> this.doFetchInfo(key, urlString, headers, future));
+
+		return future;
+	}
+
+	/**
+	 * Run the task when the host has less downloads than the cap,otherwise it is
+	 * queued until a download of the host finishes.<BR>
+	 * The threads never block for a busy host,so the other hosts are not
+	 * delayed.<BR>
+	 *
+	 * @param host
+	 * @param task
+	 */
+	private void submit(String host, Runnable task) {
+		HostQueue hostQueue = this.hostQueues.computeIfAbsent(StringUtils.defaultString(host), hostName -> new HostQueue());
 
-		this.totalCount++;
+		synchronized (hostQueue) {
+			if (hostQueue.runningCount >= DefaultMaxHostConnections) {
+				hostQueue.waitingTasks.add(task);
+				return;
+			}
+
+			hostQueue.runningCount++;
+		}
+
+		this.executorService.execute(() -> this.runInHost(hostQueue, task));
+	}
 
-		if (this.totalCount > CacheCount) {
+	/**
+	 * @param hostQueue
+	 * @param task
+	 */
+	private void runInHost(HostQueue hostQueue, Runnable task) {
+		Runnable nextTask = task;
+
+		while (null != nextTask) {
 			try {
-				this.cache.flush();
+				nextTask.run();
 			} catch (Exception e) {
-				this.logger.error("doFetchInfo", e);
+				this.logger.error("runInHost", e);
+			}
+
+			synchronized (hostQueue) {
+				nextTask = hostQueue.waitingTasks.poll();
+
+				if (null == nextTask) {
+					hostQueue.runningCount--;
+				}
 			}
 		}
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param urlString
+	 * @param headers
+	 * @param future
+	 */
+	private void doFetchInfo(String key, String urlString, Map<String, String> headers, CompletableFuture<Serializable> future) {
+		try {
+			ObjectHolder<Integer> responseCodeHolder = new ObjectHolder<>();
+			byte[] bytes = HttpUtil.doGetByteArray(urlString, DefaultTimeout, headers, responseCodeHolder);
+
+			if (null == bytes) {
+				Long timeToLive = getNegativeTimeToLive(responseCodeHolder.getValue());
+
+				if (null != timeToLive) {
+					this.addNegativeResult(key, null, timeToLive);
+				}
+			} else {
+				this.cache.put(new Element(urlString, bytes));
+
+				if (this.totalCount.incrementAndGet() > CacheCount) {
+					try {
+						this.cache.flush();
+					} catch (Exception e) {
+						this.logger.error("doFetchInfo", e);
+					}
+				}
+			}
+			// The value is cached before the future is removed,so a new request finds
+			// it in the cache.
+
+			this.pendingFutures.remove(key, future);
+			future.complete(bytes);
+		} catch (Exception e) {
 
-		if (null != listener) {
-			listener.loadFinished(urlString, bytes);
+			if (e instanceof SocketTimeoutException || e instanceof UnknownHostException) {
+				// The host may be back soon,so the failure is only kept for a short time.
+				this.addNegativeResult(key, e, TransientNegativeTimeToLive);
+			}
+
+			this.pendingFutures.remove(key, future);
+			future.completeExceptionally(e);
 		}
+	}
 
-		return bytes;
+	/**
+	 * Return how long a response without content is kept.<BR>
+	 * Only a missing resource is kept for long,a busy or broken server is
+	 * requested again soon,the other responses are not kept.<BR>
+	 *
+	 * @param responseCode
+	 * @return null if the response should not be kept.
+	 */
+	private static Long getNegativeTimeToLive(Integer responseCode) {
+		if (null == responseCode) {
+			return null;
+		}
+
+		int code = responseCode;
+
+		if ((code == HttpURLConnection.HTTP_NOT_FOUND) || (code == HttpURLConnection.HTTP_GONE)) {
+			return NegativeTimeToLive;
+		}
+
+		if ((code == TooManyRequests) || (code >= HttpURLConnection.HTTP_INTERNAL_ERROR)) {
+			return TransientNegativeTimeToLive;
+		}
+
+		return null;
+	}
+
+	/**
+	 * @param key        the url and the headers.
+	 * @param exception  null means the resource is not found.
+	 * @param timeToLive
+	 */
+	private void addNegativeResult(String key, Exception exception, long timeToLive) {
+
+		if (this.negativeResults.size() >= MaxNegativeResultCount) {
+			this.negativeResults.values().removeIf(negativeResult -> !negativeResult.isValid());
+
+			if (this.negativeResults.size() >= MaxNegativeResultCount) {
+				this.negativeResults.clear();
+			}
+		}
+
+		this.negativeResults.put(key, new NegativeResult(exception, timeToLive));
+	}
+
+	/**
+	 * The url and the headers identify a download.<BR>
+	 *
+	 * @param urlString
+	 * @param headers
+	 * @return
+	 */
+	private static String createKey(String urlString, Map<String, String> headers) {
+
+		if (MapUtils.isEmpty(headers)) {
+			return urlString;
+		}
+
+		return urlString + "\n" + new TreeMap<>(headers);
 	}
 
 	/**
@@ -186,8 +414,151 @@ public final class HttpCacheServiceImpl implements IHttpCacheService {
 	 */
 	@Override
 	public void clear() {
+		this.negativeResults.clear();
 		this.cache.removeAll();
 		this.cache.flush();
 	}
 
+	/**
+	 * @param urlString
+	 * @return
+	 */
+	private static String getHost(String urlString) {
+		try {
+			return new URL(urlString).getHost();
+		} catch (MalformedURLException e) {
+			return "";
+		}
+	}
+
+	/**
+	 * The downloads of a host.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	private static final class HostQueue {
+
+		private int runningCount;
+
+		private final Queue<Runnable> waitingTasks = new LinkedList<>();
+	}
+
+	/**
+	 * A failed download which is not requested again until it expires.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	private static final class NegativeResult {
+
+		private final Exception exception;
+
+		private final long expireTime;
+
+		/**
+		 * @param exception
+		 * @param timeToLive
+		 */
+		private NegativeResult(Exception exception, long timeToLive) {
+			super();
+			this.exception = exception;
+			this.expireTime = System.currentTimeMillis() + timeToLive;
+		}
+
+		/**
+		 * @return
+		 */
+		private boolean isValid() {
+			return System.currentTimeMillis() < this.expireTime;
+		}
+
+		/**
+		 * @return
+		 */
+		private CompletableFuture<Serializable> toFuture() {
+			CompletableFuture<Serializable> future = new CompletableFuture<>();
+
+			if (null == this.exception) {
+				future.complete(null);
+			} else {
+				future.completeExceptionally(this.exception);
+			}
+
+			return future;
+		}
+	}
+
+	/**
+	 * Count the elements evicted or expired by ehcache.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	private final class EvictionListener implements CacheEventListener {
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public void notifyElementRemoved(Ehcache ehcache, Element element) {
+			// Nothing to do
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public void notifyElementPut(Ehcache ehcache, Element element) {
+			// Nothing to do
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public void notifyElementUpdated(Ehcache ehcache, Element element) {
+			// Nothing to do
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public void notifyElementExpired(Ehcache ehcache, Element element) {
+			HttpCacheServiceImpl.this.evictedCount.increment();
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public void notifyElementEvicted(Ehcache ehcache, Element element) {
+			HttpCacheServiceImpl.this.evictedCount.increment();
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public void notifyRemoveAll(Ehcache ehcache) {
+			// Nothing to do
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public void dispose() {
+			// Nothing to do
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public Object clone() throws CloneNotSupportedException {
+			throw new CloneNotSupportedException();
+		}
+	}
 }
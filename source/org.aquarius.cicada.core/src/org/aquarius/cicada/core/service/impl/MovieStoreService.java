@@ -7,35 +7,62 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.ibatis.datasource.pooled.PoolState;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.aquarius.cicada.core.RuntimeManager;
+import org.aquarius.cicada.core.config.MovieConfiguration;
+import org.aquarius.cicada.core.model.DownloadLinkCache;
+import org.aquarius.cicada.core.model.DownloadLinkCacheMapper;
 import org.aquarius.cicada.core.model.Movie;
 import org.aquarius.cicada.core.model.MovieExample;
 import org.aquarius.cicada.core.model.MovieMapper;
+import org.aquarius.cicada.core.model.MovieSearchCondition;
 import org.aquarius.cicada.core.model.Pagination;
 import org.aquarius.cicada.core.model.VisitHistory;
 import org.aquarius.cicada.core.model.VisitHistoryExample;
 import org.aquarius.cicada.core.model.VisitHistoryMapper;
+import org.aquarius.cicada.core.service.IMovieChangeListener;
 import org.aquarius.cicada.core.service.IMovieStoreService;
+import org.aquarius.cicada.core.service.impl.StatementMetricsInterceptor.StatementStatistics;
 import org.aquarius.log.LogUtil;
 import org.aquarius.util.NumberUtil;
+import org.aquarius.util.ObjectHolder;
 import org.aquarius.util.StringUtil;
 import org.aquarius.util.collection.CollectionUtil;
 import org.aquarius.util.jdbc.Executor;
@@ -43,20 +70,31 @@ import org.aquarius.util.jdbc.JDBCUtil;
 import org.slf4j.Logger;
 
 /**
- * Use mybatis and h2 database to store movies.
+ * Use mybatis and h2 database to store movies.<BR>
+ * A mybatis session is not thread safe,so every operation opens its own session
+ * from the pooled data source and closes it at once.The jobs and the ui can
+ * read and write at the same time.<BR>
  *
  * @author aquarius.github@gmail.com
  *
  */
 public class MovieStoreService implements IMovieStoreService {
 
+	private static final int BatchSize = 1000;
+
+	private static final String UniquePageUrlIndex = "MOVIE_SITE_PAGE_URL_IDX";
+
+	private static final String[] CountableColumns = { ColumnActor, ColumnTag, ColumnCategory, ColumnProducer, ColumnChannel, ColumnTitle, ColumnName };
+
 	private PooledDataSource dataSource;
 
-	private SqlSession sqlSession;
+	private volatile SqlSessionFactory sqlSessionFactory;
+
+	private final StatementMetricsInterceptor metricsInterceptor = new StatementMetricsInterceptor();
 
-	private MovieMapper movieMapper;
+	private final List<IMovieChangeListener> movieChangeListeners = new CopyOnWriteArrayList<>();
 
-	private VisitHistoryMapper visitHistoryMapper;
+	private final Map<String, ReentrantLock> siteLocks = new ConcurrentHashMap<>();
 
 	private Logger logger = LogUtil.getLogger(getClass());
 
@@ -71,18 +109,65 @@ public class MovieStoreService implements IMovieStoreService {
 	@Override
 	public void close(boolean compact) {
 
-		try {
-			Statement statement = this.dataSource.getConnection().createStatement();
+		this.logger.info("database statistics " + this.dataSource.getPoolState());
+
+		for (StatementStatistics statistics : this.metricsInterceptor.getStatistics().values()) {
+			this.logger.info("statement statistics " + statistics);
+		}
+
+		try (Connection connection = this.dataSource.getConnection(); Statement statement = connection.createStatement()) {
 			if (compact) {
 				statement.execute(" SHUTDOWN COMPACT ");
 			}
-			statement.close();
 		} catch (Exception e) {
 			this.logger.error("close", e);
 		}
 
 		this.dataSource.forceCloseAll();
-		IOUtils.closeQuietly(this.sqlSession);
+		this.sqlSessionFactory = null;
+	}
+
+	/**
+	 * Return the state of the connection pool,it contains the count and time of
+	 * waiting for a connection.<BR>
+	 *
+	 * @return
+	 */
+	public PoolState getPoolState() {
+		return this.dataSource.getPoolState();
+	}
+
+	/**
+	 * Return the latency statistics of the statements.<BR>
+	 *
+	 * @return
+	 */
+	public Map<String, StatementStatistics> getStatementStatistics() {
+		return this.metricsInterceptor.getStatistics();
+	}
+
+	/**
+	 * Execute the function by a new session and close the session.<BR>
+	 *
+	 * @param function
+	 * @return
+	 */
+	private <R> R query(Function<SqlSession, R> function) {
+		try (SqlSession session = this.sqlSessionFactory.openSession()) {
+			return function.apply(session);
+		}
+	}
+
+	/**
+	 * Execute the operation by a new session and commit it.<BR>
+	 *
+	 * @param operation
+	 */
+	private void update(Consumer<SqlSession> operation) {
+		try (SqlSession session = this.sqlSessionFactory.openSession()) {
+			operation.accept(session);
+			session.commit();
+		}
 	}
 
 	/**
@@ -97,7 +182,7 @@ public class MovieStoreService implements IMovieStoreService {
 
 		updatePagination(movieExample, pagination);
 
-		return this.movieMapper.selectByExample(movieExample);
+		return this.query(session -> session.getMapper(MovieMapper.class).selectByExample(movieExample));
 	}
 
 	/**
@@ -112,7 +197,7 @@ public class MovieStoreService implements IMovieStoreService {
 
 		updatePagination(movieExample, pagination);
 
-		return this.movieMapper.selectByExample(movieExample);
+		return this.query(session -> session.getMapper(MovieMapper.class).selectByExample(movieExample));
 	}
 
 	/**
@@ -122,7 +207,7 @@ public class MovieStoreService implements IMovieStoreService {
 	@Override
 	public void loadDatabase(String databaseFolder) throws SQLException {
 
-		if (null != this.sqlSession) {
+		if (null != this.sqlSessionFactory) {
 			this.close(false);
 		}
 		initSqlSession(databaseFolder);
@@ -148,6 +233,15 @@ public class MovieStoreService implements IMovieStoreService {
 			nullDatabase = true;
 		}
 
+		int maxConnections = MovieConfiguration.DefaultDatabaseMaxConnections;
+		int lockTimeout = MovieConfiguration.DefaultDatabaseLockTimeout;
+
+		MovieConfiguration configuration = RuntimeManager.getInstance().getConfiguration();
+		if (null != configuration) {
+			maxConnections = configuration.getDatabaseMaxConnections();
+			lockTimeout = configuration.getDatabaseLockTimeout();
+		}
+
 		String databaseUrl = null;
 		if (RuntimeManager.isDebug()) {
 			databaseUrl = MessageFormat.format("jdbc:h2:{0}/movie.db;AUTO_SERVER=true", databaseFolder);
@@ -155,39 +249,51 @@ public class MovieStoreService implements IMovieStoreService {
 			databaseUrl = MessageFormat.format("jdbc:h2:{0}/movie.db", databaseFolder);
 		}
 
-		databaseUrl = FilenameUtils.normalize(databaseUrl);
+		databaseUrl = FilenameUtils.normalize(databaseUrl) + ";LOCK_TIMEOUT=" + lockTimeout;
+		// The mv store of h2 uses multi version concurrency,the readers are not
+		// blocked by the writers,only the writers of the same row wait for the lock.
 
 		this.dataSource = new PooledDataSource("org.h2.Driver", databaseUrl, "king", "kingdom");
 		this.dataSource.setDefaultAutoCommit(true);
+		this.dataSource.setPoolMaximumActiveConnections(maxConnections);
+		this.dataSource.setPoolMaximumIdleConnections(maxConnections);
 
 		if (nullDatabase) {
-			doInit(this.dataSource);
+			doInit(this.dataSource, "init.ddl");
 		}
 
-		Environment environment = new Environment("dev", new JdbcTransactionFactory(), this.dataSource);
-		Configuration configuration = new Configuration(environment);
-
-		configuration.addMapper(MovieMapper.class);
-		configuration.addMapper(VisitHistoryMapper.class);
+		doInit(this.dataSource, "upgrade.ddl");
+		// The tables added later are created in the existing databases too.
 
-		SqlSessionFactoryBuilder sqlSessionFactoryBuilder = new SqlSessionFactoryBuilder();
-		SqlSessionFactory sqlSessionFactory = sqlSessionFactoryBuilder.build(configuration);
+		if (!isIndexExisted(this.dataSource, UniquePageUrlIndex)) {
+			doInit(this.dataSource, "dedupe.ddl");
+		}
+		// The duplicated movies of the existing databases are deleted before the
+		// unique index of the page url is created,the oldest one is kept because
+		// the later ones are inserted again by crawling and lack the score and the
+		// state set by the user.
 
-		this.sqlSession = sqlSessionFactory.openSession();
+		Environment environment = new Environment("dev", new JdbcTransactionFactory(), this.dataSource);
+		Configuration sessionConfiguration = new Configuration(environment);
 
-		this.movieMapper = this.sqlSession.getMapper(MovieMapper.class);
-		this.visitHistoryMapper = this.sqlSession.getMapper(VisitHistoryMapper.class);
+		sessionConfiguration.addMapper(MovieMapper.class);
+		sessionConfiguration.addMapper(VisitHistoryMapper.class);
+		sessionConfiguration.addMapper(DownloadLinkCacheMapper.class);
+		sessionConfiguration.addInterceptor(this.metricsInterceptor);
 
+		SqlSessionFactoryBuilder sqlSessionFactoryBuilder = new SqlSessionFactoryBuilder();
+		this.sqlSessionFactory = sqlSessionFactoryBuilder.build(sessionConfiguration);
 	}
 
 	/**
-	 * @param dataSource2
+	 * @param currentDataSource
+	 * @param ddlFile
 	 * @throws SQLException
 	 */
-	private void doInit(PooledDataSource currentDataSource) throws SQLException {
+	private void doInit(PooledDataSource currentDataSource, String ddlFile) throws SQLException {
 
 		try {
-			URL url = MovieStoreService.class.getResource("init.ddl");
+			URL url = MovieStoreService.class.getResource(ddlFile);
 			String ddl = IOUtils.toString(url, StringUtil.CODEING_UTF8);
 			JDBCUtil.execute(currentDataSource, new Executor<Statement>() {
 
@@ -209,7 +315,7 @@ public class MovieStoreService implements IMovieStoreService {
 	 */
 	@Override
 	public Movie queryMovieById(Integer id) {
-		return this.movieMapper.selectByPrimaryKey(id);
+		return this.query(session -> session.getMapper(MovieMapper.class).selectByPrimaryKey(id));
 	}
 
 	/**
@@ -221,7 +327,7 @@ public class MovieStoreService implements IMovieStoreService {
 		MovieExample movieExample = new MovieExample();
 		movieExample.createCriteria().andUniIdEqualTo(uniId);
 
-		return this.movieMapper.selectByExample(movieExample);
+		return this.query(session -> session.getMapper(MovieMapper.class).selectByExample(movieExample));
 	}
 
 	/**
@@ -233,7 +339,7 @@ public class MovieStoreService implements IMovieStoreService {
 		MovieExample movieExample = new MovieExample();
 		movieExample.createCriteria().andPageUrlEqualTo(pageUrl);
 
-		List<Movie> movieList = this.movieMapper.selectByExample(movieExample);
+		List<Movie> movieList = this.query(session -> session.getMapper(MovieMapper.class).selectByExample(movieExample));
 		return CollectionUtil.findFirstElement(movieList);
 	}
 
@@ -246,7 +352,93 @@ public class MovieStoreService implements IMovieStoreService {
 
 		updatePagination(movieExample, pagination);
 
-		return this.movieMapper.selectByExample(movieExample);
+		return this.query(session -> session.getMapper(MovieMapper.class).selectByExample(movieExample));
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public List<Movie> queryMoviesBySiteAndChannel(String site, String channel, Pagination pagination) {
+		MovieExample movieExample = new MovieExample();
+		movieExample.createCriteria().andSiteEqualTo(site).andChannelEqualTo(channel);
+		movieExample.setOrderByClause(" ID DESC");
+
+		updatePagination(movieExample, pagination);
+
+		return this.query(session -> session.getMapper(MovieMapper.class).selectByExample(movieExample));
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public List<Integer> queryMovieIdsBySite(String site) {
+		return this.query(session -> session.getMapper(MovieMapper.class).selectIdsBySite(site));
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public List<Integer> queryDuplicatedMovieIds(String site) {
+		return this.query(session -> session.getMapper(MovieMapper.class).selectDuplicatedIds(site));
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public List<Movie> queryMoviesByIds(List<Integer> ids) {
+
+		if (CollectionUtils.isEmpty(ids)) {
+			return new ArrayList<>();
+		}
+
+		MovieExample movieExample = new MovieExample();
+		movieExample.createCriteria().andIdIn(ids);
+
+		return this.query(session -> session.getMapper(MovieMapper.class).selectByExample(movieExample));
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public Map<String, Integer> queryColumnCounts(String site, String column) {
+
+		if (!ArrayUtils.contains(CountableColumns, column)) {
+			throw new IllegalArgumentException("The column " + column + " can't be counted.");
+		}
+		// The column is put into the sql directly.
+
+		List<Map<String, Object>> rowList = this.query(session -> session.getMapper(MovieMapper.class).selectColumnCounts(site, column));
+
+		Map<String, Integer> countMap = new HashMap<>();
+
+		for (Map<String, Object> row : rowList) {
+			Object content = row.get("CONTENT");
+			Object amount = row.get("AMOUNT");
+
+			if ((null != content) && (amount instanceof Number)) {
+				countMap.put(content.toString(), ((Number) amount).intValue());
+			}
+		}
+
+		return countMap;
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public List<Movie> queryMoviesByCondition(String site, MovieSearchCondition condition, Integer maxId, int count) {
+		return this.query(session -> session.getMapper(MovieMapper.class).selectByCondition(site, condition, maxId, count));
 	}
 
 	/**
@@ -266,41 +458,131 @@ public class MovieStoreService implements IMovieStoreService {
 	 */
 	@Override
 	public void insertOrUpdateMovie(Movie movie) {
+		List<Movie> savedMovieList = this.saveMovies(Collections.singletonList(movie));
+
+		if (savedMovieList.isEmpty()) {
+			return;
+		}
 
-		this.doInsertOrUpdateMovie(movie);
-		this.sqlSession.commit();
+		this.fireMoviesUpdated(savedMovieList);
 	}
 
 	/**
 	 *
+	 * @param session
 	 * @param movie
 	 */
-	private void doInsertOrUpdateMovie(Movie movie) {
+	private static void doInsertOrUpdateMovie(SqlSession session, Movie movie) {
+		MovieMapper mapper = session.getMapper(MovieMapper.class);
 
 		if (NumberUtil.getIntValue(movie.getId()) == 0) {
-			this.movieMapper.insert(movie);
+			mapper.insert(movie);
 		} else {
-			this.movieMapper.updateByPrimaryKey(movie);
+			mapper.updateByPrimaryKey(movie);
 		}
 	}
 
 	/**
 	 *
-	 * {@inheritDoc}}
+	 * {@inheritDoc}}<BR>
+	 * The statements are sent in batches,the generated ids are set to the new
+	 * movies.<BR>
 	 */
 	@Override
-	public void insertOrUpdateMovies(Collection<Movie> movies) {
+	public List<Movie> insertOrUpdateMovies(Collection<Movie> movies) {
 
 		if (CollectionUtils.isEmpty(movies)) {
-			return;
+			return new ArrayList<>();
 		}
 
+		List<Movie> savedMovieList = this.saveMovies(movies);
+
+		this.fireMoviesUpdated(savedMovieList);
+
+		return savedMovieList;
+	}
+
+	/**
+	 * Filter the duplicated movies and save the others while holding the locks of
+	 * their sites.<BR>
+	 * The movies of a site saved by another thread are committed before the
+	 * filter queries them,so two channels of a site saved at the same time don't
+	 * insert the same page url and break the batch.<BR>
+	 *
+	 * @param movies
+	 * @return the saved movies.
+	 */
+	private List<Movie> saveMovies(Collection<Movie> movies) {
+		List<ReentrantLock> lockList = movies.stream().map(MovieStoreService::getSiteKey).distinct().sorted()
+				.map(site -> this.siteLocks.computeIfAbsent(site, key -> new ReentrantLock())).collect(Collectors.toList());
+		// The saves of the same site wait for each other,the locks are taken in the
+		// order of the sites,so two saves of many sites never deadlock.
+
+		lockList.forEach(ReentrantLock::lock);
+
+		try {
+			List<Movie> savedMovieList = this.filterDuplicatedMovies(movies);
+
+			this.executeInBatch(savedMovieList, MovieStoreService::doInsertOrUpdateMovie);
+
+			return savedMovieList;
+		} finally {
+			lockList.forEach(ReentrantLock::unlock);
+		}
+	}
+
+	/**
+	 * Return the site of the movie to group the movies and lock the saves.<BR>
+	 *
+	 * @param movie
+	 * @return
+	 */
+	private static String getSiteKey(Movie movie) {
+		return StringUtils.defaultString(movie.getSite());
+	}
+
+	/**
+	 * Return the movies to be saved.<BR>
+	 * The new movies whose page urls are saved in the same site already,or appear
+	 * more than once in the movies,are skipped,so the batch is not broken by the
+	 * unique index of the page url.<BR>
+	 *
+	 * @param movies
+	 * @return
+	 */
+	private List<Movie> filterDuplicatedMovies(Collection<Movie> movies) {
+		Map<String, Map<String, Movie>> newMovies = new HashMap<>();
+		Set<Movie> skippedMovies = Collections.newSetFromMap(new IdentityHashMap<>());
+
 		for (Movie movie : movies) {
-			this.doInsertOrUpdateMovie(movie);
+			if (NumberUtil.getIntValue(movie.getId()) == 0) {
+				Map<String, Movie> pageUrlMovies = newMovies.computeIfAbsent(getSiteKey(movie), key -> new HashMap<>());
+
+				if (null != pageUrlMovies.putIfAbsent(movie.getPageUrl(), movie)) {
+					skippedMovies.add(movie);
+				}
+			}
+		}
+
+		for (Map.Entry<String, Map<String, Movie>> entry : newMovies.entrySet()) {
+			Map<String, Movie> pageUrlMovies = entry.getValue();
+
+			for (List<String> partition : ListUtils.partition(new ArrayList<>(pageUrlMovies.keySet()), BatchSize)) {
+				List<Movie> savedMovieList = this.query(session -> session.getMapper(MovieMapper.class).selectByPageUrls(entry.getKey(), partition));
+
+				for (Movie savedMovie : savedMovieList) {
+					skippedMovies.add(pageUrlMovies.get(savedMovie.getPageUrl()));
+				}
+			}
 		}
 
-		this.sqlSession.commit();
+		if (skippedMovies.isEmpty()) {
+			return new ArrayList<>(movies);
+		}
+
+		this.logger.info(skippedMovies.size() + " duplicated movies are not saved.");
 
+		return movies.stream().filter(movie -> !skippedMovies.contains(movie)).collect(Collectors.toList());
 	}
 
 	/**
@@ -312,11 +594,115 @@ public class MovieStoreService implements IMovieStoreService {
 			return;
 		}
 
-		for (Movie movie : movies) {
-			this.movieMapper.deleteByPrimaryKey(movie.getId());
+		List<Integer> idList = movies.stream().map(Movie::getId).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+
+		if (!idList.isEmpty()) {
+			this.update(session -> {
+				for (List<Integer> partition : ListUtils.partition(idList, BatchSize)) {
+					session.getMapper(DownloadLinkCacheMapper.class).deleteByMovieIds(partition);
+					session.getMapper(MovieMapper.class).deleteByIds(partition);
+				}
+			});
+		}
+		// The movies are deleted by a statement for every partition in one
+		// transaction.
+
+		for (IMovieChangeListener listener : this.movieChangeListeners) {
+			try {
+				listener.onMoviesDeleted(movies);
+			} catch (Exception e) {
+				this.logger.error("notify the deleted movies", e);
+			}
 		}
+	}
+
+	/**
+	 * @param movies
+	 */
+	private void fireMoviesUpdated(Collection<Movie> movies) {
+		for (IMovieChangeListener listener : this.movieChangeListeners) {
+			try {
+				listener.onMoviesUpdated(movies);
+			} catch (Exception e) {
+				this.logger.error("notify the updated movies", e);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public void addMovieChangeListener(IMovieChangeListener listener) {
+		if ((null != listener) && !this.movieChangeListeners.contains(listener)) {
+			this.movieChangeListeners.add(listener);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public void removeMovieChangeListener(IMovieChangeListener listener) {
+		this.movieChangeListeners.remove(listener);
+	}
+
+	/**
+	 * Whether the index exists in the database.<BR>
+	 *
+	 * @param currentDataSource
+	 * @param indexName
+	 * @return
+	 * @throws SQLException
+	 */
+	private static boolean isIndexExisted(PooledDataSource currentDataSource, String indexName) throws SQLException {
+		ObjectHolder<Boolean> objectHolder = new ObjectHolder<>();
+
+		JDBCUtil.execute(currentDataSource, new Executor<PreparedStatement>() {
+
+			@Override
+			public void execute(Connection connection, PreparedStatement statement) throws SQLException {
+				statement.setString(1, indexName);
+
+				try (ResultSet resultSet = statement.executeQuery()) {
+					objectHolder.setValue(resultSet.next());
+				}
+			}
+		}, "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = ?");
+
+		return Boolean.TRUE.equals(objectHolder.getValue());
+	}
 
-		this.sqlSession.commit();
+	/**
+	 * Execute the statements by a batch session in one transaction.<BR>
+	 * The statements are flushed for every {@link #BatchSize} elements,so the
+	 * driver doesn't keep too many parameters.<BR>
+	 *
+	 * @param elements
+	 * @param operation
+	 */
+	private <T> void executeInBatch(Collection<T> elements, BiConsumer<SqlSession, T> operation) {
+
+		try (SqlSession batchSession = this.sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+
+			try {
+				int count = 0;
+
+				for (T element : elements) {
+					operation.accept(batchSession, element);
+
+					count++;
+					if ((count % BatchSize) == 0) {
+						batchSession.flushStatements();
+					}
+				}
+
+				batchSession.commit();
+			} catch (RuntimeException e) {
+				batchSession.rollback();
+				throw e;
+			}
+		}
 	}
 
 	/**
@@ -327,7 +713,7 @@ public class MovieStoreService implements IMovieStoreService {
 		VisitHistoryExample visitHistoryExample = new VisitHistoryExample();
 		visitHistoryExample.createCriteria().andSiteNameEqualTo(siteName).andChannelEqualTo(channel);
 
-		List<VisitHistory> historyList = this.visitHistoryMapper.selectByExample(visitHistoryExample);
+		List<VisitHistory> historyList = this.query(session -> session.getMapper(VisitHistoryMapper.class).selectByExample(visitHistoryExample));
 		return CollectionUtil.findFirstElement(historyList);
 	}
 
@@ -340,7 +726,7 @@ public class MovieStoreService implements IMovieStoreService {
 		VisitHistoryExample visitHistoryExample = new VisitHistoryExample();
 		visitHistoryExample.createCriteria().andSiteNameEqualTo(siteName);
 
-		return this.visitHistoryMapper.selectByExample(visitHistoryExample);
+		return this.query(session -> session.getMapper(VisitHistoryMapper.class).selectByExample(visitHistoryExample));
 	}
 
 	/**
@@ -348,19 +734,21 @@ public class MovieStoreService implements IMovieStoreService {
 	 */
 	@Override
 	public void insertOrUpdateVisitHistory(VisitHistory visitHistory) {
-		this.doInsertOrUpdateVisitHistory(visitHistory);
-		this.sqlSession.commit();
+		this.update(session -> doInsertOrUpdateVisitHistory(session, visitHistory));
 	}
 
 	/**
 	 *
+	 * @param session
 	 * @param visitHistory
 	 */
-	private void doInsertOrUpdateVisitHistory(VisitHistory visitHistory) {
+	private static void doInsertOrUpdateVisitHistory(SqlSession session, VisitHistory visitHistory) {
+		VisitHistoryMapper mapper = session.getMapper(VisitHistoryMapper.class);
+
 		if (NumberUtil.getIntValue(visitHistory.getId()) == 0) {
-			this.visitHistoryMapper.insert(visitHistory);
+			mapper.insert(visitHistory);
 		} else {
-			this.visitHistoryMapper.updateByPrimaryKey(visitHistory);
+			mapper.updateByPrimaryKey(visitHistory);
 		}
 	}
 
@@ -374,12 +762,7 @@ public class MovieStoreService implements IMovieStoreService {
 			return;
 		}
 
-		for (VisitHistory visitHistory : visitHistories) {
-			this.doInsertOrUpdateVisitHistory(visitHistory);
-		}
-
-		this.sqlSession.commit();
-
+		this.executeInBatch(visitHistories, MovieStoreService::doInsertOrUpdateVisitHistory);
 	}
 
 	/**
@@ -391,12 +774,8 @@ public class MovieStoreService implements IMovieStoreService {
 			return;
 		}
 
-		for (VisitHistory visitHistory : visitHistories) {
-			this.visitHistoryMapper.deleteByPrimaryKey(visitHistory.getId());
-		}
-
-		this.sqlSession.commit();
-
+		this.executeInBatch(visitHistories,
+				(batchSession, visitHistory) -> batchSession.getMapper(VisitHistoryMapper.class).deleteByPrimaryKey(visitHistory.getId()));
 	}
 
 	/**
@@ -406,7 +785,7 @@ public class MovieStoreService implements IMovieStoreService {
 	public List<VisitHistory> queryAllVisitHistories() {
 		VisitHistoryExample visitHistoryExample = new VisitHistoryExample();
 
-		return this.visitHistoryMapper.selectByExample(visitHistoryExample);
+		return this.query(session -> session.getMapper(VisitHistoryMapper.class).selectByExample(visitHistoryExample));
 	}
 
 	/**
@@ -415,7 +794,7 @@ public class MovieStoreService implements IMovieStoreService {
 	@Override
 	public List<String> queryAllActors() {
 
-		List<String> actorList = this.sqlSession.selectList("selectActors");
+		List<String> actorList = this.query(session -> session.selectList("selectActors"));
 		List<String> resultList = new ArrayList<>();
 
 		for (String actor : actorList) {
@@ -437,20 +816,85 @@ public class MovieStoreService implements IMovieStoreService {
 	 */
 	@Override
 	public void clearSite(String siteName) {
-		{
-			MovieExample deleteByExample = new MovieExample();
-			deleteByExample.createCriteria().andSiteEqualTo(siteName);
+		this.update(session -> {
+			session.getMapper(DownloadLinkCacheMapper.class).deleteBySite(siteName);
+
+			{
+				MovieExample deleteByExample = new MovieExample();
+				deleteByExample.createCriteria().andSiteEqualTo(siteName);
+
+				session.getMapper(MovieMapper.class).deleteByExample(deleteByExample);
+			}
+
+			{
+				VisitHistoryExample deleteByExample = new VisitHistoryExample();
+				deleteByExample.createCriteria().andSiteNameEqualTo(siteName);
+
+				session.getMapper(VisitHistoryMapper.class).deleteByExample(deleteByExample);
+			}
+		});
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public List<DownloadLinkCache> queryDownloadLinkCaches(Collection<Integer> movieIds) {
 
-			this.movieMapper.deleteByExample(deleteByExample);
+		if (CollectionUtils.isEmpty(movieIds)) {
+			return new ArrayList<>();
 		}
 
-		{
-			VisitHistoryExample deleteByExample = new VisitHistoryExample();
-			deleteByExample.createCriteria().andSiteNameEqualTo(siteName);
+		List<DownloadLinkCache> resultList = new ArrayList<>(movieIds.size());
 
-			this.visitHistoryMapper.deleteByExample(deleteByExample);
+		for (List<Integer> partition : ListUtils.partition(new ArrayList<>(movieIds), BatchSize)) {
+			resultList.addAll(this.query(session -> session.getMapper(DownloadLinkCacheMapper.class).selectByMovieIds(partition)));
 		}
+		// The ids are queried in partitions,so the sql is not too long.
+
+		return resultList;
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public void insertOrUpdateDownloadLinkCaches(Collection<DownloadLinkCache> downloadLinkCaches) {
+
+		if (CollectionUtils.isEmpty(downloadLinkCaches)) {
+			return;
+		}
+
+		this.executeInBatch(downloadLinkCaches,
+				(batchSession, downloadLinkCache) -> batchSession.getMapper(DownloadLinkCacheMapper.class).merge(downloadLinkCache));
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public void deleteDownloadLinkCaches(Collection<Integer> movieIds) {
+
+		if (CollectionUtils.isEmpty(movieIds)) {
+			return;
+		}
+
+		this.executeInBatch(movieIds, (batchSession, movieId) -> batchSession.getMapper(DownloadLinkCacheMapper.class).deleteByMovieId(movieId));
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public int deleteExpiredDownloadLinkCaches() {
+		Date currentTime = new Date();
+
+		return this.query(session -> {
+			int count = session.getMapper(DownloadLinkCacheMapper.class).deleteExpired(currentTime);
+			session.commit();
 
+			return count;
+		});
 	}
 
 }
@@ -0,0 +1,197 @@
+/**
+ *
+ */
+package org.aquarius.cicada.core.service.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.aquarius.log.LogUtil;
+import org.slf4j.Logger;
+
+/**
+ * A mybatis plugin to record the latency of the statements.<BR>
+ * The statistics are kept for every mapped statement,a statement slower than
+ * the threshold is logged as a warning.<BR>
+ * In a batch session the statements are executed while flushing,so the time of
+ * flushing is recorded separately.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+@Intercepts({ @Signature(type = Executor.class, method = "update", args = { MappedStatement.class, Object.class }),
+		@Signature(type = Executor.class, method = "query", args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class }),
+		@Signature(type = Executor.class, method = "flushStatements", args = {}) })
+public final class StatementMetricsInterceptor implements Interceptor {
+
+	private static final String FlushStatementsId = "flushStatements";
+
+	private static final long DefaultSlowThreshold = 1000;
+
+	private final Map<String, StatementStatistics> statisticsMap = new ConcurrentHashMap<>();
+
+	private long slowThreshold = DefaultSlowThreshold;
+
+	private Logger logger = LogUtil.getLogger(this.getClass());
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public Object intercept(Invocation invocation) throws Throwable {
+
+		String statementId = FlushStatementsId;
+		Object[] args = invocation.getArgs();
+
+		if ((null != args) && (args.length > 0) && (args[0] instanceof MappedStatement)) {
+			statementId = ((MappedStatement) args[0]).getId();
+		}
+
+		long startTime = System.nanoTime();
+
+		try {
+			return invocation.proceed();
+		} finally {
+			long costTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+			this.statisticsMap.computeIfAbsent(statementId, StatementStatistics::new).record(costTime);
+
+			if (costTime >= this.slowThreshold) {
+				this.logger.warn("The statement " + statementId + " costs " + costTime + " ms.");
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public void setProperties(Properties properties) {
+		// Nothing to do
+	}
+
+	/**
+	 * Set the time in milliseconds to log a slow statement.<BR>
+	 *
+	 * @param slowThreshold
+	 */
+	public void setSlowThreshold(long slowThreshold) {
+		this.slowThreshold = slowThreshold;
+	}
+
+	/**
+	 * Return the statistics of all the statements ordered by the statement
+	 * id.<BR>
+	 *
+	 * @return
+	 */
+	public Map<String, StatementStatistics> getStatistics() {
+		return Collections.unmodifiableMap(new TreeMap<>(this.statisticsMap));
+	}
+
+	/**
+	 * Clear the recorded statistics.<BR>
+	 */
+	public void reset() {
+		this.statisticsMap.clear();
+	}
+
+	/**
+	 * The latency statistics of a statement.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	public static final class StatementStatistics {
+
+		private final String statementId;
+
+		private final LongAdder executedCount = new LongAdder();
+
+		private final LongAdder totalTime = new LongAdder();
+
+		private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+
+		/**
+		 * @param statementId
+		 */
+		private StatementStatistics(String statementId) {
+			super();
+			this.statementId = statementId;
+		}
+
+		/**
+		 * @param costTime
+		 */
+		private void record(long costTime) {
+			this.executedCount.increment();
+			this.totalTime.add(costTime);
+			this.maxTime.accumulate(costTime);
+		}
+
+		/**
+		 * @return the statementId
+		 */
+		public String getStatementId() {
+			return this.statementId;
+		}
+
+		/**
+		 * @return the executedCount
+		 */
+		public long getExecutedCount() {
+			return this.executedCount.sum();
+		}
+
+		/**
+		 * Return the total time in milliseconds.<BR>
+		 *
+		 * @return
+		 */
+		public long getTotalTime() {
+			return this.totalTime.sum();
+		}
+
+		/**
+		 * Return the average time in milliseconds.<BR>
+		 *
+		 * @return
+		 */
+		public long getAverageTime() {
+			long count = this.getExecutedCount();
+			return (count == 0) ? 0 : (this.getTotalTime() / count);
+		}
+
+		/**
+		 * Return the max time in milliseconds.<BR>
+		 *
+		 * @return
+		 */
+		public long getMaxTime() {
+			return this.maxTime.get();
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public String toString() {
+			return "StatementStatistics [statementId=" + this.statementId + ", executedCount=" + this.getExecutedCount() + ", averageTime="
+					+ this.getAverageTime() + ", maxTime=" + this.getMaxTime() + "]";
+		}
+	}
+}
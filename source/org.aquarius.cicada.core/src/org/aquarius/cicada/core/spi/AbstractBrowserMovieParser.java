@@ -16,6 +16,7 @@ import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.aquarius.cicada.core.RuntimeManager;
 import org.aquarius.cicada.core.config.MovieConfiguration;
+import org.aquarius.cicada.core.helper.PageReadyDetector;
 import org.aquarius.cicada.core.helper.WebAccessorHelper;
 import org.aquarius.cicada.core.impl.monitor.DefaultProcessMonitor;
 import org.aquarius.cicada.core.model.DownloadInfo;
@@ -49,6 +50,8 @@ public abstract class AbstractBrowserMovieParser extends AbstractMovieParser {
 
 	private int defaultWaitTime = 3 * SystemUtil.TimeSecond;
 
+	private final PageReadyDetector pageReadyDetector = new PageReadyDetector();
+
 	protected abstract ScriptDefinition getParseListScriptDefinition();
 
 	protected abstract ScriptDefinition getParseDetailScriptDefinition();
@@ -351,7 +354,8 @@ public abstract class AbstractBrowserMovieParser extends AbstractMovieParser {
 
 		webAccessor.get(urlString, processMonitor);
 
-		WebAccessorHelper.sleepQuietly(this.getWaitTime(), processMonitor);
+		this.pageReadyDetector.waitForReady(webAccessor, PageReadyDetector.createReadyScript(this.getReadySelector()), this.getWaitTime(), processMonitor);
+		// The wait time of the site is only the max time to wait.
 	}
 
 	protected <T extends AbstractResult> T parsePage(IWebAccessor webAccessor, String urlString, String[] scripts, String checkFlag, Class<T> clazz,
@@ -403,11 +407,13 @@ public abstract class AbstractBrowserMovieParser extends AbstractMovieParser {
 					return result;
 				}
 
-				SystemUtil.sleepQuietly(waitTime);
+				waitBeforeRetry(waitTime, i, retryCount, processMonitor);
+				// The script waits for the page to change itself,a reloaded page gives the
+				// site time to recover,so every retry waits.
 
 			} catch (Exception e) {
 				e.printStackTrace();
-				SystemUtil.sleepQuietly(waitTime);
+				waitBeforeRetry(waitTime, i, retryCount, processMonitor);
 			}
 
 		}
@@ -415,6 +421,21 @@ public abstract class AbstractBrowserMovieParser extends AbstractMovieParser {
 		return null;
 	}
 
+	/**
+	 * Wait the time required by the site before the next retry.<BR>
+	 * No wait is needed after the last try.<BR>
+	 *
+	 * @param waitTime       the time required by the site.
+	 * @param retryIndex
+	 * @param retryCount
+	 * @param processMonitor
+	 */
+	private static void waitBeforeRetry(long waitTime, int retryIndex, int retryCount, IProcessMonitor processMonitor) {
+		if ((retryIndex + 1) < retryCount) {
+			WebAccessorHelper.sleepQuietly(waitTime, processMonitor);
+		}
+	}
+
 	public static String toString(Object webResult) {
 		String resultString = ObjectUtils.toString(webResult);
 		resultString = StringUtils.replace(resultString, "‎", "");
@@ -426,6 +447,7 @@ public abstract class AbstractBrowserMovieParser extends AbstractMovieParser {
 	 *
 	 * Some time, the browser need more time to load page.<BR>
 	 * So the thread need to wait some time.<BR>
+	 * It is the max time to wait,the thread goes on once the page is ready.<BR>
 	 *
 	 * @return
 	 */
@@ -433,6 +455,16 @@ public abstract class AbstractBrowserMovieParser extends AbstractMovieParser {
 		return this.defaultWaitTime;
 	}
 
+	/**
+	 * Return the css selector of an element shown when a page is ready.<BR>
+	 * The page is ready when the network is quiet if it is null.<BR>
+	 *
+	 * @return
+	 */
+	protected String getReadySelector() {
+		return null;
+	}
+
 	/**
 	 * Some site need to navigate new urls and parse it.
 	 *
@@ -6,6 +6,7 @@ package org.aquarius.cicada.core.spi;
 import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
+import org.aquarius.cicada.core.RuntimeManager;
 import org.aquarius.cicada.core.model.Movie;
 import org.aquarius.cicada.core.model.MovieChannel;
 import org.aquarius.cicada.core.model.result.MovieListResult;
@@ -146,4 +147,25 @@ public abstract class AbstractMovieParser extends AbstractComparable<AbstractMov
 	public boolean hasAutoRefreshChannel() {
 		return false;
 	}
+
+	/**
+	 * Return the max count of the list pages loaded at the same time while
+	 * refreshing the site.<BR>
+	 * A site which blocks the parallel visits should return 1.<BR>
+	 *
+	 * @return
+	 */
+	public int getMaxConcurrentPages() {
+		return RuntimeManager.getInstance().getConfiguration().getCrawlMaxConcurrentPages();
+	}
+
+	/**
+	 * Return how many list pages can be loaded in a minute while refreshing the
+	 * site.<BR>
+	 *
+	 * @return
+	 */
+	public int getPagesPerMinute() {
+		return RuntimeManager.getInstance().getConfiguration().getCrawlPagesPerMinute();
+	}
 }
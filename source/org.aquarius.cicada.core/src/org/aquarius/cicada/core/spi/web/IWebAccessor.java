@@ -36,6 +36,16 @@ public interface IWebAccessor {
 	 */
 	public boolean get(String urlString, IProcessMonitor processMonitor);
 
+	/**
+	 * Return whether the browser completes loading the current page.<BR>
+	 * The scripts of the page may still change it after loading.<BR>
+	 *
+	 * @return
+	 */
+	public default boolean isLoaded() {
+		return true;
+	}
+
 	/**
 	 * in a specified page to execute some script to get result synchronized.
 	 *
@@ -5,12 +5,16 @@ package org.aquarius.cicada.core.util;
 
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -29,6 +33,7 @@ import org.aquarius.cicada.core.model.SiteConfig;
 import org.aquarius.cicada.core.nls.MovieNlsMessageConstant;
 import org.aquarius.cicada.core.spi.AbstractMovieParser;
 import org.aquarius.log.LogUtil;
+import org.aquarius.util.ExecutorUtil;
 import org.aquarius.util.StringUtil;
 import org.aquarius.util.SystemUtil;
 import org.aquarius.util.net.HttpUtil;
@@ -54,6 +59,12 @@ public final class MovieUtil {
 
 	private static Logger log = LogUtil.getLogger(MovieUtil.class);
 
+	private static final int MaxValidateThreadCount = 10;
+
+	private static final ThreadPoolExecutor LinkValidator = ExecutorUtil.createDaemonExecutor("download link validator", MaxValidateThreadCount);
+
+	private static final int LookAheadCount = 1;
+
 	/**
 	 *
 	 */
@@ -252,9 +263,104 @@ public final class MovieUtil {
 			return null;
 		}
 
-		List<Link> links = downloadInfo.getDownloadLinks();
+		return find(Collections.singletonList(downloadInfo), validateLength).get(0);
+	}
+
+	/**
+	 * Find the download link of every download info.<BR>
+	 * The links of a download info are validated in their order,the next link is
+	 * validated ahead while waiting for the current one,the others are not
+	 * requested once a valid link is found.The download infos are validated at
+	 * the same time.<BR>
+	 *
+	 * @param downloadInfoList
+	 * @param validateLength
+	 * @return the links in the order of the download infos,the element is null
+	 *         if no link of the download info is valid.
+	 */
+	public static List<Link> find(List<DownloadInfo> downloadInfoList, boolean validateLength) {
+
+		List<List<Link>> candidateLists = new ArrayList<>(downloadInfoList.size());
+		List<List<Future<Boolean>>> futureLists = new ArrayList<>(downloadInfoList.size());
+
+		for (DownloadInfo downloadInfo : downloadInfoList) {
+			List<Link> candidateList = findCandidateLinks(downloadInfo);
+			List<Future<Boolean>> futureList = new ArrayList<>(candidateList.size());
+
+			if (validateLength) {
+				submitValidation(candidateList, futureList, LookAheadCount);
+			}
+
+			candidateLists.add(candidateList);
+			futureLists.add(futureList);
+		}
+		// The first links of all the download infos are validated at the same time.
+
+		List<Link> resultList = new ArrayList<>(downloadInfoList.size());
+
+		for (int i = 0; i < candidateLists.size(); i++) {
+			List<Link> candidateList = candidateLists.get(i);
+			List<Future<Boolean>> futureList = futureLists.get(i);
+
+			Link foundLink = null;
+
+			for (int j = 0; (j < candidateList.size()) && (null == foundLink); j++) {
+				Link link = candidateList.get(j);
+
+				if (validateLength) {
+					submitValidation(candidateList, futureList, j + LookAheadCount);
+				}
+
+				if (!validateLength || waitFor(futureList.get(j))) {
+					link.setDownloadUrl(getDownloadUrl(link));
+					foundLink = link;
+				} else {
+					link.setErrorMessage("NotEnoughLength");
+				}
+			}
+
+			for (Future<Boolean> future : futureList) {
+				future.cancel(true);
+			}
+			// The links validated ahead of the found one are not needed.
+
+			resultList.add(foundLink);
+		}
+
+		return resultList;
+	}
+
+	/**
+	 * Submit the validation of the links which are not submitted until the
+	 * index.<BR>
+	 *
+	 * @param candidateList
+	 * @param futureList    the futures of the submitted links in their order.
+	 * @param lastIndex
+	 */
+	private static void submitValidation(List<Link> candidateList, List<Future<Boolean>> futureList, int lastIndex) {
 
-		for (Link link : links) {
+		for (int i = futureList.size(); (i <= lastIndex) && (i < candidateList.size()); i++) {
+			Link link = candidateList.get(i);
+			futureList.add(LinkValidator.submit(() -> validateLength(link)));
+		}
+	}
+
+	/**
+	 * Return the links which are not filtered and have no error.<BR>
+	 *
+	 * @param downloadInfo
+	 * @return
+	 */
+	private static List<Link> findCandidateLinks(DownloadInfo downloadInfo) {
+
+		List<Link> candidateList = new ArrayList<>();
+
+		if (null == downloadInfo) {
+			return candidateList;
+		}
+
+		for (Link link : downloadInfo.getDownloadLinks()) {
 
 			try {
 
@@ -276,40 +382,58 @@ public final class MovieUtil {
 					continue;
 				}
 
-				long minLength = 10 * SystemUtil.DiskSizeInM;
+				candidateList.add(link);
 
-				if (HttpUtil.isHls(urlString) || link.isHls()) {
-					minLength = -1;
-				}
+			} catch (Exception e) {
+				log.error("find download urls", e);
+			}
+		}
 
-				Map<String, String> headers = new HashMap<>();
+		return candidateList;
+	}
 
-				if (StringUtils.isNotBlank(link.getRefererUrl())) {
-					headers.put(HttpUtil.Referer, link.getRefererUrl());
-				}
+	/**
+	 * Whether the remote file of the link is long enough to be a movie.<BR>
+	 *
+	 * @param link
+	 * @return
+	 */
+	private static boolean validateLength(Link link) {
+		String urlString = getDownloadUrl(link);
 
-				if (link.getRequestHeaders() != null) {
-					headers.putAll(link.getRequestHeaders());
-				}
+		long minLength = 10 * SystemUtil.DiskSizeInM;
 
-				if (validateLength) {
-					if (HttpUtil.validateUrlLength(urlString, minLength, headers)) {
-						link.setDownloadUrl(urlString);
-						return link;
-					} else {
-						link.setErrorMessage("NotEnoughLength");
-					}
-				} else {
-					link.setDownloadUrl(urlString);
-					return link;
-				}
+		if (HttpUtil.isHls(urlString) || link.isHls()) {
+			minLength = -1;
+		}
 
-			} catch (Exception e) {
-				log.error("find download urls", e);
-			}
+		Map<String, String> headers = new HashMap<>();
+
+		if (StringUtils.isNotBlank(link.getRefererUrl())) {
+			headers.put(HttpUtil.Referer, link.getRefererUrl());
 		}
 
-		return null;
+		if (link.getRequestHeaders() != null) {
+			headers.putAll(link.getRequestHeaders());
+		}
+
+		return HttpUtil.validateUrlLength(urlString, minLength, headers);
+	}
+
+	/**
+	 * @param future
+	 * @return
+	 */
+	private static boolean waitFor(Future<Boolean> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			log.error("validate download urls", e.getCause());
+			return false;
+		}
 	}
 
 	/**
@@ -368,6 +368,8 @@ public class Messages extends NLS {
 
 	public static String SearchMovieByKeywordDialog_NoResultFoundErrorMessage;
 
+	public static String SearchMovieByKeywordDialog_ResultTruncatedMessage;
+
 	public static String SearchMovieByKeywordDialog_SearchInAll;
 
 	public static String SearchMovieByKeywordDialog_SearchInTitle;
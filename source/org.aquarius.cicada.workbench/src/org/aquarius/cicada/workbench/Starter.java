@@ -33,7 +33,7 @@ import org.aquarius.cicada.workbench.analyser.BrowserJavaScriptDownloadUrlAnalys
 import org.aquarius.cicada.workbench.listener.DynamicUrlParserProgressListener;
 import org.aquarius.downloader.core.DownloadManager;
 import org.aquarius.downloader.core.config.DownloadConfiguration;
-import org.aquarius.downloader.core.impl.JsonTaskStoreService;
+import org.aquarius.downloader.core.impl.JournalTaskStoreService;
 import org.aquarius.downloader.core.spi.impl.DefaultDownloadTypeChecker;
 import org.aquarius.log.LogUtil;
 import org.aquarius.service.manager.ReloadManager;
@@ -302,7 +302,7 @@ public final class Starter {
 		downloadConfiguration.setDefaultDownloadFolder(downloadPath);
 
 		String storeFileName = this.getPersistFolder() + ("/download/store.json");
-		DownloadManager.getInstance().setTaskStoreService(new JsonTaskStoreService(new File(storeFileName)));
+		DownloadManager.getInstance().setTaskStoreService(new JournalTaskStoreService(new File(storeFileName)));
 
 		String typeMappingFileName = this.getPersistFolder() + ("/download/typeMapping.json");
 		DefaultDownloadTypeChecker typeChecker = new DefaultDownloadTypeChecker(new File(typeMappingFileName));
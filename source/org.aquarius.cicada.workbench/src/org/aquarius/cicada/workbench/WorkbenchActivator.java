@@ -18,6 +18,8 @@ import org.aquarius.cicada.core.impl.generator.FfmpegDownloadListGenerator;
 import org.aquarius.cicada.core.impl.generator.N_M3U8DownloadListGenerator;
 import org.aquarius.cicada.core.impl.generator.YdlDownloadListGenerator;
 import org.aquarius.cicada.core.impl.generator.eagle.EagleDownloadListGenerator;
+import org.aquarius.cicada.core.script.LocalJavaScriptEngineObject;
+import org.aquarius.cicada.core.script.LocalJavaScriptEngineObject.InvocationStatistics;
 import org.aquarius.cicada.core.service.impl.HttpCacheServiceImpl;
 import org.aquarius.cicada.core.spi.web.IWebAccessorService;
 import org.aquarius.cicada.core.web.WebAccessorManager;
@@ -33,8 +35,10 @@ import org.aquarius.downloader.core.DownloadManager;
 import org.aquarius.downloader.core.config.DownloadConfiguration;
 import org.aquarius.downloader.ui.DownloadActivator;
 import org.aquarius.log.LogUtil;
+import org.aquarius.service.IHttpCacheService;
 import org.aquarius.ui.service.EclipsePropertyStoreService;
 import org.aquarius.ui.util.SwtUtil;
+import org.aquarius.ui.util.ThumbnailDecoder;
 import org.aquarius.ui.util.TooltipUtil;
 import org.aquarius.util.StringUtil;
 import org.aquarius.util.SystemUtil;
@@ -419,6 +423,17 @@ public class WorkbenchActivator extends AbstractUIPlugin {
 			}
 		}
 
+		IHttpCacheService cacheService = RuntimeManager.getInstance().getCacheService();
+		if (null != cacheService) {
+			this.logger.info("http cache statistics " + cacheService.getStatistics());
+		}
+
+		this.logger.info("thumbnail statistics " + ThumbnailDecoder.getInstance().getStatistics());
+
+		for (InvocationStatistics statistics : LocalJavaScriptEngineObject.getInvocationStatistics()) {
+			this.logger.info("script statistics " + statistics);
+		}
+
 		RuntimeManager.getInstance().getStoreService().close(compact);
 
 		File logFile = Platform.getLogFileLocation().toFile();
@@ -23,6 +23,7 @@ import org.aquarius.cicada.workbench.function.movie.DownloadMovieListFunction;
 import org.aquarius.cicada.workbench.function.movie.GenerateMovieDownloadUrlsFunction;
 import org.aquarius.cicada.workbench.function.movie.QueryMovieCountFunction;
 import org.aquarius.cicada.workbench.function.movie.QueryMovieListFunction;
+import org.aquarius.cicada.workbench.function.net.HttpAsyncFunction;
 import org.aquarius.cicada.workbench.function.net.HttpFunction;
 import org.aquarius.cicada.workbench.function.net.WrapFvsUrlFunction;
 import org.aquarius.cicada.workbench.function.net.WrapUrlFunction;
@@ -113,6 +114,7 @@ public class BrowserUtil {
 		new QueryGeneratorNameListFunction(browser);
 
 		new HttpFunction(browser);
+		new HttpAsyncFunction(browser);
 		new WrapFvsUrlFunction(browser);
 		new WrapUrlFunction(browser);
 	}
@@ -3,16 +3,16 @@
  */
 package org.aquarius.cicada.workbench.control;
 
-import java.io.ByteArrayInputStream;
 import java.io.Serializable;
 import java.util.Map;
 
 import org.aquarius.cicada.core.RuntimeManager;
 import org.aquarius.service.IHttpCacheService.LoadFinishListener;
 import org.aquarius.ui.control.ImageCanvas;
-import org.aquarius.ui.util.ImageUtil;
 import org.aquarius.ui.util.SwtUtil;
-import org.eclipse.swt.graphics.ImageData;
+import org.aquarius.ui.util.ThumbnailDecoder;
+import org.eclipse.swt.events.ControlListener;
+import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 
@@ -24,6 +24,10 @@ import org.eclipse.swt.widgets.Display;
  */
 public class UrlImageCanvas extends ImageCanvas implements LoadFinishListener<Serializable> {
 
+	private String urlString;
+
+	private byte[] bytes;
+
 	/**
 	 * @param parent
 	 * @param style
@@ -32,6 +36,15 @@ public class UrlImageCanvas extends ImageCanvas implements LoadFinishListener<Se
 	public UrlImageCanvas(Composite parent, int style, String urlString, Map<String, String> headers) {
 		super(parent, style);
 
+		this.urlString = urlString;
+
+		this.addControlListener(ControlListener.controlResizedAdapter(e -> {
+			if (null != this.bytes) {
+				update(this.bytes);
+			}
+		}));
+		// The image is decoded again to fit the resized canvas.
+
 		Serializable value = RuntimeManager.getInstance().getCacheService().getElement(urlString, headers, this);
 		if (null != value) {
 			loadFinished(urlString, value);
@@ -57,13 +70,18 @@ public class UrlImageCanvas extends ImageCanvas implements LoadFinishListener<Se
 	 */
 	private void update(byte[] bytes) {
 
-		ImageData imageData = null;
-
-		try {
-			imageData = new ImageData(new ByteArrayInputStream(bytes));
-		} catch (Exception e) {
-			imageData = ImageUtil.convertToDefaultQuietly(bytes);
+		if (!SwtUtil.isValid(this)) {
+			return;
 		}
-		this.setImageData(imageData);
+
+		this.bytes = bytes;
+
+		Rectangle clientArea = this.getClientArea();
+
+		ThumbnailDecoder.getInstance().decode(this.urlString, bytes, clientArea.width, clientArea.height, imageData -> {
+			if (SwtUtil.isValid(this)) {
+				this.setImageData(imageData);
+			}
+		});
 	}
 }
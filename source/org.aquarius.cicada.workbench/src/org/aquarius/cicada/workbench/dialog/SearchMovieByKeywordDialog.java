@@ -7,17 +7,20 @@ import java.lang.reflect.InvocationTargetException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.aquarius.cicada.core.RuntimeManager;
+import org.aquarius.cicada.core.helper.MovieSearchHelper;
+import org.aquarius.cicada.core.helper.MovieSearchHelper.SearchResult;
 import org.aquarius.cicada.core.model.Movie;
+import org.aquarius.cicada.core.model.MovieSearchCondition;
 import org.aquarius.cicada.core.model.Site;
+import org.aquarius.cicada.core.model.SiteConfig;
 import org.aquarius.cicada.core.model.VirtualSite;
-import org.aquarius.cicada.core.util.MovieUtil;
 import org.aquarius.cicada.workbench.Messages;
 import org.aquarius.cicada.workbench.SearchKeywordModel;
 import org.aquarius.cicada.workbench.WorkbenchActivator;
@@ -25,11 +28,12 @@ import org.aquarius.cicada.workbench.editor.SiteEditorInput;
 import org.aquarius.cicada.workbench.editor.SiteMultiPageEditor;
 import org.aquarius.cicada.workbench.helper.MovieHelper;
 import org.aquarius.cicada.workbench.manager.HistoryManager;
+import org.aquarius.cicada.workbench.manager.SiteConfigManager;
+import org.aquarius.cicada.workbench.monitor.ProcessMonitorProxy;
 import org.aquarius.ui.table.CheckedTableControlFactory;
 import org.aquarius.ui.util.ClipboardUtil;
 import org.aquarius.ui.util.SwtUtil;
 import org.aquarius.ui.util.TooltipUtil;
-import org.aquarius.util.StringUtil;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.dialogs.ProgressMonitorDialog;
 import org.eclipse.jface.dialogs.TitleAreaDialog;
@@ -71,6 +75,8 @@ public class SearchMovieByKeywordDialog extends TitleAreaDialog implements IRunn
 
 	private static final String AutoPaste = SearchMovieByKeywordDialog.class.getName() + ".AutoPaste"; //$NON-NLS-1$
 
+	private static final int MaxResultCount = 10000;
+
 	/**
 	 * @param parent
 	 */
@@ -262,67 +268,61 @@ public class SearchMovieByKeywordDialog extends TitleAreaDialog implements IRunn
 
 		ProgressMonitorDialog dialog = new ProgressMonitorDialog(this.getParentShell());
 		try {
-			dialog.run(false, true, this);
+			dialog.run(true, true, this);
 		} catch (Exception e) {
 			TooltipUtil.showInfoTip(Messages.ErrorDialogTitle, e.getLocalizedMessage());
 		}
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * {@inheritDoc}<BR>
+	 * The sites are searched in the database in parallel,they are not loaded into
+	 * memory.<BR>
 	 */
 	@Override
 	public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
 
 		List<Movie> resultList = new ArrayList<>();
 
-		boolean justSearchInTitle = this.searchKeywordModel.isJustSearchInTitle();
-
-		Pattern pattern = null;
-		if (this.searchKeywordModel.isUseRegex()) {
-			pattern = Pattern.compile(this.searchKeywordModel.getKeyword(), Pattern.CASE_INSENSITIVE);
-		}
-
 		String mainKeyword = this.searchKeywordModel.getKeyword();
-		String[] keywords = MovieUtil.split(mainKeyword);
+		MovieSearchCondition condition = new MovieSearchCondition(mainKeyword, this.searchKeywordModel.isJustSearchInTitle(),
+				this.searchKeywordModel.isUseRegex());
 
-		monitor.worked(IProgressMonitor.UNKNOWN);
+		List<String> siteNames = this.searchKeywordModel.getSites();
+		String message = MessageFormat.format(Messages.SearchMovieByKeywordDialog_SearchingSiteMessage, StringUtils.join(siteNames, ','));
+		monitor.beginTask(message, IProgressMonitor.UNKNOWN);
 
 		Map<String, String> channelNameMapping = new HashMap<>();
+		Set<String> foundSiteNames = new HashSet<>();
 
-		for (String siteName : this.searchKeywordModel.getSites()) {
-			String message = MessageFormat.format(Messages.SearchMovieByKeywordDialog_SearchingSiteMessage, siteName);
-			monitor.beginTask(message, IProgressMonitor.UNKNOWN);
-			Site site = RuntimeManager.getInstance().loadSite(siteName);
-
-			List<Movie> movieList = site.getMovieList();
-
-			for (Movie movie : movieList) {
-
-				if (monitor.isCanceled()) {
-					return;
-				}
-
-				boolean resultFlag = false;
+		SearchResult searchResult = MovieSearchHelper.search(siteNames, condition, MaxResultCount, (siteName, movieList) -> {
+			if (foundSiteNames.add(siteName)) {
+				SiteConfig siteConfig = SiteConfigManager.getInstance().findSiteConfig(siteName);
 
-				if (null == pattern) {
-					resultFlag = this.searchByKeywords(movie, justSearchInTitle, keywords);
-				} else {
-					resultFlag = this.searchByRegex(movie, justSearchInTitle, pattern);
+				if (null != siteConfig) {
+					channelNameMapping.putAll(MovieHelper.buildChannelNameMapping(siteConfig));
 				}
+			}
 
-				if (resultFlag) {
-					resultList.add(movie);
-				}
+			for (Movie movie : movieList) {
+				channelNameMapping.putIfAbsent(movie.getChannel(), movie.getChannel());
 			}
 
-			channelNameMapping.putAll(MovieHelper.buildChannelNameMapping(site, true));
-		}
+			resultList.addAll(movieList);
+			monitor.subTask(MessageFormat.format(Messages.SearchMovieByKeywordDialog_SearchingSiteMessage, siteName));
+		}, new ProcessMonitorProxy(monitor));
 
 		if (resultList.isEmpty()) {
-			TooltipUtil.showErrorTip(Messages.WarnDialogTitle, Messages.SearchMovieByKeywordDialog_NoResultFoundErrorMessage);
+			if (!monitor.isCanceled()) {
+				TooltipUtil.showErrorTip(Messages.WarnDialogTitle, Messages.SearchMovieByKeywordDialog_NoResultFoundErrorMessage);
+			}
 		} else {
 
+			if (searchResult.isTruncated()) {
+				TooltipUtil.showInfoTip(Messages.InfoDialogTitle,
+						MessageFormat.format(Messages.SearchMovieByKeywordDialog_ResultTruncatedMessage, MaxResultCount));
+			}
+
 			SwtUtil.findDisplay().asyncExec(() -> {
 
 				try {
@@ -339,52 +339,9 @@ public class SearchMovieByKeywordDialog extends TitleAreaDialog implements IRunn
 				}
 			});
 		}
+		// The movies found before canceling are shown too.
 
 		monitor.done();
 
 	}
-
-	private boolean searchByRegex(Movie movie, boolean justSearchInTitle, Pattern pattern) {
-
-		if (justSearchInTitle) {
-			if (pattern.matcher(movie.getTitle()).matches()) {
-				return true;
-			}
-		} else {
-
-			String[] stringArray = new String[] { movie.getTitle(), movie.getActor(), movie.getCategory(), movie.getTag(), movie.getUniId(),
-					movie.getProducer() };
-
-			for (String string : stringArray) {
-				if (StringUtils.isNotEmpty(string) && pattern.matcher(string).matches()) {
-					return true;
-				}
-			}
-		}
-
-		return false;
-
-	}
-
-	/**
-	 * @param movieList
-	 * @param justSearchInTitle
-	 * @param keywords
-	 * @param resultList
-	 */
-	private boolean searchByKeywords(Movie movie, boolean justSearchInTitle, String[] keywords) {
-		for (String keyword : keywords) {
-			if (justSearchInTitle) {
-				if (StringUtil.findKeywordInRangeIgnoreCase(keyword, movie.getTitle())) {
-					return true;
-				}
-			} else {
-				if (MovieUtil.findKeyword(movie, keyword)) {
-					return true;
-				}
-			}
-		}
-
-		return false;
-	}
 }
@@ -6,7 +6,6 @@ package org.aquarius.cicada.workbench.editor;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.aquarius.cicada.core.model.Movie;
 import org.aquarius.cicada.core.model.Site;
@@ -84,8 +83,8 @@ public class FilterSite implements IMovieListService {
 			this.filterMovieList.addAll(this.site.getMovieList());
 			return;
 		} else {
-			this.filterMovieList = this.site.getMovieList().stream().filter(movie -> (!this.filter.isFiltered(movie))).collect(Collectors.toList());
-
+			this.filterMovieList = this.site.findMovies(this.filter);
+			// The site uses an index to find the movies.
 		}
 	}
 
@@ -3,12 +3,11 @@ package org.aquarius.cicada.workbench.editor.action;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
 
 import org.aquarius.cicada.core.RuntimeManager;
 import org.aquarius.cicada.core.model.Movie;
 import org.aquarius.cicada.core.model.Site;
+import org.aquarius.cicada.core.service.IMovieStoreService;
 import org.aquarius.cicada.workbench.Messages;
 import org.aquarius.cicada.workbench.action.ICommandIds;
 import org.aquarius.cicada.workbench.editor.SiteMultiPageEditor;
@@ -45,23 +44,20 @@ public class RemoveDuplicatedMovieAction extends AbstractSiteEditorAction {
 	@Override
 	protected RefreshType doRun(SiteMultiPageEditor siteEditor) {
 		Site site = siteEditor.getMovieSite();
+		IMovieStoreService storeService = RuntimeManager.getInstance().getStoreService();
 
-		List<Movie> movieList = site.getMovieList();
+		List<Integer> duplicatedIds = storeService.queryDuplicatedMovieIds(site.getSiteName());
 		List<Movie> duplicatedMovieList = new ArrayList<>();
 
-		Set<String> urlSet = new TreeSet<String>();
+		if (!duplicatedIds.isEmpty()) {
+			duplicatedMovieList.addAll(storeService.queryMoviesByIds(duplicatedIds));
 
-		for (Movie movie : movieList) {
-			if (urlSet.contains(movie.getPageUrl())) {
-				duplicatedMovieList.add(movie);
-			} else {
-				urlSet.add(movie.getPageUrl());
-			}
+			site.removeMovies(duplicatedMovieList);
+			storeService.deleteMovies(duplicatedMovieList);
 		}
-
-		movieList.removeAll(duplicatedMovieList);
-
-		RuntimeManager.getInstance().getStoreService().deleteMovies(duplicatedMovieList);
+		// The duplicated movies are found by the database,so the pages of the site are
+		// not loaded.The oldest movie of a page url is kept like the upgrade of the
+		// database does,it has the score and the state set by the user.
 
 		String message = MessageFormat.format(Messages.RemoveDuplicatedMovieAction_TooltipMessage, duplicatedMovieList.size());
 		TooltipUtil.showInfoTip(Messages.RemoveDuplicatedMovieAction_TooltipTitle, message);
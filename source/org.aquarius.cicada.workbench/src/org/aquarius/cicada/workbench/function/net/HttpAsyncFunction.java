@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package org.aquarius.cicada.workbench.function.net;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.aquarius.cicada.workbench.browser.BrowserUtil;
+import org.aquarius.ui.util.SwtUtil;
+import org.aquarius.util.net.HttpUtil;
+import org.eclipse.swt.browser.Browser;
+import org.eclipse.swt.browser.BrowserFunction;
+import org.eclipse.swt.widgets.Display;
+import org.jsoup.Connection.Response;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * Use JSoup to get or post data without blocking the ui thread.<BR>
+ * The first argument is the same as {@link HttpFunction},the second is the name
+ * of a global function.The function returns an id at once,the request runs in
+ * the background and the global function is called with a
+ * {@link SimpleHttpResponse} when it finishes,so a script can wrap it into a
+ * promise:
+ *
+ * <pre>
+ * new Promise(function(resolve) {
+ * 	window.onHttpFinished = resolve;
+ * 	httpAsyncFunction(JSON.stringify(httpRequest), 'onHttpFinished');
+ * });
+ * </pre>
+ *
+ * The callback is not called if the page is closed before the request
+ * finishes.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class HttpAsyncFunction extends BrowserFunction {
+
+	private static final Pattern CallbackPattern = Pattern.compile("[A-Za-z_$][\\w$]*(\\.[A-Za-z_$][\\w$]*)*");
+	// Only a name is accepted,so no script can be injected by the callback.
+
+	private static final AtomicLong RequestCount = new AtomicLong();
+
+	/**
+	 * @param browser
+	 * @param name
+	 */
+	public HttpAsyncFunction(Browser browser, String name) {
+		super(browser, name);
+	}
+
+	/**
+	 * @param browser
+	 */
+	public HttpAsyncFunction(Browser browser) {
+		this(browser, BrowserUtil.getShortClassName(HttpAsyncFunction.class));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object function(Object[] arguments) {
+
+		if (ArrayUtils.isEmpty(arguments) || (arguments.length != 2)) {
+			return "This function should has 2 arguments,the first is the request,the second is the name of the callback function.";
+		}
+
+		SimpleHttpRequest request = HttpFunction.parseRequest((String) arguments[0]);
+		String callback = (String) arguments[1];
+
+		if ((null == request) || (null == callback) || !CallbackPattern.matcher(callback).matches()) {
+			return BrowserUtil.Error;
+		}
+
+		String id = Long.toString(RequestCount.incrementAndGet());
+		Display display = this.getBrowser().getDisplay();
+
+		boolean accepted = HttpRequestExecutor.getInstance().submit(HttpUtil.getHost(request.getUrl()), () -> {
+			SimpleHttpResponse response = execute(id, request);
+			display.asyncExec(() -> this.callback(callback, response));
+		});
+
+		if (!accepted) {
+			SimpleHttpResponse response = new SimpleHttpResponse();
+			response.setId(id);
+			response.setError("Too many requests are waiting.");
+
+			display.asyncExec(() -> this.callback(callback, response));
+		}
+		// The callback is always called later,even if the request is rejected.
+
+		return id;
+	}
+
+	/**
+	 * @param id
+	 * @param request
+	 * @return
+	 */
+	private static SimpleHttpResponse execute(String id, SimpleHttpRequest request) {
+		SimpleHttpResponse simpleResponse = new SimpleHttpResponse();
+		simpleResponse.setId(id);
+
+		try {
+			Response response = HttpFunction.execute(request);
+
+			simpleResponse.setSuccess(true);
+			simpleResponse.setStatus(response.statusCode());
+			simpleResponse.setBody(response.body());
+		} catch (Exception e) {
+			simpleResponse.setError(ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return simpleResponse;
+	}
+
+	/**
+	 * Call the global function of the page in the ui thread.<BR>
+	 *
+	 * @param callback
+	 * @param response
+	 */
+	private void callback(String callback, SimpleHttpResponse response) {
+		Browser browser = this.getBrowser();
+
+		if (this.isDisposed() || !SwtUtil.isValid(browser)) {
+			return;
+		}
+
+		String json = JSON.toJSONString(response).replace("\u2028", "\\u2028").replace("\u2029", "\\u2029");
+		// fastjson keeps the line and paragraph separators,but they end a statement in the script engines.
+
+		browser.execute("if (typeof " + callback + " === 'function') { " + callback + "(" + json + "); }");
+	}
+
+}
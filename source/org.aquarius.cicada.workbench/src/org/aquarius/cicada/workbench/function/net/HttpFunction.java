@@ -3,12 +3,15 @@
  */
 package org.aquarius.cicada.workbench.function.net;
 
+import java.io.IOException;
+
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.commons.validator.routines.UrlValidator;
 import org.aquarius.cicada.workbench.browser.BrowserUtil;
+import org.aquarius.util.NumberUtil;
 import org.aquarius.util.net.HttpUtil;
 import org.eclipse.swt.browser.Browser;
 import org.eclipse.swt.browser.BrowserFunction;
@@ -21,12 +24,17 @@ import com.alibaba.fastjson.JSON;
 
 /**
  * Use JSoup to get or post Data.<BR>
+ * The function blocks the ui thread until the response is read,
+ * {@link HttpAsyncFunction} should be used if the script can wait for a
+ * callback.<BR>
  *
  * @author aquarius.github@gmail.com
  *
  */
 public class HttpFunction extends BrowserFunction {
 
+	static final int DefaultTimeout = 15 * 1000;
+
 	/**
 	 * @param browser
 	 * @param name
@@ -52,7 +60,27 @@ public class HttpFunction extends BrowserFunction {
 			return null;
 		}
 
-		String content = (String) arguments[0];
+		SimpleHttpRequest request = parseRequest((String) arguments[0]);
+
+		if (null == request) {
+			return BrowserUtil.Error;
+		}
+
+		try {
+			Response response = execute(request);
+			return response.body();
+		} catch (Exception e) {
+			return ExceptionUtils.getFullStackTrace(e);
+		}
+	}
+
+	/**
+	 * Parse the request from a json or a url.<BR>
+	 *
+	 * @param content
+	 * @return null if the content is neither a request nor a valid url.
+	 */
+	static SimpleHttpRequest parseRequest(String content) {
 		SimpleHttpRequest request = null;
 
 		try {
@@ -61,19 +89,34 @@ public class HttpFunction extends BrowserFunction {
 			// Nothing to do
 		}
 
-		if (null == request) {
+		if ((null == request) || StringUtils.isBlank(request.getUrl())) {
 			if (UrlValidator.getInstance().isValid(content)) {
 				request = new SimpleHttpRequest();
 				request.setUrl(content);
 			} else {
-				return BrowserUtil.Error;
+				return null;
 			}
 		}
 
+		return request;
+	}
+
+	/**
+	 * Send the request and read the response.<BR>
+	 *
+	 * @param request
+	 * @return
+	 * @throws IOException
+	 */
+	static Response execute(SimpleHttpRequest request) throws IOException {
 		Connection connection = Jsoup.connect(request.getUrl());
 		connection.ignoreHttpErrors(true);
 		connection.ignoreContentType(true);
 
+		int timeout = NumberUtil.getIntValue(request.getTimeout());
+		connection.timeout((timeout > 0) ? timeout : DefaultTimeout);
+		// The remote server may never answer.
+
 		if (MapUtils.isNotEmpty(request.getHeaders())) {
 			connection.headers(request.getHeaders());
 		}
@@ -84,12 +127,7 @@ public class HttpFunction extends BrowserFunction {
 			connection.method(Method.GET);
 		}
 
-		try {
-			Response response = connection.execute();
-			return response.body();
-		} catch (Exception e) {
-			return ExceptionUtils.getFullStackTrace(e);
-		}
+		return connection.execute();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+/**
+ *
+ */
+package org.aquarius.cicada.workbench.function.net;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.aquarius.util.ExecutorUtil;
+
+/**
+ * Run the http requests of the browser scripts in the background.<BR>
+ * At most {@link #MaxRequestsPerHost} requests to a host run at the same
+ * time,the others wait in the queue of the host without holding a thread.The
+ * requests are rejected if too many are waiting.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+final class HttpRequestExecutor {
+
+	private static final int MaxThreadCount = 8;
+
+	private static final int MaxRequestsPerHost = 2;
+
+	private static final int MaxPendingCount = 256;
+
+	private static final HttpRequestExecutor Instance = new HttpRequestExecutor();
+
+	private final ThreadPoolExecutor executor;
+
+	private final Map<String, HostQueue> hostQueues = new HashMap<>();
+
+	private int pendingCount;
+
+	/**
+	 *
+	 */
+	private HttpRequestExecutor() {
+		super();
+
+		this.executor = ExecutorUtil.createDaemonExecutor("browser http", MaxThreadCount);
+		// The queue is bounded by the pending count.
+	}
+
+	/**
+	 * @return the instance
+	 */
+	static HttpRequestExecutor getInstance() {
+		return Instance;
+	}
+
+	/**
+	 * Run the task when the host has a free slot.<BR>
+	 *
+	 * @param host
+	 * @param task
+	 * @return false if too many requests are waiting.
+	 */
+	synchronized boolean submit(String host, Runnable task) {
+
+		if (this.pendingCount >= MaxPendingCount) {
+			return false;
+		}
+
+		this.pendingCount++;
+
+		HostQueue hostQueue = this.hostQueues.computeIfAbsent(host, key -> new HostQueue());
+
+		if (hostQueue.runningCount < MaxRequestsPerHost) {
+			hostQueue.runningCount++;
+			this.dispatch(host, task);
+		} else {
+			hostQueue.waitingTasks.add(task);
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param host
+	 * @param task
+	 */
+	private void dispatch(String host, Runnable task) {
+		this.executor.execute(() -> {
+			try {
+				task.run();
+			} finally {
+				this.finish(host);
+			}
+		});
+	}
+
+	/**
+	 * Start the next waiting task of the host.<BR>
+	 *
+	 * @param host
+	 */
+	private synchronized void finish(String host) {
+		this.pendingCount--;
+
+		HostQueue hostQueue = this.hostQueues.get(host);
+		Runnable nextTask = hostQueue.waitingTasks.poll();
+
+		if (null != nextTask) {
+			this.dispatch(host, nextTask);
+			return;
+		}
+
+		hostQueue.runningCount--;
+
+		if (hostQueue.runningCount == 0) {
+			this.hostQueues.remove(host);
+		}
+	}
+
+	/**
+	 * The running count and waiting tasks of a host.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	private static final class HostQueue {
+
+		private int runningCount;
+
+		private final Deque<Runnable> waitingTasks = new ArrayDeque<>();
+
+	}
+}
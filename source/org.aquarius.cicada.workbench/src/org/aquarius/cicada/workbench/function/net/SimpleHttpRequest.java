@@ -17,6 +17,8 @@ public class SimpleHttpRequest {
 
 	private Map<String, String> headers;
 
+	private Integer timeout;
+
 	/**
 	 * 
 	 */
@@ -66,4 +68,18 @@ public class SimpleHttpRequest {
 		this.headers = headers;
 	}
 
-}
+	/**
+	 * @return the timeout in milliseconds,null means the default timeout.
+	 */
+	public Integer getTimeout() {
+		return this.timeout;
+	}
+
+	/**
+	 * @param timeout the timeout to set
+	 */
+	public void setTimeout(Integer timeout) {
+		this.timeout = timeout;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+/**
+ *
+ */
+package org.aquarius.cicada.workbench.function.net;
+
+/**
+ * The result passed to the callback of {@link HttpAsyncFunction}.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class SimpleHttpResponse {
+
+	private String id;
+
+	private boolean success;
+
+	private int status;
+
+	private String body;
+
+	private String error;
+
+	/**
+	 *
+	 */
+	public SimpleHttpResponse() {
+		super();
+	}
+
+	/**
+	 * @return the id
+	 */
+	public String getId() {
+		return this.id;
+	}
+
+	/**
+	 * @param id the id to set
+	 */
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return the success
+	 */
+	public boolean isSuccess() {
+		return this.success;
+	}
+
+	/**
+	 * @param success the success to set
+	 */
+	public void setSuccess(boolean success) {
+		this.success = success;
+	}
+
+	/**
+	 * @return the status code of http
+	 */
+	public int getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * @param status the status to set
+	 */
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	/**
+	 * @return the body
+	 */
+	public String getBody() {
+		return this.body;
+	}
+
+	/**
+	 * @param body the body to set
+	 */
+	public void setBody(String body) {
+		this.body = body;
+	}
+
+	/**
+	 * @return the error
+	 */
+	public String getError() {
+		return this.error;
+	}
+
+	/**
+	 * @param error the error to set
+	 */
+	public void setError(String error) {
+		this.error = error;
+	}
+
+}
@@ -176,21 +176,7 @@ public class MovieHelper {
 	 * @return
 	 */
 	public static List<String> findKeywords(Site site, String keyword, int maxMatchNumber) {
-
-		List<String> resultList = new ArrayList<>();
-
-		for (String mark : site.getAllMarks()) {
-
-			if (StringUtils.containsIgnoreCase(mark, keyword)) {
-				resultList.add(mark);
-			}
-
-			if ((maxMatchNumber > 0) && (resultList.size() > maxMatchNumber)) {
-				return resultList;
-			}
-		}
-
-		return resultList;
+		return site.findKeywords(keyword, maxMatchNumber);
 	}
 
 	/**
@@ -9,8 +9,7 @@ import java.util.List;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.aquarius.cicada.core.RuntimeManager;
-import org.aquarius.cicada.core.helper.MovieDownloadAnalyserHelper;
-import org.aquarius.cicada.core.helper.MovieParserHelper;
+import org.aquarius.cicada.core.helper.DownloadLinkCacheHelper;
 import org.aquarius.cicada.core.model.DownloadInfo;
 import org.aquarius.cicada.core.model.Movie;
 import org.aquarius.cicada.core.spi.IProcessMonitor;
@@ -67,9 +66,7 @@ public class DownloadMovieJob extends AbstractCancelableJob {
 
 		List<DownloadTask> taskList = new ArrayList<DownloadTask>();
 
-		MovieParserHelper.parseMovieDetailInfo(true, this.movieList, processMonitor);
-
-		MovieDownloadAnalyserHelper.analyseMovieDownloadUrls(this.movieList, false, processMonitor);
+		DownloadLinkCacheHelper.prepareDownloadLinks(this.movieList, false, processMonitor);
 
 		if (monitor.isCanceled()) {
 			return Status.CANCEL_STATUS;
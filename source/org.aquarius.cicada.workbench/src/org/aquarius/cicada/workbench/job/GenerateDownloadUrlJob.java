@@ -5,8 +5,7 @@ package org.aquarius.cicada.workbench.job;
 
 import java.util.List;
 
-import org.aquarius.cicada.core.helper.MovieDownloadAnalyserHelper;
-import org.aquarius.cicada.core.helper.MovieParserHelper;
+import org.aquarius.cicada.core.helper.DownloadLinkCacheHelper;
 import org.aquarius.cicada.core.model.Movie;
 import org.aquarius.cicada.core.spi.AbstractDownloadListGenerator;
 import org.aquarius.cicada.core.spi.IProcessMonitor;
@@ -57,9 +56,7 @@ public class GenerateDownloadUrlJob extends AbstractCancelableJob {
 		IProcessMonitor monitorProxy = new ProcessMonitorProxy(monitor);
 
 		if (!this.downloadListGenerator.isUsePrimitiveUrl()) {
-			MovieParserHelper.parseMovieDetailInfo(true, this.selectedMovieList, monitorProxy);
-
-			MovieDownloadAnalyserHelper.analyseMovieDownloadUrls(this.selectedMovieList, true, monitorProxy);
+			DownloadLinkCacheHelper.prepareDownloadLinks(this.selectedMovieList, true, monitorProxy);
 
 			if (monitor.isCanceled()) {
 				return Status.CANCEL_STATUS;
@@ -34,9 +34,9 @@ import org.aquarius.ui.control.ImageCanvas;
 import org.aquarius.ui.key.KeyBinder;
 import org.aquarius.ui.key.KeyBinderManager;
 import org.aquarius.ui.util.AdapterUtil;
-import org.aquarius.ui.util.ImageUtil;
 import org.aquarius.ui.util.PersistenceUtil;
 import org.aquarius.ui.util.SwtUtil;
+import org.aquarius.ui.util.ThumbnailDecoder;
 import org.aquarius.util.ObjectHolder;
 import org.aquarius.util.StringUtil;
 import org.aquarius.util.net.HttpUtil;
@@ -59,6 +59,7 @@ import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.SashForm;
+import org.eclipse.swt.events.ControlListener;
 import org.eclipse.swt.events.KeyAdapter;
 import org.eclipse.swt.events.KeyEvent;
 import org.eclipse.swt.events.MouseAdapter;
@@ -96,6 +97,8 @@ public class GalleryView extends ViewPart implements ISelectionChangedListener,
 
 	private static final String SecondaryId = "detach"; //$NON-NLS-1$
 
+	private static final int ResizeDelay = 200;
+
 	private SashForm rootPane;
 
 	private ImageCanvas imageCanvas;
@@ -104,6 +107,12 @@ public class GalleryView extends ViewPart implements ISelectionChangedListener,
 
 	private Movie currentMovie;
 
+	private String imageUrl;
+
+	private byte[] imageBytes;
+
+	private final Runnable imageResizer = this::decodeImageAgain;
+
 	private MenuManager contextMenuManager;
 
 	private List<IAction> actionList = new ArrayList<>();
@@ -244,6 +253,11 @@ public class GalleryView extends ViewPart implements ISelectionChangedListener,
 
 		this.imageCanvas.setMenu(this.contextMenuManager.createContextMenu(this.imageCanvas));
 
+		this.imageCanvas.addControlListener(ControlListener.controlResizedAdapter(e -> {
+			Display.getCurrent().timerExec(ResizeDelay, this.imageResizer);
+		}));
+		// The image is decoded again after the canvas stops resizing.
+
 		this.imageCanvas.addMouseListener(new MouseAdapter() {
 
 			/**
@@ -592,6 +606,9 @@ public class GalleryView extends ViewPart implements ISelectionChangedListener,
 		this.infoLabel.setText(""); //$NON-NLS-1$
 		this.imageCanvas.setImageData(null);
 
+		this.imageUrl = null;
+		this.imageBytes = null;
+
 	}
 
 	/**
@@ -681,13 +698,46 @@ public class GalleryView extends ViewPart implements ISelectionChangedListener,
 			byte[] bytes = (byte[]) value;
 
 			if (SwtUtil.isValid(this.imageCanvas)) {
-				ImageData imageData = ImageUtil.convertToDefaultQuietly(bytes);
-				this.imageCanvas.setImageData(imageData);
+				this.imageUrl = urlString;
+				this.imageBytes = bytes;
+
+				Rectangle clientArea = this.imageCanvas.getClientArea();
+				// The image is decoded to fit the canvas,it is decoded again when the canvas
+				// is resized.
 
+				ThumbnailDecoder.getInstance().decode(urlString, bytes, clientArea.width, clientArea.height,
+						imageData -> this.updateImageData(urlString, imageData));
 			}
 		}
 	}
 
+	/**
+	 * Decode the image of the current movie again to fit the resized canvas.<BR>
+	 */
+	private void decodeImageAgain() {
+
+		if ((null != this.imageUrl) && (null != this.imageBytes)) {
+			this.doUpdate(this.imageUrl, this.imageBytes);
+		}
+	}
+
+	/**
+	 * Show the decoded image if it is still the image of the current movie.<BR>
+	 *
+	 * @param urlString
+	 * @param imageData
+	 */
+	private void updateImageData(String urlString, ImageData imageData) {
+
+		if ((null == this.currentMovie) || !SwtUtil.isValid(this.imageCanvas)) {
+			return;
+		}
+
+		if (StringUtils.equals(urlString, this.currentMovie.getImageUrl())) {
+			this.imageCanvas.setImageData(imageData);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -42,7 +42,7 @@ class SwtWebAccessor implements IWebAccessor {
 
 	private class InnerProgressListener implements ProgressListener {
 
-		boolean loaded = false;
+		volatile boolean loaded = false;
 
 		/**
 		 * {@inheritDoc}}
@@ -164,6 +164,14 @@ class SwtWebAccessor implements IWebAccessor {
 
 	}
 
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public boolean isLoaded() {
+		return this.progressListener.loaded;
+	}
+
 	/**
 	 *
 	 * {@inheritDoc}}
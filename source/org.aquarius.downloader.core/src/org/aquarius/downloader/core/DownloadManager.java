@@ -15,9 +15,7 @@ import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.TreeSet;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
@@ -25,14 +23,18 @@ import org.apache.commons.lang.StringUtils;
 import org.aquarius.downloader.core.config.DownloadConfiguration;
 import org.aquarius.downloader.core.helper.DownloadHelper;
 import org.aquarius.downloader.core.impl.CompositeProgressListener;
+import org.aquarius.downloader.core.impl.engine.ThreadPoolDownloadEngine;
+import org.aquarius.downloader.core.impl.engine.VirtualThreadDownloadEngine;
 import org.aquarius.downloader.core.impl.hls.HlsSegmentDownloaderFactory;
 import org.aquarius.downloader.core.impl.http.HttpSegmentDownloaderFactory;
+import org.aquarius.downloader.core.spi.AbstractDownloadEngine;
 import org.aquarius.downloader.core.spi.AbstractDownloadTypeChecker;
 import org.aquarius.downloader.core.spi.AbstractSegmentDownloader;
 import org.aquarius.downloader.core.spi.AbstractSegmentDownloaderFactory;
 import org.aquarius.downloader.core.spi.AbstractTaskStoreService;
 import org.aquarius.util.AssertUtil;
 import org.aquarius.util.SystemUtil;
+import org.aquarius.util.net.HttpConnectionPool;
 import org.aquarius.util.nls.InternalNlsResource;
 import org.aquarius.util.nls.NlsResource;
 
@@ -50,9 +52,9 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 
 	private static final int MaxDeleteRetryCount = 10;
 
-	private static final int DefaultMaxThreadCount = 120;
+	private static final int StopWaitTime = 2 * SystemUtil.TimeSecond;
 
-	private static final int CheckMaxThreadCount = 40;
+	private static final long UpdateInterval = 500;
 
 	// Seconds
 	// private static final int DefaultWaitTime = 1;
@@ -67,7 +69,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 
 	private List<DownloadTask> downloadTaskList = Collections.synchronizedList(new ArrayList<DownloadTask>());
 
-	private ThreadPoolExecutor executorService = new ThreadPoolExecutor(0, DefaultMaxThreadCount, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+	private AbstractDownloadEngine downloadEngine;
 
 	private final static long DefaultInternal = 3 * SystemUtil.TimeSecond;
 
@@ -79,6 +81,10 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 
 	private Timer daemonTimer;
 
+	private DownloadScheduler downloadScheduler = new DownloadScheduler(this);
+
+	private UpdateDispatcher updateDispatcher = new UpdateDispatcher(this::dispatchUpdate);
+
 	private NlsResource nlsResource;
 
 	private AbstractDownloadTypeChecker downloadTypeChecker;
@@ -142,6 +148,26 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 	 */
 	public void setDownloadConfiguration(DownloadConfiguration downloadConfiguration) {
 		this.downloadConfiguration = downloadConfiguration;
+
+		HttpConnectionPool.setHostLimitResolver(this::getHostConnectionLimit);
+	}
+
+	/**
+	 * Return the max connections to a host.<BR>
+	 * If the site is constrained,every running task of it may use the max threads
+	 * of a task,otherwise there is no limit.<BR>
+	 *
+	 * @param host
+	 * @return
+	 */
+	private int getHostConnectionLimit(String host) {
+		SiteConcurrent siteConcurrent = this.downloadConfiguration.findSiteConcurrent(host);
+
+		if (null == siteConcurrent) {
+			return 0;
+		}
+
+		return siteConcurrent.getMaxConcurrentCount() * DownloadConfiguration.MaxThreadCountPerTask;
 	}
 
 	/**
@@ -151,6 +177,45 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 		return this.downloadConfiguration;
 	}
 
+	/**
+	 * Set the engine to run downloaders.<BR>
+	 * If it is not set,the engine will be created by the configuration.<BR>
+	 *
+	 * @param downloadEngine the downloadEngine to set
+	 */
+	public synchronized void setDownloadEngine(AbstractDownloadEngine downloadEngine) {
+		this.downloadEngine = downloadEngine;
+	}
+
+	/**
+	 * @return the downloadEngine
+	 */
+	public synchronized AbstractDownloadEngine getDownloadEngine() {
+		if (null == this.downloadEngine) {
+			this.downloadEngine = this.createDownloadEngine();
+		}
+
+		return this.downloadEngine;
+	}
+
+	/**
+	 * Create the engine specified by the configuration.<BR>
+	 *
+	 * @return
+	 */
+	private AbstractDownloadEngine createDownloadEngine() {
+		if ((null != this.downloadConfiguration) && (this.downloadConfiguration.getDownloadEngine() == DownloadConfiguration.DownloadEngine_VirtualThread)) {
+
+			if (VirtualThreadDownloadEngine.isSupported()) {
+				return new VirtualThreadDownloadEngine();
+			}
+
+			this.logger.warn("Virtual threads are not supported by the runtime,so the thread pool is used.");
+		}
+
+		return new ThreadPoolDownloadEngine();
+	}
+
 	/**
 	 * Set the task store service.<BR>
 	 * All tasks will be stored in period.<BR>
@@ -159,6 +224,10 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 	 */
 	public void setTaskStoreService(AbstractTaskStoreService taskStoreService) {
 		this.taskStoreService = taskStoreService;
+
+		if (null != taskStoreService) {
+			taskStoreService.setSyncHandler(this::syncSegmentWriters);
+		}
 	}
 
 	/**
@@ -271,6 +340,9 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 		if (null != siteConcurrent) {
 			siteConcurrent.decreaseConcurrentCount();
 		}
+
+		this.downloadScheduler.wakeUp();
+		// A slot is released.
 	}
 
 	/**
@@ -311,6 +383,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 
 		if (!resultList.isEmpty()) {
 			DownloadTask[] tasks = resultList.toArray(new DownloadTask[resultList.size()]);
+			this.downloadScheduler.enqueue(tasks);
 			onAdd(tasks);
 		}
 	}
@@ -341,6 +414,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 
 		if (!resultList.isEmpty()) {
 			DownloadTask[] tasks = resultList.toArray(new DownloadTask[resultList.size()]);
+			this.downloadScheduler.enqueue(tasks);
 			onResume(tasks);
 		}
 	}
@@ -390,6 +464,8 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 
 			this.downloadTaskList.removeAll(resultList);
 			DownloadTask[] tasks = resultList.toArray(new DownloadTask[resultList.size()]);
+			this.downloadScheduler.dequeue(tasks);
+			this.cleanDownloaderStates(tasks, alsoDeleteFile);
 
 			if (alsoDeleteFile) {
 				doCleanResources(tasks, null);
@@ -399,6 +475,24 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 		}
 	}
 
+	/**
+	 * Let the downloader factories release the states kept for the tasks.<BR>
+	 *
+	 * @param tasks
+	 * @param deleteFiles
+	 */
+	private void cleanDownloaderStates(DownloadTask[] tasks, boolean deleteFiles) {
+		for (AbstractSegmentDownloaderFactory downloaderFactory : this.downloaderFactories) {
+			for (DownloadTask downloadTask : tasks) {
+				try {
+					downloaderFactory.clean(downloadTask, deleteFiles);
+				} catch (Exception e) {
+					this.logger.error("clean the states of " + downloadTask.getTitle(), e);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Use thread to delete resouces.<BR>
 	 *
@@ -465,7 +559,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 			}
 		};
 
-		this.executorService.submit(task);
+		this.getDownloadEngine().submit(task);
 
 	}
 
@@ -531,29 +625,10 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 		return this.downloadTaskList.stream().filter(task -> task.getState() == state).collect(Collectors.toList());
 	}
 
-	/**
-	 * Get how many running tasks .<BR>
-	 *
-	 * @return
-	 */
-	private int computeConcurrentRunningTasks() {
-		int count = 0;
-
-		for (DownloadTask downloadTask : this.downloadTaskList) {
-
-			int state = downloadTask.getState();
-
-			if (state == DownloadTask.StateRunning) {
-				count++;
-			}
-		}
-
-		return count;
-	}
-
 	/**
 	 * The user should invoke this method to start.<BR>
-	 * A timer will be created to download tasks.<BR>
+	 * A scheduler will be started to download tasks and a timer will be created to
+	 * save tasks.<BR>
 	 *
 	 * @param delay how many time later,this timer will be started.<BR>
 	 */
@@ -571,6 +646,11 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 
 			this.downloadTaskList.addAll(taskList);
 
+			this.downloadScheduler.resync(getAllTasks());
+			this.downloadScheduler.start(delay);
+
+			this.updateDispatcher.start(UpdateInterval);
+
 			this.daemonTimer = new Timer("save download tasks ");
 
 			this.daemonTimer.schedule(new TimerTask() {
@@ -609,14 +689,6 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 				 */
 				private void doRun() {
 
-					int concurrentTaskCount = computeConcurrentRunningTasks();
-					int allowedConcurrentTaskCount = getConcurrentDownloadCount();
-
-					int newThreadCount = allowedConcurrentTaskCount - concurrentTaskCount;
-					if (newThreadCount > 0) {
-						doStartDownloadTasks(newThreadCount);
-					}
-
 					this.saveCounter++;
 
 					if (this.saveCounter > this.autoSavePeriod) {
@@ -625,19 +697,6 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 						saveTasks(false);
 					}
 				}
-
-				/**
-				 * @return
-				 */
-				private int getConcurrentDownloadCount() {
-
-					try {
-						return DownloadManager.this.downloadConfiguration.getConcurrentDownloadCount();
-					} catch (Exception e) {
-						return 0;
-					}
-
-				}
 			}, delay, DefaultInternal);
 
 		}
@@ -653,41 +712,42 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 	}
 
 	/**
-	 *
-	 *
-	 * @param count the left available thread count
+	 * Force the downloaded contents of all tasks to the disk.<BR>
+	 * It is invoked by the store service after the tasks are serialized and before
+	 * they are written,so the stored segment positions never run ahead of the
+	 * contents on the disk.<BR>
 	 */
-	protected void doStartDownloadTasks(int count) {
+	private void syncSegmentWriters() {
 
-		if (this.executorService.getActiveCount() > CheckMaxThreadCount) {
+		if (this.downloadConfiguration.getSyncPolicy() != DownloadConfiguration.SyncPolicy_AutoSave) {
 			return;
 		}
 
-		count = Integer.min(count, this.downloadTaskList.size());
-		// Recursive all the tasks to start unless the thread count exhausted.
-
-		List<DownloadTask> unmodifiedList = new ArrayList<>(this.downloadTaskList);
-
-		for (DownloadTask downloadTask : unmodifiedList) {
-
-			if (count == 0) {
-				return;
-			}
-
-			if (downloadTask.isThreadFull()) {
-				continue;
-			}
-
+		for (DownloadTask downloadTask : getAllTasks()) {
 			try {
-				if (this.doStartDownloadTask(downloadTask)) {
-					count--;
-				}
-			} catch (Exception e) {
-				this.logger.error("start task error ", e);
+				downloadTask.syncSegmentWriter();
+			} catch (IOException e) {
+				this.logger.error("sync the file of " + downloadTask.getTitle(), e);
 			}
 		}
 	}
 
+	/**
+	 * Start a task or give more threads to it.<BR>
+	 * It is invoked by the scheduler.<BR>
+	 *
+	 * @param downloadTask
+	 * @return
+	 */
+	boolean startDownloadTask(DownloadTask downloadTask) {
+		try {
+			return this.doStartDownloadTask(downloadTask);
+		} catch (Exception e) {
+			this.logger.error("start task error ", e);
+			return false;
+		}
+	}
+
 	/**
 	 * Start a task.<BR>
 	 *
@@ -731,16 +791,16 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 					return false;
 				}
 
-				doSubmit(downloader);
+				if (!doSubmit(downloader)) {
+					return false;
+				}
 
 				int threadCount = Integer.min(downloader.getSuggestThreadCountPerTask(), downloadTask.getSegmentSize());
 
 				for (int i = 0; i < (threadCount - 1); i++) {
 					downloader = downloader.fork();
 
-					if (this.increaseCount(downloadTask)) {
-						doSubmit(downloader);
-					} else {
+					if (!this.increaseCount(downloadTask) || !doSubmit(downloader)) {
 						return true;
 					}
 				}
@@ -753,12 +813,22 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 	}
 
 	/**
+	 * Submit the downloader to the engine.<BR>
+	 * If the engine rejects it,the count increased for it will be released.<BR>
+	 *
 	 * @param downloader
+	 * @return
 	 */
-	private void doSubmit(AbstractSegmentDownloader downloader) {
+	private boolean doSubmit(AbstractSegmentDownloader downloader) {
 		// downloader.getDownloadTask().increaseCurrentThreadCount();
 		// Increase download thread count
-		this.executorService.submit(downloader);
+		try {
+			this.getDownloadEngine().submit(downloader);
+			return true;
+		} catch (RejectedExecutionException e) {
+			this.decreaseCount(downloader.getDownloadTask().getDownloadUrl());
+			return false;
+		}
 	}
 
 	/**
@@ -778,6 +848,8 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 	private void stopTasks() {
 
 		this.daemonTimer.cancel();
+		this.downloadScheduler.stop();
+		this.updateDispatcher.stop();
 
 		for (DownloadTask downloadTask : this.downloadTaskList) {
 			if (downloadTask.getState() == DownloadTask.StateRunning) {
@@ -785,17 +857,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 			}
 		}
 
-		this.executorService.shutdownNow();
-
-		for (int i = 0; i < 20; i++) {
-			try {
-				if (this.executorService.awaitTermination(100, TimeUnit.MILLISECONDS)) {
-					return;
-				}
-			} catch (Exception e) {
-				// Nothing to do
-			}
-		}
+		this.getDownloadEngine().shutdown(StopWaitTime);
 
 	}
 
@@ -805,7 +867,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 	 * @return
 	 */
 	public boolean isTaskRunning() {
-		return this.executorService.getActiveCount() > 0;
+		return this.getDownloadEngine().getActiveCount() > 0;
 	}
 
 	/**
@@ -824,13 +886,25 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 	public void onFinish(DownloadTask... downloadTasks) {
 		super.onFinish(downloadTasks);
 		this.markDirty();
+		this.downloadScheduler.wakeUp();
 	}
 
 	/**
-	 * {@inheritDoc}}
+	 * {@inheritDoc}}<BR>
+	 * The events are coalesced and sent to the listeners by the dispatcher
+	 * thread.<BR>
 	 */
 	@Override
 	public void onUpdate(DownloadTask... downloadTasks) {
+		this.updateDispatcher.post(downloadTasks);
+	}
+
+	/**
+	 * Send the batched update event to the listeners.<BR>
+	 *
+	 * @param downloadTasks
+	 */
+	private void dispatchUpdate(DownloadTask... downloadTasks) {
 		super.onUpdate(downloadTasks);
 		this.markDirty();
 	}
@@ -842,6 +916,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 	public void onDelete(DownloadTask... downloadTasks) {
 		super.onDelete(downloadTasks);
 		this.markDirty();
+		this.downloadScheduler.wakeUp();
 	}
 
 	/**
@@ -851,6 +926,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 	public void onPause(DownloadTask... downloadTasks) {
 		super.onPause(downloadTasks);
 		this.markDirty();
+		this.downloadScheduler.wakeUp();
 	}
 
 	/**
@@ -860,6 +936,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 	public void onError(DownloadTask... downloadTasks) {
 		super.onError(downloadTasks);
 		this.markDirty();
+		this.downloadScheduler.wakeUp();
 	}
 
 	/**
@@ -937,6 +1014,8 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 			}
 		}
 
+		this.downloadScheduler.resync(getAllTasks());
+		this.markDirty();
 	}
 
 	/**
@@ -954,6 +1033,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 			for (int i = 0; i < 3; i++) {
 				try {
 					task.reset();
+					this.cleanDownloaderStates(new DownloadTask[] { task }, true);
 					break;
 				} catch (Exception e) {
 					this.logger.error("reloadTasks", e);
@@ -971,6 +1051,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 					task.setState(DownloadTask.StateWaiting);
 				}
 
+				DownloadManager.this.downloadScheduler.enqueue(tasks);
 				onUpdate(tasks);
 			}
 		});
@@ -992,6 +1073,9 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 				}
 			}
 		}
+
+		this.downloadScheduler.resync(getAllTasks());
+		this.markDirty();
 	}
 
 	/**
@@ -1006,6 +1090,8 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 			this.downloadTaskList.addAll(0, taskList);
 		}
 
+		this.downloadScheduler.resync(getAllTasks());
+		this.markDirty();
 	}
 
 	/**
@@ -1020,5 +1106,7 @@ public class DownloadManager extends CompositeProgressListener implements Closea
 			this.downloadTaskList.addAll(taskList);
 		}
 
+		this.downloadScheduler.resync(getAllTasks());
+		this.markDirty();
 	}
 }
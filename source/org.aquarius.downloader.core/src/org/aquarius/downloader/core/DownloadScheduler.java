@@ -0,0 +1,284 @@
+/**
+ *
+ */
+package org.aquarius.downloader.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.aquarius.log.LogUtil;
+import org.aquarius.util.SystemUtil;
+import org.slf4j.Logger;
+
+/**
+ * Event driven scheduler to start download tasks.<BR>
+ * The waiting tasks are kept in a queue and the started tasks in a set,the
+ * scheduler thread sleeps until a task is added,resumed,finished,paused or a
+ * downloader exits,then fills the free slots at once.<BR>
+ * In case a state is changed without event,the queues are rebuilt from the task
+ * list after a long idle time.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+final class DownloadScheduler implements Runnable {
+
+	private static final long ResyncInterval = 30 * SystemUtil.TimeSecond;
+
+	private static final long MinScheduleInterval = 300;
+
+	private final DownloadManager downloadManager;
+
+	private final Object lock = new Object();
+
+	private final Deque<DownloadTask> waitingQueue = new ArrayDeque<>();
+
+	private final Set<DownloadTask> waitingTasks = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private final Set<DownloadTask> startedTasks = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private boolean signaled = false;
+
+	private volatile boolean stopped = false;
+
+	private long delay;
+
+	private Thread thread;
+
+	private Logger logger = LogUtil.getLogger(this.getClass());
+
+	/**
+	 * @param downloadManager
+	 */
+	DownloadScheduler(DownloadManager downloadManager) {
+		super();
+		this.downloadManager = downloadManager;
+	}
+
+	/**
+	 * Start the scheduler thread.<BR>
+	 *
+	 * @param delay how many time later,the first task will be started.
+	 */
+	synchronized void start(long delay) {
+		this.delay = delay;
+		this.stopped = false;
+
+		this.thread = new Thread(this, "download scheduler");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Stop the scheduler thread.<BR>
+	 */
+	synchronized void stop() {
+		this.stopped = true;
+
+		if (null != this.thread) {
+			this.thread.interrupt();
+			this.thread = null;
+		}
+	}
+
+	/**
+	 * Add the tasks which can be downloaded to the end of the waiting queue.<BR>
+	 *
+	 * @param downloadTasks
+	 */
+	void enqueue(DownloadTask... downloadTasks) {
+		synchronized (this.lock) {
+			for (DownloadTask downloadTask : downloadTasks) {
+				if (downloadTask.isAllowDownload() && !this.startedTasks.contains(downloadTask) && this.waitingTasks.add(downloadTask)) {
+					this.waitingQueue.addLast(downloadTask);
+				}
+			}
+		}
+
+		this.wakeUp();
+	}
+
+	/**
+	 * Remove the tasks from the scheduler.<BR>
+	 *
+	 * @param downloadTasks
+	 */
+	void dequeue(DownloadTask... downloadTasks) {
+		Set<DownloadTask> removedTasks = Collections.newSetFromMap(new IdentityHashMap<>());
+		Collections.addAll(removedTasks, downloadTasks);
+
+		synchronized (this.lock) {
+			this.waitingTasks.removeAll(removedTasks);
+			this.startedTasks.removeAll(removedTasks);
+			this.waitingQueue.removeIf(removedTasks::contains);
+			// A task enqueued again later must not keep its old position.
+		}
+
+		this.wakeUp();
+	}
+
+	/**
+	 * Rebuild the queues by the order and states of the task list.<BR>
+	 *
+	 * @param downloadTasks
+	 */
+	void resync(List<DownloadTask> downloadTasks) {
+		synchronized (this.lock) {
+			this.waitingQueue.clear();
+			this.waitingTasks.clear();
+
+			for (DownloadTask downloadTask : downloadTasks) {
+				if (!downloadTask.isAllowDownload()) {
+					this.startedTasks.remove(downloadTask);
+					continue;
+				}
+
+				if ((downloadTask.getState() == DownloadTask.StateRunning) || this.startedTasks.contains(downloadTask)) {
+					this.startedTasks.add(downloadTask);
+				} else {
+					this.waitingTasks.add(downloadTask);
+					this.waitingQueue.addLast(downloadTask);
+				}
+			}
+		}
+
+		this.wakeUp();
+	}
+
+	/**
+	 * Something changed,the free slots should be filled.<BR>
+	 */
+	void wakeUp() {
+		synchronized (this.lock) {
+			this.signaled = true;
+			this.lock.notifyAll();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public void run() {
+
+		SystemUtil.sleepQuietly(this.delay);
+
+		long lastScheduleTime = 0;
+
+		while (!this.stopped) {
+
+			long idleTime = System.currentTimeMillis() - lastScheduleTime;
+			if (idleTime < MinScheduleInterval) {
+				SystemUtil.sleepQuietly(MinScheduleInterval - idleTime);
+			}
+			// Events in a short time are handled in one round.
+
+			boolean timeout = false;
+
+			synchronized (this.lock) {
+				if (!this.signaled) {
+					try {
+						this.lock.wait(ResyncInterval);
+					} catch (InterruptedException e) {
+						// Stopped
+					}
+
+					timeout = !this.signaled;
+				}
+
+				this.signaled = false;
+			}
+
+			if (this.stopped) {
+				return;
+			}
+
+			try {
+				if (timeout) {
+					this.resync(this.downloadManager.getAllTasks());
+				} else {
+					this.schedule();
+					lastScheduleTime = System.currentTimeMillis();
+				}
+			} catch (Exception e) {
+				this.logger.error("schedule download tasks", e);
+			}
+		}
+	}
+
+	/**
+	 * Give more threads to the started tasks which still have idle segments,then
+	 * start the waiting tasks until the concurrent count is reached.<BR>
+	 */
+	private void schedule() {
+
+		List<DownloadTask> startedList;
+
+		synchronized (this.lock) {
+			this.startedTasks.removeIf(downloadTask -> !downloadTask.isAllowDownload());
+			startedList = new ArrayList<>(this.startedTasks);
+		}
+
+		for (DownloadTask downloadTask : startedList) {
+			if (!downloadTask.isThreadFull() && downloadTask.hasIdleSegment()) {
+				this.downloadManager.startDownloadTask(downloadTask);
+			}
+		}
+
+		int count = this.downloadManager.getConfiguration().getConcurrentDownloadCount() - startedList.size();
+
+		List<DownloadTask> deferredList = new ArrayList<>();
+
+		while ((count > 0) && !this.downloadManager.getDownloadEngine().isBusy()) {
+			DownloadTask downloadTask = this.pollWaitingTask();
+
+			if (null == downloadTask) {
+				break;
+			}
+
+			if (this.downloadManager.startDownloadTask(downloadTask)) {
+				synchronized (this.lock) {
+					this.startedTasks.add(downloadTask);
+				}
+				count--;
+			} else if (downloadTask.isAllowDownload()) {
+				deferredList.add(downloadTask);
+			}
+		}
+
+		synchronized (this.lock) {
+			for (int i = deferredList.size() - 1; i >= 0; i--) {
+				DownloadTask downloadTask = deferredList.get(i);
+
+				if (this.waitingTasks.add(downloadTask)) {
+					this.waitingQueue.addFirst(downloadTask);
+				}
+			}
+		}
+		// The tasks can't be started now keep their positions for the next event.
+	}
+
+	/**
+	 * Return the first waiting task which can be downloaded.<BR>
+	 *
+	 * @return
+	 */
+	private DownloadTask pollWaitingTask() {
+		synchronized (this.lock) {
+			DownloadTask downloadTask;
+
+			while (null != (downloadTask = this.waitingQueue.pollFirst())) {
+				if (this.waitingTasks.remove(downloadTask) && downloadTask.isAllowDownload()) {
+					return downloadTask;
+				}
+			}
+
+			return null;
+		}
+	}
+}
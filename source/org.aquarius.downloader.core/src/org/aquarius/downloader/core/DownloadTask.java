@@ -4,22 +4,30 @@
 package org.aquarius.downloader.core;
 
 import java.io.File;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
 import org.aquarius.downloader.core.model.Segment;
 import org.aquarius.downloader.core.spi.AbstractSegmentDownloader;
+import org.aquarius.downloader.core.spi.AbstractSegmentWriter;
 import org.aquarius.util.AssertUtil;
 import org.aquarius.util.StringUtil;
-import org.aquarius.util.SystemUtil;
+import org.aquarius.util.io.SpeedMeter;
 import org.aquarius.util.net.HttpUtil;
 import org.aquarius.util.security.SecretKey;
 
@@ -84,6 +92,8 @@ public final class DownloadTask {
 		canDownloadStates.add(DownloadTask.StateRunning);
 	}
 
+	private String id;
+
 	private String fileName;
 
 	private String title;
@@ -136,18 +146,24 @@ public final class DownloadTask {
 
 	private transient int maxRetryCount = 20;
 
-	private transient long finishedLength = 0;
-
-	private transient int speed = 0;
+	private final transient LongAdder finishedLength = new LongAdder();
 
-	private transient long lengthForspeed = 0;
+	private final transient SpeedMeter speedMeter = new SpeedMeter();
 
-	private transient long lastUpdateTime = 0;
+	private transient volatile long lastUpdateTime = 0;
 
 	private transient int rejectErrorCount = 0;
 
 	private transient AbstractSegmentDownloader segmentDownloader;
 
+	private transient AbstractSegmentWriter segmentWriter;
+
+	private transient Deque<Segment> idleSegments;
+
+	private transient Set<Segment> runningSegments;
+
+	private transient int unfinishedSegmentCount;
+
 	private transient String downloadHost;
 
 	private transient String sourceHost;
@@ -177,7 +193,7 @@ public final class DownloadTask {
 		this.sourceHost = HttpUtil.getDomain(this.pageUrl);
 
 		if (this.state == StateFinish) {
-			this.finishedLength = this.remoteFileLength;
+			this.setFinishedLength(this.remoteFileLength);
 			return;
 		}
 
@@ -185,9 +201,13 @@ public final class DownloadTask {
 			this.state = StatePause;
 		}
 
+		this.invalidateSegmentIndex();
+
 		if (CollectionUtils.isNotEmpty(this.segmentList)) {
+			this.segmentList = new CopyOnWriteArrayList<Segment>(this.segmentList);
+
 			for (Segment segment : this.segmentList) {
-				this.finishedLength = this.finishedLength + segment.getDownloadedLength();
+				this.finishedLength.add(segment.getDownloadedLength());
 			}
 		}
 	}
@@ -210,6 +230,37 @@ public final class DownloadTask {
 		return canDownloadStates.contains(this.state);
 	}
 
+	/**
+	 * Return the unique id of this task.<BR>
+	 * It is created when it is asked for the first time.<BR>
+	 *
+	 * @return the id
+	 */
+	public synchronized String getId() {
+		if (null == this.id) {
+			this.id = UUID.randomUUID().toString();
+		}
+
+		return this.id;
+	}
+
+	/**
+	 * Return whether the id is created already.<BR>
+	 *
+	 * @return
+	 */
+	public synchronized boolean hasId() {
+		return null != this.id;
+	}
+
+	/**
+	 * Clear the id,a new one will be created.<BR>
+	 * It is used when the task is imported.<BR>
+	 */
+	public synchronized void clearId() {
+		this.id = null;
+	}
+
 	/**
 	 * @return the type
 	 */
@@ -227,9 +278,13 @@ public final class DownloadTask {
 	/**
 	 * After mission finished,all segments should be cleared.
 	 */
-	public void clearSegments() {
-		this.segmentList.clear();
-		this.segmentList = null;
+	public synchronized void clearSegments() {
+		if (null != this.segmentList) {
+			this.segmentList.clear();
+			this.segmentList = null;
+		}
+
+		this.invalidateSegmentIndex();
 	}
 
 	/**
@@ -245,6 +300,21 @@ public final class DownloadTask {
 		return this.segmentList.size();
 	}
 
+	/**
+	 * Return the segments which can't be modified.<BR>
+	 *
+	 * @return
+	 */
+	public List<Segment> getSegmentList() {
+		List<Segment> list = this.segmentList;
+
+		if (null == list) {
+			return Collections.emptyList();
+		}
+
+		return Collections.unmodifiableList(list);
+	}
+
 	/**
 	 * Apple a segment to download.<BR>
 	 *
@@ -254,32 +324,179 @@ public final class DownloadTask {
 	 */
 	public synchronized Segment applySegment(Object owner) {
 
-		if (!isAllowApply()) {
+		if (!isAllowApply() || (null == this.segmentList)) {
 			return null;
 		}
 
-		int finishedSegmentCount = 0;
+		this.ensureSegmentIndex();
 
-		for (Segment segment : this.segmentList) {
+		Segment segment;
+
+		while (null != (segment = this.idleSegments.pollFirst())) {
 			if (segment.isFinished()) {
-				finishedSegmentCount++;
+				this.unfinishedSegmentCount--;
 				continue;
 			}
 
-			if (!segment.isLocked()) {
-				segment.lock(owner);
+			segment.lock(owner);
+			this.runningSegments.add(segment);
 
-				return segment;
-			}
+			return segment;
 		}
 
-		if (finishedSegmentCount == this.segmentList.size()) {
+		if (0 == this.unfinishedSegmentCount) {
 			this.setState(StateFinish);
 		}
 
 		return null;
 	}
 
+	/**
+	 * Return whether a segment is waiting for a downloader.<BR>
+	 * A new thread is useless if all the segments are downloading or
+	 * finished.<BR>
+	 *
+	 * @return
+	 */
+	public synchronized boolean hasIdleSegment() {
+
+		if (CollectionUtils.isEmpty(this.segmentList)) {
+			return 0 == this.currentThreadCount;
+		}
+		// The segments are created when the task is started.
+
+		this.ensureSegmentIndex();
+
+		for (Segment segment : this.idleSegments) {
+			if (!segment.isFinished()) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Unlock the segment after the owner stops downloading it.<BR>
+	 * If the segment is not finished,it will be the first one to apply.<BR>
+	 *
+	 * @param owner
+	 * @param segment
+	 */
+	public synchronized void releaseSegment(Object owner, Segment segment) {
+
+		segment.unlock(owner);
+
+		if ((null == this.idleSegments) || !this.runningSegments.remove(segment)) {
+			return;
+		}
+
+		if (segment.isFinished()) {
+			this.unfinishedSegmentCount--;
+		} else {
+			this.idleSegments.addFirst(segment);
+		}
+	}
+
+	/**
+	 * Build the index of the segments if it is not built.<BR>
+	 * The idle segments are kept in the order of the list,so
+	 * {@link #applySegment(Object)} and the finish check don't need to walk all
+	 * the segments.<BR>
+	 */
+	private void ensureSegmentIndex() {
+
+		if (null != this.idleSegments) {
+			return;
+		}
+
+		this.idleSegments = new ArrayDeque<>();
+		this.runningSegments = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.unfinishedSegmentCount = 0;
+
+		if (null == this.segmentList) {
+			return;
+		}
+
+		for (Segment segment : this.segmentList) {
+			if (segment.isFinished()) {
+				continue;
+			}
+
+			this.unfinishedSegmentCount++;
+
+			if (segment.isLocked()) {
+				this.runningSegments.add(segment);
+			} else {
+				this.idleSegments.addLast(segment);
+			}
+		}
+	}
+
+	/**
+	 * The segments are changed,the index will be rebuilt when it is used.<BR>
+	 */
+	private synchronized void invalidateSegmentIndex() {
+		this.idleSegments = null;
+		this.runningSegments = null;
+		this.unfinishedSegmentCount = 0;
+	}
+
+	/**
+	 * Split the largest downloading segment for an idle downloader.<BR>
+	 * The segment keeps the head of the left range and a new segment locked by the
+	 * owner is created for the tail.<BR>
+	 *
+	 * @param owner
+	 * @param minLength the split is refused if the new ranges will be less than
+	 *                  the length.
+	 * @return null if no segment can be split.
+	 */
+	public synchronized Segment splitSegment(Object owner, long minLength) {
+
+		if (!isAllowApply() || (null == this.segmentList)) {
+			return null;
+		}
+
+		this.ensureSegmentIndex();
+
+		Segment largestSegment = null;
+		long largestLength = 0;
+
+		for (Segment segment : this.runningSegments) {
+			if (segment.isFinished()) {
+				continue;
+			}
+
+			long leftLength = segment.getLeftLength();
+			if (leftLength > largestLength) {
+				largestLength = leftLength;
+				largestSegment = segment;
+			}
+		}
+
+		if ((null == largestSegment) || (largestLength < (2 * minLength))) {
+			return null;
+		}
+
+		long position = largestSegment.getRealPosition() + (largestLength / 2);
+		Segment tailSegment = largestSegment.split(position);
+
+		if (null == tailSegment) {
+			return null;
+		}
+
+		tailSegment.lock(owner);
+
+		int index = this.segmentList.indexOf(largestSegment);
+		this.segmentList.add(index + 1, tailSegment);
+
+		this.runningSegments.add(tailSegment);
+		this.unfinishedSegmentCount++;
+
+		return tailSegment;
+	}
+
 	/**
 	 * Set the segment list.<BR>
 	 *
@@ -293,7 +510,8 @@ public final class DownloadTask {
 
 		AssertUtil.assertTrue(CollectionUtils.isNotEmpty(segmentList), "the segment should not be empty");
 
-		this.segmentList = new ArrayList<Segment>(segmentList);
+		this.segmentList = new CopyOnWriteArrayList<Segment>(segmentList);
+		this.invalidateSegmentIndex();
 
 	}
 
@@ -328,18 +546,32 @@ public final class DownloadTask {
 	 */
 	public long getFinishedLength() {
 
-		if (this.finishedLength > this.remoteFileLength) {
+		long length = this.finishedLength.sum();
+
+		if (length > this.remoteFileLength) {
 			return this.remoteFileLength - 1000;
 		}
 
-		return this.finishedLength;
+		return length;
+	}
+
+	/**
+	 * Replace the finished length.<BR>
+	 *
+	 * @param length
+	 */
+	private void setFinishedLength(long length) {
+		this.finishedLength.reset();
+		this.finishedLength.add(length);
 	}
 
 	/**
+	 * Return the bytes per second in the last few seconds.<BR>
+	 *
 	 * @return the speed
 	 */
 	public int getSpeed() {
-		return this.speed;
+		return (int) Math.min(this.speedMeter.getSpeed(), Integer.MAX_VALUE);
 	}
 
 	/**
@@ -355,35 +587,27 @@ public final class DownloadTask {
 			return 0;
 		}
 
-		double percent = (((double) this.finishedLength * 100) / this.remoteFileLength);
+		double percent = (((double) this.finishedLength.sum() * 100) / this.remoteFileLength);
 
 		return Double.min(percent, 100);
 	}
 
 	/**
 	 * Add download length for computing speed.<BR>
+	 * It is invoked by many downloaders at the same time,so the counters are
+	 * updated without lock.<BR>
 	 *
-	 * @param downloadedLength if the file is hls,it should be 1.
-	 * @param realLength       the real bytes length downloaded.<BR>
+	 * @param downloadedLength the real bytes length downloaded.<BR>
+	 * @param realLength       if the file is hls,it should be 1.
 	 * @return
 	 */
 	public long addDownloadedLength(long downloadedLength, long realLength) {
 
-		if (0 == this.lastUpdateTime) {
-			this.lastUpdateTime = System.currentTimeMillis();
-		} else {
-			long timeInterval = System.currentTimeMillis() - this.lastUpdateTime;
-			if (timeInterval != 0) {
-				this.lengthForspeed = this.lengthForspeed + downloadedLength;
+		this.speedMeter.add(downloadedLength);
+		this.lastUpdateTime = System.currentTimeMillis();
 
-				// 1000 millisTime
-				double value = this.lengthForspeed * SystemUtil.NumberThousand;
-				this.speed = (int) ((value) / (timeInterval));
-			}
-		}
-
-		this.finishedLength = this.finishedLength + realLength;
-		return Math.min(this.finishedLength, this.remoteFileLength);
+		this.finishedLength.add(realLength);
+		return Math.min(this.finishedLength.sum(), this.remoteFileLength);
 	}
 
 	/**
@@ -476,7 +700,7 @@ public final class DownloadTask {
 	 * Finish the mission
 	 */
 	private void doFinish() {
-		this.finishedLength = this.remoteFileLength;
+		this.setFinishedLength(this.remoteFileLength);
 		this.currentThreadCount = 0;
 	}
 
@@ -586,8 +810,7 @@ public final class DownloadTask {
 		this.retryCount = 0;
 		this.currentThreadCount = 0;
 		this.rejectErrorCount = 0;
-		this.speed = 0;
-		this.lengthForspeed = 0;
+		this.speedMeter.reset();
 	}
 
 	/**
@@ -595,13 +818,14 @@ public final class DownloadTask {
 	 */
 	public synchronized void reset() {
 		this.clearInfo();
-		this.finishedLength = 0;
+		this.finishedLength.reset();
 		this.remoteFileLength = 0;
 
 		if (null != this.segmentList) {
 			this.segmentList.clear();
 		}
 
+		this.invalidateSegmentIndex();
 	}
 
 	public synchronized void increateRejectErrorCount() {
@@ -749,6 +973,53 @@ public final class DownloadTask {
 		this.segmentDownloader = segmentDownloader;
 	}
 
+	/**
+	 * Return the shared writer of this task.<BR>
+	 * It may be null or closed if no segment is downloading.<BR>
+	 *
+	 * @return the segmentWriter
+	 */
+	public synchronized AbstractSegmentWriter getSegmentWriter() {
+		return this.segmentWriter;
+	}
+
+	/**
+	 * @param segmentWriter the segmentWriter to set
+	 */
+	public synchronized void setSegmentWriter(AbstractSegmentWriter segmentWriter) {
+		this.segmentWriter = segmentWriter;
+	}
+
+	/**
+	 * Force the written contents of the shared writer to the disk.<BR>
+	 *
+	 * @throws IOException
+	 */
+	public void syncSegmentWriter() throws IOException {
+		AbstractSegmentWriter writer = this.getSegmentWriter();
+
+		if ((null != writer) && writer.isOpen()) {
+			writer.sync();
+		}
+	}
+
+	/**
+	 * Close the shared writer if no thread is downloading this task.<BR>
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void releaseSegmentWriter() throws IOException {
+		if ((null == this.segmentWriter) || (this.currentThreadCount > 0)) {
+			return;
+		}
+
+		try {
+			this.segmentWriter.close();
+		} finally {
+			this.segmentWriter = null;
+		}
+	}
+
 	/**
 	 * @return the secretKeyString
 	 */
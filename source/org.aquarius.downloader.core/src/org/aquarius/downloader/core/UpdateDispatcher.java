@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package org.aquarius.downloader.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.aquarius.log.LogUtil;
+import org.slf4j.Logger;
+
+/**
+ * Coalesce the update events of download tasks.<BR>
+ * The downloaders report progress many times per second,the tasks are only
+ * collected here and one batched event is sent by a single thread in every
+ * interval.<BR>
+ * Before it is started,the events are sent at once.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+final class UpdateDispatcher {
+
+	private final Set<DownloadTask> pendingTasks = ConcurrentHashMap.newKeySet();
+
+	private final Consumer<DownloadTask[]> consumer;
+
+	private volatile ScheduledExecutorService executorService;
+
+	private Logger logger = LogUtil.getLogger(this.getClass());
+
+	/**
+	 * @param consumer the receiver of the batched tasks.
+	 */
+	UpdateDispatcher(Consumer<DownloadTask[]> consumer) {
+		super();
+		this.consumer = consumer;
+	}
+
+	/**
+	 * Start the dispatcher thread.<BR>
+	 *
+	 * @param interval the time in milliseconds between two events.
+	 */
+	synchronized void start(long interval) {
+		if (null != this.executorService) {
+			return;
+		}
+
+		this.executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "download update dispatcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		this.executorService.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop the dispatcher thread and send the left events.<BR>
+	 */
+	void stop() {
+		synchronized (this) {
+			if (null != this.executorService) {
+				this.executorService.shutdownNow();
+				this.executorService = null;
+			}
+		}
+
+		this.flush();
+	}
+
+	/**
+	 * Collect the updated tasks.<BR>
+	 *
+	 * @param downloadTasks
+	 */
+	void post(DownloadTask... downloadTasks) {
+
+		if (null == this.executorService) {
+			this.consumer.accept(downloadTasks);
+			return;
+		}
+
+		for (DownloadTask downloadTask : downloadTasks) {
+			this.pendingTasks.add(downloadTask);
+		}
+	}
+
+	/**
+	 * Send the collected tasks in one event.<BR>
+	 */
+	private void flush() {
+
+		if (this.pendingTasks.isEmpty()) {
+			return;
+		}
+
+		List<DownloadTask> taskList = new ArrayList<>(this.pendingTasks.size());
+
+		for (Iterator<DownloadTask> iterator = this.pendingTasks.iterator(); iterator.hasNext();) {
+			taskList.add(iterator.next());
+			iterator.remove();
+		}
+
+		try {
+			this.consumer.accept(taskList.toArray(new DownloadTask[taskList.size()]));
+		} catch (Exception e) {
+			this.logger.error("dispatch the update event", e);
+		}
+	}
+}
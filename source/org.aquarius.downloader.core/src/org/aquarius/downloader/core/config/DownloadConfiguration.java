@@ -35,6 +35,20 @@ public final class DownloadConfiguration extends AbstractStoreableConfiguration
 
 	public static final int DoubleClickAction_OpenFolder = 3;
 
+	public static final int SyncPolicy_None = 0;
+
+	public static final int SyncPolicy_SegmentFinish = 1;
+
+	public static final int SyncPolicy_AutoSave = 2;
+
+	public static final int DownloadEngine_ThreadPool = 0;
+
+	public static final int DownloadEngine_VirtualThread = 1;
+
+	public static final int HlsMergeMode_Builtin = 0;
+
+	public static final int HlsMergeMode_Ffmpeg = 1;
+
 	public static final String Key_DefaultDownloadFolder = DownloadConfiguration.class.getName() + "Key.DefaultDownloadFolder";
 
 	public static final String Key_FFmpegFile = DownloadConfiguration.class.getName() + "Key.FfmpegFile";
@@ -81,6 +95,12 @@ public final class DownloadConfiguration extends AbstractStoreableConfiguration
 
 	public static final String Key_AutoStartDownloading = DownloadConfiguration.class.getName() + "Key.AutoStartDownloading";
 
+	public static final String Key_SyncPolicy = DownloadConfiguration.class.getName() + "Key.SyncPolicy";
+
+	public static final String Key_DownloadEngine = DownloadConfiguration.class.getName() + "Key.DownloadEngine";
+
+	public static final String Key_HlsMergeMode = DownloadConfiguration.class.getName() + "Key.HlsMergeMode";
+
 	public static final int DuplicatedOverWriteExistFile = 1;
 
 	public static final int DuplicatedAutoRenameFile = 2;
@@ -264,6 +284,9 @@ public final class DownloadConfiguration extends AbstractStoreableConfiguration
 		storeService.setDefault(Key_SegmentSize, 200);
 
 		storeService.setDefault(Key_AutoSavePeriod, 60);
+		storeService.setDefault(Key_SyncPolicy, SyncPolicy_AutoSave);
+		storeService.setDefault(Key_DownloadEngine, DownloadEngine_ThreadPool);
+		storeService.setDefault(Key_HlsMergeMode, HlsMergeMode_Builtin);
 		storeService.setDefault(Key_RetryCount, 5);
 
 		storeService.setDefault(Key_DiskLeftSpace, 2);
@@ -450,6 +473,73 @@ public final class DownloadConfiguration extends AbstractStoreableConfiguration
 		}
 	}
 
+	/**
+	 * Return when the downloaded contents should be forced to the disk.<BR>
+	 *
+	 * @see #SyncPolicy_None
+	 * @see #SyncPolicy_SegmentFinish
+	 * @see #SyncPolicy_AutoSave
+	 *
+	 * @return the syncPolicy
+	 */
+	public int getSyncPolicy() {
+		return this.getStoreService().getInt(Key_SyncPolicy);
+	}
+
+	/**
+	 * @param syncPolicy the syncPolicy to set
+	 */
+	public void setSyncPolicy(int syncPolicy) {
+		if (ArrayUtils.contains(new int[] { SyncPolicy_None, SyncPolicy_SegmentFinish, SyncPolicy_AutoSave }, syncPolicy)) {
+			this.getStoreService().setValue(Key_SyncPolicy, syncPolicy);
+		}
+	}
+
+	/**
+	 * Return which engine runs the downloaders.<BR>
+	 * It takes effect after restart.<BR>
+	 *
+	 * @see #DownloadEngine_ThreadPool
+	 * @see #DownloadEngine_VirtualThread
+	 *
+	 * @return the downloadEngine
+	 */
+	public int getDownloadEngine() {
+		return this.getStoreService().getInt(Key_DownloadEngine);
+	}
+
+	/**
+	 * @param downloadEngine the downloadEngine to set
+	 */
+	public void setDownloadEngine(int downloadEngine) {
+		if (ArrayUtils.contains(new int[] { DownloadEngine_ThreadPool, DownloadEngine_VirtualThread }, downloadEngine)) {
+			this.getStoreService().setValue(Key_DownloadEngine, downloadEngine);
+		}
+	}
+
+	/**
+	 * Return how the hls segments are merged.<BR>
+	 * The builtin mode concatenates the ts files while downloading,the ffmpeg mode
+	 * runs the merge command after the task is finished.<BR>
+	 *
+	 * @see #HlsMergeMode_Builtin
+	 * @see #HlsMergeMode_Ffmpeg
+	 *
+	 * @return the hlsMergeMode
+	 */
+	public int getHlsMergeMode() {
+		return this.getStoreService().getInt(Key_HlsMergeMode);
+	}
+
+	/**
+	 * @param hlsMergeMode the hlsMergeMode to set
+	 */
+	public void setHlsMergeMode(int hlsMergeMode) {
+		if (ArrayUtils.contains(new int[] { HlsMergeMode_Builtin, HlsMergeMode_Ffmpeg }, hlsMergeMode)) {
+			this.getStoreService().setValue(Key_HlsMergeMode, hlsMergeMode);
+		}
+	}
+
 	/**
 	 * @return the ffmepg merge command
 	 */
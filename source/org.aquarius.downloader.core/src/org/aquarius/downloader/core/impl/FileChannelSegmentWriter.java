@@ -0,0 +1,118 @@
+/**
+ *
+ */
+package org.aquarius.downloader.core.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.aquarius.downloader.core.DownloadTask;
+import org.aquarius.downloader.core.spi.AbstractSegmentWriter;
+import org.aquarius.util.AssertUtil;
+
+/**
+ * Segment writer based on a positional file channel.<BR>
+ * The channel is opened once for a task and shared by all the downloaders,the
+ * contents are written to the page cache and only forced to the disk when
+ * {@link #sync()} is invoked.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class FileChannelSegmentWriter extends AbstractSegmentWriter {
+
+	private final RandomAccessFile accessFile;
+
+	private final FileChannel fileChannel;
+
+	private volatile boolean dirty = false;
+
+	/**
+	 * Open the target file of the task and set the length to the remote file
+	 * length.<BR>
+	 *
+	 * @param downloadTask
+	 * @throws IOException
+	 */
+	public FileChannelSegmentWriter(DownloadTask downloadTask) throws IOException {
+		super(downloadTask);
+
+		File file = downloadTask.getFile();
+
+		if (file.exists()) {
+			AssertUtil.assertTrue(file.isFile(), "The target '" + file.getAbsolutePath() + "' should be file.");
+		} else {
+			file.createNewFile();
+		}
+
+		this.accessFile = new RandomAccessFile(file, "rw");
+
+		try {
+			long remoteFileLength = downloadTask.getRemoteFileLength();
+
+			if (this.accessFile.length() != remoteFileLength) {
+				this.accessFile.setLength(remoteFileLength);
+			}
+		} catch (IOException e) {
+			this.accessFile.close();
+			throw e;
+		}
+
+		this.fileChannel = this.accessFile.getChannel();
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public int write(long position, ByteBuffer buffer) throws IOException {
+		int length = 0;
+
+		while (buffer.hasRemaining()) {
+			length = length + this.fileChannel.write(buffer, position + length);
+		}
+
+		this.dirty = true;
+
+		return length;
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public void sync() throws IOException {
+		if (this.dirty && this.fileChannel.isOpen()) {
+			this.dirty = false;
+			this.fileChannel.force(false);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public boolean isOpen() {
+		return this.fileChannel.isOpen();
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!this.fileChannel.isOpen()) {
+			return;
+		}
+
+		try {
+			this.sync();
+		} finally {
+			this.accessFile.close();
+		}
+	}
+
+}
@@ -0,0 +1,612 @@
+/**
+ *
+ */
+package org.aquarius.downloader.core.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.aquarius.downloader.core.DownloadTask;
+import org.aquarius.downloader.core.model.Segment;
+import org.aquarius.log.LogUtil;
+import org.aquarius.util.StringUtil;
+import org.aquarius.util.SystemUtil;
+import org.aquarius.util.io.FileUtil;
+import org.slf4j.Logger;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.serializer.SerializeConfig;
+import com.alibaba.fastjson.serializer.SimplePropertyPreFilter;
+
+/**
+ * Store tasks with a snapshot file and append only journals.<BR>
+ * Every save only appends the changed tasks and segments to the journal,the
+ * journals are compacted into the snapshot by a background thread.<BR>
+ * The snapshot has the same format as {@link JsonTaskStoreService},so the old
+ * store file can be loaded directly.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class JournalTaskStoreService extends JsonTaskStoreService {
+
+	private static final String JournalSuffix = ".journal.";
+
+	private static final String SegmentListField = "segmentList";
+
+	private static final String OperationKey = "o";
+
+	private static final String IdKey = "i";
+
+	private static final String ValueKey = "v";
+
+	private static final String OperationPut = "p";
+
+	private static final String OperationSegment = "s";
+
+	private static final String OperationDelete = "d";
+
+	private static final String OperationOrder = "o";
+
+	private static final long MaxJournalSize = 8 * SystemUtil.DiskSizeInM;
+
+	private final SerializeConfig serializeConfig = new SerializeConfig(true);
+
+	private final SimplePropertyPreFilter headerFilter = new SimplePropertyPreFilter();
+
+	private final Map<DownloadTask, TaskRecord> recordMap = new IdentityHashMap<>();
+
+	private final Object compactLock = new Object();
+
+	private final ExecutorService compactExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "compact download tasks");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private List<String> lastIdList = new ArrayList<>();
+
+	private FileOutputStream journalStream;
+
+	private int journalGeneration;
+
+	private long journalSize;
+
+	private Logger logger = LogUtil.getLogger(this.getClass());
+
+	/**
+	 * @param jsonFile the snapshot file.
+	 */
+	public JournalTaskStoreService(File jsonFile) {
+		super(jsonFile);
+
+		this.headerFilter.getExcludes().add(SegmentListField);
+	}
+
+	/**
+	 * {@inheritDoc}}<BR>
+	 * The snapshot is loaded and the journals are replayed.<BR>
+	 */
+	@Override
+	public synchronized List<DownloadTask> loadTasks() {
+
+		List<DownloadTask> downloadTaskList = new ArrayList<>();
+
+		synchronized (this.compactLock) {
+
+			List<File> journalFiles = this.findJournalFiles();
+
+			try {
+				JSONArray taskArray = this.replay(journalFiles);
+				downloadTaskList.addAll(JSON.parseArray(taskArray.toJSONString(), DownloadTask.class, new ParserConfig(true)));
+			} catch (Exception e) {
+				FileUtil.autoRenameFileForBackup(this.getJsonFile().getAbsolutePath());
+				this.logger.error("Load the file '" + this.getJsonFile().getAbsolutePath() + "' error,so a new download list will be created.", e);
+			}
+
+			if (!journalFiles.isEmpty()) {
+				this.journalGeneration = parseGeneration(journalFiles.get(journalFiles.size() - 1));
+			}
+		}
+
+		this.recordMap.clear();
+		this.lastIdList.clear();
+
+		for (DownloadTask downloadTask : downloadTaskList) {
+
+			downloadTask.restore();
+
+			if (downloadTask.hasId()) {
+				this.recordMap.put(downloadTask, new TaskRecord(downloadTask, this.toHeaderJson(downloadTask)));
+				this.lastIdList.add(downloadTask.getId());
+			}
+			// The tasks from the old store file have no id,they will be written to the
+			// journal by the next save.
+		}
+
+		this.compactInBackground();
+
+		return downloadTaskList;
+	}
+
+	/**
+	 * {@inheritDoc}}<BR>
+	 * Only the differences from the last save are appended to the journal.<BR>
+	 */
+	@Override
+	public synchronized void doSaveTasks(List<DownloadTask> downloadTaskList) {
+
+		List<DownloadTask> taskList = new ArrayList<>(downloadTaskList);
+
+		StringBuilder journal = new StringBuilder();
+
+		Map<DownloadTask, TaskRecord> newRecordMap = new IdentityHashMap<>();
+		List<String> idList = new ArrayList<>(taskList.size());
+
+		for (DownloadTask downloadTask : taskList) {
+			String id = downloadTask.getId();
+
+			if (newRecordMap.containsKey(downloadTask)) {
+				continue;
+			}
+
+			idList.add(id);
+
+			String headerJson = this.toHeaderJson(downloadTask);
+			TaskRecord taskRecord = this.recordMap.remove(downloadTask);
+
+			if ((null == taskRecord) || !taskRecord.isSameStructure(downloadTask, headerJson)) {
+				this.appendPut(journal, downloadTask);
+				taskRecord = new TaskRecord(downloadTask, headerJson);
+			} else {
+				taskRecord.appendChangedSegments(journal, downloadTask);
+			}
+
+			newRecordMap.put(downloadTask, taskRecord);
+		}
+
+		for (TaskRecord taskRecord : this.recordMap.values()) {
+			appendDelete(journal, taskRecord.id);
+		}
+
+		if (!idList.equals(this.lastIdList)) {
+			this.appendOrder(journal, idList);
+		}
+
+		try {
+			if (journal.length() > 0) {
+				this.syncContents();
+				this.writeJournal(journal.toString());
+			}
+
+			this.recordMap.clear();
+			this.recordMap.putAll(newRecordMap);
+			this.lastIdList = idList;
+
+		} catch (IOException e) {
+			this.recordMap.clear();
+			this.lastIdList.clear();
+			// Everything will be written again by the next save.
+
+			IOUtils.closeQuietly(this.journalStream);
+			this.journalStream = null;
+			this.markDirty();
+
+			this.logger.error("save the journal of '" + this.getJsonFile().getAbsolutePath() + "' error,so next save action will be retried.", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}}<BR>
+	 * The imported tasks get new ids.<BR>
+	 */
+	@Override
+	public List<DownloadTask> parseTasks(InputStream inputStream) throws IOException {
+		List<DownloadTask> downloadTaskList = super.parseTasks(inputStream);
+
+		for (DownloadTask downloadTask : downloadTaskList) {
+			downloadTask.clearId();
+		}
+
+		return downloadTaskList;
+	}
+
+	/**
+	 * Append the journal and force it to the disk.<BR>
+	 * If the journal is too large,a new journal is used and the old ones are
+	 * compacted.<BR>
+	 *
+	 * @param contents
+	 * @throws IOException
+	 */
+	private void writeJournal(String contents) throws IOException {
+
+		if (null == this.journalStream) {
+			this.journalGeneration++;
+			this.journalStream = new FileOutputStream(this.getJournalFile(this.journalGeneration), true);
+			this.journalSize = 0;
+		}
+
+		byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+
+		this.journalStream.write(bytes);
+		this.journalStream.getFD().sync();
+
+		this.journalSize = this.journalSize + bytes.length;
+
+		if (this.journalSize > MaxJournalSize) {
+			IOUtils.closeQuietly(this.journalStream);
+			this.journalStream = null;
+
+			this.compactInBackground();
+		}
+	}
+
+	/**
+	 * Merge the closed journals into the snapshot by the background thread.<BR>
+	 */
+	private void compactInBackground() {
+
+		int generation = (null == this.journalStream) ? this.journalGeneration : this.journalGeneration - 1;
+
+		this.compactExecutor.submit(() -> {
+			try {
+				this.compact(generation);
+			} catch (Exception e) {
+				this.logger.error("compact the journal of '" + this.getJsonFile().getAbsolutePath() + "' error", e);
+			}
+		});
+	}
+
+	/**
+	 * Replay the journals up to the generation and write a new snapshot.<BR>
+	 * The journals are only deleted after the snapshot was replaced,replaying a
+	 * journal twice gives the same result.<BR>
+	 *
+	 * @param maxGeneration
+	 * @throws IOException
+	 */
+	private void compact(int maxGeneration) throws IOException {
+
+		synchronized (this.compactLock) {
+			List<File> journalFiles = new ArrayList<>();
+
+			for (File journalFile : this.findJournalFiles()) {
+				if (parseGeneration(journalFile) <= maxGeneration) {
+					journalFiles.add(journalFile);
+				}
+			}
+
+			if (journalFiles.isEmpty()) {
+				return;
+			}
+
+			JSONArray taskArray = this.replay(journalFiles);
+			FileUtil.writeAtomically(this.getJsonFile(), taskArray.toJSONString(), StringUtil.CODEING_UTF8);
+
+			for (File journalFile : journalFiles) {
+				FileUtils.deleteQuietly(journalFile);
+			}
+		}
+	}
+
+	/**
+	 * Load the snapshot and apply the journals.<BR>
+	 *
+	 * @param journalFiles
+	 * @return
+	 * @throws IOException
+	 */
+	private JSONArray replay(List<File> journalFiles) throws IOException {
+
+		Map<String, JSONObject> taskMap = new LinkedHashMap<>();
+
+		File snapshotFile = this.getJsonFile();
+		if (snapshotFile.exists()) {
+			String json = FileUtils.readFileToString(snapshotFile, StringUtil.CODEING_UTF8);
+			JSONArray snapshotArray = JSON.parseArray(json);
+
+			if (null != snapshotArray) {
+				for (int i = 0; i < snapshotArray.size(); i++) {
+					JSONObject taskObject = snapshotArray.getJSONObject(i);
+					String id = taskObject.getString("id");
+
+					if (StringUtils.isBlank(id)) {
+						id = "_" + i;
+					}
+
+					taskMap.put(id, taskObject);
+				}
+			}
+		}
+
+		for (File journalFile : journalFiles) {
+			this.replay(journalFile, taskMap);
+		}
+
+		JSONArray taskArray = new JSONArray();
+		taskArray.addAll(taskMap.values());
+
+		return taskArray;
+	}
+
+	/**
+	 * Apply a journal file.<BR>
+	 * A broken line can only be the last one of a journal if the process was
+	 * killed while writing,so it is skipped.<BR>
+	 *
+	 * @param journalFile
+	 * @param taskMap
+	 * @throws IOException
+	 */
+	private void replay(File journalFile, Map<String, JSONObject> taskMap) throws IOException {
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+
+			String line;
+			while (null != (line = reader.readLine())) {
+
+				if (StringUtils.isBlank(line)) {
+					continue;
+				}
+
+				JSONObject entry;
+
+				try {
+					entry = JSON.parseObject(line);
+				} catch (Exception e) {
+					this.logger.warn("skip the broken journal line of " + journalFile.getName());
+					continue;
+				}
+
+				String operation = entry.getString(OperationKey);
+				String id = entry.getString(IdKey);
+
+				if (OperationPut.equals(operation)) {
+					taskMap.put(id, entry.getJSONObject(ValueKey));
+				} else if (OperationDelete.equals(operation)) {
+					taskMap.remove(id);
+				} else if (OperationSegment.equals(operation)) {
+					applySegments(taskMap.get(id), entry.getJSONArray(ValueKey));
+				} else if (OperationOrder.equals(operation)) {
+					applyOrder(taskMap, entry.getJSONArray(ValueKey));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replace the changed segments of a task.<BR>
+	 *
+	 * @param taskObject
+	 * @param segmentArray
+	 */
+	private static void applySegments(JSONObject taskObject, JSONArray segmentArray) {
+		if (null == taskObject) {
+			return;
+		}
+
+		JSONArray segmentList = taskObject.getJSONArray(SegmentListField);
+
+		for (int i = 0; i < segmentArray.size(); i++) {
+			JSONObject segmentEntry = segmentArray.getJSONObject(i);
+			int index = segmentEntry.getIntValue(IdKey);
+
+			if ((null != segmentList) && (index < segmentList.size())) {
+				segmentList.set(index, segmentEntry.getJSONObject(ValueKey));
+			}
+		}
+	}
+
+	/**
+	 * Sort the tasks by the id list,the tasks not in the list are removed.<BR>
+	 *
+	 * @param taskMap
+	 * @param idArray
+	 */
+	private static void applyOrder(Map<String, JSONObject> taskMap, JSONArray idArray) {
+		Map<String, JSONObject> orderedMap = new LinkedHashMap<>();
+
+		for (int i = 0; i < idArray.size(); i++) {
+			String id = idArray.getString(i);
+			JSONObject taskObject = taskMap.get(id);
+
+			if (null != taskObject) {
+				orderedMap.put(id, taskObject);
+			}
+		}
+
+		taskMap.clear();
+		taskMap.putAll(orderedMap);
+	}
+
+	/**
+	 * @param journal
+	 * @param downloadTask
+	 */
+	private void appendPut(StringBuilder journal, DownloadTask downloadTask) {
+		journal.append("{\"").append(OperationKey).append("\":\"").append(OperationPut).append("\",\"").append(IdKey).append("\":\"")
+				.append(downloadTask.getId()).append("\",\"").append(ValueKey).append("\":");
+		journal.append(JSON.toJSONString(downloadTask, this.serializeConfig));
+		journal.append("}\n");
+	}
+
+	/**
+	 * @param journal
+	 * @param id
+	 */
+	private static void appendDelete(StringBuilder journal, String id) {
+		journal.append("{\"").append(OperationKey).append("\":\"").append(OperationDelete).append("\",\"").append(IdKey).append("\":\"").append(id)
+				.append("\"}\n");
+	}
+
+	/**
+	 * @param journal
+	 * @param idList
+	 */
+	private static void appendOrder(StringBuilder journal, List<String> idList) {
+		journal.append("{\"").append(OperationKey).append("\":\"").append(OperationOrder).append("\",\"").append(ValueKey).append("\":");
+		journal.append(JSON.toJSONString(idList));
+		journal.append("}\n");
+	}
+
+	/**
+	 * Return the json of the task without segments.<BR>
+	 *
+	 * @param downloadTask
+	 * @return
+	 */
+	private String toHeaderJson(DownloadTask downloadTask) {
+		return JSON.toJSONString(downloadTask, this.serializeConfig, this.headerFilter);
+	}
+
+	/**
+	 * @return
+	 */
+	private List<File> findJournalFiles() {
+		File folder = this.getJsonFile().getAbsoluteFile().getParentFile();
+		String prefix = this.getJsonFile().getName() + JournalSuffix;
+
+		File[] files = folder.listFiles((dir, name) -> name.startsWith(prefix));
+
+		if (null == files) {
+			return new ArrayList<>();
+		}
+
+		List<File> fileList = new ArrayList<>(Arrays.asList(files));
+		fileList.sort((file1, file2) -> Integer.compare(parseGeneration(file1), parseGeneration(file2)));
+
+		return fileList;
+	}
+
+	/**
+	 * @param generation
+	 * @return
+	 */
+	private File getJournalFile(int generation) {
+		return new File(this.getJsonFile().getAbsolutePath() + JournalSuffix + generation);
+	}
+
+	/**
+	 * @param journalFile
+	 * @return
+	 */
+	private static int parseGeneration(File journalFile) {
+		return NumberUtils.toInt(StringUtils.substringAfterLast(journalFile.getName(), "."), 0);
+	}
+
+	/**
+	 * The saved state of a task.<BR>
+	 * Only the values to detect changes are kept.<BR>
+	 */
+	private final class TaskRecord {
+
+		private final String id;
+
+		private final String headerJson;
+
+		private final long[] positions;
+
+		private final long[] ends;
+
+		private final boolean[] finishes;
+
+		/**
+		 * @param downloadTask
+		 * @param headerJson
+		 */
+		private TaskRecord(DownloadTask downloadTask, String headerJson) {
+			this.id = downloadTask.getId();
+			this.headerJson = headerJson;
+
+			List<Segment> segmentList = downloadTask.getSegmentList();
+			int size = segmentList.size();
+
+			this.positions = new long[size];
+			this.ends = new long[size];
+			this.finishes = new boolean[size];
+
+			for (int i = 0; i < size; i++) {
+				this.update(i, segmentList.get(i));
+			}
+		}
+
+		/**
+		 * @param index
+		 * @param segment
+		 */
+		private void update(int index, Segment segment) {
+			this.positions[index] = segment.getDownloadedLength();
+			this.ends[index] = segment.getEnd();
+			this.finishes[index] = segment.isFinished();
+		}
+
+		/**
+		 * Return whether only the segment positions may be changed.<BR>
+		 *
+		 * @param downloadTask
+		 * @param newHeaderJson
+		 * @return
+		 */
+		private boolean isSameStructure(DownloadTask downloadTask, String newHeaderJson) {
+			return (this.positions.length == downloadTask.getSegmentList().size()) && StringUtils.equals(this.headerJson, newHeaderJson);
+		}
+
+		/**
+		 * Append the changed segments as one journal line.<BR>
+		 *
+		 * @param journal
+		 * @param downloadTask
+		 */
+		private void appendChangedSegments(StringBuilder journal, DownloadTask downloadTask) {
+			List<Segment> segmentList = downloadTask.getSegmentList();
+
+			StringBuilder segmentJournal = new StringBuilder();
+
+			for (int i = 0; (i < segmentList.size()) && (i < this.positions.length); i++) {
+				Segment segment = segmentList.get(i);
+
+				if ((this.positions[i] == segment.getDownloadedLength()) && (this.ends[i] == segment.getEnd())
+						&& (this.finishes[i] == segment.isFinished())) {
+					continue;
+				}
+
+				this.update(i, segment);
+
+				if (segmentJournal.length() > 0) {
+					segmentJournal.append(',');
+				}
+
+				segmentJournal.append("{\"").append(IdKey).append("\":").append(i).append(",\"").append(ValueKey).append("\":");
+				segmentJournal.append(JSON.toJSONString(segment, JournalTaskStoreService.this.serializeConfig));
+				segmentJournal.append('}');
+			}
+
+			if (segmentJournal.length() > 0) {
+				journal.append("{\"").append(OperationKey).append("\":\"").append(OperationSegment).append("\",\"").append(IdKey).append("\":\"")
+						.append(this.id).append("\",\"").append(ValueKey).append("\":[").append(segmentJournal).append("]}\n");
+			}
+		}
+	}
+}
@@ -61,9 +61,12 @@ public class JsonTaskStoreService extends AbstractTaskStoreService {
 		SerializeConfig config = new SerializeConfig(true);
 
 		String json = JSON.toJSONString(downloadTaskList, config, SerializerFeature.PrettyFormat);
+		this.syncContents();
+
 		try {
 			FileUtils.write(this.jsonFile, json, "UTF-8");
 		} catch (IOException e) {
+			this.markDirty();
 			this.logger.error("save the file '" + this.jsonFile.getAbsolutePath() + "' error,so next save action will be retried.");
 		}
 	}
@@ -111,6 +114,13 @@ public class JsonTaskStoreService extends AbstractTaskStoreService {
 		return downloadTaskList;
 	}
 
+	/**
+	 * @return the jsonFile
+	 */
+	protected File getJsonFile() {
+		return this.jsonFile;
+	}
+
 	/**
 	 * {@inheritDoc}}
 	 *
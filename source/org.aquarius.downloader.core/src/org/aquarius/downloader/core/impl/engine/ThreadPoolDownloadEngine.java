@@ -0,0 +1,51 @@
+/**
+ *
+ */
+package org.aquarius.downloader.core.impl.engine;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.aquarius.downloader.core.spi.AbstractDownloadEngine;
+
+/**
+ * Run every worker on a platform thread of a bounded pool.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class ThreadPoolDownloadEngine extends AbstractDownloadEngine {
+
+	public static final String Name = "ThreadPool";
+
+	private static final int DefaultMaxThreadCount = 120;
+
+	private static final int CheckMaxThreadCount = 40;
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	protected ExecutorService createExecutorService() {
+		return new ThreadPoolExecutor(0, DefaultMaxThreadCount, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	protected int getMaxActiveCount() {
+		return CheckMaxThreadCount;
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public String getName() {
+		return Name;
+	}
+
+}
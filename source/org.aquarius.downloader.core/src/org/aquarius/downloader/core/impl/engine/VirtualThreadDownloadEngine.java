@@ -0,0 +1,78 @@
+/**
+ *
+ */
+package org.aquarius.downloader.core.impl.engine;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.aquarius.downloader.core.spi.AbstractDownloadEngine;
+
+/**
+ * Run every worker on a virtual thread.<BR>
+ * A blocked connection only costs a virtual thread,so hundreds of hls segments
+ * can be fetched at the same time.<BR>
+ * Virtual threads are available since java 21,the executor is looked up by
+ * reflection so this bundle can still run on the old runtime.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class VirtualThreadDownloadEngine extends AbstractDownloadEngine {
+
+	public static final String Name = "VirtualThread";
+
+	private static final int MaxActiveCount = 1000;
+
+	private static final Method FactoryMethod = findFactoryMethod();
+
+	/**
+	 * @return
+	 */
+	private static Method findFactoryMethod() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Return whether the runtime supports virtual threads.<BR>
+	 *
+	 * @return
+	 */
+	public static boolean isSupported() {
+		return null != FactoryMethod;
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	protected ExecutorService createExecutorService() {
+		try {
+			return (ExecutorService) FactoryMethod.invoke(null);
+		} catch (Exception e) {
+			throw new UnsupportedOperationException("Virtual threads are not supported by the runtime.", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	protected int getMaxActiveCount() {
+		return MaxActiveCount;
+	}
+
+	/**
+	 * {@inheritDoc}}
+	 */
+	@Override
+	public String getName() {
+		return Name;
+	}
+
+}
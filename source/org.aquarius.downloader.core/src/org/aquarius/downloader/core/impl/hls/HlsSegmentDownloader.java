@@ -7,10 +7,18 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.GeneralSecurityException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.crypto.Cipher;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -24,6 +32,8 @@ import org.aquarius.downloader.core.spi.AbstractProgressListener;
 import org.aquarius.downloader.core.spi.AbstractSegmentDownloader;
 import org.aquarius.util.StringUtil;
 import org.aquarius.util.SystemUtil;
+import org.aquarius.util.io.ByteBufferPool;
+import org.aquarius.util.net.HttpConnectionPool;
 import org.aquarius.util.net.HttpUtil;
 import org.aquarius.util.net.UrlUtil;
 import org.aquarius.util.security.SecretKey;
@@ -39,6 +49,12 @@ public class HlsSegmentDownloader extends AbstractSegmentDownloader {
 
 	private static final int MaxRetryCount = 200;
 
+	private static final int ChunkSize = 64 * SystemUtil.DiskSizeInK;
+
+	private static final int MaxIdleBufferCount = 16;
+
+	private static final ByteBufferPool BufferPool = new ByteBufferPool(ChunkSize, MaxIdleBufferCount);
+
 	/**
 	 * @param downloadTask
 	 */
@@ -52,14 +68,32 @@ public class HlsSegmentDownloader extends AbstractSegmentDownloader {
 	@Override
 	protected void finishMovie(DownloadTask downloadTask) {
 
+		List<Segment> segmentList = new ArrayList<>(downloadTask.getSegmentList());
+		// The segments are cleared by the super method.
+
 		super.finishMovie(downloadTask);
 
 		DownloadConfiguration configuration = DownloadManager.getInstance().getConfiguration();
 
-		if (!configuration.isMergeHls()) {
+		if (!configuration.isMergeHls() || segmentList.isEmpty()) {
 			return;
 		}
 
+		if (configuration.getHlsMergeMode() == DownloadConfiguration.HlsMergeMode_Builtin) {
+			File mergedFile = TsMerger.getMerger(downloadTask).finish(segmentList);
+
+			if (null != mergedFile) {
+				if (configuration.isDeleteMergedHls()) {
+					FileUtils.deleteQuietly(downloadTask.getFile());
+				}
+
+				return;
+			}
+
+			this.logger.warn("The ts files of " + downloadTask.getTitle() + " can't be merged,so ffmpeg is used.");
+		}
+		// The ffmpeg command is the fallback of the builtin merger.
+
 		try {
 
 			String ffmpeg = configuration.getFfmepgFile();
@@ -130,12 +164,12 @@ public class HlsSegmentDownloader extends AbstractSegmentDownloader {
 		URL url = new URL(urlString);
 		URLConnection urlConnection = null;
 		InputStream inputStream = null;
-		OutputStream fileOutputStream = null;
-		long fileLength = 0;
+		FileOutputStream fileOutputStream = null;
+		boolean completed = false;
 
 		try {
 
-			urlConnection = url.openConnection();
+			urlConnection = HttpConnectionPool.openConnection(url);
 
 			urlConnection.setConnectTimeout(DefaultTimeOut);
 
@@ -149,42 +183,164 @@ public class HlsSegmentDownloader extends AbstractSegmentDownloader {
 				urlConnection.setRequestProperty(HttpUtil.Referer, downloadTask.getRefererUrl());
 			}
 
-			inputStream = urlConnection.getInputStream();
-			fileOutputStream = new FileOutputStream(segmentFile);
-
-			if (StringUtils.isBlank(downloadTask.getSecretKeyString())) {
-				IOUtils.copy(inputStream, fileOutputStream);
-			} else {
+			Cipher cipher = null;
 
+			if (StringUtils.isNotBlank(downloadTask.getSecretKeyString())) {
 				try {
 					SecretKey secretKey = downloadTask.getSecretKey();
-
-					byte[] bytes = IOUtils.toByteArray(inputStream);
-					byte[] newBytes = SecurityUtil.decryptByAES(bytes, secretKey.key, secretKey.iv);
-					IOUtils.write(newBytes, fileOutputStream);
-
-					fileLength = bytes.length;
-
-				} catch (Exception e) {
+					cipher = SecurityUtil.createAESCipher(secretKey.key, secretKey.iv, Cipher.DECRYPT_MODE);
+				} catch (GeneralSecurityException e) {
 					this.logger.error("decrypt data ", e);
-					throw new RuntimeException(e);
+					throw new IOException(e);
 				}
 			}
+
+			inputStream = urlConnection.getInputStream();
+			fileOutputStream = new FileOutputStream(segmentFile);
+
+			transfer(downloadTask, listener, inputStream, fileOutputStream.getChannel(), cipher);
+			completed = true;
+
 		} finally {
 			IOUtils.closeQuietly(fileOutputStream);
-			IOUtils.closeQuietly(inputStream);
-			IOUtils.close(urlConnection);
 
+			if (completed) {
+				HttpConnectionPool.release(urlConnection, inputStream);
+			} else {
+				HttpConnectionPool.abort(urlConnection, inputStream);
+			}
+			// The socket is kept alive for the next ts file.
 		}
 
 		// For hls ,the segment count is marked as the length of the file.
-		downloadTask.addDownloadedLength(fileLength, 1);
+		// The bytes have been counted for the speed while transferring.
+		downloadTask.addDownloadedLength(0, 1);
 		segment.addDownloadedLength(this, 1);
 
 		segment.setFinished(this, true);
 
 		listener.onUpdate(downloadTask);
 
+		DownloadConfiguration configuration = DownloadManager.getInstance().getConfiguration();
+
+		if (configuration.isMergeHls() && (configuration.getHlsMergeMode() == DownloadConfiguration.HlsMergeMode_Builtin)) {
+			TsMerger.getMerger(downloadTask).mergeFinishedSegments(downloadTask.getSegmentList());
+		}
+	}
+
+	/**
+	 * Copy the contents to the file by pooled buffers and decrypt them on the fly
+	 * if the cipher is specified.<BR>
+	 * The read bytes are reported for the speed while the segment is still in
+	 * flight.<BR>
+	 *
+	 * @param downloadTask
+	 * @param listener
+	 * @param inputStream
+	 * @param fileChannel
+	 * @param cipher
+	 * @return how many bytes are read.
+	 * @throws IOException
+	 */
+	private long transfer(DownloadTask downloadTask, AbstractProgressListener listener, InputStream inputStream, FileChannel fileChannel, Cipher cipher)
+			throws IOException {
+
+		ReadableByteChannel inputChannel = Channels.newChannel(inputStream);
+
+		ByteBuffer buffer = BufferPool.acquire();
+		ByteBuffer decryptBuffer = (null == cipher) ? null : BufferPool.acquire();
+
+		long totalLength = 0;
+		int unreportedLength = 0;
+		int length;
+
+		try {
+			resetBuffer(buffer, cipher);
+
+			while ((length = inputChannel.read(buffer)) != -1) {
+
+				totalLength = totalLength + length;
+				unreportedLength = unreportedLength + length;
+
+				downloadTask.addDownloadedLength(length, 0);
+
+				if (!buffer.hasRemaining()) {
+					writeContents(fileChannel, buffer, decryptBuffer, cipher, false);
+				}
+
+				if (unreportedLength >= ChunkSize) {
+					unreportedLength = 0;
+					listener.onUpdate(downloadTask);
+				}
+			}
+
+			writeContents(fileChannel, buffer, decryptBuffer, cipher, true);
+
+			return totalLength;
+
+		} finally {
+			BufferPool.release(buffer);
+			BufferPool.release(decryptBuffer);
+		}
+	}
+
+	/**
+	 * Write the buffered contents to the file.<BR>
+	 * For encrypted contents,the last block is only decrypted with padding when the
+	 * stream is finished.<BR>
+	 *
+	 * @param fileChannel
+	 * @param buffer
+	 * @param decryptBuffer
+	 * @param cipher
+	 * @param finished
+	 * @throws IOException
+	 */
+	private void writeContents(FileChannel fileChannel, ByteBuffer buffer, ByteBuffer decryptBuffer, Cipher cipher, boolean finished) throws IOException {
+
+		buffer.flip();
+
+		ByteBuffer outputBuffer = buffer;
+
+		if (null != cipher) {
+			decryptBuffer.clear();
+
+			try {
+				if (finished) {
+					cipher.doFinal(buffer, decryptBuffer);
+				} else {
+					cipher.update(buffer, decryptBuffer);
+				}
+			} catch (GeneralSecurityException e) {
+				this.logger.error("decrypt data ", e);
+				throw new IOException(e);
+			}
+
+			decryptBuffer.flip();
+			outputBuffer = decryptBuffer;
+		}
+
+		while (outputBuffer.hasRemaining()) {
+			fileChannel.write(outputBuffer);
+		}
+
+		resetBuffer(buffer, cipher);
+	}
+
+	/**
+	 * Clear the buffer for reading.<BR>
+	 * One block is reserved for decryption,so the decrypted contents always fit in
+	 * a buffer of the same size.<BR>
+	 *
+	 * @param buffer
+	 * @param cipher
+	 */
+	private static void resetBuffer(ByteBuffer buffer, Cipher cipher) {
+		buffer.clear();
+
+		if (null != cipher) {
+			buffer.limit(buffer.capacity() - cipher.getBlockSize());
+		}
 	}
 
 	@Override
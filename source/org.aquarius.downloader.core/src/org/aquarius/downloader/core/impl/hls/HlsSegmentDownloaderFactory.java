@@ -210,6 +210,15 @@ public class HlsSegmentDownloaderFactory extends AbstractSegmentDownloaderFactor
 		return secretKey;
 	}
 
+	/**
+	 * {@inheritDoc}}<BR>
+	 * The state of merging ts files is removed.<BR>
+	 */
+	@Override
+	public void clean(DownloadTask downloadTask, boolean deleteFiles) {
+		TsMerger.discard(downloadTask, deleteFiles);
+	}
+
 	/**
 	 * {@inheritDoc}}
 	 */
@@ -0,0 +1,241 @@
+/**
+ *
+ */
+package org.aquarius.downloader.core.impl.hls;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.io.FileUtils;
+import org.aquarius.downloader.core.DownloadTask;
+import org.aquarius.downloader.core.model.Segment;
+import org.aquarius.log.LogUtil;
+import org.slf4j.Logger;
+
+/**
+ * Concatenate the ts files of a hls task into one file.<BR>
+ * MPEG-TS packets can be joined directly,so the files are appended by
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * without copying to the heap.<BR>
+ * The finished segments at the head of the list are merged while the task is
+ * downloading,so only the last few files are left when the task is
+ * finished.<BR>
+ * The merge state is not persisted,after restart or reset the merged file is
+ * rebuilt from the first segment.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+final class TsMerger {
+
+	private static final String MergedSuffix = ".ts";
+
+	private static final String MergingSuffix = ".ts.merging";
+
+	private static final Map<DownloadTask, TsMerger> Mergers = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private final DownloadTask downloadTask;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private int mergedCount = 0;
+
+	private long mergedLength = 0;
+
+	private Segment lastMergedSegment;
+
+	private Logger logger = LogUtil.getLogger(this.getClass());
+
+	/**
+	 * @param downloadTask
+	 */
+	private TsMerger(DownloadTask downloadTask) {
+		super();
+		this.downloadTask = downloadTask;
+	}
+
+	/**
+	 * Return the merger of the task.<BR>
+	 *
+	 * @param downloadTask
+	 * @return
+	 */
+	static TsMerger getMerger(DownloadTask downloadTask) {
+		return Mergers.computeIfAbsent(downloadTask, TsMerger::new);
+	}
+
+	/**
+	 * Remove the merger of the task and its merge state.<BR>
+	 * It is invoked when the task is reset or deleted.<BR>
+	 *
+	 * @param downloadTask
+	 * @param deleteFile   whether the merging file should be deleted.
+	 */
+	static void discard(DownloadTask downloadTask, boolean deleteFile) {
+		TsMerger merger = Mergers.remove(downloadTask);
+
+		if (null == merger) {
+			if (deleteFile) {
+				FileUtils.deleteQuietly(getMergingFile(downloadTask));
+			}
+
+			return;
+		}
+
+		merger.lock.lock();
+
+		try {
+			merger.reset();
+
+			if (deleteFile) {
+				FileUtils.deleteQuietly(getMergingFile(downloadTask));
+			}
+		} finally {
+			merger.lock.unlock();
+		}
+	}
+
+	/**
+	 * Merge the finished segments which follow the merged ones.<BR>
+	 * If another downloader is merging,it returns at once,the segments will be
+	 * merged by the next invocation.<BR>
+	 *
+	 * @param segmentList
+	 */
+	void mergeFinishedSegments(List<Segment> segmentList) {
+
+		if (!this.lock.tryLock()) {
+			return;
+		}
+
+		try {
+			this.doMerge(segmentList);
+		} catch (IOException e) {
+			this.reset();
+			this.logger.error("merge the ts files of " + this.downloadTask.getTitle(), e);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Merge all the left segments and rename the merged file.<BR>
+	 *
+	 * @param segmentList
+	 * @return the merged file or null if some segments can't be merged.
+	 */
+	File finish(List<Segment> segmentList) {
+
+		this.lock.lock();
+
+		try {
+			this.doMerge(segmentList);
+
+			if (this.mergedCount < segmentList.size()) {
+				return null;
+			}
+
+			File targetFile = new File(this.downloadTask.getFile().getAbsolutePath() + MergedSuffix);
+
+			if (targetFile.exists()) {
+				targetFile.delete();
+			}
+
+			if (!this.getMergingFile().renameTo(targetFile)) {
+				return null;
+			}
+
+			Mergers.remove(this.downloadTask);
+
+			return targetFile;
+
+		} catch (IOException e) {
+			this.reset();
+			this.logger.error("merge the ts files of " + this.downloadTask.getTitle(), e);
+
+			return null;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Append the files of the contiguous finished segments.<BR>
+	 * The merged file is truncated to the last merged length first,so the contents
+	 * of an interrupted merge are overwritten.<BR>
+	 *
+	 * @param segmentList
+	 * @throws IOException
+	 */
+	private void doMerge(List<Segment> segmentList) throws IOException {
+
+		if ((this.mergedCount > 0) && ((this.mergedCount > segmentList.size()) || (segmentList.get(this.mergedCount - 1) != this.lastMergedSegment)
+				|| !this.lastMergedSegment.isFinished())) {
+			this.reset();
+		}
+		// The segments were reset or replaced,so the merge state is rebuilt from them.
+
+		if ((this.mergedCount >= segmentList.size()) || !segmentList.get(this.mergedCount).isFinished()) {
+			return;
+		}
+
+		File folder = this.downloadTask.getFile();
+
+		try (RandomAccessFile accessFile = new RandomAccessFile(this.getMergingFile(), "rw"); FileChannel targetChannel = accessFile.getChannel()) {
+
+			targetChannel.truncate(this.mergedLength);
+			targetChannel.position(this.mergedLength);
+
+			while ((this.mergedCount < segmentList.size()) && segmentList.get(this.mergedCount).isFinished()) {
+				Segment segment = segmentList.get(this.mergedCount);
+				File segmentFile = new File(folder, segment.getFileName());
+
+				try (FileInputStream inputStream = new FileInputStream(segmentFile); FileChannel sourceChannel = inputStream.getChannel()) {
+
+					long size = sourceChannel.size();
+					long position = 0;
+
+					while (position < size) {
+						position = position + sourceChannel.transferTo(position, size - position, targetChannel);
+					}
+
+					this.mergedLength = this.mergedLength + size;
+					this.mergedCount++;
+					this.lastMergedSegment = segment;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Start from the first segment again.<BR>
+	 */
+	private void reset() {
+		this.mergedCount = 0;
+		this.mergedLength = 0;
+		this.lastMergedSegment = null;
+	}
+
+	/**
+	 * @return
+	 */
+	private File getMergingFile() {
+		return getMergingFile(this.downloadTask);
+	}
+
+	/**
+	 * @param downloadTask
+	 * @return
+	 */
+	private static File getMergingFile(DownloadTask downloadTask) {
+		return new File(downloadTask.getFile().getAbsolutePath() + MergingSuffix);
+	}
+}
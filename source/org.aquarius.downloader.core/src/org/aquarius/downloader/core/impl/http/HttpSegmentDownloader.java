@@ -3,28 +3,31 @@
  */
 package org.aquarius.downloader.core.impl.http;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
 import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.text.MessageFormat;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
 import org.aquarius.downloader.core.DownloadManager;
 import org.aquarius.downloader.core.DownloadTask;
 import org.aquarius.downloader.core.SiteConcurrent;
+import org.aquarius.downloader.core.config.DownloadConfiguration;
+import org.aquarius.downloader.core.impl.FileChannelSegmentWriter;
 import org.aquarius.downloader.core.model.Segment;
 import org.aquarius.downloader.core.nls.DownloadNlsMessageConstant;
 import org.aquarius.downloader.core.spi.AbstractProgressListener;
 import org.aquarius.downloader.core.spi.AbstractSegmentDownloader;
-import org.aquarius.util.AssertUtil;
+import org.aquarius.downloader.core.spi.AbstractSegmentWriter;
 import org.aquarius.util.SystemUtil;
+import org.aquarius.util.io.ByteBufferPool;
+import org.aquarius.util.net.HttpConnectionPool;
 import org.aquarius.util.net.HttpUtil;
 import org.aquarius.util.net.UrlUtil;
 
@@ -38,6 +41,12 @@ public class HttpSegmentDownloader extends AbstractSegmentDownloader {
 
 	private static final int ChunkSize = 64 * SystemUtil.DiskSizeInK;
 
+	private static final int BufferSize = 128 * SystemUtil.DiskSizeInK;
+
+	private static final int MaxIdleBufferCount = 32;
+
+	private static final ByteBufferPool BufferPool = new ByteBufferPool(BufferSize, MaxIdleBufferCount);
+
 	/**
 	 * @param downloadTask
 	 */
@@ -55,7 +64,7 @@ public class HttpSegmentDownloader extends AbstractSegmentDownloader {
 
 		HttpURLConnection httpConnection = null;
 		InputStream input = null;
-		RandomAccessFile accessFile = null;
+		boolean completed = false;
 
 		long absolutePosition = segment.getRealPosition();
 
@@ -63,17 +72,20 @@ public class HttpSegmentDownloader extends AbstractSegmentDownloader {
 
 		try {
 			URL url = new URL(downloadUrl);
-			httpConnection = (HttpURLConnection) url.openConnection();
+			httpConnection = (HttpURLConnection) HttpConnectionPool.openConnection(url);
 			prepareHttpConnection(downloadTask, absolutePosition, segment.getEnd(), httpConnection);
 
-			synchronized (downloadTask) {
-				accessFile = prepareFile(downloadTask, listener);
-			}
+			AbstractSegmentWriter segmentWriter = prepareWriter(downloadTask);
 
 			input = httpConnection.getInputStream();
 
-			if (internalDownload(downloadTask, segment, listener, httpConnection, input, accessFile)) {
+			if (internalDownload(downloadTask, segment, listener, httpConnection, input, segmentWriter)) {
 				segment.setFinished(this, true);
+				completed = true;
+
+				if (DownloadManager.getInstance().getConfiguration().getSyncPolicy() == DownloadConfiguration.SyncPolicy_SegmentFinish) {
+					segmentWriter.sync();
+				}
 			}
 
 		} catch (IOException e) {
@@ -108,27 +120,32 @@ public class HttpSegmentDownloader extends AbstractSegmentDownloader {
 			}
 			throw e;
 		} finally {
-			IOUtils.closeQuietly(accessFile);
-			IOUtils.closeQuietly(input);
-			IOUtils.close(httpConnection);
+			if (completed) {
+				HttpConnectionPool.release(httpConnection, input);
+			} else {
+				HttpConnectionPool.abort(httpConnection, input);
+			}
+			// Only the connection which is read to the end of the range can be reused.
 		}
 
 	}
 
 	/**
 	 * do download operations.<BR>
+	 * The contents are read into a pooled direct buffer and written to the shared
+	 * writer without copy.<BR>
 	 *
 	 * @param downloadTask
 	 * @param segment
 	 * @param listener
 	 * @param httpConnection
 	 * @param input
-	 * @param accessFile
+	 * @param segmentWriter
 	 * @return
 	 * @throws IOException
 	 */
 	private boolean internalDownload(DownloadTask downloadTask, Segment segment, AbstractProgressListener listener, HttpURLConnection httpConnection,
-			InputStream input, RandomAccessFile accessFile) throws IOException {
+			InputStream input, AbstractSegmentWriter segmentWriter) throws IOException {
 
 		long currentPosition = 0;
 		long absolutePosition = segment.getRealPosition();
@@ -152,92 +169,143 @@ public class HttpSegmentDownloader extends AbstractSegmentDownloader {
 		}
 
 		int bufferLength = -1;
+		int unreportedLength = 0;
 
-		byte[] buffer = new byte[ChunkSize];
-		ByteArrayOutputStream cache = new ByteArrayOutputStream();
-
-		while (((bufferLength = input.read(buffer)) != -1)) {
+		ReadableByteChannel inputChannel = Channels.newChannel(input);
+		ByteBuffer buffer = BufferPool.acquire();
 
-			currentPosition = currentPosition + bufferLength;
-			absolutePosition = absolutePosition + bufferLength;
+		try {
+			while (((bufferLength = inputChannel.read(buffer)) != -1)) {
 
-			cache.write(buffer, 0, bufferLength);
-			downloadTask.addDownloadedLength(bufferLength, bufferLength);
+				currentPosition = currentPosition + bufferLength;
+				absolutePosition = absolutePosition + bufferLength;
+				unreportedLength = unreportedLength + bufferLength;
 
-			listener.onUpdate(downloadTask);
+				downloadTask.addDownloadedLength(bufferLength, 0);
+				// Only the speed is counted here,the progress is counted by the written
+				// length because the end of the segment may move back.
 
-			if (isPaused()) {
-				doWriteContents(downloadTask, segment, listener, accessFile, cache, true);
-				return false;
-			} else {
+				if (unreportedLength >= ChunkSize) {
+					unreportedLength = 0;
+					listener.onUpdate(downloadTask);
+				}
 
-				boolean finished = (absolutePosition >= segment.getEnd());
-				finished = finished || (currentPosition >= contentLength);
+				if (isPaused()) {
+					doWriteContents(downloadTask, segment, segmentWriter, buffer, true);
+					return false;
+				} else {
 
-				doWriteContents(downloadTask, segment, listener, accessFile, cache, finished);
+					boolean finished = (absolutePosition >= segment.getEnd());
+					finished = finished || (currentPosition >= contentLength);
+					// The end is read again for every buffer,it is moved forward when the segment is split.
 
-				if (finished) {
-					return true;
+					if (doWriteContents(downloadTask, segment, segmentWriter, buffer, finished) || finished) {
+						return true;
+					}
 				}
 			}
-		}
 
-		return true;
+			doWriteContents(downloadTask, segment, segmentWriter, buffer, true);
+			return true;
+
+		} finally {
+			if (unreportedLength > 0) {
+				listener.onUpdate(downloadTask);
+			}
+
+			BufferPool.release(buffer);
+		}
 	}
 
 	/**
+	 * Write the buffer to the file if it is full or flush is required.<BR>
+	 * The contents after the end of the segment are dropped,they belong to the
+	 * segment split from this one,so they are not counted in the progress of the
+	 * task.<BR>
+	 *
+	 * @param downloadTask
 	 * @param segment
-	 * @param accessFile
-	 * @param cache
+	 * @param segmentWriter
+	 * @param buffer
 	 * @param flushCache
+	 * @return true if the end of the segment is reached.
 	 * @throws IOException
 	 */
-	private void doWriteContents(DownloadTask downloadTask, Segment segment, AbstractProgressListener listener, RandomAccessFile accessFile,
-			ByteArrayOutputStream cache, boolean flushCache) throws IOException {
-		int cacheSize = cache.size();
+	private boolean doWriteContents(DownloadTask downloadTask, Segment segment, AbstractSegmentWriter segmentWriter, ByteBuffer buffer, boolean flushCache)
+			throws IOException {
 
-		if (cacheSize >= DownloadManager.getInstance().getConfiguration().getCacheSize() || flushCache) {
+		if ((buffer.position() > 0) && (!buffer.hasRemaining() || flushCache)) {
 
-			accessFile.seek(segment.getRealPosition());
-			accessFile.write(cache.toByteArray());
+			buffer.flip();
 
-			segment.addDownloadedLength(this, cacheSize);
+			long leftLength = segment.getEnd() - segment.getRealPosition() + 1;
 
-			cache.reset();
+			if (buffer.remaining() > leftLength) {
+				buffer.limit(buffer.position() + (int) Math.max(0, leftLength));
+			}
+
+			int length = segmentWriter.write(segment.getRealPosition(), buffer);
+			buffer.clear();
+
+			segment.addDownloadedLength(this, length);
+			downloadTask.addDownloadedLength(0, length);
 		}
+
+		return segment.getRealPosition() > segment.getEnd();
 	}
 
 	/**
-	 * Prepare file.<BR>
-	 * Use random access file for write contents to specified locations.<BR>
+	 * Prepare the shared writer of the task.<BR>
+	 * All the segments of a task use one writer to write contents to specified
+	 * locations.<BR>
 	 *
 	 * @param downloadTask
-	 * @param listener
 	 * @return
 	 * @throws IOException
 	 */
-	private synchronized RandomAccessFile prepareFile(DownloadTask downloadTask, AbstractProgressListener listener) throws IOException {
-		RandomAccessFile accessFile;
+	private AbstractSegmentWriter prepareWriter(DownloadTask downloadTask) throws IOException {
 
-		File file = downloadTask.getFile();
+		synchronized (downloadTask) {
+			AbstractSegmentWriter segmentWriter = downloadTask.getSegmentWriter();
 
-		if (file.exists()) {
-			AssertUtil.assertTrue(file.isFile(), "The target '" + file.getAbsolutePath() + "' should be file.");
-		} else {
-			file.createNewFile();
-		}
+			if ((null == segmentWriter) || !segmentWriter.isOpen()) {
 
-		accessFile = new RandomAccessFile(file.getAbsolutePath(), "rwd");
+				if (downloadTask.getRemoteFileLength() == 0) {
+					this.logger.error("FileLength == 0");
+				}
 
-		long remoteFileLength = downloadTask.getRemoteFileLength();
+				segmentWriter = createSegmentWriter(downloadTask);
+				downloadTask.setSegmentWriter(segmentWriter);
+			}
 
-		if (remoteFileLength == 0) {
-			this.logger.error("FileLength == 0");
+			return segmentWriter;
 		}
+	}
+
+	/**
+	 * Create a writer for the task.<BR>
+	 * The sub class can override this method to use another writer.<BR>
+	 *
+	 * @param downloadTask
+	 * @return
+	 * @throws IOException
+	 */
+	protected AbstractSegmentWriter createSegmentWriter(DownloadTask downloadTask) throws IOException {
+		return new FileChannelSegmentWriter(downloadTask);
+	}
 
-		accessFile.setLength(remoteFileLength);
+	/**
+	 * {@inheritDoc}}<BR>
+	 * The largest downloading range is split,so the tail of a large file is not
+	 * left to one slow connection.<BR>
+	 * The new range must be larger than the cache size,so a split never creates
+	 * lots of tiny ranges.<BR>
+	 */
+	@Override
+	protected Segment stealSegment(DownloadTask downloadTask) {
+		long minLength = DownloadManager.getInstance().getConfiguration().getCacheSize();
 
-		return accessFile;
+		return downloadTask.splitSegment(this, minLength);
 	}
 
 	/**
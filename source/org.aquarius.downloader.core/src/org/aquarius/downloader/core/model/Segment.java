@@ -22,7 +22,7 @@ public final class Segment {
 	private long start;
 
 	@JSONField(name = "e")
-	private long end;
+	private volatile long end;
 
 	@JSONField(name = "c")
 	private long currentPosition;
@@ -141,6 +141,41 @@ public final class Segment {
 		this.end = end;
 	}
 
+	/**
+	 * Split the left range of this segment at the specified position.<BR>
+	 * This segment will end at the position and a new segment is returned for the
+	 * tail.<BR>
+	 *
+	 * @param position
+	 * @return null if the position is not in the left range.
+	 */
+	public synchronized Segment split(long position) {
+		if (this.finished || (position <= this.getRealPosition()) || (position >= this.end)) {
+			return null;
+		}
+
+		Segment tailSegment = new Segment();
+		tailSegment.setStart(position);
+		tailSegment.setEnd(this.end);
+
+		this.end = position;
+
+		return tailSegment;
+	}
+
+	/**
+	 * Return how many bytes are left to download.<BR>
+	 *
+	 * @return
+	 */
+	public long getLeftLength() {
+		if (this.finished) {
+			return 0;
+		}
+
+		return this.end - this.getRealPosition();
+	}
+
 	public long getRealPosition() {
 		return this.start + this.currentPosition;
 	}
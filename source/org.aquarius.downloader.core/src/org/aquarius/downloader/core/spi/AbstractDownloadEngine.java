@@ -0,0 +1,120 @@
+/**
+ *
+ */
+package org.aquarius.downloader.core.spi;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The engine to run segment downloaders and other background work of the
+ * download manager.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public abstract class AbstractDownloadEngine {
+
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	private ExecutorService executorService;
+
+	/**
+	 * Return the executor to run the workers.<BR>
+	 *
+	 * @return
+	 */
+	private synchronized ExecutorService getExecutorService() {
+		if (null == this.executorService) {
+			this.executorService = this.createExecutorService();
+		}
+
+		return this.executorService;
+	}
+
+	/**
+	 * Create the executor service.<BR>
+	 *
+	 * @return
+	 */
+	protected abstract ExecutorService createExecutorService();
+
+	/**
+	 * Submit a worker.<BR>
+	 *
+	 * @param runnable
+	 * @throws RejectedExecutionException if no more worker can be accepted.
+	 */
+	public void submit(Runnable runnable) {
+		this.getExecutorService().execute(() -> {
+			this.activeCount.incrementAndGet();
+
+			try {
+				runnable.run();
+			} finally {
+				this.activeCount.decrementAndGet();
+			}
+		});
+	}
+
+	/**
+	 * Return how many workers are running.<BR>
+	 *
+	 * @return
+	 */
+	public int getActiveCount() {
+		return this.activeCount.get();
+	}
+
+	/**
+	 * If the return value is <code>true</code>,no new download should be
+	 * started.<BR>
+	 *
+	 * @return
+	 */
+	public boolean isBusy() {
+		return this.getActiveCount() > this.getMaxActiveCount();
+	}
+
+	/**
+	 * Return how many workers can be running at the same time.<BR>
+	 *
+	 * @return
+	 */
+	protected abstract int getMaxActiveCount();
+
+	/**
+	 * Stop all the workers and wait for a while.<BR>
+	 *
+	 * @param timeout in milliseconds
+	 */
+	public void shutdown(long timeout) {
+		ExecutorService service;
+
+		synchronized (this) {
+			service = this.executorService;
+			this.executorService = null;
+		}
+
+		if (null == service) {
+			return;
+		}
+
+		service.shutdownNow();
+
+		try {
+			service.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			// Nothing to do
+		}
+	}
+
+	/**
+	 * Return the name of the engine.<BR>
+	 *
+	 * @return
+	 */
+	public abstract String getName();
+}
@@ -89,6 +89,13 @@ public abstract class AbstractSegmentDownloader implements Runnable {
 			this.downloadTask.decreaseCurrentThreadCount();
 			// Anyway decrease the thread count.
 
+			try {
+				this.downloadTask.releaseSegmentWriter();
+			} catch (IOException e) {
+				this.logger.error("close the file of " + this.downloadTask.getTitle(), e);
+			}
+			// The last thread of the task closes the shared writer.
+
 		}
 	}
 
@@ -118,6 +125,11 @@ public abstract class AbstractSegmentDownloader implements Runnable {
 			// The progree will exit whie not more segments available
 			this.segment = this.downloadTask.applySegment(this);
 
+			if (null == this.segment) {
+				this.segment = this.stealSegment(this.downloadTask);
+			}
+			// No idle segment,try to share the work of another downloader.
+
 			if (null == this.segment) {
 				if (this.downloadTask.getState() == DownloadTask.StateFinish) {
 					finishMovie(this.downloadTask);
@@ -158,13 +170,25 @@ public abstract class AbstractSegmentDownloader implements Runnable {
 
 			} finally {
 
-				this.segment.unlock(this);
+				this.downloadTask.releaseSegment(this, this.segment);
 
 				// SystemUtil.sleepQuietly(DefaultWaitingTime);
 			}
 		}
 	}
 
+	/**
+	 * If all the left segments are downloading by other downloaders,this method is
+	 * invoked to take over part of their work.<BR>
+	 * By default nothing is shared.<BR>
+	 *
+	 * @param downloadTask
+	 * @return a segment locked by this downloader or null.
+	 */
+	protected Segment stealSegment(DownloadTask downloadTask) {
+		return null;
+	}
+
 	/**
 	 * @return
 	 */
@@ -176,6 +200,13 @@ public abstract class AbstractSegmentDownloader implements Runnable {
 	 * Finish the movie.
 	 */
 	protected void finishMovie(DownloadTask downloadTask) {
+
+		try {
+			downloadTask.syncSegmentWriter();
+		} catch (IOException e) {
+			this.logger.error("sync the file of " + downloadTask.getTitle(), e);
+		}
+
 		downloadTask.clearSegments();
 		DownloadManager.getInstance().onFinish(this.downloadTask);
 	}
@@ -81,6 +81,19 @@ public abstract class AbstractSegmentDownloaderFactory extends AbstractComparabl
 	 */
 	protected abstract boolean doCheck(DownloadTask downloadTask);
 
+	/**
+	 * Release the states kept for the task,it is invoked when the task is reset or
+	 * deleted.<BR>
+	 * The default implementation does nothing.<BR>
+	 *
+	 * @param downloadTask
+	 * @param deleteFiles  whether the files created for the states should be
+	 *                     deleted.
+	 */
+	public void clean(DownloadTask downloadTask, boolean deleteFiles) {
+		// Nothing to do
+	}
+
 	/**
 	 * Return the downloader type.<BR>
 	 *
@@ -0,0 +1,63 @@
+/**
+ *
+ */
+package org.aquarius.downloader.core.spi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.aquarius.downloader.core.DownloadTask;
+
+/**
+ * Writer to store the downloaded contents of segments.<BR>
+ * One writer is shared by all the segment downloaders of a task,so the
+ * implementation must be thread safe.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public abstract class AbstractSegmentWriter implements Closeable {
+
+	private final DownloadTask downloadTask;
+
+	/**
+	 * @param downloadTask the parent task
+	 */
+	public AbstractSegmentWriter(DownloadTask downloadTask) {
+		super();
+		this.downloadTask = downloadTask;
+	}
+
+	/**
+	 * @return the downloadTask
+	 */
+	public DownloadTask getDownloadTask() {
+		return this.downloadTask;
+	}
+
+	/**
+	 * Write all the remaining bytes of the buffer to the specified position.<BR>
+	 *
+	 * @param position the absolute position in the target file.
+	 * @param buffer
+	 * @return how many bytes are written.
+	 * @throws IOException
+	 */
+	public abstract int write(long position, ByteBuffer buffer) throws IOException;
+
+	/**
+	 * Force the written contents to the storage device.<BR>
+	 *
+	 * @throws IOException
+	 */
+	public abstract void sync() throws IOException;
+
+	/**
+	 * Return whether the writer can still be used.<BR>
+	 *
+	 * @return
+	 */
+	public abstract boolean isOpen();
+
+}
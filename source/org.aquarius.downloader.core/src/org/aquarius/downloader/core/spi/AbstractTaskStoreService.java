@@ -19,28 +19,60 @@ import org.aquarius.downloader.core.DownloadTask;
  */
 public abstract class AbstractTaskStoreService {
 
-	private boolean dirty = false;
+	private volatile boolean dirty = false;
+
+	private Runnable syncHandler;
 
 	/**
 	 * Save the tasks for persistence.<BR>
-	 * It will check dirty or not.<BR>
+	 * It will check dirty or not.The flag is cleared before saving,so the changes
+	 * made during the save are saved next time,and it is set again if the save
+	 * fails.<BR>
 	 *
 	 * @param downloadTaskList
 	 * @param forceSave
 	 */
 	public void saveTasks(List<DownloadTask> downloadTaskList, boolean forceSave) {
 		if (this.dirty || forceSave) {
-			this.doSaveTasks(downloadTaskList);
+			this.dirty = false;
+
+			try {
+				this.doSaveTasks(downloadTaskList);
+			} catch (RuntimeException e) {
+				this.dirty = true;
+				throw e;
+			}
 		}
 	}
 
 	/**
 	 * This method will be invoked when it is dirty.<BR>
+	 * The sub classes which handle the errors themselves should call
+	 * {@link #markDirty()},so the tasks are saved again.<BR>
 	 *
 	 * @param downloadTaskList
 	 */
 	protected abstract void doSaveTasks(List<DownloadTask> downloadTaskList);
 
+	/**
+	 * Force the downloaded contents to the disk by the sync handler.<BR>
+	 * The sub classes call it after the tasks are serialized and before they are
+	 * written,so the stored segment positions never run ahead of the contents on
+	 * the disk.<BR>
+	 */
+	protected void syncContents() {
+		if (null != this.syncHandler) {
+			this.syncHandler.run();
+		}
+	}
+
+	/**
+	 * @param syncHandler the syncHandler to set
+	 */
+	public void setSyncHandler(Runnable syncHandler) {
+		this.syncHandler = syncHandler;
+	}
+
 	/**
 	 * Load tasks from persistence.<BR>
 	 *
@@ -10,10 +10,10 @@ import java.net.URL;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.aquarius.downloader.core.DownloadTask;
 import org.aquarius.util.StringUtil;
+import org.aquarius.util.net.HttpConnectionPool;
 import org.aquarius.util.net.HttpUtil;
 
 /**
@@ -51,7 +51,7 @@ public final class NetUtil {
 			}
 		}
 
-		IOUtils.close(httpConnection);
+		HttpConnectionPool.release(httpConnection);
 
 		return downloadTask;
 	}
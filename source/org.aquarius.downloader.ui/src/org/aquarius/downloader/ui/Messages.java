@@ -51,6 +51,16 @@ public class Messages extends NLS {
 	public static String DownloadConfigurationPreferencePage_SegmentSize;
 	public static String DownloadConfigurationPreferencePage_ConfirmDelete;
 	public static String DownloadConfigurationPreferencePage_SiteConcurrent;
+	public static String DownloadConfigurationPreferencePage_SyncPolicy;
+	public static String DownloadConfigurationPreferencePage_SyncNone;
+	public static String DownloadConfigurationPreferencePage_SyncOnSegmentFinish;
+	public static String DownloadConfigurationPreferencePage_SyncOnAutoSave;
+	public static String DownloadConfigurationPreferencePage_DownloadEngine;
+	public static String DownloadConfigurationPreferencePage_ThreadPool;
+	public static String DownloadConfigurationPreferencePage_VirtualThread;
+	public static String DownloadConfigurationPreferencePage_HlsMergeMode;
+	public static String DownloadConfigurationPreferencePage_MergeBuiltin;
+	public static String DownloadConfigurationPreferencePage_MergeByFfmpeg;
 
 	public static String DownloadView_ActionAdd;
 	public static String DownloadView_ActionCopyAll;
@@ -109,6 +109,27 @@ public class DownloadConfigurationPreferencePage extends FieldEditorPreferencePa
 		lowerSizeLimitFieldEditor.setValidRange(0, DownloadConfiguration.MaxLowerSizeLimit);
 		this.addField(lowerSizeLimitFieldEditor);
 
+		{
+			String[][] entryNamesAndValues = new String[][] {
+					{ Messages.DownloadConfigurationPreferencePage_ThreadPool, DownloadConfiguration.DownloadEngine_ThreadPool + "" }, // $NON-NLS-2$ //$NON-NLS-1$
+					{ Messages.DownloadConfigurationPreferencePage_VirtualThread, DownloadConfiguration.DownloadEngine_VirtualThread + "" } }; // $NON-NLS-2$ //$NON-NLS-1$
+
+			ComboFieldEditor downloadEngineFieldEditor = new ComboFieldEditor(DownloadConfiguration.Key_DownloadEngine,
+					Messages.DownloadConfigurationPreferencePage_DownloadEngine, entryNamesAndValues, parent);
+			this.addField(downloadEngineFieldEditor);
+		}
+
+		{
+			String[][] entryNamesAndValues = new String[][] {
+					{ Messages.DownloadConfigurationPreferencePage_SyncOnAutoSave, DownloadConfiguration.SyncPolicy_AutoSave + "" }, // $NON-NLS-2$ //$NON-NLS-1$
+					{ Messages.DownloadConfigurationPreferencePage_SyncOnSegmentFinish, DownloadConfiguration.SyncPolicy_SegmentFinish + "" }, // $NON-NLS-2$ //$NON-NLS-1$
+					{ Messages.DownloadConfigurationPreferencePage_SyncNone, DownloadConfiguration.SyncPolicy_None + "" } }; // $NON-NLS-2$ //$NON-NLS-1$
+
+			ComboFieldEditor syncPolicyFieldEditor = new ComboFieldEditor(DownloadConfiguration.Key_SyncPolicy,
+					Messages.DownloadConfigurationPreferencePage_SyncPolicy, entryNamesAndValues, parent);
+			this.addField(syncPolicyFieldEditor);
+		}
+
 		{
 			String[][] entryNamesAndValues = new String[][] {
 					{ Messages.DownloadConfigurationPreferencePage_OverWrite, DownloadConfiguration.DuplicatedOverWriteExistFile + "" }, // $NON-NLS-2$ //$NON-NLS-1$
@@ -148,6 +169,16 @@ public class DownloadConfigurationPreferencePage extends FieldEditorPreferencePa
 				Messages.DownloadConfigurationPreferencePage_MergeHLS, parent);
 		this.addField(mergeHlsFieldEditor);
 
+		{
+			String[][] entryNamesAndValues = new String[][] {
+					{ Messages.DownloadConfigurationPreferencePage_MergeBuiltin, DownloadConfiguration.HlsMergeMode_Builtin + "" }, // $NON-NLS-2$ //$NON-NLS-1$
+					{ Messages.DownloadConfigurationPreferencePage_MergeByFfmpeg, DownloadConfiguration.HlsMergeMode_Ffmpeg + "" } }; // $NON-NLS-2$ //$NON-NLS-1$
+
+			ComboFieldEditor hlsMergeModeFieldEditor = new ComboFieldEditor(DownloadConfiguration.Key_HlsMergeMode,
+					Messages.DownloadConfigurationPreferencePage_HlsMergeMode, entryNamesAndValues, parent);
+			this.addField(hlsMergeModeFieldEditor);
+		}
+
 		this.deleteMergedHlsTrashFieldEditor = new BooleanFieldEditor(DownloadConfiguration.Key_DeleteMergedHls,
 				Messages.DownloadConfigurationPreferencePage_DeleteMergedHLS, parent);
 		this.addField(this.deleteMergedHlsTrashFieldEditor);
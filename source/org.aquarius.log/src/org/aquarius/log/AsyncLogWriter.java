@@ -0,0 +1,231 @@
+/**
+ *
+ */
+package org.aquarius.log;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Platform;
+
+/**
+ * Write the log events in a background thread,so the loggers never wait for
+ * the console,the log file or the eclipse log.<BR>
+ * The events are kept in a lock free ring buffer,the trace,debug and info
+ * events are dropped if the buffer is full,the warn and error events are
+ * written at once instead.The count of the dropped events is written to the
+ * log when the buffer is drained.<BR>
+ * The trace and debug events are written to the console,all the events are
+ * written to the log file,the events not lower than info are logged by eclipse
+ * log too.<BR>
+ * The log file is aquarius.log beside the eclipse log file,it can be changed by
+ * the system property aquarius.log.file.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public final class AsyncLogWriter {
+
+	public static final String KeyLogFile = "aquarius.log.file";
+
+	private static final int BufferSize = 8192;
+
+	private static final long MaxFileSize = 10L * 1024 * 1024;
+
+	private static final int MaxBackupCount = 5;
+
+	private static final long IdleWaitTime = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private static final AsyncLogWriter Instance = new AsyncLogWriter();
+
+	private final LogRingBuffer ringBuffer = new LogRingBuffer(BufferSize);
+
+	private final RollingFileAppender fileAppender;
+
+	private final LongAdder droppedCount = new LongAdder();
+
+	private long reportedDroppedCount;
+
+	private final Thread writerThread;
+
+	private volatile boolean waiting;
+
+	/**
+	 *
+	 */
+	private AsyncLogWriter() {
+		super();
+
+		File logFile = findLogFile();
+		this.fileAppender = (null == logFile) ? null : new RollingFileAppender(logFile, MaxFileSize, MaxBackupCount);
+
+		this.writerThread = new Thread(this::run, "log writer");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+
+		Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "log writer shutdown"));
+	}
+
+	/**
+	 * @return the instance
+	 */
+	public static AsyncLogWriter getInstance() {
+		return Instance;
+	}
+
+	/**
+	 * @return null if the log file is unknown.
+	 */
+	private static File findLogFile() {
+		String fileName = System.getProperty(KeyLogFile);
+
+		if ((null != fileName) && !fileName.trim().isEmpty()) {
+			return new File(fileName.trim());
+		}
+
+		try {
+			IPath path = Platform.getLogFileLocation();
+
+			if (null != path) {
+				return path.removeLastSegments(1).append("aquarius.log").toFile();
+			}
+		} catch (Exception e) {
+			// Nothing to do
+		}
+		// The platform is not running.
+
+		return null;
+	}
+
+	/**
+	 * Add the event to the buffer.<BR>
+	 *
+	 * @param event
+	 */
+	void write(LogEvent event) {
+
+		if (this.ringBuffer.offer(event)) {
+			if (this.waiting) {
+				LockSupport.unpark(this.writerThread);
+			}
+
+			return;
+		}
+
+		if (event.getLevel().ordinal() >= LogLevel.Warn.ordinal()) {
+			this.doWrite(event);
+		} else {
+			this.droppedCount.increment();
+		}
+		// The warn and error events are too important to be dropped.
+	}
+
+	/**
+	 * Drain the buffer until the application exits.<BR>
+	 */
+	private void run() {
+
+		while (true) {
+			try {
+				if (this.drain() == 0) {
+					this.waiting = true;
+					LockSupport.parkNanos(this, IdleWaitTime);
+					this.waiting = false;
+				}
+			} catch (Throwable e) {
+				e.printStackTrace(System.err);
+			}
+		}
+	}
+
+	/**
+	 * Write the events in the buffer,at most the capacity of the buffer is
+	 * written at a time,so the dropped events are reported under a heavy load
+	 * too.<BR>
+	 *
+	 * @return the count of the written events.
+	 */
+	private synchronized int drain() {
+		int count = 0;
+		LogEvent event;
+
+		while ((count < this.ringBuffer.getCapacity()) && (null != (event = this.ringBuffer.poll()))) {
+			this.doWrite(event);
+			count++;
+		}
+
+		this.reportDroppedCount();
+
+		if ((count > 0) && (null != this.fileAppender)) {
+			this.fileAppender.flush();
+		}
+
+		return count;
+	}
+
+	/**
+	 * Write the count of the events dropped since the last report.<BR>
+	 */
+	private void reportDroppedCount() {
+		long currentDroppedCount = this.droppedCount.sum();
+
+		if (currentDroppedCount > this.reportedDroppedCount) {
+			String message = (currentDroppedCount - this.reportedDroppedCount) + " log messages were dropped because the log buffer is full,"
+					+ currentDroppedCount + " messages were dropped in total.";
+			this.reportedDroppedCount = currentDroppedCount;
+
+			this.doWrite(new LogEvent(LogLevel.Warn, AsyncLogWriter.class.getName(), message, null, null));
+		}
+	}
+
+	/**
+	 * @param event
+	 */
+	private void doWrite(LogEvent event) {
+
+		String line = null;
+
+		if (event.getLevel().ordinal() <= LogLevel.Debug.ordinal()) {
+			line = event.toLine();
+			System.out.println(line);
+
+			if (null != event.getException()) {
+				event.getException().printStackTrace(System.out);
+			}
+		}
+
+		if (null != this.fileAppender) {
+			this.fileAppender.append((null == line) ? event.toLine() : line, event.getException());
+		}
+
+		event.logToEclipse();
+	}
+
+	/**
+	 * Write all the events in the buffer at once.<BR>
+	 */
+	public void flush() {
+		while (this.drain() > 0) {
+			// Nothing to do
+		}
+	}
+
+	/**
+	 * Return the count of the dropped events.<BR>
+	 *
+	 * @return
+	 */
+	public long getDroppedCount() {
+		return this.droppedCount.sum();
+	}
+
+	/**
+	 * @return the log file,null if the events are not written to a file.
+	 */
+	public File getLogFile() {
+		return (null == this.fileAppender) ? null : this.fileAppender.getFile();
+	}
+}
@@ -3,24 +3,22 @@
  */
 package org.aquarius.log;
 
-import java.text.DateFormat;
 import java.text.MessageFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import org.eclipse.core.runtime.ILog;
-import org.eclipse.core.runtime.Status;
 import org.slf4j.helpers.MarkerIgnoringBase;
 
 /**
+ * The logger writes the messages by {@link AsyncLogWriter} in the
+ * background.<BR>
+ * The messages lower than the level configured by {@link LogConfiguration} are
+ * ignored before they are formatted.<BR>
+ *
  * @author aquarius.github@gmail.com
  *
  */
 public class EclipseLogger extends MarkerIgnoringBase {
 
-	private static final String Trace = "Trace";
-	private static final String Debug = "Debug";
-
 	/**
 	 *
 	 */
@@ -28,12 +26,8 @@ public class EclipseLogger extends MarkerIgnoringBase {
 
 	private ILog log;
 
-	private String bundleName;
-
 	private String name;
 
-	private DateFormat dateTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-
 	/**
 	 * @param log
 	 */
@@ -41,7 +35,6 @@ public class EclipseLogger extends MarkerIgnoringBase {
 		super();
 		this.name = name;
 		this.log = log;
-		this.bundleName = this.log.getBundle().getSymbolicName();
 
 		if (null == this.name) {
 			this.name = "";
@@ -57,32 +50,24 @@ public class EclipseLogger extends MarkerIgnoringBase {
 	}
 
 	/**
-	 * Use eclipse logger to log event.<BR>
-	 *
-	 * @param loggingEvent
-	 */
-	private void doEclipseLog(String message, Throwable exception, int level) {
-		Status status = new Status(level, this.bundleName, message, exception);
-		this.log.log(status);
-	}
-
-	/**
-	 * Output log to system console.<BR>
+	 * Format the message and pass it to the background writer if the level is
+	 * enabled.<BR>
+	 * The message is only formatted if there are arguments.<BR>
 	 *
-	 * @param marker
-	 * @param message
+	 * @param level
+	 * @param format
 	 * @param exception
+	 * @param arguments
 	 */
-	private void doOutputToConsole(String marker, String message, Throwable exception) {
+	private void doLog(LogLevel level, String format, Throwable exception, Object... arguments) {
 
-		String dateTimeString = this.dateTimeFormat.format(new Date());
-
-		String output = this.name + "    " + dateTimeString + "    " + marker + "    " + message;
-		System.out.println(output);
-
-		if (null != exception) {
-			exception.printStackTrace(System.out);
+		if (!LogConfiguration.isEnabled(this.name, level)) {
+			return;
 		}
+
+		String message = ((null == arguments) || (arguments.length == 0)) ? format : MessageFormat.format(format, arguments);
+		// A plain message is not formatted,so its quotes and braces are kept.
+		AsyncLogWriter.getInstance().write(new LogEvent(level, this.name, message, exception, this.log));
 	}
 
 	/**
@@ -90,7 +75,7 @@ public class EclipseLogger extends MarkerIgnoringBase {
 	 */
 	@Override
 	public boolean isTraceEnabled() {
-		return true;
+		return LogConfiguration.isEnabled(this.name, LogLevel.Trace);
 	}
 
 	/**
@@ -136,15 +121,13 @@ public class EclipseLogger extends MarkerIgnoringBase {
 
 	/**
 	 * output with trace level.<BR>
-	 * Just to system console.<BR>
 	 *
 	 * @param format
 	 * @param exception
 	 * @param arguments
 	 */
 	private void doTrace(String format, Throwable exception, Object... arguments) {
-		String message = MessageFormat.format(format, arguments);
-		doOutputToConsole(Trace, message, exception);
+		this.doLog(LogLevel.Trace, format, exception, arguments);
 	}
 
 	/**
@@ -152,7 +135,7 @@ public class EclipseLogger extends MarkerIgnoringBase {
 	 */
 	@Override
 	public boolean isDebugEnabled() {
-		return true;
+		return LogConfiguration.isEnabled(this.name, LogLevel.Debug);
 	}
 
 	/**
@@ -190,14 +173,12 @@ public class EclipseLogger extends MarkerIgnoringBase {
 
 	/**
 	 * output with debug level.<BR>
-	 * Just to system console.<BR>
 	 *
 	 * @param format
 	 * @param arguments
 	 */
 	private void doDebug(String format, Throwable exception, Object... arguments) {
-		String message = MessageFormat.format(format, arguments);
-		doOutputToConsole(Debug, message, exception);
+		this.doLog(LogLevel.Debug, format, exception, arguments);
 	}
 
 	/**
@@ -205,7 +186,7 @@ public class EclipseLogger extends MarkerIgnoringBase {
 	 */
 	@Override
 	public void debug(String msg, Throwable exception) {
-		doOutputToConsole(Debug, msg, exception);
+		this.doDebug(msg, exception);
 	}
 
 	/**
@@ -213,7 +194,7 @@ public class EclipseLogger extends MarkerIgnoringBase {
 	 */
 	@Override
 	public boolean isInfoEnabled() {
-		return true;
+		return LogConfiguration.isEnabled(this.name, LogLevel.Info);
 	}
 
 	/**
@@ -250,14 +231,12 @@ public class EclipseLogger extends MarkerIgnoringBase {
 
 	/**
 	 * output with info level.<BR>
-	 * Use eclipse logger to log info.<BR>
 	 *
 	 * @param format
 	 * @param arguments
 	 */
 	private void doInfo(String format, Throwable exception, Object... arguments) {
-		String message = MessageFormat.format(format, arguments);
-		this.doEclipseLog(message, exception, Status.INFO);
+		this.doLog(LogLevel.Info, format, exception, arguments);
 	}
 
 	/**
@@ -273,7 +252,7 @@ public class EclipseLogger extends MarkerIgnoringBase {
 	 */
 	@Override
 	public boolean isWarnEnabled() {
-		return true;
+		return LogConfiguration.isEnabled(this.name, LogLevel.Warn);
 	}
 
 	/**
@@ -310,15 +289,13 @@ public class EclipseLogger extends MarkerIgnoringBase {
 
 	/**
 	 * Output with warn level.<BR>
-	 * Use eclipse logger to log info.<BR>
 	 *
 	 * @param format
 	 * @param exception
 	 * @param arguments
 	 */
 	private void doWarn(String format, Throwable exception, Object... arguments) {
-		String message = MessageFormat.format(format, arguments);
-		this.doEclipseLog(message, exception, Status.WARNING);
+		this.doLog(LogLevel.Warn, format, exception, arguments);
 	}
 
 	/**
@@ -334,7 +311,7 @@ public class EclipseLogger extends MarkerIgnoringBase {
 	 */
 	@Override
 	public boolean isErrorEnabled() {
-		return true;
+		return LogConfiguration.isEnabled(this.name, LogLevel.Error);
 	}
 
 	/**
@@ -376,8 +353,7 @@ public class EclipseLogger extends MarkerIgnoringBase {
 	 * @param arguments
 	 */
 	private void doError(String format, Throwable exception, Object... arguments) {
-		String message = MessageFormat.format(format, arguments);
-		this.doEclipseLog(message, exception, Status.ERROR);
+		this.doLog(LogLevel.Error, format, exception, arguments);
 	}
 
 	/**
@@ -0,0 +1,160 @@
+/**
+ *
+ */
+package org.aquarius.log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The levels of the loggers.<BR>
+ * The level of a logger is the level of the longest configured prefix of its
+ * name,or the default level.<BR>
+ * The levels can be configured by the system properties too:
+ * <ul>
+ * <li>aquarius.log.level=debug sets the default level.</li>
+ * <li>aquarius.log.level.org.aquarius.downloader=trace sets the level of the
+ * loggers in the package.</li>
+ * </ul>
+ * The default level is debug if aquarius.debug is true,otherwise it is
+ * info.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public final class LogConfiguration {
+
+	public static final String KeyLevel = "aquarius.log.level";
+
+	public static final String KeyDebug = "aquarius.debug";
+
+	private static volatile LogLevel defaultLevel = createDefaultLevel();
+
+	private static final Map<String, LogLevel> ConfiguredLevels = new ConcurrentHashMap<>(loadConfiguredLevels());
+
+	private static final Map<String, LogLevel> ResolvedLevels = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 */
+	private LogConfiguration() {
+		// No instances needed.
+	}
+
+	/**
+	 * @return
+	 */
+	private static LogLevel createDefaultLevel() {
+		LogLevel level = Boolean.getBoolean(KeyDebug) ? LogLevel.Debug : LogLevel.Info;
+		return LogLevel.parse(System.getProperty(KeyLevel), level);
+	}
+
+	/**
+	 * @return
+	 */
+	private static Map<String, LogLevel> loadConfiguredLevels() {
+		Map<String, LogLevel> levels = new ConcurrentHashMap<>();
+		String prefix = KeyLevel + ".";
+
+		for (String key : System.getProperties().stringPropertyNames()) {
+			if (key.startsWith(prefix)) {
+				LogLevel level = LogLevel.parse(System.getProperty(key), null);
+
+				if (null != level) {
+					levels.put(key.substring(prefix.length()), level);
+				}
+			}
+		}
+
+		return levels;
+	}
+
+	/**
+	 * Return the level of the logger.<BR>
+	 *
+	 * @param loggerName
+	 * @return
+	 */
+	public static LogLevel getLevel(String loggerName) {
+		LogLevel level = ResolvedLevels.get(loggerName);
+
+		if (null == level) {
+			level = resolveLevel(loggerName);
+			ResolvedLevels.put(loggerName, level);
+		}
+
+		return level;
+	}
+
+	/**
+	 * @param loggerName
+	 * @return
+	 */
+	private static LogLevel resolveLevel(String loggerName) {
+		String matchedName = null;
+		LogLevel level = defaultLevel;
+
+		for (Map.Entry<String, LogLevel> entry : ConfiguredLevels.entrySet()) {
+			String name = entry.getKey();
+
+			if (isPrefix(name, loggerName) && ((null == matchedName) || (name.length() > matchedName.length()))) {
+				matchedName = name;
+				level = entry.getValue();
+			}
+		}
+
+		return level;
+	}
+
+	/**
+	 * @param name
+	 * @param loggerName
+	 * @return
+	 */
+	private static boolean isPrefix(String name, String loggerName) {
+		return loggerName.equals(name) || loggerName.startsWith(name + ".");
+	}
+
+	/**
+	 * Whether the level is enabled for the logger.<BR>
+	 *
+	 * @param loggerName
+	 * @param level
+	 * @return
+	 */
+	public static boolean isEnabled(String loggerName, LogLevel level) {
+		return level.ordinal() >= getLevel(loggerName).ordinal();
+	}
+
+	/**
+	 * Set the level of the loggers whose names start with the name.<BR>
+	 *
+	 * @param name  the name of a logger or a package.
+	 * @param level null to remove the configured level.
+	 */
+	public static void setLevel(String name, LogLevel level) {
+
+		if (null == level) {
+			ConfiguredLevels.remove(name);
+		} else {
+			ConfiguredLevels.put(name, level);
+		}
+
+		ResolvedLevels.clear();
+	}
+
+	/**
+	 * @return the defaultLevel
+	 */
+	public static LogLevel getDefaultLevel() {
+		return defaultLevel;
+	}
+
+	/**
+	 * @param level the defaultLevel to set
+	 */
+	public static void setDefaultLevel(LogLevel level) {
+		defaultLevel = level;
+		ResolvedLevels.clear();
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ *
+ */
+package org.aquarius.log;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * A formatted message waiting to be written by the background writer.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+final class LogEvent {
+
+	private static final DateTimeFormatter DateTimeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	private final long time;
+
+	private final LogLevel level;
+
+	private final String loggerName;
+
+	private final String message;
+
+	private final Throwable exception;
+
+	private final ILog log;
+
+	/**
+	 * @param level
+	 * @param loggerName
+	 * @param message
+	 * @param exception
+	 * @param log        null if the event is not logged by eclipse log.
+	 */
+	LogEvent(LogLevel level, String loggerName, String message, Throwable exception, ILog log) {
+		super();
+		this.time = System.currentTimeMillis();
+		this.level = level;
+		this.loggerName = loggerName;
+		this.message = message;
+		this.exception = exception;
+		this.log = log;
+	}
+
+	/**
+	 * @return the level
+	 */
+	LogLevel getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * @return the exception
+	 */
+	Throwable getException() {
+		return this.exception;
+	}
+
+	/**
+	 * Return the line written to the console and the log file.<BR>
+	 *
+	 * @return
+	 */
+	String toLine() {
+		String dateTimeString = DateTimeFormat.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(this.time), ZoneId.systemDefault()));
+
+		return this.loggerName + "    " + dateTimeString + "    " + this.level.name() + "    " + this.message;
+	}
+
+	/**
+	 * Log the event by eclipse log if it is needed.<BR>
+	 */
+	void logToEclipse() {
+
+		if ((null == this.log) || !this.level.isEclipseLogged()) {
+			return;
+		}
+
+		Status status = new Status(this.level.getSeverity(), this.log.getBundle().getSymbolicName(), this.message, this.exception);
+		this.log.log(status);
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ *
+ */
+package org.aquarius.log;
+
+import org.eclipse.core.runtime.Status;
+
+/**
+ * The levels of logging,a message is logged if its level is not lower than the
+ * level of the logger.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public enum LogLevel {
+
+	Trace(Status.OK), Debug(Status.OK), Info(Status.INFO), Warn(Status.WARNING), Error(Status.ERROR), Off(Status.CANCEL);
+
+	private final int severity;
+
+	/**
+	 * @param severity
+	 */
+	private LogLevel(int severity) {
+		this.severity = severity;
+	}
+
+	/**
+	 * Return the severity of the eclipse status.<BR>
+	 *
+	 * @return
+	 */
+	public int getSeverity() {
+		return this.severity;
+	}
+
+	/**
+	 * Whether the messages of the level are logged by eclipse log too.<BR>
+	 *
+	 * @return
+	 */
+	public boolean isEclipseLogged() {
+		return this.ordinal() >= Info.ordinal();
+	}
+
+	/**
+	 * Return the level of the name ignoring case.<BR>
+	 *
+	 * @param name
+	 * @param defaultLevel
+	 * @return the default level if no level matches the name.
+	 */
+	public static LogLevel parse(String name, LogLevel defaultLevel) {
+
+		if (null != name) {
+			for (LogLevel level : values()) {
+				if (level.name().equalsIgnoreCase(name.trim())) {
+					return level;
+				}
+			}
+		}
+
+		return defaultLevel;
+	}
+}
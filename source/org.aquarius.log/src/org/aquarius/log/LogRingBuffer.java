@@ -0,0 +1,108 @@
+/**
+ *
+ */
+package org.aquarius.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock free ring buffer for many producers and one consumer.<BR>
+ * Every slot has a sequence,a producer claims a slot by moving the tail with
+ * cas and publishes the event by setting the sequence of the slot,the consumer
+ * takes the event when the sequence is published.<BR>
+ * A producer never waits,the event is rejected if the buffer is full.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+final class LogRingBuffer {
+
+	private final int capacity;
+
+	private final int mask;
+
+	private final AtomicReferenceArray<LogEvent> events;
+
+	private final AtomicLongArray sequences;
+
+	private final AtomicLong tail = new AtomicLong();
+
+	private long head;
+	// Only used by the consumer.
+
+	/**
+	 * @param capacity it is rounded up to a power of two.
+	 */
+	LogRingBuffer(int capacity) {
+		super();
+
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+
+		this.capacity = size;
+		this.mask = size - 1;
+		this.events = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+
+		for (int i = 0; i < size; i++) {
+			this.sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Add the event to the buffer.<BR>
+	 *
+	 * @param event
+	 * @return false if the buffer is full.
+	 */
+	boolean offer(LogEvent event) {
+		long position = this.tail.get();
+
+		while (true) {
+			int index = (int) (position & this.mask);
+			long difference = this.sequences.get(index) - position;
+
+			if (difference == 0) {
+				if (this.tail.compareAndSet(position, position + 1)) {
+					this.events.set(index, event);
+					this.sequences.set(index, position + 1);
+					return true;
+				}
+			} else if (difference < 0) {
+				return false;
+			}
+			// The slot is not consumed yet.
+
+			position = this.tail.get();
+		}
+	}
+
+	/**
+	 * Remove the oldest event from the buffer,it must be called by the consumer
+	 * only.<BR>
+	 *
+	 * @return null if no event is published.
+	 */
+	LogEvent poll() {
+		int index = (int) (this.head & this.mask);
+
+		if (this.sequences.get(index) != (this.head + 1)) {
+			return null;
+		}
+
+		LogEvent event = this.events.get(index);
+		this.events.set(index, null);
+		this.sequences.set(index, this.head + this.capacity);
+		this.head++;
+
+		return event;
+	}
+
+	/**
+	 * @return the capacity
+	 */
+	int getCapacity() {
+		return this.capacity;
+	}
+}
@@ -0,0 +1,165 @@
+/**
+ *
+ */
+package org.aquarius.log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Append the lines to a log file,the file is renamed to a backup file when it
+ * is too large,the oldest backup file is deleted.<BR>
+ * The backup files are named as name.1,name.2 and so on,name.1 is the
+ * newest.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+final class RollingFileAppender {
+
+	private final File file;
+
+	private final long maxFileSize;
+
+	private final int maxBackupCount;
+
+	private Writer writer;
+
+	private long fileSize;
+
+	private boolean failed;
+
+	/**
+	 * @param file
+	 * @param maxFileSize
+	 * @param maxBackupCount
+	 */
+	RollingFileAppender(File file, long maxFileSize, int maxBackupCount) {
+		super();
+		this.file = file;
+		this.maxFileSize = maxFileSize;
+		this.maxBackupCount = maxBackupCount;
+	}
+
+	/**
+	 * Append the line and the stack trace of the exception.<BR>
+	 *
+	 * @param line
+	 * @param exception
+	 */
+	synchronized void append(String line, Throwable exception) {
+
+		if (this.failed) {
+			return;
+		}
+
+		StringBuilder stringBuilder = new StringBuilder(line).append(System.lineSeparator());
+
+		if (null != exception) {
+			StringWriter stringWriter = new StringWriter();
+			exception.printStackTrace(new PrintWriter(stringWriter));
+			stringBuilder.append(stringWriter);
+		}
+
+		String content = stringBuilder.toString();
+
+		try {
+			if ((null != this.writer) && ((this.fileSize + content.length()) > this.maxFileSize)) {
+				this.roll();
+			}
+
+			if (null == this.writer) {
+				this.open();
+			}
+
+			this.writer.write(content);
+			this.fileSize = this.fileSize + content.length();
+			// The length of chars is close enough to the bytes for rolling.
+		} catch (IOException e) {
+			this.failed = true;
+			this.close();
+
+			System.err.println("Failed to write the log file " + this.file + ",the file logging is disabled.");
+			e.printStackTrace(System.err);
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	private void open() throws IOException {
+		File parentFile = this.file.getParentFile();
+
+		if ((null != parentFile) && !parentFile.exists()) {
+			parentFile.mkdirs();
+		}
+
+		this.fileSize = this.file.length();
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.file, true), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Rename the current file to the first backup file.<BR>
+	 */
+	private void roll() {
+		this.close();
+
+		new File(this.file.getPath() + "." + this.maxBackupCount).delete();
+
+		for (int i = this.maxBackupCount - 1; i >= 1; i--) {
+			File backupFile = new File(this.file.getPath() + "." + i);
+
+			if (backupFile.exists()) {
+				backupFile.renameTo(new File(this.file.getPath() + "." + (i + 1)));
+			}
+		}
+
+		if (this.maxBackupCount > 0) {
+			this.file.renameTo(new File(this.file.getPath() + ".1"));
+		} else {
+			this.file.delete();
+		}
+	}
+
+	/**
+	 * Flush the buffered lines to the file.<BR>
+	 */
+	synchronized void flush() {
+		if (null != this.writer) {
+			try {
+				this.writer.flush();
+			} catch (IOException e) {
+				// Nothing to do
+			}
+		}
+	}
+
+	/**
+	 * Close the file,it is opened again by the next line.<BR>
+	 */
+	synchronized void close() {
+		if (null != this.writer) {
+			try {
+				this.writer.close();
+			} catch (IOException e) {
+				// Nothing to do
+			}
+
+			this.writer = null;
+		}
+	}
+
+	/**
+	 * @return the file
+	 */
+	File getFile() {
+		return this.file;
+	}
+}
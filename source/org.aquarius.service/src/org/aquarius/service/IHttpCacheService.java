@@ -20,6 +20,95 @@ public interface IHttpCacheService {
 		public void loadFinished(String urlString, T value);
 	}
 
+	/**
+	 * The counters of the cache.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	public final class CacheStatistics {
+
+		private final long hitCount;
+
+		private final long missCount;
+
+		private final long coalescedCount;
+
+		private final long evictedCount;
+
+		private final long negativeHitCount;
+
+		/**
+		 * @param hitCount
+		 * @param missCount
+		 * @param coalescedCount
+		 * @param evictedCount
+		 * @param negativeHitCount
+		 */
+		public CacheStatistics(long hitCount, long missCount, long coalescedCount, long evictedCount, long negativeHitCount) {
+			super();
+			this.hitCount = hitCount;
+			this.missCount = missCount;
+			this.coalescedCount = coalescedCount;
+			this.evictedCount = evictedCount;
+			this.negativeHitCount = negativeHitCount;
+		}
+
+		/**
+		 * Return how many requests are returned from the cache.<BR>
+		 *
+		 * @return
+		 */
+		public long getHitCount() {
+			return this.hitCount;
+		}
+
+		/**
+		 * Return how many requests are downloaded.<BR>
+		 *
+		 * @return
+		 */
+		public long getMissCount() {
+			return this.missCount;
+		}
+
+		/**
+		 * Return how many requests wait for the same download in flight.<BR>
+		 *
+		 * @return
+		 */
+		public long getCoalescedCount() {
+			return this.coalescedCount;
+		}
+
+		/**
+		 * Return how many elements are evicted or expired.<BR>
+		 *
+		 * @return
+		 */
+		public long getEvictedCount() {
+			return this.evictedCount;
+		}
+
+		/**
+		 * Return how many requests are answered by a recent failure.<BR>
+		 *
+		 * @return
+		 */
+		public long getNegativeHitCount() {
+			return this.negativeHitCount;
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public String toString() {
+			return "CacheStatistics [hitCount=" + this.hitCount + ", missCount=" + this.missCount + ", coalescedCount=" + this.coalescedCount
+					+ ", evictedCount=" + this.evictedCount + ", negativeHitCount=" + this.negativeHitCount + "]";
+		}
+	}
+
 	/**
 	 * Close the cache.<BR>
 	 */
@@ -48,6 +137,9 @@ public interface IHttpCacheService {
 	Serializable getElement(String urlString, Map<String, String> headers, boolean background);
 
 	/**
+	 * Return the cached value or load it in the background.<BR>
+	 * The listener is only called with a loaded value,it is not called if the
+	 * resource is missing or can't be loaded.<BR>
 	 * 
 	 * @param urlString
 	 * @param headers
@@ -56,4 +148,11 @@ public interface IHttpCacheService {
 	 */
 	Serializable getElement(String urlString, Map<String, String> headers, LoadFinishListener<Serializable> listener);
 
+	/**
+	 * Return the counters of the cache.<BR>
+	 *
+	 * @return
+	 */
+	CacheStatistics getStatistics();
+
 }
@@ -4,7 +4,7 @@
 package org.aquarius.service.manager;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.aquarius.log.LogUtil;
 import org.aquarius.service.IReloadable;
@@ -20,7 +20,8 @@ public final class ReloadManager {
 
 	private Logger log = LogUtil.getLogger(getClass());
 
-	private Collection<IReloadable> elements = new HashSet<>();
+	private Collection<IReloadable> elements = new CopyOnWriteArraySet<>();
+	// The elements are registered by the services while the others are reloading.
 
 	/**
 	 * 
@@ -3,17 +3,24 @@
  */
 package org.aquarius.ui.util;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.aquarius.ui.UiActivator;
 import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
 
 /**
  * @author aquarius.github@hotmail.com
@@ -95,7 +102,9 @@ public class ImageUtil {
 	}
 
 	/**
-	 * 
+	 * Decode the image and convert it to the image data of swt directly.<BR>
+	 * The format is not used any more,the image is not encoded again.<BR>
+	 *
 	 * @param inputStream
 	 * @param format
 	 * @param errorImageData
@@ -105,16 +114,196 @@ public class ImageUtil {
 		try {
 			BufferedImage bufferedImage = ImageIO.read(inputStream);
 
-			ByteArrayOutputStream output = new ByteArrayOutputStream();
-			ImageIO.write(bufferedImage, format, output);
+			if (null == bufferedImage) {
+				return errorImageData;
+			}
+
+			return toImageData(bufferedImage);
+
+		} catch (Exception e) {
+			return errorImageData;
+		}
+
+	}
+
+	/**
+	 * Decode the image to fit the size.<BR>
+	 * The reader skips the pixels which are not needed,so a large image is not
+	 * decoded at its full size.<BR>
+	 *
+	 * @param bytes
+	 * @param maxWidth  0 or a negative value means the original width.
+	 * @param maxHeight 0 or a negative value means the original height.
+	 * @return
+	 * @throws IOException
+	 */
+	public static ImageData decodeThumbnail(byte[] bytes, int maxWidth, int maxHeight) throws IOException {
+
+		try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+
+			if (!readers.hasNext()) {
+				throw new IOException("The format of the image is not supported.");
+			}
+
+			ImageReader reader = readers.next();
+
+			try {
+				reader.setInput(imageInputStream, true, true);
+
+				int width = reader.getWidth(0);
+				int height = reader.getHeight(0);
+
+				ImageReadParam readParam = reader.getDefaultReadParam();
+				int subsampling = computeSubsampling(width, height, maxWidth, maxHeight);
 
-			ByteArrayInputStream innerInput = new ByteArrayInputStream(output.toByteArray());
-			return new ImageData(innerInput);
+				if (subsampling > 1) {
+					readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				}
 
+				BufferedImage bufferedImage = reader.read(0, readParam);
+
+				return toImageData(scaleToFit(bufferedImage, maxWidth, maxHeight));
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Decode the image to fit the size,the error image data is returned if it
+	 * fails.<BR>
+	 *
+	 * @param bytes
+	 * @param maxWidth
+	 * @param maxHeight
+	 * @param errorImageData
+	 * @return
+	 */
+	public static ImageData decodeThumbnailQuietly(byte[] bytes, int maxWidth, int maxHeight, ImageData errorImageData) {
+		try {
+			return decodeThumbnail(bytes, maxWidth, maxHeight);
 		} catch (Exception e) {
 			return errorImageData;
 		}
+	}
+
+	/**
+	 * Return the largest step of the pixels to be read,the decoded image is still
+	 * not smaller than the size.<BR>
+	 *
+	 * @param width
+	 * @param height
+	 * @param maxWidth
+	 * @param maxHeight
+	 * @return
+	 */
+	private static int computeSubsampling(int width, int height, int maxWidth, int maxHeight) {
+
+		if ((maxWidth <= 0) || (maxHeight <= 0)) {
+			return 1;
+		}
+
+		return Math.max(1, Math.min(width / maxWidth, height / maxHeight));
+	}
+
+	/**
+	 * Scale the image to fit the size,the ratio is kept and a smaller image is
+	 * not enlarged.<BR>
+	 *
+	 * @param bufferedImage
+	 * @param maxWidth
+	 * @param maxHeight
+	 * @return
+	 */
+	private static BufferedImage scaleToFit(BufferedImage bufferedImage, int maxWidth, int maxHeight) {
+		int width = bufferedImage.getWidth();
+		int height = bufferedImage.getHeight();
+
+		if ((maxWidth <= 0) || (maxHeight <= 0) || ((width <= maxWidth) && (height <= maxHeight))) {
+			return bufferedImage;
+		}
+
+		double scale = Math.min((double) maxWidth / width, (double) maxHeight / height);
+
+		int scaledWidth = Math.max(1, (int) Math.round(width * scale));
+		int scaledHeight = Math.max(1, (int) Math.round(height * scale));
+
+		boolean hasAlpha = bufferedImage.getColorModel().hasAlpha();
+		BufferedImage scaledImage = new BufferedImage(scaledWidth, scaledHeight, hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+
+		Graphics2D graphics = scaledImage.createGraphics();
+
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.drawImage(bufferedImage, 0, 0, scaledWidth, scaledHeight, null);
+		} finally {
+			graphics.dispose();
+		}
+
+		return scaledImage;
+	}
+
+	/**
+	 * Convert the image of awt to the image data of swt.<BR>
+	 *
+	 * @param bufferedImage
+	 * @return
+	 */
+	public static ImageData toImageData(BufferedImage bufferedImage) {
+		int width = bufferedImage.getWidth();
+		int height = bufferedImage.getHeight();
+
+		boolean hasAlpha = bufferedImage.getColorModel().hasAlpha();
+
+		PaletteData paletteData = new PaletteData(0xFF0000, 0xFF00, 0xFF);
+		ImageData imageData = new ImageData(width, height, 24, paletteData);
+
+		if (hasAlpha) {
+			imageData.alphaData = new byte[width * height];
+		}
+
+		int[] pixels = new int[width];
+
+		for (int y = 0; y < height; y++) {
+			bufferedImage.getRGB(0, y, width, 1, pixels, 0, width);
+			imageData.setPixels(0, y, width, pixels, 0);
+
+			if (hasAlpha) {
+				for (int x = 0; x < width; x++) {
+					imageData.alphaData[y * width + x] = (byte) (pixels[x] >>> 24);
+				}
+			}
+		}
+		// The alpha of the pixels is ignored by the direct palette.
+
+		return imageData;
+	}
+
+	/**
+	 * Return the bytes used by the image data.<BR>
+	 *
+	 * @param imageData
+	 * @return
+	 */
+	public static long getMemorySize(ImageData imageData) {
+
+		if (null == imageData) {
+			return 0;
+		}
+
+		long size = (null == imageData.data) ? 0 : imageData.data.length;
+
+		if (null != imageData.alphaData) {
+			size = size + imageData.alphaData.length;
+		}
+
+		if (null != imageData.maskData) {
+			size = size + imageData.maskData.length;
+		}
 
+		return size;
 	}
 
 	/**
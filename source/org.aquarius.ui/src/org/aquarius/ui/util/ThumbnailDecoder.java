@@ -0,0 +1,375 @@
+/**
+ *
+ */
+package org.aquarius.ui.util;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.aquarius.log.LogUtil;
+import org.aquarius.util.ExecutorUtil;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.widgets.Display;
+import org.slf4j.Logger;
+
+/**
+ * Decode the thumbnails of images in the background.<BR>
+ * An image is decoded once to the size of the control which shows it,the
+ * decoded thumbnails are kept in a cache limited by their memory size,the
+ * least recently used ones are removed first.<BR>
+ * The callbacks are called in the ui thread.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public final class ThumbnailDecoder {
+
+	private static final int MaxThreadCount = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+	private static final long MaxCacheSize = 64L * 1024 * 1024;
+
+	private static final long SlowDecodeTime = 500;
+
+	private static final ThumbnailDecoder Instance = new ThumbnailDecoder();
+
+	private final Logger logger = LogUtil.getLogger(this.getClass());
+
+	private final ThreadPoolExecutor decodeExecutor;
+
+	private final LinkedHashMap<String, ImageData> thumbnailCache = new LinkedHashMap<>(64, 0.75f, true);
+
+	private final Map<String, List<Consumer<ImageData>>> pendingCallbacks = new HashMap<>();
+
+	private long cacheSize;
+
+	private final DecodeStatistics statistics = new DecodeStatistics();
+
+	/**
+	 *
+	 */
+	private ThumbnailDecoder() {
+		super();
+
+		this.decodeExecutor = ExecutorUtil.createDaemonExecutor("thumbnail decoder", MaxThreadCount);
+	}
+
+	/**
+	 * @return the instance
+	 */
+	public static ThumbnailDecoder getInstance() {
+		return Instance;
+	}
+
+	/**
+	 * Decode the image to fit the size and pass the thumbnail to the callback.<BR>
+	 * The cached thumbnail is passed at once,the requests of the same image and
+	 * size share one decoding.<BR>
+	 *
+	 * @param urlString the url of the image,it is the key of the cache.
+	 * @param bytes
+	 * @param width     0 or a negative value means the original size.
+	 * @param height    0 or a negative value means the original size.
+	 * @param callback  it is called in the ui thread,the error image data is
+	 *                  passed if the image can't be decoded.
+	 */
+	public void decode(String urlString, byte[] bytes, int width, int height, Consumer<ImageData> callback) {
+
+		String key = createKey(urlString, width, height);
+
+		synchronized (this) {
+			ImageData imageData = this.thumbnailCache.get(key);
+
+			if (null != imageData) {
+				this.statistics.hitCount.increment();
+				runInUiThread(callback, imageData);
+				return;
+			}
+
+			List<Consumer<ImageData>> callbackList = this.pendingCallbacks.get(key);
+
+			if (null != callbackList) {
+				callbackList.add(callback);
+				return;
+			}
+			// The image is being decoded.
+
+			callbackList = new ArrayList<>();
+			callbackList.add(callback);
+			this.pendingCallbacks.put(key, callbackList);
+		}
+
+		this.statistics.missCount.increment();
+		this.decodeExecutor.execute(() -> this.doDecode(key, bytes, width, height));
+	}
+
+	/**
+	 * @param key
+	 * @param bytes
+	 * @param width
+	 * @param height
+	 */
+	private void doDecode(String key, byte[] bytes, int width, int height) {
+		ImageData imageData = null;
+
+		try {
+			imageData = this.decodeThumbnail(key, bytes, width, height);
+		} finally {
+			List<Consumer<ImageData>> callbackList;
+
+			synchronized (this) {
+				callbackList = this.pendingCallbacks.remove(key);
+
+				if (null != imageData) {
+					this.putCache(key, imageData);
+				}
+			}
+			// The pending callbacks are removed even if an error is thrown,so the image
+			// can be decoded again.
+
+			ImageData resultImageData = (null == imageData) ? ImageUtil.ErrorImageData : imageData;
+
+			for (Consumer<ImageData> callback : callbackList) {
+				runInUiThread(callback, resultImageData);
+			}
+		}
+	}
+
+	/**
+	 * @param key
+	 * @param bytes
+	 * @param width
+	 * @param height
+	 * @return null if the image can't be decoded.
+	 */
+	private ImageData decodeThumbnail(String key, byte[] bytes, int width, int height) {
+		long startTime = System.currentTimeMillis();
+
+		ImageData imageData = null;
+
+		try {
+			imageData = ImageUtil.decodeThumbnail(bytes, width, height);
+		} catch (Exception e) {
+			imageData = decodeBySwt(bytes);
+			// Some formats are only supported by swt,the image is not scaled then.
+
+			if (null == imageData) {
+				this.statistics.failedCount.increment();
+				this.logger.debug("decode thumbnail " + key, e);
+			}
+		}
+
+		long costTime = System.currentTimeMillis() - startTime;
+		this.statistics.record(costTime);
+
+		if (costTime >= SlowDecodeTime) {
+			this.logger.warn("decode thumbnail " + key + " costs " + costTime + " ms.");
+		}
+
+		return imageData;
+	}
+
+	/**
+	 * Put the thumbnail into the cache and remove the least recently used ones if
+	 * the cache is too large.<BR>
+	 *
+	 * @param key
+	 * @param imageData
+	 */
+	private void putCache(String key, ImageData imageData) {
+		ImageData oldImageData = this.thumbnailCache.put(key, imageData);
+
+		this.cacheSize = this.cacheSize + ImageUtil.getMemorySize(imageData) - ImageUtil.getMemorySize(oldImageData);
+
+		Iterator<ImageData> iterator = this.thumbnailCache.values().iterator();
+
+		while ((this.cacheSize > MaxCacheSize) && (this.thumbnailCache.size() > 1) && iterator.hasNext()) {
+			this.cacheSize = this.cacheSize - ImageUtil.getMemorySize(iterator.next());
+			iterator.remove();
+
+			this.statistics.evictedCount.increment();
+		}
+	}
+
+	/**
+	 * Remove all the cached thumbnails.<BR>
+	 */
+	public synchronized void clear() {
+		this.thumbnailCache.clear();
+		this.cacheSize = 0;
+	}
+
+	/**
+	 * Return the statistics of decoding.<BR>
+	 *
+	 * @return
+	 */
+	public DecodeStatistics getStatistics() {
+		return this.statistics;
+	}
+
+	/**
+	 * Return the count of the cached thumbnails.<BR>
+	 *
+	 * @return
+	 */
+	public synchronized int getCachedCount() {
+		return this.thumbnailCache.size();
+	}
+
+	/**
+	 * Return the bytes used by the cached thumbnails.<BR>
+	 *
+	 * @return
+	 */
+	public synchronized long getCacheSize() {
+		return this.cacheSize;
+	}
+
+	/**
+	 * @param callback
+	 * @param imageData
+	 */
+	private static void runInUiThread(Consumer<ImageData> callback, ImageData imageData) {
+		if (SwtUtil.isUThread()) {
+			callback.accept(imageData);
+		} else {
+			Display.getDefault().asyncExec(() -> callback.accept(imageData));
+		}
+	}
+
+	/**
+	 * @param bytes
+	 * @return null if the image can't be decoded.
+	 */
+	private static ImageData decodeBySwt(byte[] bytes) {
+		try {
+			return new ImageData(new ByteArrayInputStream(bytes));
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param urlString
+	 * @param width
+	 * @param height
+	 * @return
+	 */
+	private static String createKey(String urlString, int width, int height) {
+		return Math.max(0, width) + "x" + Math.max(0, height) + ":" + urlString;
+	}
+
+	/**
+	 * The statistics of decoding thumbnails.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	public static final class DecodeStatistics {
+
+		private final LongAdder hitCount = new LongAdder();
+
+		private final LongAdder missCount = new LongAdder();
+
+		private final LongAdder failedCount = new LongAdder();
+
+		private final LongAdder evictedCount = new LongAdder();
+
+		private final LongAdder decodedCount = new LongAdder();
+
+		private final LongAdder totalTime = new LongAdder();
+
+		private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
+
+		/**
+		 *
+		 */
+		private DecodeStatistics() {
+			super();
+		}
+
+		/**
+		 * @param costTime
+		 */
+		private void record(long costTime) {
+			this.decodedCount.increment();
+			this.totalTime.add(costTime);
+			this.maxTime.accumulate(costTime);
+		}
+
+		/**
+		 * @return the hitCount
+		 */
+		public long getHitCount() {
+			return this.hitCount.sum();
+		}
+
+		/**
+		 * @return the missCount
+		 */
+		public long getMissCount() {
+			return this.missCount.sum();
+		}
+
+		/**
+		 * @return the failedCount
+		 */
+		public long getFailedCount() {
+			return this.failedCount.sum();
+		}
+
+		/**
+		 * @return the evictedCount
+		 */
+		public long getEvictedCount() {
+			return this.evictedCount.sum();
+		}
+
+		/**
+		 * @return the decodedCount
+		 */
+		public long getDecodedCount() {
+			return this.decodedCount.sum();
+		}
+
+		/**
+		 * Return the average time of decoding in milliseconds.<BR>
+		 *
+		 * @return
+		 */
+		public long getAverageTime() {
+			long count = this.getDecodedCount();
+			return (count == 0) ? 0 : (this.totalTime.sum() / count);
+		}
+
+		/**
+		 * Return the max time of decoding in milliseconds.<BR>
+		 *
+		 * @return
+		 */
+		public long getMaxTime() {
+			return this.maxTime.get();
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public String toString() {
+			ThumbnailDecoder decoder = ThumbnailDecoder.getInstance();
+
+			return "DecodeStatistics [hitCount=" + this.getHitCount() + ", missCount=" + this.getMissCount() + ", failedCount=" + this.getFailedCount()
+					+ ", evictedCount=" + this.getEvictedCount() + ", averageTime=" + this.getAverageTime() + ", maxTime=" + this.getMaxTime()
+					+ ", cachedCount=" + decoder.getCachedCount() + ", cacheSize=" + decoder.getCacheSize() + "]";
+		}
+	}
+}
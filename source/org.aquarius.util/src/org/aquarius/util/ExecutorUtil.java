@@ -0,0 +1,51 @@
+/**
+ *
+ */
+package org.aquarius.util;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor function provider.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public class ExecutorUtil {
+
+	private static final long KeepAliveTime = 60L;
+
+	/**
+	 *
+	 */
+	private ExecutorUtil() {
+		// No instances needed.
+	}
+
+	/**
+	 * Create a pool of daemon threads for background work.<BR>
+	 * The threads are named by the name and a sequence number,they exit after
+	 * being idle for a minute,so an unused pool holds no thread.<BR>
+	 * The tasks are queued without limit when all the threads are busy.<BR>
+	 *
+	 * @param threadName     the prefix of the thread names.
+	 * @param maxThreadCount
+	 * @return
+	 */
+	public static ThreadPoolExecutor createDaemonExecutor(String threadName, int maxThreadCount) {
+		AtomicInteger threadCount = new AtomicInteger();
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreadCount, maxThreadCount, KeepAliveTime, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), runnable -> {
+					Thread thread = new Thread(runnable, threadName + " " + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+}
@@ -193,6 +193,41 @@ public class StringUtil {
 		return builder.toString();
 	}
 
+	/**
+	 * Fold the case of a character the same as
+	 * {@link String#regionMatches(boolean, int, String, int, int)},which is used
+	 * by {@link StringUtils#containsIgnoreCase(String, String)}.<BR>
+	 *
+	 * @param character
+	 * @return
+	 */
+	public static char foldCase(char character) {
+		return Character.toLowerCase(Character.toUpperCase(character));
+	}
+
+	/**
+	 * Fold the case of every character.<BR>
+	 * Unlike {@link String#toUpperCase()} the length is never changed,so a folded
+	 * string contains a folded keyword if and only if the string contains the
+	 * keyword ignoring case.<BR>
+	 *
+	 * @param content
+	 * @return
+	 */
+	public static String foldCase(String content) {
+		if (null == content) {
+			return null;
+		}
+
+		char[] characters = content.toCharArray();
+
+		for (int i = 0; i < characters.length; i++) {
+			characters[i] = foldCase(characters[i]);
+		}
+
+		return new String(characters);
+	}
+
 	/**
 	 * Return whether the keyword has wild card symbol of "*" or "?".<BR>
 	 * 
@@ -0,0 +1,86 @@
+/**
+ *
+ */
+package org.aquarius.util.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of direct byte buffers.<BR>
+ * Direct buffers are expensive to allocate and are only released by gc,so the
+ * buffers are reused instead of being created for every io operation.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public final class ByteBufferPool {
+
+	private final int bufferSize;
+
+	private final BlockingQueue<ByteBuffer> idleBuffers;
+
+	/**
+	 * @param bufferSize   the capacity of every buffer.
+	 * @param maxIdleCount how many buffers can be kept for reuse.
+	 */
+	public ByteBufferPool(int bufferSize, int maxIdleCount) {
+		super();
+
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("The buffer size should be greater than 0.");
+		}
+
+		this.bufferSize = bufferSize;
+		this.idleBuffers = new ArrayBlockingQueue<>(Integer.max(maxIdleCount, 1));
+	}
+
+	/**
+	 * Borrow a cleared buffer.<BR>
+	 * If no idle buffer is available,a new one will be allocated.<BR>
+	 *
+	 * @return
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = this.idleBuffers.poll();
+
+		if (null == buffer) {
+			return ByteBuffer.allocateDirect(this.bufferSize);
+		}
+
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Return a buffer to the pool.<BR>
+	 * If the pool is full or the buffer is not from this pool,it will be dropped.
+	 *
+	 * @param buffer
+	 */
+	public void release(ByteBuffer buffer) {
+		if ((null == buffer) || (buffer.capacity() != this.bufferSize)) {
+			return;
+		}
+
+		buffer.clear();
+		this.idleBuffers.offer(buffer);
+	}
+
+	/**
+	 * @return the bufferSize
+	 */
+	public int getBufferSize() {
+		return this.bufferSize;
+	}
+
+	/**
+	 * Return how many buffers are kept for reuse.<BR>
+	 *
+	 * @return
+	 */
+	public int getIdleCount() {
+		return this.idleBuffers.size();
+	}
+}
@@ -4,8 +4,14 @@
 package org.aquarius.util.io;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -155,4 +161,29 @@ public class FileUtil {
 		}
 	}
 
+	/**
+	 * Write the contents to a temporary file and move it to the target.<BR>
+	 * The target is either the old contents or the new contents,even if the
+	 * process is killed while writing.<BR>
+	 *
+	 * @param file
+	 * @param contents
+	 * @param encoding
+	 * @throws IOException
+	 */
+	public static void writeAtomically(File file, String contents, String encoding) throws IOException {
+		File tempFile = new File(file.getAbsolutePath() + ".tmp");
+
+		try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+			outputStream.write(contents.getBytes(Charset.forName(encoding)));
+			outputStream.getFD().sync();
+		}
+
+		try {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
 }
@@ -0,0 +1,153 @@
+/**
+ *
+ */
+package org.aquarius.util.io;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measure the transfer speed in a sliding time window.<BR>
+ * The window is divided into buckets,the bytes are added to the bucket of the
+ * current time without lock,so many threads can report the progress at the same
+ * time.<BR>
+ * The old buckets fall out of the window,so the speed drops to 0 when nothing
+ * is transferred.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public final class SpeedMeter {
+
+	private static final long MillisPerSecond = 1000;
+
+	private final int bucketCount;
+
+	private final long bucketInterval;
+
+	private final AtomicReferenceArray<Bucket> buckets;
+
+	private volatile long startTime = 0;
+
+	/**
+	 * Create a window of 5 seconds.<BR>
+	 */
+	public SpeedMeter() {
+		this(5, MillisPerSecond);
+	}
+
+	/**
+	 * @param bucketCount    how many buckets in the window.
+	 * @param bucketInterval the time in milliseconds of a bucket.
+	 */
+	public SpeedMeter(int bucketCount, long bucketInterval) {
+		super();
+
+		if ((bucketCount < 2) || (bucketInterval <= 0)) {
+			throw new IllegalArgumentException("The window should have 2 buckets at least and the interval should be greater than 0.");
+		}
+
+		this.bucketCount = bucketCount;
+		this.bucketInterval = bucketInterval;
+
+		this.buckets = new AtomicReferenceArray<>(bucketCount);
+	}
+
+	/**
+	 * Add the transferred bytes at the current time.<BR>
+	 *
+	 * @param length
+	 */
+	public void add(long length) {
+		if (length == 0) {
+			return;
+		}
+
+		long currentTime = System.currentTimeMillis();
+
+		if (this.startTime == 0) {
+			this.startTime = currentTime;
+		}
+
+		long epoch = currentTime / this.bucketInterval;
+		int index = (int) (epoch % this.bucketCount);
+
+		Bucket bucket = this.buckets.get(index);
+
+		while ((null == bucket) || (bucket.epoch != epoch)) {
+			Bucket newBucket = new Bucket(epoch);
+
+			if (this.buckets.compareAndSet(index, bucket, newBucket)) {
+				bucket = newBucket;
+			} else {
+				bucket = this.buckets.get(index);
+			}
+		}
+		// An expired bucket is replaced with its epoch and length together,so no
+		// bytes of the current epoch are cleared by another thread.
+
+		bucket.length.add(length);
+	}
+
+	/**
+	 * Return the bytes per second in the window.<BR>
+	 *
+	 * @return
+	 */
+	public long getSpeed() {
+		long currentTime = System.currentTimeMillis();
+		long epoch = currentTime / this.bucketInterval;
+
+		long totalLength = 0;
+
+		for (int i = 0; i < this.bucketCount; i++) {
+			Bucket bucket = this.buckets.get(i);
+
+			if ((null != bucket) && (bucket.epoch > epoch - this.bucketCount) && (bucket.epoch <= epoch)) {
+				totalLength = totalLength + bucket.length.sum();
+			}
+		}
+
+		if (totalLength == 0) {
+			return 0;
+		}
+
+		long windowTime = ((this.bucketCount - 1) * this.bucketInterval) + (currentTime % this.bucketInterval);
+		windowTime = Math.min(windowTime, Math.max(currentTime - this.startTime, this.bucketInterval));
+		// The window is not full after the transfer is started.
+
+		return (totalLength * MillisPerSecond) / Math.max(windowTime, 1);
+	}
+
+	/**
+	 * Clear all the buckets.<BR>
+	 */
+	public void reset() {
+		this.startTime = 0;
+
+		for (int i = 0; i < this.bucketCount; i++) {
+			this.buckets.set(i, null);
+		}
+	}
+
+	/**
+	 * The bytes transferred in one interval.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	private static final class Bucket {
+
+		private final long epoch;
+
+		private final LongAdder length = new LongAdder();
+
+		/**
+		 * @param epoch
+		 */
+		private Bucket(long epoch) {
+			super();
+			this.epoch = epoch;
+		}
+	}
+}
@@ -0,0 +1,423 @@
+/**
+ *
+ */
+package org.aquarius.util.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Open and release http connections so the sockets can be reused.<BR>
+ * The jdk keeps the socket of a connection alive only if the response body is
+ * read to the end and the stream is closed without
+ * {@link HttpURLConnection#disconnect()}.So the connections opened here should
+ * be given back by {@link #release(URLConnection, InputStream)},a short left
+ * body is drained and the socket goes back to the keep alive cache.<BR>
+ * The count of open connections to a host can be limited by a resolver,and the
+ * statistics of every host are kept for monitoring.<BR>
+ *
+ * @author aquarius.github@gmail.com
+ *
+ */
+public final class HttpConnectionPool {
+
+	private static final String KeyMaxConnections = "http.maxConnections";
+
+	private static final int DefaultMaxIdleConnections = 16;
+
+	private static final int MaxDrainLength = 64 * 1024;
+
+	private static final long DefaultWaitTime = 30 * 1000;
+
+	private static final Map<String, HostStatistics> HostStatisticsMap = new ConcurrentHashMap<>();
+
+	private static final Set<URLConnection> LeasedConnections = ConcurrentHashMap.newKeySet();
+
+	private static volatile ToIntFunction<String> hostLimitResolver = host -> 0;
+
+	static {
+		if (StringUtils.isBlank(System.getProperty(KeyMaxConnections))) {
+			System.setProperty(KeyMaxConnections, Integer.toString(DefaultMaxIdleConnections));
+		}
+		// The default cache only keeps 5 idle sockets for a host,less than the
+		// threads of the downloaders.
+	}
+
+	/**
+	 *
+	 */
+	private HttpConnectionPool() {
+		// No instances needed
+	}
+
+	/**
+	 * Set the resolver to return the max count of open connections for a
+	 * host.<BR>
+	 * 0 or a negative value means no limit.<BR>
+	 *
+	 * @param resolver
+	 */
+	public static void setHostLimitResolver(ToIntFunction<String> resolver) {
+		if (null == resolver) {
+			hostLimitResolver = host -> 0;
+		} else {
+			hostLimitResolver = resolver;
+		}
+	}
+
+	/**
+	 * Open a connection for the url.<BR>
+	 * If the host has reached its limit,it waits for another connection to be
+	 * released.<BR>
+	 *
+	 * @param url
+	 * @return
+	 * @throws IOException if the connection can't be opened or the waiting is
+	 *                     timeout.
+	 */
+	public static URLConnection openConnection(URL url) throws IOException {
+
+		String host = url.getHost();
+		HostStatistics hostStatistics = HostStatisticsMap.computeIfAbsent(host, HostStatistics::new);
+
+		hostStatistics.acquire(hostLimitResolver.applyAsInt(host), DefaultWaitTime);
+
+		try {
+			URLConnection connection = url.openConnection();
+			LeasedConnections.add(connection);
+
+			return connection;
+		} catch (IOException | RuntimeException e) {
+			hostStatistics.release(false);
+			throw e;
+		}
+	}
+
+	/**
+	 * Give the connection back after the response is used.<BR>
+	 * If the left body is short,it will be drained and the socket can be reused
+	 * by the next request to the same host,otherwise the connection is
+	 * disconnected.<BR>
+	 *
+	 * @param connection
+	 * @param inputStream the response stream or null if it is not opened.
+	 */
+	public static void release(URLConnection connection, InputStream inputStream) {
+		if (null == connection) {
+			return;
+		}
+
+		boolean reusable;
+
+		if (null != inputStream) {
+			reusable = drain(inputStream);
+			IOUtils.closeQuietly(inputStream);
+		} else if (connection instanceof HttpURLConnection) {
+			InputStream errorStream = ((HttpURLConnection) connection).getErrorStream();
+			reusable = drain(errorStream);
+			IOUtils.closeQuietly(errorStream);
+		} else {
+			reusable = false;
+		}
+		// For error status,the body is in the error stream.
+
+		if (!reusable) {
+			IOUtils.close(connection);
+		}
+
+		if (LeasedConnections.remove(connection)) {
+			HostStatistics hostStatistics = HostStatisticsMap.get(connection.getURL().getHost());
+
+			if (null != hostStatistics) {
+				hostStatistics.release(reusable);
+			}
+		}
+	}
+
+	/**
+	 * Give the connection back after only the headers of the response are
+	 * used.<BR>
+	 * A short body is drained from the response stream,or the error stream for an
+	 * error status,a long body is not read and the connection is
+	 * disconnected.<BR>
+	 *
+	 * @param connection
+	 */
+	public static void release(URLConnection connection) {
+		if (null == connection) {
+			return;
+		}
+
+		if (connection.getContentLengthLong() > MaxDrainLength) {
+			abort(connection, null);
+			return;
+		}
+
+		InputStream inputStream = null;
+
+		try {
+			inputStream = connection.getInputStream();
+		} catch (IOException e) {
+			// Nothing to do
+		}
+		// For error status,the response stream can't be opened.
+
+		release(connection, inputStream);
+	}
+
+	/**
+	 * Disconnect the connection without reusing the socket.<BR>
+	 * It should be used when the response is abandoned in the middle.<BR>
+	 *
+	 * @param connection
+	 * @param inputStream
+	 */
+	public static void abort(URLConnection connection, InputStream inputStream) {
+		if (null == connection) {
+			return;
+		}
+
+		IOUtils.closeQuietly(inputStream);
+		IOUtils.close(connection);
+
+		if (LeasedConnections.remove(connection)) {
+			HostStatistics hostStatistics = HostStatisticsMap.get(connection.getURL().getHost());
+
+			if (null != hostStatistics) {
+				hostStatistics.release(false);
+			}
+		}
+	}
+
+	/**
+	 * Return the statistics of all the hosts ordered by host name.<BR>
+	 *
+	 * @return
+	 */
+	public static Map<String, HostStatistics> getStatistics() {
+		return Collections.unmodifiableMap(new TreeMap<>(HostStatisticsMap));
+	}
+
+	/**
+	 * Read the left bytes of the stream.<BR>
+	 *
+	 * @param inputStream
+	 * @return true if the stream is read to the end.
+	 */
+	private static boolean drain(InputStream inputStream) {
+		if (null == inputStream) {
+			return false;
+		}
+
+		try {
+			byte[] buffer = new byte[4096];
+			int totalLength = 0;
+			int length;
+
+			while ((length = inputStream.read(buffer)) != -1) {
+				totalLength = totalLength + length;
+
+				if (totalLength > MaxDrainLength) {
+					return false;
+				}
+			}
+
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * The connection statistics of a host.<BR>
+	 *
+	 * @author aquarius.github@gmail.com
+	 *
+	 */
+	public static final class HostStatistics {
+
+		private final String host;
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final Condition released = this.lock.newCondition();
+
+		private int activeCount;
+
+		private int peakCount;
+
+		private final LongAdder openedCount = new LongAdder();
+
+		private final LongAdder keepAliveCount = new LongAdder();
+
+		private final LongAdder disconnectedCount = new LongAdder();
+
+		private final LongAdder waitedCount = new LongAdder();
+
+		/**
+		 * @param host
+		 */
+		private HostStatistics(String host) {
+			super();
+			this.host = host;
+		}
+
+		/**
+		 * Wait until the count of open connections is under the limit.<BR>
+		 * A lock is used instead of a monitor,so a virtual thread waiting for the
+		 * host doesn't pin its carrier thread.<BR>
+		 *
+		 * @param limit
+		 * @param waitTime
+		 * @throws IOException
+		 */
+		private void acquire(int limit, long waitTime) throws IOException {
+			this.lock.lock();
+
+			try {
+				if ((limit > 0) && (this.activeCount >= limit)) {
+					this.waitedCount.increment();
+
+					long leftTime = TimeUnit.MILLISECONDS.toNanos(waitTime);
+
+					while (this.activeCount >= limit) {
+						if (leftTime <= 0) {
+							throw new IOException("Too many connections to " + this.host + ",the limit is " + limit + ".");
+						}
+
+						try {
+							leftTime = this.released.awaitNanos(leftTime);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new IOException("Interrupted while waiting a connection to " + this.host + ".");
+						}
+					}
+				}
+
+				this.activeCount++;
+				this.peakCount = Math.max(this.peakCount, this.activeCount);
+				this.openedCount.increment();
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		/**
+		 * @param keepAlive whether the socket is given back to the keep alive cache.
+		 */
+		private void release(boolean keepAlive) {
+			this.lock.lock();
+
+			try {
+				if (this.activeCount > 0) {
+					this.activeCount--;
+				}
+
+				this.released.signal();
+			} finally {
+				this.lock.unlock();
+			}
+
+			if (keepAlive) {
+				this.keepAliveCount.increment();
+			} else {
+				this.disconnectedCount.increment();
+			}
+		}
+
+		/**
+		 * @return the host
+		 */
+		public String getHost() {
+			return this.host;
+		}
+
+		/**
+		 * Return how many connections are in use.<BR>
+		 *
+		 * @return
+		 */
+		public int getActiveCount() {
+			this.lock.lock();
+
+			try {
+				return this.activeCount;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		/**
+		 * Return the max count of connections used at the same time.<BR>
+		 *
+		 * @return
+		 */
+		public int getPeakCount() {
+			this.lock.lock();
+
+			try {
+				return this.peakCount;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		/**
+		 * @return the openedCount
+		 */
+		public long getOpenedCount() {
+			return this.openedCount.sum();
+		}
+
+		/**
+		 * Return how many connections were released with the socket kept alive.<BR>
+		 *
+		 * @return
+		 */
+		public long getKeepAliveCount() {
+			return this.keepAliveCount.sum();
+		}
+
+		/**
+		 * @return the disconnectedCount
+		 */
+		public long getDisconnectedCount() {
+			return this.disconnectedCount.sum();
+		}
+
+		/**
+		 * Return how many times the limit of the host made a request wait.<BR>
+		 *
+		 * @return
+		 */
+		public long getWaitedCount() {
+			return this.waitedCount.sum();
+		}
+
+		/**
+		 * {@inheritDoc}}
+		 */
+		@Override
+		public String toString() {
+			return "HostStatistics [host=" + this.host + ", activeCount=" + this.getActiveCount() + ", peakCount=" + this.getPeakCount() + ", openedCount="
+					+ this.getOpenedCount() + ", keepAliveCount=" + this.getKeepAliveCount() + ", disconnectedCount=" + this.getDisconnectedCount()
+					+ ", waitedCount=" + this.getWaitedCount() + "]";
+		}
+	}
+}
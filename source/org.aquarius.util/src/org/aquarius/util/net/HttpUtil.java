@@ -17,6 +17,7 @@ import java.util.StringJoiner;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
+import org.aquarius.util.ObjectHolder;
 import org.aquarius.util.StringUtil;
 
 /**
@@ -63,6 +64,23 @@ public class HttpUtil {
 	 * @throws IOException
 	 */
 	public static byte[] doGetByteArray(String urlString, int timeout, Map<String, String> headers) throws IOException {
+		return doGetByteArray(urlString, timeout, headers, null);
+	}
+
+	/**
+	 * Access a url with get ,then return value in byte array format.<BR>
+	 * The response code is passed to the holder,so the caller can tell a missing
+	 * resource from a busy server when null is returned.<BR>
+	 *
+	 * @param urlString
+	 * @param timeout
+	 * @param headers
+	 * @param responseCodeHolder it can be null.
+	 * @return null if the response code is not 200.
+	 * @throws IOException
+	 */
+	public static byte[] doGetByteArray(String urlString, int timeout, Map<String, String> headers, ObjectHolder<Integer> responseCodeHolder)
+			throws IOException {
 
 		HttpURLConnection connection = null;
 		InputStream inputStream = null;
@@ -76,13 +94,18 @@ public class HttpUtil {
 			updateHttpConnectionHeader(connection, headers);
 
 			connection.connect();
-			if (connection.getResponseCode() == 200) {
+
+			int responseCode = connection.getResponseCode();
+			if (null != responseCodeHolder) {
+				responseCodeHolder.setValue(responseCode);
+			}
+
+			if (responseCode == 200) {
 				inputStream = connection.getInputStream();
 				return IOUtils.toByteArray(inputStream);
 			}
 		} finally {
-			IOUtils.closeQuietly(inputStream);
-			IOUtils.close(connection);
+			HttpConnectionPool.release(connection, inputStream);
 		}
 
 		return null;
@@ -179,9 +202,7 @@ public class HttpUtil {
 			}
 
 		} finally {
-
-			IOUtils.closeQuietly(inputStream);
-			IOUtils.close(httpConnection);
+			HttpConnectionPool.release(httpConnection, inputStream);
 		}
 
 		return result.toString();
@@ -205,7 +226,7 @@ public class HttpUtil {
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		} finally {
-			IOUtils.close(httpConnection);
+			HttpConnectionPool.release(httpConnection);
 		}
 	}
 
@@ -244,7 +265,7 @@ public class HttpUtil {
 			// get the cookie if need, for login
 			String cookies = httpConnection.getHeaderField(SetCookie);
 
-			httpConnection.disconnect();
+			HttpConnectionPool.release(httpConnection);
 
 			// open the new connnection again
 			httpConnection = (HttpURLConnection) new URL(newUrl).openConnection();
@@ -338,7 +359,6 @@ public class HttpUtil {
 	 */
 	public static String queryRedirectUrl(String urlString, Map<String, String> headers) throws IOException {
 		HttpURLConnection connection = null;
-		InputStream inputStream = null;
 
 		try {
 			URL url = new URL(urlString);
@@ -355,8 +375,7 @@ public class HttpUtil {
 				return connection.getHeaderField(Location);
 			}
 		} finally {
-			IOUtils.closeQuietly(inputStream);
-			IOUtils.close(connection);
+			HttpConnectionPool.release(connection);
 		}
 
 		return null;
@@ -117,16 +117,19 @@ public class SecurityUtil {
 
 	/**
 	 * create a aes cipher to encrypt and decrypt data.<BR>
+	 * It can be used to process a stream block by block without loading all the
+	 * contents.<BR>
 	 *
 	 * @param key
 	 * @param iv
+	 * @param mode {@link Cipher#DECRYPT_MODE} or {@link Cipher#ENCRYPT_MODE}
 	 * @return
 	 * @throws NoSuchAlgorithmException
 	 * @throws NoSuchPaddingException
 	 * @throws InvalidKeyException
 	 * @throws InvalidAlgorithmParameterException
 	 */
-	private static Cipher createAESCipher(byte[] key, byte[] iv, int mode)
+	public static Cipher createAESCipher(byte[] key, byte[] iv, int mode)
 			throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, InvalidAlgorithmParameterException {
 		return createCipher(key, iv, mode, "AES");
 	}